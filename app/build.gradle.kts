@@ -3,6 +3,7 @@ plugins {
     alias(libs.plugins.kotlin.android)
     alias(libs.plugins.kotlin.compose)
     alias(libs.plugins.google.gms.google.services)
+    alias(libs.plugins.baselineprofile)
 }
 
 android {
@@ -17,9 +18,15 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // JankStats, StrictMode and the ANR watchdog (see Monitoring); off in release
+        buildConfigField("boolean", "MONITORING", "false")
     }
 
     buildTypes {
+        debug {
+            buildConfigField("boolean", "MONITORING", "true")
+        }
         release {
             isMinifyEnabled = false
             proguardFiles(
@@ -27,6 +34,20 @@ android {
                 "proguard-rules.pro"
             )
         }
+        // Release-like build the :macrobenchmark module measures against
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+            isDebuggable = false
+        }
+        // Release code with monitoring on, for test devices
+        create("staging") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+            buildConfigField("boolean", "MONITORING", "true")
+        }
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
@@ -34,27 +55,59 @@ android {
     }
     buildFeatures {
         compose = true
+        // BuildConfig.DEBUG gates the recomposition counters, MONITORING the jank monitors
+        buildConfig = true
     }
     kotlinOptions {
         jvmTarget = "11"
     }
+    testOptions {
+        // Needs a heap of its own, see reportExporterTest below
+        unitTests.all { it.exclude("**/ReportExporterTest*") }
+    }
+}
+
+// ReportExporterTest on a small fixed heap, which proves the export streams; the rest
+// of the suite keeps the default heap
+val reportExporterTest by tasks.registering(Test::class) {
+    description = "Runs ReportExporterTest with a 64 MB heap."
+    group = "verification"
+    // Wired through providers so the unit test task is only realised when this one runs
+    val unitTests = tasks.named<Test>("testDebugUnitTest")
+    testClassesDirs = files(unitTests.map { it.testClassesDirs })
+    classpath = files(unitTests.map { it.classpath })
+    filter.includeTestsMatching("com.example.attendo.ReportExporterTest")
+    maxHeapSize = "64m"
 }
 
+tasks.named("check") { dependsOn(reportExporterTest) }
+
 dependencies {
 
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
     implementation(libs.lifecycle.runtime.ktx)
+    implementation(libs.lifecycle.livedata)
     implementation(libs.activity.compose)
     implementation(platform(libs.compose.bom))
     implementation(libs.ui)
     implementation(libs.ui.graphics)
     implementation(libs.ui.tooling.preview)
     implementation(libs.material3)
+    implementation(libs.runtime.livedata)
     implementation(libs.firebase.auth)
     implementation(libs.firebase.database)
+    implementation(libs.firebase.storage)
+    implementation(libs.room.runtime)
+    implementation(libs.work.runtime)
+    implementation(libs.profileinstaller)
+    implementation(libs.tracing)
+    implementation(libs.metrics.performance)
+    implementation(libs.zxing.android.embedded)
+    annotationProcessor(libs.room.compiler)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
@@ -62,4 +115,5 @@ dependencies {
     androidTestImplementation(libs.ui.test.junit4)
     debugImplementation(libs.ui.tooling)
     debugImplementation(libs.ui.test.manifest)
+    baselineProfile(project(":baselineprofile"))
 }
\ No newline at end of file
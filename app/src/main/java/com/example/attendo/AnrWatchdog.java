@@ -0,0 +1,79 @@
+package com.example.attendo;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Background thread that notices when the main thread stops processing messages.
+ *
+ * It posts a no-op to the main thread and checks back every interval. If the no-op has
+ * not run after the timeout, the main thread's stack is captured once for that stall,
+ * and its full length is known once the main thread catches up. Android's own ANR
+ * dialog takes 5 s; a lower timeout catches the freezes users notice long before that.
+ */
+public class AnrWatchdog implements Runnable {
+
+    public interface Listener {
+        /**
+         * @param blockedMs how long the main thread had been stuck when the stack was taken
+         */
+        void onStall(long blockedMs, StackTraceElement[] mainStack);
+    }
+
+    public interface Clock {
+        long nowMs();
+    }
+
+    private final Executor mainThread;
+    private final Thread main;
+    private final long intervalMs;
+    private final long timeoutMs;
+    private final Clock clock;
+    private final Listener listener;
+
+    private long pending;
+    private long postedAt;
+    private boolean reported;
+    private volatile long handled;
+
+    public AnrWatchdog(Executor mainThread, Thread main, long intervalMs, long timeoutMs,
+                       Clock clock, Listener listener) {
+        this.mainThread = mainThread;
+        this.main = main;
+        this.intervalMs = intervalMs;
+        this.timeoutMs = timeoutMs;
+        this.clock = clock;
+        this.listener = listener;
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            step();
+            try {
+                Thread.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * One check: post a tick if none is outstanding, otherwise see whether it ran.
+     */
+    void step() {
+        long now = clock.nowMs();
+        if (pending != 0 && handled == pending) {
+            pending = 0;
+            reported = false;
+        }
+        if (pending == 0) {
+            long tick = handled + 1;
+            pending = tick;
+            postedAt = now;
+            mainThread.execute(() -> handled = tick);
+        } else if (!reported && now - postedAt >= timeoutMs) {
+            reported = true;
+            listener.onStall(now - postedAt, main.getStackTrace());
+        }
+    }
+}
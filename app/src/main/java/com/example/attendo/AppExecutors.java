@@ -0,0 +1,63 @@
+package com.example.attendo;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executors so disk work never runs on the UI thread.
+ */
+public final class AppExecutors {
+
+    private static final ExecutorService DISK_IO = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+    private static final Executor MAIN_THREAD = MAIN::post;
+    private static final ExecutorService COMPUTE = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)),
+            new ThreadFactory("compute"));
+
+    private AppExecutors() {}
+
+    /**
+     * Single background thread for the local database, so writes stay in order.
+     */
+    public static ExecutorService diskIO() {
+        return DISK_IO;
+    }
+
+    /**
+     * Small fixed pool for parsing snapshots and building UI state, see
+     * {@link SnapshotPipeline}. Runs below UI priority so it never competes with drawing.
+     */
+    public static ExecutorService compute() {
+        return COMPUTE;
+    }
+
+    public static Executor mainThread() {
+        return MAIN_THREAD;
+    }
+
+    private static final class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        ThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.attendo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps users/<uid>/summary up to date one mark at a time instead of re-reading
+ * every session.
+ *
+ * Each {@link MarkChange} (a new mark, a correction, or a retraction) becomes a handful
+ * of multi-path updates: the counters move by server-side increments, so they stay right
+ * even if several devices mark at once or this aggregator has never seen the student
+ * before. Streaks need the student's history, so they are only written for students
+ * whose current summary has been {@link #seed seeded}; the history travels with the
+ * summary as two small bitsets, so the cost of an update does not grow with the semester.
+ *
+ * {@link #apply} leaves the tracked summary alone; the caller {@link #commit commits}
+ * the {@link Update} once its write has landed (or been durably queued), so a failed
+ * write never leaves this aggregator ahead of the server. If the summary moved on in the
+ * meantime the student is dropped instead and must be seeded again.
+ */
+public class AttendanceAggregator {
+
+    /**
+     * One mark moving from oldStatus to newStatus. oldStatus is null for a new mark,
+     * newStatus is null when the mark is retracted.
+     */
+    public static final class MarkChange {
+        public final String studentUid;
+        public final String subject;
+        public final int ordinal;
+        public final String oldStatus;
+        public final String newStatus;
+
+        /**
+         * @param ordinal position of the session within its subject, or -1 if unknown
+         *                (counters are still updated, streaks are not)
+         */
+        public MarkChange(String studentUid, String subject, int ordinal,
+                          String oldStatus, String newStatus) {
+            this.studentUid = studentUid;
+            this.subject = subject;
+            this.ordinal = ordinal;
+            this.oldStatus = oldStatus;
+            this.newStatus = newStatus;
+        }
+    }
+
+    /**
+     * The updates for one change, and the student's subject summary as it will be once
+     * they land.
+     */
+    public static final class Update {
+        public final Map<String, Object> updates;
+        final String studentUid;
+        final String subjectKey;
+        final int totalDelta;
+        final int attendedDelta;
+        final int lateDelta;
+        // The tracked subject summary this was computed from, and the result; null if
+        // the student is not tracked
+        final SubjectSummary before;
+        final SubjectSummary after;
+
+        Update(Map<String, Object> updates, String studentUid, String subjectKey, int totalDelta,
+               int attendedDelta, int lateDelta, SubjectSummary before, SubjectSummary after) {
+            this.updates = updates;
+            this.studentUid = studentUid;
+            this.subjectKey = subjectKey;
+            this.totalDelta = totalDelta;
+            this.attendedDelta = attendedDelta;
+            this.lateDelta = lateDelta;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    private final RemoteDatabase database;
+    private final Map<String, StudentSummary> summaries = new HashMap<>();
+
+    public AttendanceAggregator(RemoteDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Start tracking a student from the value currently stored at users/<uid>/summary.
+     */
+    public synchronized void seed(String studentUid, Object summaryValue) {
+        summaries.put(studentUid, StudentSummary.fromValue(summaryValue));
+    }
+
+    /**
+     * Whether the student's summary is tracked, i.e. seeded and not dropped since.
+     */
+    public synchronized boolean isTracked(String studentUid) {
+        return summaries.containsKey(studentUid);
+    }
+
+    /**
+     * The summary as this aggregator knows it, or null if the student is not tracked.
+     */
+    public synchronized StudentSummary get(String studentUid) {
+        return summaries.get(studentUid);
+    }
+
+    /**
+     * The updates (paths from the root) that bring users/<uid>/summary in line with a
+     * change. The tracked summary is not touched until the update is {@link #commit committed}.
+     */
+    public synchronized Update apply(MarkChange change) {
+        Map<String, Object> updates = new HashMap<>();
+        String subjectKey = subjectKey(change.subject);
+        if (change.oldStatus == null ? change.newStatus == null : change.oldStatus.equals(change.newStatus)) {
+            return new Update(updates, change.studentUid, subjectKey, 0, 0, 0, null, null);
+        }
+
+        String base = "users/" + change.studentUid + "/summary";
+        String subjectBase = base + "/subjects/" + subjectKey;
+
+        int totalDelta = (change.newStatus != null ? 1 : 0) - (change.oldStatus != null ? 1 : 0);
+        int attendedDelta = attended(change.newStatus) - attended(change.oldStatus);
+        int lateDelta = late(change.newStatus) - late(change.oldStatus);
+        putIncrement(updates, base, subjectBase, "total", totalDelta);
+        putIncrement(updates, base, subjectBase, "attended", attendedDelta);
+        putIncrement(updates, base, subjectBase, "late", lateDelta);
+
+        StudentSummary summary = summaries.get(change.studentUid);
+        if (summary == null) {
+            return new Update(updates, change.studentUid, subjectKey, totalDelta, attendedDelta, lateDelta,
+                    null, null);
+        }
+        SubjectSummary before = summary.subject(subjectKey);
+        SubjectSummary subject = before.copy();
+        if (change.oldStatus != null) {
+            subject.retract(change.ordinal, change.oldStatus);
+        }
+        if (change.newStatus != null) {
+            subject.record(change.ordinal, change.newStatus);
+        }
+        if (change.ordinal >= 0) {
+            subject.updateStreak();
+            updates.put(subjectBase + "/streak", subject.streak);
+            updates.put(subjectBase + "/marked", AttendanceBitsetCodec.toText(subject.marked));
+            updates.put(subjectBase + "/absent", AttendanceBitsetCodec.toText(subject.absent));
+        }
+        return new Update(updates, change.studentUid, subjectKey, totalDelta, attendedDelta, lateDelta,
+                before, subject);
+    }
+
+    /**
+     * Make a landed update part of the tracked summary.
+     */
+    public synchronized void commit(Update update) {
+        if (update.after == null) {
+            return;
+        }
+        StudentSummary summary = summaries.get(update.studentUid);
+        if (summary == null) {
+            return;
+        }
+        if (summary.subjects.get(update.subjectKey) != update.before) {
+            // Re-seeded, or another update landed first: this one was computed from a
+            // summary that no longer exists, so the next change starts from the server
+            summaries.remove(update.studentUid);
+            return;
+        }
+        summary.total += update.totalDelta;
+        summary.attended += update.attendedDelta;
+        summary.late += update.lateDelta;
+        summary.subjects.put(update.subjectKey, update.after);
+    }
+
+    public synchronized void commit(List<Update> updates) {
+        for (Update update : updates) {
+            commit(update);
+        }
+    }
+
+    /**
+     * The updates landed on an earlier attempt, which may or may not have been committed:
+     * stop tracking their students, so the next change starts from the server.
+     */
+    public synchronized void forget(List<Update> updates) {
+        for (Update update : updates) {
+            summaries.remove(update.studentUid);
+        }
+    }
+
+    private void putIncrement(Map<String, Object> updates, String base, String subjectBase,
+                              String field, int delta) {
+        if (delta != 0) {
+            updates.put(base + "/" + field, database.increment(delta));
+            updates.put(subjectBase + "/" + field, database.increment(delta));
+        }
+    }
+
+    private static int attended(String status) {
+        return AttendanceSession.isAttended(status) ? 1 : 0;
+    }
+
+    private static int late(String status) {
+        return AttendanceSession.LATE.equals(status) ? 1 : 0;
+    }
+
+    /**
+     * Subjects become Firebase keys, which may not contain . # $ [ ] or /.
+     */
+    static String subjectKey(String subject) {
+        if (subject == null || subject.isEmpty()) {
+            return "general";
+        }
+        return subject.replaceAll("[.#$\\[\\]/]", "_");
+    }
+}
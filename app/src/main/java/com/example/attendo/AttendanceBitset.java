@@ -0,0 +1,267 @@
+package com.example.attendo;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size set of roster indexes, packed 64 per long.
+ *
+ * One bitset describes one session for one status: bit i is set if the student at
+ * roster index i has that status. Set operations work a word at a time, so combining
+ * whole sessions costs size / 64 steps instead of one per student.
+ */
+public final class AttendanceBitset {
+
+    private final int size;
+    final long[] words;
+
+    public AttendanceBitset(int size) {
+        this(size, new long[wordCount(size)]);
+    }
+
+    AttendanceBitset(int size, long[] words) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size < 0: " + size);
+        }
+        this.size = size;
+        this.words = words;
+    }
+
+    static int wordCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * Number of roster slots, set or not.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        checkIndex(index);
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        checkIndex(index);
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        checkIndex(index);
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * First set index at or after from, or -1.
+     */
+    public int nextSetBit(int from) {
+        if (from >= size) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int index = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return index < size ? index : -1;
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    /**
+     * First clear index at or after from, or size if every later slot is set.
+     */
+    public int nextClearBit(int from) {
+        if (from >= size) {
+            return size;
+        }
+        int wordIndex = from >>> 6;
+        long word = ~words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return Math.min(size, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+            }
+            if (++wordIndex == words.length) {
+                return size;
+            }
+            word = ~words[wordIndex];
+        }
+    }
+
+    /**
+     * Last set index at or before from, or -1.
+     */
+    public int previousSetBit(int from) {
+        if (from < 0) {
+            return -1;
+        }
+        if (from >= size) {
+            from = size - 1;
+        }
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L >>> (63 - (from & 63)));
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + 63 - Long.numberOfLeadingZeros(word);
+            }
+            if (wordIndex-- == 0) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    public AttendanceBitset and(AttendanceBitset other) {
+        checkSameSize(other);
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] & other.words[i];
+        }
+        return new AttendanceBitset(size, result);
+    }
+
+    public AttendanceBitset or(AttendanceBitset other) {
+        checkSameSize(other);
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] | other.words[i];
+        }
+        return new AttendanceBitset(size, result);
+    }
+
+    public AttendanceBitset andNot(AttendanceBitset other) {
+        checkSameSize(other);
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] & ~other.words[i];
+        }
+        return new AttendanceBitset(size, result);
+    }
+
+    /**
+     * Every roster slot not in this set.
+     */
+    public AttendanceBitset complement() {
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = ~words[i];
+        }
+        AttendanceBitset complement = new AttendanceBitset(size, result);
+        complement.trimTail();
+        return complement;
+    }
+
+    /**
+     * Union of every bitset, e.g. "absent at least once" across a semester.
+     */
+    public static AttendanceBitset union(Iterable<AttendanceBitset> bitsets, int size) {
+        long[] result = new long[wordCount(size)];
+        for (AttendanceBitset bitset : bitsets) {
+            if (bitset.size != size) {
+                throw new IllegalArgumentException("Size " + bitset.size + " != " + size);
+            }
+            for (int i = 0; i < result.length; i++) {
+                result[i] |= bitset.words[i];
+            }
+        }
+        return new AttendanceBitset(size, result);
+    }
+
+    /**
+     * Bitset of the given size with every slot set.
+     */
+    public static AttendanceBitset full(int size) {
+        return new AttendanceBitset(size).complement();
+    }
+
+    /**
+     * Copy with room for newSize students; slots past the old size start clear.
+     */
+    public AttendanceBitset resized(int newSize) {
+        long[] resized = java.util.Arrays.copyOf(words, wordCount(newSize));
+        AttendanceBitset copy = new AttendanceBitset(newSize, resized);
+        copy.trimTail();
+        return copy;
+    }
+
+    /**
+     * Number of set indexes in [from, size).
+     */
+    public int cardinalityFrom(int from) {
+        if (from >= size) {
+            return 0;
+        }
+        int wordIndex = from >>> 6;
+        int count = Long.bitCount(words[wordIndex] & (-1L << from));
+        for (int i = wordIndex + 1; i < words.length; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count;
+    }
+
+    public AttendanceBitset copy() {
+        return new AttendanceBitset(size, words.clone());
+    }
+
+    /**
+     * Clears the unused bits past size in the last word, so whole-word operations
+     * never see phantom students.
+     */
+    void trimTail() {
+        int tail = size & 63;
+        if (tail != 0) {
+            words[words.length - 1] &= (1L << tail) - 1;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " outside roster of " + size);
+        }
+    }
+
+    private void checkSameSize(AttendanceBitset other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Size " + other.size + " != " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AttendanceBitset)) {
+            return false;
+        }
+        AttendanceBitset other = (AttendanceBitset) o;
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+}
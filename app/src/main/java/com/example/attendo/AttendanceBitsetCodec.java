@@ -0,0 +1,161 @@
+package com.example.attendo;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Compact wire format for {@link AttendanceBitset}.
+ *
+ * Layout: varint size, one mode byte, then either the raw bits (one bit per student,
+ * little-endian) or run lengths. Runs alternate clear/set starting with clear, each a
+ * varint. Whichever form is smaller is written; a class with a couple of absences
+ * encodes in a handful of bytes either way.
+ *
+ * {@link #toText} / {@link #fromText} wrap the bytes in unpadded URL-safe Base64 so a
+ * session can be stored as a plain string in Firebase.
+ */
+public final class AttendanceBitsetCodec {
+
+    static final int MODE_RAW = 0;
+    static final int MODE_RUNS = 1;
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int[] DECODE = new int[128];
+
+    static {
+        java.util.Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = i;
+        }
+    }
+
+    private AttendanceBitsetCodec() {}
+
+    public static byte[] encode(AttendanceBitset bitset) {
+        int size = bitset.size();
+        ByteArrayOutputStream runs = new ByteArrayOutputStream();
+        int rawLength = (size + 7) >>> 3;
+
+        int position = 0;
+        boolean tooLong = false;
+        while (position < size) {
+            int setStart = bitset.nextSetBit(position);
+            if (setStart < 0) {
+                setStart = size;
+            }
+            int setEnd = bitset.nextClearBit(setStart);
+            writeVarint(runs, setStart - position);
+            writeVarint(runs, setEnd - setStart);
+            position = setEnd;
+            if (runs.size() >= rawLength) {
+                tooLong = true;
+                break;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + Math.min(rawLength, runs.size()));
+        writeVarint(out, size);
+        if (tooLong) {
+            out.write(MODE_RAW);
+            for (int i = 0; i < rawLength; i++) {
+                out.write((int) (bitset.words[i >>> 3] >>> ((i & 7) << 3)));
+            }
+        } else {
+            out.write(MODE_RUNS);
+            byte[] runBytes = runs.toByteArray();
+            out.write(runBytes, 0, runBytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    public static AttendanceBitset decode(byte[] bytes) {
+        int[] cursor = {0};
+        int size = readVarint(bytes, cursor);
+        int mode = bytes[cursor[0]++];
+        AttendanceBitset bitset = new AttendanceBitset(size);
+
+        if (mode == MODE_RAW) {
+            int rawLength = (size + 7) >>> 3;
+            for (int i = 0; i < rawLength; i++) {
+                bitset.words[i >>> 3] |= (bytes[cursor[0] + i] & 0xFFL) << ((i & 7) << 3);
+            }
+            bitset.trimTail();
+        } else if (mode == MODE_RUNS) {
+            int position = 0;
+            while (cursor[0] < bytes.length) {
+                position += readVarint(bytes, cursor);
+                int length = readVarint(bytes, cursor);
+                if (position + length > size) {
+                    throw new IllegalArgumentException("Run past end of roster");
+                }
+                for (int end = position + length; position < end; position++) {
+                    bitset.words[position >>> 6] |= 1L << position;
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown bitset encoding " + mode);
+        }
+        return bitset;
+    }
+
+    public static String toText(AttendanceBitset bitset) {
+        byte[] bytes = encode(bitset);
+        StringBuilder text = new StringBuilder((bytes.length * 4 + 2) / 3);
+        for (int i = 0; i < bytes.length; i += 3) {
+            int chunk = (bytes[i] & 0xFF) << 16;
+            if (i + 1 < bytes.length) {
+                chunk |= (bytes[i + 1] & 0xFF) << 8;
+            }
+            if (i + 2 < bytes.length) {
+                chunk |= bytes[i + 2] & 0xFF;
+            }
+            int chars = Math.min(4, (bytes.length - i) * 4 / 3 + 1);
+            for (int c = 0; c < chars; c++) {
+                text.append(ALPHABET[(chunk >>> (18 - 6 * c)) & 63]);
+            }
+        }
+        return text.toString();
+    }
+
+    public static AttendanceBitset fromText(String text) {
+        byte[] bytes = new byte[text.length() * 3 / 4];
+        int bits = 0;
+        int bitCount = 0;
+        int index = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int value = c < 128 ? DECODE[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Bad character in encoded bitset: " + c);
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                bytes[index++] = (byte) (bits >>> bitCount);
+            }
+        }
+        return decode(bytes);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] bytes, int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = bytes[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.attendo;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface AttendanceDao {
+
+    @Query("SELECT * FROM attendance_marks WHERE session_id = :sessionId ORDER BY student_uid")
+    LiveData<List<AttendanceMarkEntity>> observeSession(String sessionId);
+
+    @Query("SELECT * FROM attendance_marks WHERE session_id = :sessionId AND pending_since != 0")
+    LiveData<List<AttendanceMarkEntity>> observePending(String sessionId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(AttendanceMarkEntity mark);
+
+    @Query("SELECT * FROM attendance_marks WHERE session_id = :sessionId AND student_uid = :studentUid")
+    AttendanceMarkEntity get(String sessionId, String studentUid);
+
+    @Query("SELECT * FROM attendance_marks WHERE pending_since != 0")
+    List<AttendanceMarkEntity> getPending();
+
+    @Query("UPDATE attendance_marks SET pending_since = 0 "
+            + "WHERE session_id = :sessionId AND student_uid = :studentUid AND pending_since = :pendingSince")
+    void markSynced(String sessionId, String studentUid, long pendingSince);
+
+    @Query("UPDATE attendance_marks SET pending_since = 0 "
+            + "WHERE session_id = :sessionId AND pending_since = :pendingSince")
+    void markSessionSynced(String sessionId, long pendingSince);
+
+    @Query("SELECT COUNT(*) FROM recorded_sessions WHERE session_id = :sessionId")
+    int countRecorded(String sessionId);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void markRecorded(RecordedSessionEntity session);
+}
@@ -0,0 +1,42 @@
+package com.example.attendo;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+/**
+ * One student's mark in one session, as stored on the device.
+ * pendingSince is non-zero until Firebase has acknowledged the mark.
+ */
+@Entity(tableName = "attendance_marks", primaryKeys = {"session_id", "student_uid"})
+public class AttendanceMarkEntity {
+
+    @NonNull
+    @ColumnInfo(name = "session_id")
+    public String sessionId = "";
+
+    @NonNull
+    @ColumnInfo(name = "student_uid")
+    public String studentUid = "";
+
+    public String status;
+
+    @ColumnInfo(name = "marked_at")
+    public long markedAt;
+
+    @ColumnInfo(name = "pending_since")
+    public long pendingSince;
+
+    public static AttendanceMarkEntity from(AttendanceRecord record) {
+        AttendanceMarkEntity mark = new AttendanceMarkEntity();
+        mark.sessionId = record.sessionId;
+        mark.studentUid = record.studentUid;
+        mark.status = record.status;
+        mark.markedAt = record.marked_at;
+        return mark;
+    }
+
+    public AttendanceRecord toRecord() {
+        return new AttendanceRecord(sessionId, studentUid, status, markedAt);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.attendo;
+
+/**
+ * A single student's mark in a session, as exchanged with Firebase.
+ */
+public class AttendanceRecord {
+    public String sessionId;
+    public String studentUid;
+    public String status;
+    public long marked_at;
+
+    public AttendanceRecord() {}
+
+    public AttendanceRecord(String sessionId, String studentUid, String status, long marked_at) {
+        this.sessionId = sessionId;
+        this.studentUid = studentUid;
+        this.status = status;
+        this.marked_at = marked_at;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.attendo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts attendance/<sessionId>/<studentUid> nodes to {@link AttendanceRecord} and back
+ * without going through Firebase's reflection-based mapper. The session id and student uid
+ * are path keys, so they are not part of the stored map.
+ */
+public final class AttendanceRecordMapper {
+
+    private AttendanceRecordMapper() {}
+
+    public static AttendanceRecord fromValue(String sessionId, String studentUid, Object value) {
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) value;
+        return new AttendanceRecord(sessionId, studentUid,
+                Values.asString(map.get("status")),
+                Values.asLong(map.get("marked_at")));
+    }
+
+    public static Map<String, Object> toMap(AttendanceRecord record) {
+        Map<String, Object> map = new HashMap<>(4);
+        map.put("status", record.status);
+        map.put("marked_at", record.marked_at);
+        return map;
+    }
+}
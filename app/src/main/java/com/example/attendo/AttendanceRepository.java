@@ -0,0 +1,241 @@
+package com.example.attendo;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attendance marks, stored on the device first and reconciled with
+ * attendance/<sessionId>/<studentUid> in Firebase in the background. Outgoing writes
+ * go through {@link OutboxSync}, so marks taken offline are sent in a few batches once
+ * the device is back online.
+ */
+public class AttendanceRepository {
+
+    private static AttendanceRepository instance;
+
+    private final RemoteDatabase database;
+    private final AttendanceDao attendanceDao;
+    private final AttendanceWriter writer;
+    private final CheckInQueue checkIns;
+    private final OutboxSync outbox;
+    private final SessionRecorder recorder;
+
+    private AttendanceRepository(AttendanceDao attendanceDao, RemoteDatabase database,
+                                 CheckInDao checkInDao, OutboxSync outbox) {
+        this.database = database;
+        this.attendanceDao = attendanceDao;
+        this.outbox = outbox;
+        this.writer = new AttendanceWriter(database);
+        this.checkIns = new CheckInQueue(new RoomCheckInStore(checkInDao), database,
+                AppExecutors.diskIO(), CheckInQueue.DEFAULT_BATCH_SIZE);
+        this.recorder = new SessionRecorder(database, writer.getAggregator(), this::markSession);
+    }
+
+    public static synchronized AttendanceRepository getInstance(Context context) {
+        if (instance == null) {
+            LocalDatabase local = LocalDatabase.getInstance(context);
+            instance = new AttendanceRepository(local.attendanceDao(),
+                    FirebaseRemoteDatabase.getInstance(),
+                    local.checkInDao(),
+                    OutboxSync.getInstance(context));
+        }
+        return instance;
+    }
+
+    /**
+     * Queue that verified QR check-ins are appended to; flushed with {@link #syncPending()}.
+     */
+    public CheckInQueue checkIns() {
+        return checkIns;
+    }
+
+    /**
+     * Marks of one session straight from the local database; updates as soon as
+     * a mark is taken, whether or not the device is online.
+     */
+    public LiveData<List<AttendanceMarkEntity>> observeSession(String sessionId) {
+        return attendanceDao.observeSession(sessionId);
+    }
+
+    /**
+     * Record a mark locally and queue it for Firebase.
+     */
+    public void mark(String sessionId, String studentUid, String status) {
+        AppExecutors.diskIO().execute(() -> {
+            AttendanceMarkEntity mark = new AttendanceMarkEntity();
+            mark.sessionId = sessionId;
+            mark.studentUid = studentUid;
+            mark.status = status;
+            mark.markedAt = System.currentTimeMillis();
+            mark.pendingSince = mark.markedAt;
+            attendanceDao.upsert(mark);
+            push(mark);
+        });
+    }
+
+    /**
+     * Fill a finished session from the roster and the check-ins, then {@link #markSession mark} it.
+     */
+    public void recordSession(String institution, AttendanceSession session, SessionRecorder.Listener listener) {
+        recorder.record(institution, session, listener);
+    }
+
+    /**
+     * Record a whole session locally, then queue it as a multi-path fan-out. The chunks
+     * stay in order in the outbox, so the session record still lands last. The summaries
+     * move on once the chunks are queued: from then on the outbox delivers them. A session
+     * is queued once per device; finishing it again does nothing.
+     */
+    public void markSession(AttendanceSession session) {
+        AppExecutors.diskIO().execute(() -> {
+            if (attendanceDao.countRecorded(session.sessionId) > 0) {
+                // Finished before, e.g. from a recreated screen: already queued, and its
+                // summaries already committed
+                return;
+            }
+            long pendingSince = System.currentTimeMillis();
+            for (Map.Entry<String, String> entry : session.marks.entrySet()) {
+                AttendanceMarkEntity mark = AttendanceMarkEntity.from(new AttendanceRecord(
+                        session.sessionId, entry.getKey(), entry.getValue(), session.startedAt));
+                mark.pendingSince = pendingSince;
+                attendanceDao.upsert(mark);
+            }
+            List<AttendanceWriter.Chunk> chunks = writer.chunks(session);
+            for (int i = 0; i < chunks.size(); i++) {
+                // Only the last chunk carries the note that clears the pending flags
+                String ack = i == chunks.size() - 1 ? "session|" + session.sessionId + "|" + pendingSince : null;
+                outbox.enqueue("session/" + session.sessionId + "/" + i, chunks.get(i).updates, ack);
+            }
+            for (AttendanceWriter.Chunk chunk : chunks) {
+                writer.getAggregator().commit(chunk.summaries);
+            }
+            // Same thread as the check above, so two finishes cannot both get through
+            attendanceDao.markRecorded(RecordedSessionEntity.of(session.sessionId, pendingSince));
+        });
+    }
+
+    /**
+     * Change one mark of a recorded session, locally and in a queued update that keeps
+     * the session counters, timeline and summary in step.
+     */
+    public void correct(AttendanceSession session, String studentUid, String oldStatus, String newStatus) {
+        AppExecutors.diskIO().execute(() -> {
+            AttendanceMarkEntity mark = AttendanceMarkEntity.from(new AttendanceRecord(
+                    session.sessionId, studentUid, newStatus, session.startedAt));
+            mark.markedAt = System.currentTimeMillis();
+            mark.pendingSince = mark.markedAt;
+            attendanceDao.upsert(mark);
+            // Its own key: a later correction must not replace this one's counter changes
+            String id = session.sessionId + "_" + studentUid + "_" + mark.pendingSince;
+            AttendanceWriter.Chunk chunk = writer.correction(session, studentUid, oldStatus, newStatus,
+                    "correction_" + id);
+            outbox.enqueue("correction/" + id, chunk.updates,
+                    "mark|" + session.sessionId + "|" + studentUid + "|" + mark.pendingSince);
+            writer.getAggregator().commit(chunk.summaries);
+        });
+    }
+
+    /**
+     * Live sheet of one session: the server's marks, streamed child by child, with this
+     * device's unsynced marks on top.
+     */
+    public SessionSheetLiveData observeSheet(String sessionId) {
+        return new SessionSheetLiveData(sessionId, database, "attendance/" + sessionId,
+                attendanceDao.observePending(sessionId));
+    }
+
+    /**
+     * Pull a session from Firebase into the local database. Marks with a pending
+     * local change are left alone; they win once they are pushed.
+     */
+    public void refreshSession(String sessionId) {
+        UserMigration.readOnce(database, "attendance/" + sessionId, new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                if (!(value instanceof Map)) {
+                    return;
+                }
+                Map<?, ?> marks = (Map<?, ?>) value;
+                AppExecutors.diskIO().execute(() -> {
+                    for (Map.Entry<?, ?> child : marks.entrySet()) {
+                        String studentUid = String.valueOf(child.getKey());
+                        AttendanceMarkEntity existing = attendanceDao.get(sessionId, studentUid);
+                        if (existing != null && existing.pendingSince != 0) {
+                            continue;
+                        }
+                        AttendanceRecord record = AttendanceRecordMapper.fromValue(
+                                sessionId, studentUid, child.getValue());
+                        if (record != null) {
+                            attendanceDao.upsert(AttendanceMarkEntity.from(record));
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Exception error) {
+                // Keep showing whatever is stored locally
+            }
+        });
+    }
+
+    /**
+     * Queue every mark that Firebase has not acknowledged yet. Marks already in the
+     * outbox are replaced, not duplicated, so this is safe to call on every reconnect.
+     */
+    public void syncPending() {
+        checkIns.flush();
+        AppExecutors.diskIO().execute(() -> {
+            for (AttendanceMarkEntity mark : attendanceDao.getPending()) {
+                push(mark);
+            }
+            outbox.schedule();
+        });
+    }
+
+    private static final class RoomCheckInStore implements CheckInQueue.Store {
+        private final CheckInDao dao;
+
+        RoomCheckInStore(CheckInDao dao) {
+            this.dao = dao;
+        }
+
+        @Override
+        public void append(CheckIn checkIn) {
+            dao.insert(CheckInEntity.from(checkIn));
+        }
+
+        @Override
+        public List<CheckIn> pending(int limit) {
+            List<CheckIn> checkIns = new ArrayList<>();
+            for (CheckInEntity entity : dao.getPending(limit)) {
+                checkIns.add(entity.toCheckIn());
+            }
+            return checkIns;
+        }
+
+        @Override
+        public void markSynced(List<CheckIn> checkIns) {
+            List<Long> ids = new ArrayList<>(checkIns.size());
+            for (CheckIn checkIn : checkIns) {
+                ids.add(checkIn.id);
+            }
+            dao.markSynced(ids);
+        }
+    }
+
+    private void push(AttendanceMarkEntity mark) {
+        String path = "attendance/" + mark.sessionId + "/" + mark.studentUid;
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(path, AttendanceRecordMapper.toMap(mark.toRecord()));
+        outbox.enqueue(path, updates,
+                "mark|" + mark.sessionId + "|" + mark.studentUid + "|" + mark.pendingSince);
+    }
+}
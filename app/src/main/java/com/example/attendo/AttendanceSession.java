@@ -0,0 +1,96 @@
+package com.example.attendo;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Everything marked in one class session: the students and their status
+ * ("present", "absent" or "late").
+ */
+public class AttendanceSession {
+
+    public static final String PRESENT = "present";
+    public static final String ABSENT = "absent";
+    public static final String LATE = "late";
+
+    public final String sessionId;
+    public final String classId;
+    public final String subject;
+    public final long startedAt;
+    public final Map<String, String> marks = new LinkedHashMap<>();
+
+    /**
+     * Class roster in index order; when set, the session is also stored as {@link SessionBits}.
+     */
+    public List<String> roster;
+
+    /**
+     * Position of this session within its subject's semester, used for streaks; -1 if unknown.
+     */
+    public int ordinal = -1;
+
+    /**
+     * Zone whose calendar files the session into timeline months and days. Stored with
+     * the session record, so a correction made on a device in another zone lands in the
+     * same buckets as the marks.
+     */
+    public String zone = TimeZone.getDefault().getID();
+
+    public AttendanceSession(String sessionId, String classId, String subject, long startedAt) {
+        this.sessionId = sessionId;
+        this.classId = classId;
+        this.subject = subject;
+        this.startedAt = startedAt;
+    }
+
+    public AttendanceSession mark(String studentUid, String status) {
+        marks.put(studentUid, status);
+        return this;
+    }
+
+    public AttendanceSession withRoster(List<String> roster) {
+        this.roster = roster;
+        return this;
+    }
+
+    public AttendanceSession withOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+        return this;
+    }
+
+    public AttendanceSession withZone(String zone) {
+        this.zone = zone;
+        return this;
+    }
+
+    /**
+     * The session described by the value of sessions/<sessionId>, without its marks, or
+     * null if there is no record.
+     */
+    public static AttendanceSession fromRecord(String sessionId, Object value) {
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> record = (Map<?, ?>) value;
+        AttendanceSession session = new AttendanceSession(sessionId, Values.asString(record.get("class_id")),
+                Values.asString(record.get("subject")), Values.asLong(record.get("started_at")));
+        if (record.containsKey("ordinal")) {
+            session.ordinal = (int) Values.asLong(record.get("ordinal"));
+        }
+        // Records from before zones were stored were filed by the writing device
+        String zone = Values.asString(record.get("zone"));
+        if (zone != null) {
+            session.zone = zone;
+        }
+        return session;
+    }
+
+    /**
+     * Late still counts as attended.
+     */
+    public static boolean isAttended(String status) {
+        return PRESENT.equals(status) || LATE.equals(status);
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Turns a freshly taken session into multi-path updates, so a whole class is written in
+ * one round trip instead of one write per student. For every student it writes
+ *
+ *   attendance/<sessionId>/<uid>          the mark
+ *   timelines/<uid>/<yyyy-MM>/...         the history entry and month summary, see {@link TimelineBuckets}
+ *   users/<uid>/summary/...               summary updates from {@link AttendanceAggregator}
+ *
+ * and once per session the record at sessions/<sessionId>, including the compact
+ * {@link SessionBits} form when the session knows its roster, filed again under the
+ * subject for {@link ClassStanding}.
+ *
+ * Normally all of that is a single atomic update. If the payload would exceed the batch
+ * limits it is split into chunks that are sent one after another; a student's paths are
+ * never split across chunks, and the session record travels in the last chunk so the
+ * session only shows up once every mark has landed.
+ *
+ * Chunks are atomic but the session as a whole is not: a failure partway leaves the
+ * earlier chunks applied. Each chunk therefore carries a {@link Receipts receipt}, and
+ * the server rejects a chunk whose receipt already exists before applying any of its
+ * increments. Sending the same session again, after a failure or a lost acknowledgement,
+ * skips the chunks that landed and sends the rest, so no counter moves twice. Chunks
+ * are cut from the marks alone, in uid order, so a rebuilt retry splits the students the
+ * same way; they only come out the same if the session has the same marks, so a session
+ * is written once; change it afterwards with {@link #correct}.
+ *
+ * Timeline buckets follow the session's own {@link AttendanceSession#zone}, which the
+ * record keeps, not the zone of whichever device writes.
+ */
+public class AttendanceWriter {
+
+    static final int DEFAULT_MAX_PATHS = 5000;
+    static final int DEFAULT_MAX_BYTES = 256 * 1024;
+    // Most paths a student's summary updates take, see summaryBytes
+    private static final int SUMMARY_PATHS = 9;
+
+    private final RemoteDatabase database;
+    private final AttendanceAggregator aggregator;
+    private final int maxPaths;
+    private final int maxBytes;
+
+    public AttendanceWriter(RemoteDatabase database) {
+        this(database, new AttendanceAggregator(database));
+    }
+
+    public AttendanceWriter(RemoteDatabase database, AttendanceAggregator aggregator) {
+        this(database, aggregator, DEFAULT_MAX_PATHS, DEFAULT_MAX_BYTES);
+    }
+
+    AttendanceWriter(RemoteDatabase database, int maxPaths, int maxBytes) {
+        this(database, new AttendanceAggregator(database), maxPaths, maxBytes);
+    }
+
+    AttendanceWriter(RemoteDatabase database, AttendanceAggregator aggregator, int maxPaths, int maxBytes) {
+        this.database = database;
+        this.aggregator = aggregator;
+        this.maxPaths = maxPaths;
+        this.maxBytes = maxBytes;
+    }
+
+    public AttendanceAggregator getAggregator() {
+        return aggregator;
+    }
+
+    /**
+     * One multi-path update of a session, and the summary changes to commit once it lands.
+     */
+    public static final class Chunk {
+        public final Map<String, Object> updates;
+        public final List<AttendanceAggregator.Update> summaries;
+
+        Chunk(Map<String, Object> updates, List<AttendanceAggregator.Update> summaries) {
+            this.updates = updates;
+            this.summaries = summaries;
+        }
+    }
+
+    /**
+     * Send a session, or whatever part of it an earlier attempt did not get through.
+     */
+    public void write(AttendanceSession session, RemoteDatabase.CompletionListener listener) {
+        send(chunks(session), 0, listener);
+    }
+
+    /**
+     * Change or retract (newStatus null) one student's mark in an already written session,
+     * keeping the mark, the timeline entry, the session counters and the summary in step.
+     */
+    public void correct(AttendanceSession session, String studentUid, String oldStatus,
+                        String newStatus, RemoteDatabase.CompletionListener listener) {
+        String receipt = "correction_" + session.sessionId + "_" + studentUid + "_" + System.currentTimeMillis();
+        send(Collections.singletonList(correction(session, studentUid, oldStatus, newStatus, receipt)), 0, listener);
+    }
+
+    /**
+     * The single update correct() sends, carrying the given receipt, so it can be queued
+     * and resent safely.
+     */
+    public Chunk correction(AttendanceSession session, String studentUid, String oldStatus,
+                            String newStatus, String receipt) {
+        Map<String, Object> updates = new HashMap<>();
+        if (newStatus == null) {
+            updates.put("attendance/" + session.sessionId + "/" + studentUid, null);
+        } else {
+            updates.put("attendance/" + session.sessionId + "/" + studentUid,
+                    AttendanceRecordMapper.toMap(new AttendanceRecord(
+                            session.sessionId, studentUid, newStatus, session.startedAt)));
+        }
+        updates.putAll(TimelineBuckets.updates(database, TimeZone.getTimeZone(session.zone), studentUid,
+                session.sessionId, session.classId, session.startedAt, oldStatus, newStatus));
+
+        String record = "sessions/" + session.sessionId;
+        int totalDelta = (newStatus != null ? 1 : 0) - (oldStatus != null ? 1 : 0);
+        int attendedDelta = (AttendanceSession.isAttended(newStatus) ? 1 : 0)
+                - (AttendanceSession.isAttended(oldStatus) ? 1 : 0);
+        int lateDelta = (AttendanceSession.LATE.equals(newStatus) ? 1 : 0)
+                - (AttendanceSession.LATE.equals(oldStatus) ? 1 : 0);
+        if (totalDelta != 0) {
+            updates.put(record + "/total", database.increment(totalDelta));
+        }
+        if (attendedDelta != 0) {
+            updates.put(record + "/attended", database.increment(attendedDelta));
+        }
+        if (lateDelta != 0) {
+            updates.put(record + "/late", database.increment(lateDelta));
+        }
+
+        AttendanceAggregator.Update summary = aggregator.apply(new AttendanceAggregator.MarkChange(
+                studentUid, session.subject, session.ordinal, oldStatus, newStatus));
+        updates.putAll(summary.updates);
+        Receipts.put(updates, database, receipt);
+        return new Chunk(updates, Collections.singletonList(summary));
+    }
+
+    /**
+     * The updates write() would send, in order. Exposed for tests.
+     */
+    List<Map<String, Object>> buildBatches(AttendanceSession session) {
+        List<Map<String, Object>> batches = new ArrayList<>();
+        for (Chunk chunk : chunks(session)) {
+            batches.add(chunk.updates);
+        }
+        return batches;
+    }
+
+    /**
+     * The chunks write() would send, in order, for callers that queue them instead.
+     * Commit each chunk's summaries to the aggregator once it is sent or safely queued.
+     */
+    public List<Chunk> chunks(AttendanceSession session) {
+        List<Chunk> chunks = new ArrayList<>();
+        Map<String, Object> batch = new HashMap<>();
+        List<AttendanceAggregator.Update> summaries = new ArrayList<>();
+        int batchPaths = 0;
+        int batchBytes = 0;
+
+        TimeZone zone = TimeZone.getTimeZone(session.zone);
+        int attended = 0;
+        int late = 0;
+        // Students in uid order and sized without their summary updates, which depend on
+        // what this device has committed so far: chunk i holds the same students on every
+        // attempt, so its receipt always stands for the same writes
+        List<String> uids = new ArrayList<>(session.marks.keySet());
+        Collections.sort(uids);
+        for (String uid : uids) {
+            String status = session.marks.get(uid);
+            boolean isAttended = AttendanceSession.isAttended(status);
+            if (isAttended) {
+                attended++;
+            }
+            if (AttendanceSession.LATE.equals(status)) {
+                late++;
+            }
+
+            Map<String, Object> studentUpdates = studentUpdates(session, zone, uid, status);
+            int studentPaths = studentUpdates.size() + SUMMARY_PATHS;
+            int studentBytes = estimateBytes(studentUpdates) + summaryBytes(session, uid);
+            // One path of every chunk is its receipt
+            if (!batch.isEmpty() && (batchPaths + studentPaths > maxPaths - 1
+                    || batchBytes + studentBytes > maxBytes)) {
+                Receipts.put(batch, database, chunkReceipt(session, chunks.size()));
+                chunks.add(new Chunk(batch, summaries));
+                batch = new HashMap<>();
+                summaries = new ArrayList<>();
+                batchPaths = 0;
+                batchBytes = 0;
+            }
+            AttendanceAggregator.Update summary = aggregator.apply(new AttendanceAggregator.MarkChange(
+                    uid, session.subject, session.ordinal, null, status));
+            batch.putAll(studentUpdates);
+            batch.putAll(summary.updates);
+            summaries.add(summary);
+            batchPaths += studentPaths;
+            batchBytes += studentBytes;
+        }
+
+        Map<String, Object> record = new HashMap<>();
+        record.put("class_id", session.classId);
+        record.put("subject", session.subject);
+        record.put("started_at", session.startedAt);
+        record.put("zone", session.zone);
+        record.put("total", session.marks.size());
+        record.put("attended", attended);
+        record.put("late", late);
+        if (session.ordinal >= 0) {
+            record.put("ordinal", session.ordinal);
+        }
+        Map<String, Object> recordUpdates = new HashMap<>(4);
+        if (session.roster != null) {
+            Map<String, Object> bits = ClassStanding.bits(session, session.roster);
+            record.put("bits", bits);
+            recordUpdates.putAll(ClassStanding.updates(session, session.roster, bits));
+        }
+        recordUpdates.put("sessions/" + session.sessionId, record);
+        if (!batch.isEmpty() && (batchPaths + recordUpdates.size() > maxPaths - 1
+                || batchBytes + estimateBytes(recordUpdates) > maxBytes)) {
+            Receipts.put(batch, database, chunkReceipt(session, chunks.size()));
+            chunks.add(new Chunk(batch, summaries));
+            batch = new HashMap<>();
+            summaries = new ArrayList<>();
+        }
+        batch.putAll(recordUpdates);
+        Receipts.put(batch, database, chunkReceipt(session, chunks.size()));
+        chunks.add(new Chunk(batch, summaries));
+        return chunks;
+    }
+
+    /**
+     * Upper bound on the size of a student's summary updates: three counters at both
+     * levels, the streak and the two history bitsets, as long as they get when this
+     * session is the newest of its subject. Recording an older session late can run a
+     * little over, which the limits leave room for.
+     */
+    private static int summaryBytes(AttendanceSession session, String uid) {
+        String subjectBase = "users/" + uid + "/summary/subjects/" + AttendanceAggregator.subjectKey(session.subject);
+        // Varint size and mode byte, then the raw bits, in Base64
+        int bitsetChars = ((6 + (Math.max(session.ordinal, 0) + 8) / 8) * 4 + 2) / 3;
+        return SUMMARY_PATHS * (subjectBase.length() + "/attended".length() + 4 + 24) + 2 * (bitsetChars + 2);
+    }
+
+    static String chunkReceipt(AttendanceSession session, int chunk) {
+        return "session_" + session.sessionId + "_" + chunk;
+    }
+
+    private Map<String, Object> studentUpdates(AttendanceSession session, TimeZone zone, String uid,
+                                               String status) {
+        Map<String, Object> updates = new HashMap<>(16);
+        updates.put("attendance/" + session.sessionId + "/" + uid,
+                AttendanceRecordMapper.toMap(
+                        new AttendanceRecord(session.sessionId, uid, status, session.startedAt)));
+
+        updates.putAll(TimelineBuckets.updates(database, zone, uid, session.sessionId,
+                session.classId, session.startedAt, null, status));
+        return updates;
+    }
+
+    private void send(List<Chunk> chunks, int index, RemoteDatabase.CompletionListener listener) {
+        Chunk chunk = chunks.get(index);
+        database.updateChildren(chunk.updates, error -> {
+            if (error == null) {
+                sent(chunks, index, listener);
+                return;
+            }
+            // Rejected: either the chunk landed on an earlier attempt, or it really failed
+            Receipts.check(database, Receipts.find(chunk.updates), new Receipts.Callback() {
+                @Override
+                public void onChecked(boolean applied) {
+                    if (applied) {
+                        // Its summaries were built on top of whatever the earlier attempt
+                        // committed; counting them again would count the session twice
+                        aggregator.forget(chunk.summaries);
+                        next(chunks, index, listener);
+                    } else {
+                        listener.onComplete(error);
+                    }
+                }
+
+                @Override
+                public void onError(Exception checkError) {
+                    listener.onComplete(error);
+                }
+            });
+        });
+    }
+
+    private void sent(List<Chunk> chunks, int index, RemoteDatabase.CompletionListener listener) {
+        aggregator.commit(chunks.get(index).summaries);
+        next(chunks, index, listener);
+    }
+
+    private void next(List<Chunk> chunks, int index, RemoteDatabase.CompletionListener listener) {
+        if (index == chunks.size() - 1) {
+            listener.onComplete(null);
+        } else {
+            send(chunks, index + 1, listener);
+        }
+    }
+
+    /**
+     * Rough size of the JSON Firebase will send for these updates.
+     */
+    static int estimateBytes(Map<String, Object> updates) {
+        int bytes = 2;
+        for (Map.Entry<String, Object> entry : updates.entrySet()) {
+            bytes += entry.getKey().length() + 4 + estimateBytes(entry.getValue());
+        }
+        return bytes;
+    }
+
+    @SuppressWarnings("unchecked")
+    static int estimateBytes(Object value) {
+        if (value instanceof Map) {
+            return estimateBytes((Map<String, Object>) value);
+        }
+        if (value instanceof String) {
+            return ((String) value).length() + 2;
+        }
+        // Numbers, booleans and server values
+        return 24;
+    }
+}
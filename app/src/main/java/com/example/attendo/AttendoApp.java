@@ -0,0 +1,56 @@
+package com.example.attendo;
+
+import android.app.Application;
+
+import androidx.annotation.Nullable;
+import androidx.tracing.Trace;
+
+import com.google.firebase.database.FirebaseDatabase;
+
+public class AttendoApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // First, so StrictMode also sees what the rest of startup does
+        Monitoring.install(this);
+
+        // Backend call timings appear as async sections in Perfetto / system traces
+        Metrics.get().setTracer(new Metrics.Tracer() {
+            @Override
+            public void beginAsyncSection(String name, int cookie) {
+                Trace.beginAsyncSection(name, cookie);
+            }
+
+            @Override
+            public void endAsyncSection(String name, int cookie) {
+                Trace.endAsyncSection(name, cookie);
+            }
+        });
+
+        // SDK setup that must happen before anything else touches the database
+        FirebaseDatabase.getInstance().setPersistenceEnabled(true);
+
+        // Push local writes whenever we (re)connect to Firebase
+        FirebaseRemoteDatabase.getInstance().listen(".info/connected", new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                if (Boolean.TRUE.equals(value)) {
+                    UserRepository.getInstance(AttendoApp.this).syncPending();
+                    AttendanceRepository.getInstance(AttendoApp.this).syncPending();
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+            }
+        });
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        Photos.getInstance(this).trimMemory(level);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-student counts across many session bitsets, kept "bit-sliced": plane k holds
+ * bit k of every student's count. Adding a session is a ripple-carry add over whole
+ * words, and threshold queries such as "attended fewer than 68 of 90" compare all
+ * students at once, 64 per word, without ever materialising individual counts.
+ */
+public final class BitSlicedCounter {
+
+    private final int size;
+    private final List<long[]> planes = new ArrayList<>();
+    private int added;
+
+    public BitSlicedCounter(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Number of bitsets added so far.
+     */
+    public int added() {
+        return added;
+    }
+
+    public void add(AttendanceBitset bitset) {
+        if (bitset.size() != size) {
+            throw new IllegalArgumentException("Size " + bitset.size() + " != " + size);
+        }
+        int wordCount = AttendanceBitset.wordCount(size);
+        for (int w = 0; w < wordCount; w++) {
+            long carry = bitset.words[w];
+            for (int p = 0; carry != 0; p++) {
+                if (p == planes.size()) {
+                    planes.add(new long[wordCount]);
+                }
+                long[] plane = planes.get(p);
+                long next = plane[w] & carry;
+                plane[w] ^= carry;
+                carry = next;
+            }
+        }
+        added++;
+    }
+
+    public int count(int index) {
+        int count = 0;
+        for (int p = 0; p < planes.size(); p++) {
+            if ((planes.get(p)[index >>> 6] & (1L << index)) != 0) {
+                count |= 1 << p;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Students whose count is strictly below threshold.
+     */
+    public AttendanceBitset below(int threshold) {
+        int wordCount = AttendanceBitset.wordCount(size);
+        long[] less = new long[wordCount];
+        if (threshold <= 0) {
+            return new AttendanceBitset(size, less);
+        }
+        int topBit = 31 - Integer.numberOfLeadingZeros(threshold);
+        if (topBit >= planes.size()) {
+            // threshold is larger than any count we can hold
+            return AttendanceBitset.full(size);
+        }
+        long[] equal = new long[wordCount];
+        java.util.Arrays.fill(equal, -1L);
+        for (int p = planes.size() - 1; p >= 0; p--) {
+            long[] plane = planes.get(p);
+            boolean thresholdBit = (threshold & (1 << p)) != 0;
+            for (int w = 0; w < wordCount; w++) {
+                if (thresholdBit) {
+                    less[w] |= equal[w] & ~plane[w];
+                    equal[w] &= plane[w];
+                } else {
+                    equal[w] &= ~plane[w];
+                }
+            }
+        }
+        AttendanceBitset result = new AttendanceBitset(size, less);
+        result.trimTail();
+        return result;
+    }
+
+    /**
+     * Students who attended fewer than ratio of the sessions added, e.g. 0.75.
+     */
+    public AttendanceBitset belowRatio(double ratio) {
+        return below((int) Math.ceil(ratio * added));
+    }
+}
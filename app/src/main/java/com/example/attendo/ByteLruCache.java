@@ -0,0 +1,61 @@
+package com.example.attendo;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU bounded by the total size of its values rather than their count, so a
+ * screen full of avatars can never hold more than the budget no matter how many rows
+ * scroll past.
+ */
+public class ByteLruCache<V> implements PhotoLoader.MemoryCache<V> {
+
+    public interface Sizer<V> {
+        long sizeOf(V value);
+    }
+
+    private final LinkedHashMap<String, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Sizer<V> sizer;
+    private final long maxBytes;
+    private long size;
+
+    public ByteLruCache(long maxBytes, Sizer<V> sizer) {
+        this.maxBytes = maxBytes;
+        this.sizer = sizer;
+    }
+
+    @Override
+    public synchronized V get(String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public synchronized void put(String key, V value) {
+        long bytes = sizer.sizeOf(value);
+        if (bytes > maxBytes) {
+            return;
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            size -= sizer.sizeOf(previous);
+        }
+        size += bytes;
+        trimTo(maxBytes);
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Drop entries until at most the given number of bytes is held, e.g. on memory pressure.
+     */
+    public synchronized void trimTo(long bytes) {
+        Iterator<Map.Entry<String, V>> it = entries.entrySet().iterator();
+        while (size > bytes && it.hasNext()) {
+            size -= sizer.sizeOf(it.next().getValue());
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Positional changes to a list, in the order they happened, with neighbouring changes of
+ * the same kind merged. Replaying them through {@link #dispatch} turns the old list into
+ * the new one; the calls mirror RecyclerView's ListUpdateCallback, so an adapter can be
+ * notified without diffing the lists.
+ */
+public final class ChangeSet {
+
+    public interface Receiver {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        void onChanged(int position, int count);
+    }
+
+    static final int INSERT = 0;
+    static final int REMOVE = 1;
+    static final int MOVE = 2;
+    static final int CHANGE = 3;
+
+    static final class Op {
+        final int type;
+        int position;
+        int count;
+        // Target position of a move
+        final int to;
+
+        Op(int type, int position, int count, int to) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+            this.to = to;
+        }
+    }
+
+    static final ChangeSet EMPTY = new ChangeSet(Collections.emptyList());
+
+    private final List<Op> ops;
+
+    private ChangeSet(List<Op> ops) {
+        this.ops = ops;
+    }
+
+    public boolean isEmpty() {
+        return ops.isEmpty();
+    }
+
+    /**
+     * Number of notifications {@link #dispatch} will make.
+     */
+    public int size() {
+        return ops.size();
+    }
+
+    public void dispatch(Receiver receiver) {
+        for (Op op : ops) {
+            switch (op.type) {
+                case INSERT:
+                    receiver.onInserted(op.position, op.count);
+                    break;
+                case REMOVE:
+                    receiver.onRemoved(op.position, op.count);
+                    break;
+                case MOVE:
+                    receiver.onMoved(op.position, op.to);
+                    break;
+                default:
+                    receiver.onChanged(op.position, op.count);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Collects changes as they are made to a list.
+     */
+    static final class Builder {
+        private List<Op> ops = new ArrayList<>();
+
+        void inserted(int position, int count) {
+            Op last = last();
+            if (last != null && last.type == INSERT
+                    && position >= last.position && position <= last.position + last.count) {
+                last.count += count;
+                return;
+            }
+            ops.add(new Op(INSERT, position, count, 0));
+        }
+
+        void removed(int position, int count) {
+            Op last = last();
+            if (last != null && last.type == REMOVE) {
+                if (position == last.position) {
+                    last.count += count;
+                    return;
+                }
+                if (position + count == last.position) {
+                    last.position = position;
+                    last.count += count;
+                    return;
+                }
+            }
+            ops.add(new Op(REMOVE, position, count, 0));
+        }
+
+        void moved(int from, int to) {
+            if (from != to) {
+                ops.add(new Op(MOVE, from, 1, to));
+            }
+        }
+
+        void changed(int position) {
+            Op last = last();
+            if (last != null && last.type == INSERT
+                    && position >= last.position && position < last.position + last.count) {
+                // The insert already brings the new content
+                return;
+            }
+            if (last != null && last.type == CHANGE
+                    && position >= last.position - 1 && position <= last.position + last.count) {
+                if (position == last.position - 1) {
+                    last.position--;
+                    last.count++;
+                } else if (position == last.position + last.count) {
+                    last.count++;
+                }
+                return;
+            }
+            ops.add(new Op(CHANGE, position, 1, 0));
+        }
+
+        ChangeSet drain() {
+            if (ops.isEmpty()) {
+                return EMPTY;
+            }
+            ChangeSet changes = new ChangeSet(ops);
+            ops = new ArrayList<>();
+            return changes;
+        }
+
+        private Op last() {
+            return ops.isEmpty() ? null : ops.get(ops.size() - 1);
+        }
+    }
+}
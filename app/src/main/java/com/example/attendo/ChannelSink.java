@@ -0,0 +1,111 @@
+package com.example.attendo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * UTF-8 text writer over a {@link WritableByteChannel} with one fixed buffer.
+ *
+ * Characters are encoded straight into the buffer, which is handed to the channel
+ * whenever it fills up, so writing a report allocates nothing per row and never holds
+ * more than the buffer in memory.
+ */
+final class ChannelSink implements Closeable {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long written;
+
+    ChannelSink(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    ChannelSink write(CharSequence text) throws IOException {
+        return write(text, 0, text.length());
+    }
+
+    /**
+     * Write text[start, end). Prefer it to writing one char at a time, which cannot
+     * encode characters outside the BMP.
+     */
+    ChannelSink write(CharSequence text, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                writeCodePoint(c);
+            }
+        }
+        return this;
+    }
+
+    ChannelSink write(char c) throws IOException {
+        writeCodePoint(c);
+        return this;
+    }
+
+    ChannelSink write(long value) throws IOException {
+        if (value < 0) {
+            write('-');
+            if (value == Long.MIN_VALUE) {
+                // Has no positive counterpart; write all but its last digit, then that
+                write(-(value / 10));
+                return write((char) ('0' - value % 10));
+            }
+            value = -value;
+        }
+        if (value >= 10) {
+            write(value / 10);
+        }
+        return write((char) ('0' + value % 10));
+    }
+
+    /**
+     * Bytes handed to the channel or still buffered.
+     */
+    long bytesWritten() {
+        return written + buffer.position();
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void writeCodePoint(int cp) throws IOException {
+        if (buffer.remaining() < 4) {
+            flush();
+        }
+        if (Character.isSurrogate((char) cp) && cp <= 0xffff) {
+            // Unpaired surrogate: not encodable, replace like String.getBytes would
+            cp = '?';
+        }
+        if (cp < 0x80) {
+            buffer.put((byte) cp);
+        } else if (cp < 0x800) {
+            buffer.put((byte) (0xc0 | cp >> 6));
+            buffer.put((byte) (0x80 | cp & 0x3f));
+        } else if (cp < 0x10000) {
+            buffer.put((byte) (0xe0 | cp >> 12));
+            buffer.put((byte) (0x80 | cp >> 6 & 0x3f));
+            buffer.put((byte) (0x80 | cp & 0x3f));
+        } else {
+            buffer.put((byte) (0xf0 | cp >> 18));
+            buffer.put((byte) (0x80 | cp >> 12 & 0x3f));
+            buffer.put((byte) (0x80 | cp >> 6 & 0x3f));
+            buffer.put((byte) (0x80 | cp & 0x3f));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.attendo;
+
+/**
+ * A verified scan waiting to be synced to checkins/<sessionId>/<studentUid>.
+ */
+public class CheckIn {
+    // Local row id, 0 until stored
+    public long id;
+    public final String classId;
+    public final String sessionId;
+    public final String studentUid;
+    public final long window;
+    public final long scannedAt;
+
+    public CheckIn(String classId, String sessionId, String studentUid, long window, long scannedAt) {
+        this.classId = classId;
+        this.sessionId = sessionId;
+        this.studentUid = studentUid;
+        this.window = window;
+        this.scannedAt = scannedAt;
+    }
+}
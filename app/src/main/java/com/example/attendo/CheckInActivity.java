@@ -0,0 +1,192 @@
+package com.example.attendo;
+
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.journeyapps.barcodescanner.BarcodeEncoder;
+import com.journeyapps.barcodescanner.ScanContract;
+import com.journeyapps.barcodescanner.ScanOptions;
+
+import javax.crypto.Mac;
+
+/**
+ * QR check-in at the classroom door.
+ *
+ * The teacher's device shows a code that changes every {@link CheckInToken#STEP_MS}; a
+ * student's device scans it, verifies it against the cached class key with no network
+ * round trip, and queues the check-in for the next batch sync. While online it is also
+ * counted in the session's live presence, which the teacher's screen shows.
+ */
+public class CheckInActivity extends AppCompatActivity {
+
+    // Accept codes up to two windows old to cover slow scans and clock drift
+    private static final int SKEW_WINDOWS = 2;
+    private static final int REPLAY_CAPACITY = 4096;
+    private static final long FLUSH_INTERVAL_MS = 15_000;
+
+    private static CheckInVerifier verifier;
+    private static PresenceCounter presence;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private EditText classInput;
+    private ImageView codeView;
+    private TextView status;
+
+    private Mac showingMac;
+    private String showingClass;
+    private String showingSession;
+    private long shownWindow = -1;
+    private PresenceLiveData present;
+
+    private final Runnable rotate = new Runnable() {
+        @Override
+        public void run() {
+            showCurrentCode();
+            long now = System.currentTimeMillis();
+            handler.postDelayed(this, CheckInToken.STEP_MS - now % CheckInToken.STEP_MS);
+        }
+    };
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            AttendanceRepository.getInstance(CheckInActivity.this).checkIns().flush();
+            handler.postDelayed(this, FLUSH_INTERVAL_MS);
+        }
+    };
+
+    private final ActivityResultLauncher<ScanOptions> scanner =
+            registerForActivityResult(new ScanContract(), result -> {
+                if (result.getContents() != null) {
+                    onScanned(result.getContents());
+                }
+            });
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_check_in);
+
+        classInput = findViewById(R.id.check_in_class);
+        codeView = findViewById(R.id.check_in_code);
+        status = findViewById(R.id.check_in_status);
+
+        // Start syncing keys now so they are cached before the first scan
+        CheckInKeys.getInstance();
+
+        findViewById(R.id.check_in_show).setOnClickListener(v -> startShowing());
+        findViewById(R.id.check_in_scan).setOnClickListener(v -> scanner.launch(new ScanOptions()
+                .setDesiredBarcodeFormats(ScanOptions.QR_CODE)
+                .setPrompt("Scan the code on the teacher's screen")
+                .setBeepEnabled(false)
+                .setOrientationLocked(false)));
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        handler.post(flush);
+        if (showingMac != null) {
+            handler.post(rotate);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        handler.removeCallbacks(rotate);
+        handler.removeCallbacks(flush);
+        AttendanceRepository.getInstance(this).checkIns().flush();
+    }
+
+    private static synchronized CheckInVerifier verifier(AttendanceRepository repository) {
+        // Shared so the replay cache survives the scanner activity coming and going
+        if (verifier == null) {
+            presence = new PresenceCounter(FirebaseRemoteDatabase.getInstance(), PresenceCounter.DEFAULT_SHARDS);
+            CheckInQueue queue = repository.checkIns();
+            verifier = new CheckInVerifier(CheckInKeys.getInstance(), checkIn -> {
+                queue.onCheckIn(checkIn);
+                // Best effort: the queued check-in is the record, presence is only the live view
+                presence.arrive(checkIn.sessionId, checkIn.studentUid, (error, changed) -> { });
+            }, SKEW_WINDOWS, REPLAY_CAPACITY);
+        }
+        return verifier;
+    }
+
+    private void startShowing() {
+        String classId = classInput.getText().toString().trim();
+        if (classId.isEmpty() || classId.contains(".")) {
+            Toast.makeText(this, "Enter a class id without dots", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        status.setText("Preparing code...");
+        CheckInKeys.getInstance().ensureKey(classId, key -> {
+            showingMac = CheckInToken.newMac(key);
+            showingClass = classId;
+            showingSession = FirebaseRemoteDatabase.getInstance().pushKey("sessions");
+            shownWindow = -1;
+            codeView.setVisibility(View.VISIBLE);
+            String session = showingSession;
+            if (present != null) {
+                present.removeObservers(this);
+            }
+            present = new PresenceLiveData(FirebaseRemoteDatabase.getInstance(), session);
+            present.observe(this, count -> status.setText("Session " + session + "\nPresent now: " + count));
+            handler.removeCallbacks(rotate);
+            handler.post(rotate);
+        }, error -> status.setText("Could not get the class key: " + error.getMessage()));
+    }
+
+    private void showCurrentCode() {
+        long window = CheckInToken.window(System.currentTimeMillis());
+        if (window == shownWindow) {
+            return;
+        }
+        shownWindow = window;
+        String token = CheckInToken.issue(showingMac, showingClass, showingSession, window);
+        try {
+            Bitmap code = new BarcodeEncoder().encodeBitmap(token, BarcodeFormat.QR_CODE, 560, 560);
+            codeView.setImageBitmap(code);
+        } catch (WriterException e) {
+            status.setText("Could not draw the code");
+        }
+    }
+
+    private void onScanned(String token) {
+        String uid = FirebaseRemoteAuth.getInstance().currentUid();
+        if (uid == null) {
+            finish();
+            return;
+        }
+        int result = verifier(AttendanceRepository.getInstance(this))
+                .checkIn(token, uid, System.currentTimeMillis());
+        switch (result) {
+            case CheckInVerifier.OK:
+                status.setText("Checked in");
+                break;
+            case CheckInVerifier.DUPLICATE:
+                status.setText("Already checked in");
+                break;
+            case CheckInVerifier.EXPIRED:
+                status.setText("Code expired, scan the current one");
+                break;
+            case CheckInVerifier.UNKNOWN_CLASS:
+                status.setText("This device has no key for that class yet; connect once and retry");
+                break;
+            default:
+                status.setText("Not a valid check-in code");
+        }
+    }
+}
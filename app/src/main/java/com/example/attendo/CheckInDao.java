@@ -0,0 +1,21 @@
+package com.example.attendo;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface CheckInDao {
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insert(CheckInEntity checkIn);
+
+    @Query("SELECT * FROM check_ins WHERE synced = 0 ORDER BY id LIMIT :limit")
+    List<CheckInEntity> getPending(int limit);
+
+    @Query("UPDATE check_ins SET synced = 1 WHERE id IN (:ids)")
+    void markSynced(List<Long> ids);
+}
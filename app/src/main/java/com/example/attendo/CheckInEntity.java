@@ -0,0 +1,54 @@
+package com.example.attendo;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A verified check-in as stored on the scanning device until it is synced.
+ * One row per student and session; rescans are ignored by the unique index.
+ */
+@Entity(tableName = "check_ins",
+        indices = {@Index(value = {"session_id", "student_uid"}, unique = true)})
+public class CheckInEntity {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    @NonNull
+    @ColumnInfo(name = "class_id")
+    public String classId = "";
+
+    @NonNull
+    @ColumnInfo(name = "session_id")
+    public String sessionId = "";
+
+    @NonNull
+    @ColumnInfo(name = "student_uid")
+    public String studentUid = "";
+
+    public long window;
+
+    @ColumnInfo(name = "scanned_at")
+    public long scannedAt;
+
+    public boolean synced;
+
+    public static CheckInEntity from(CheckIn checkIn) {
+        CheckInEntity entity = new CheckInEntity();
+        entity.classId = checkIn.classId;
+        entity.sessionId = checkIn.sessionId;
+        entity.studentUid = checkIn.studentUid;
+        entity.window = checkIn.window;
+        entity.scannedAt = checkIn.scannedAt;
+        return entity;
+    }
+
+    public CheckIn toCheckIn() {
+        CheckIn checkIn = new CheckIn(classId, sessionId, studentUid, window, scannedAt);
+        checkIn.id = id;
+        return checkIn;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Per-class check-in keys under checkin_keys/<classId>, hex encoded.
+ *
+ * The node is kept synced so the keys are in Firebase's disk cache and scanning works
+ * with no connection; lookups during a scan only touch the in-memory copy.
+ */
+public class CheckInKeys implements CheckInVerifier.KeyRing {
+
+    private static final String PATH = "checkin_keys";
+
+    private static CheckInKeys instance;
+
+    private final RemoteDatabase database;
+    private final Map<String, byte[]> keys = new HashMap<>();
+
+    // Decodes the keys off the main thread; lookups read the map directly, so the result
+    // is installed right there
+    private final SnapshotPipeline<Object, Map<String, byte[]>> loader = new SnapshotPipeline<>(
+            AppExecutors.compute(), Runnable::run, CheckInKeys::decode,
+            new SnapshotPipeline.Sink<Map<String, byte[]>>() {
+                @Override
+                public void onResult(Map<String, byte[]> loaded) {
+                    synchronized (keys) {
+                        keys.clear();
+                        keys.putAll(loaded);
+                    }
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    // Keep whatever keys we already have
+                }
+            });
+
+    private CheckInKeys(RemoteDatabase database) {
+        this.database = database;
+        database.keepSynced(PATH, true);
+        database.listen(PATH, new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                loader.submit(value);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                // Keep whatever keys we already have
+            }
+        });
+    }
+
+    public static synchronized CheckInKeys getInstance() {
+        if (instance == null) {
+            instance = new CheckInKeys(FirebaseRemoteDatabase.getInstance());
+        }
+        return instance;
+    }
+
+    private static Map<String, byte[]> decode(@Nullable Object value) {
+        Map<String, byte[]> loaded = new HashMap<>();
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> child : ((Map<?, ?>) value).entrySet()) {
+                byte[] key = CheckInToken.fromHex(Values.asString(child.getValue()));
+                if (key != null) {
+                    loaded.put(String.valueOf(child.getKey()), key);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    @Nullable
+    @Override
+    public byte[] keyFor(String classId) {
+        synchronized (keys) {
+            return keys.get(classId);
+        }
+    }
+
+    /**
+     * The class's key, creating it if the class has none yet. A transaction makes sure two
+     * teachers starting the same class at once end up with the same key.
+     */
+    public void ensureKey(String classId, Consumer<byte[]> onKey, Consumer<Exception> onError) {
+        String candidate = CheckInToken.toHex(CheckInToken.newKey());
+        database.runTransaction(PATH + "/" + classId, current -> current == null ? candidate : current,
+                (error, committed, value) -> {
+                    byte[] key = CheckInToken.fromHex(Values.asString(value));
+                    if (error != null || key == null) {
+                        onError.accept(error != null ? error
+                                : new IllegalStateException("No check-in key for " + classId));
+                        return;
+                    }
+                    synchronized (keys) {
+                        keys.put(classId, key);
+                    }
+                    onKey.accept(key);
+                });
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.attendo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local queue of verified check-ins, pushed to Firebase in batches.
+ *
+ * Scans are appended to a durable {@link Store} and flushed as one multi-path update per
+ * batch, either once a batch has filled up or when {@link #flush()} is called (on a timer
+ * or when the connection comes back). checkins/<sessionId>/<studentUid> is written whole,
+ * so resending a batch after a lost acknowledgement is harmless.
+ */
+public class CheckInQueue implements CheckInVerifier.Sink {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    public interface Store {
+        void append(CheckIn checkIn);
+
+        /**
+         * Oldest unsynced check-ins, at most limit of them.
+         */
+        List<CheckIn> pending(int limit);
+
+        void markSynced(List<CheckIn> checkIns);
+    }
+
+    private final Store store;
+    private final RemoteDatabase database;
+    private final Executor storeExecutor;
+    private final int batchSize;
+    private final AtomicInteger unflushed = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    /**
+     * @param storeExecutor where the store is touched, e.g. the disk thread
+     */
+    public CheckInQueue(Store store, RemoteDatabase database, Executor storeExecutor, int batchSize) {
+        this.store = store;
+        this.database = database;
+        this.storeExecutor = storeExecutor;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void onCheckIn(CheckIn checkIn) {
+        storeExecutor.execute(() -> store.append(checkIn));
+        if (unflushed.incrementAndGet() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Send everything pending, one batch at a time. Only one flush runs at once.
+     */
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        unflushed.set(0);
+        storeExecutor.execute(this::sendNextBatch);
+    }
+
+    private void sendNextBatch() {
+        List<CheckIn> batch = store.pending(batchSize);
+        if (batch.isEmpty()) {
+            flushing.set(false);
+            return;
+        }
+        database.updateChildren(toUpdates(batch), error -> {
+            if (error != null) {
+                // Still in the store; the next flush retries
+                flushing.set(false);
+                return;
+            }
+            storeExecutor.execute(() -> {
+                store.markSynced(batch);
+                sendNextBatch();
+            });
+        });
+    }
+
+    static Map<String, Object> toUpdates(List<CheckIn> batch) {
+        Map<String, Object> updates = new HashMap<>();
+        for (CheckIn checkIn : batch) {
+            Map<String, Object> value = new HashMap<>();
+            value.put("class_id", checkIn.classId);
+            value.put("window", checkIn.window);
+            value.put("at", checkIn.scannedAt);
+            updates.put("checkins/" + checkIn.sessionId + "/" + checkIn.studentUid, value);
+        }
+        return updates;
+    }
+}
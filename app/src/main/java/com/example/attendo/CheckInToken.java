@@ -0,0 +1,108 @@
+package com.example.attendo;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Rotating check-in codes, in the spirit of TOTP.
+ *
+ * A token is {@code <classId>.<sessionId>.<window>.<mac>}: the window is the current
+ * {@link #STEP_MS} slice of wall-clock time and the mac is the first {@link #MAC_BYTES}
+ * bytes of HMAC-SHA256 over everything before it, hex encoded, keyed with the class's
+ * check-in key. A device holding the key can check a scanned code without the network,
+ * and a photo of the code stops working a few windows later.
+ */
+public final class CheckInToken {
+
+    public static final long STEP_MS = 10_000;
+    static final int MAC_BYTES = 10;
+    static final int KEY_BYTES = 32;
+    static final String ALGORITHM = "HmacSHA256";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private CheckInToken() {}
+
+    public static long window(long nowMs) {
+        return nowMs / STEP_MS;
+    }
+
+    public static byte[] newKey() {
+        byte[] key = new byte[KEY_BYTES];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    public static Mac newMac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            // HmacSHA256 is guaranteed on every Android and Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Token to show for the given window. Ids must be ASCII and free of '.', which holds
+     * for Firebase push keys.
+     */
+    public static String issue(Mac mac, String classId, String sessionId, long window) {
+        String payload = classId + "." + sessionId + "." + window;
+        byte[] digest = mac.doFinal(ascii(payload));
+        StringBuilder token = new StringBuilder(payload.length() + 1 + MAC_BYTES * 2).append(payload).append('.');
+        for (int i = 0; i < MAC_BYTES; i++) {
+            token.append(HEX[(digest[i] >> 4) & 0xf]).append(HEX[digest[i] & 0xf]);
+        }
+        return token.toString();
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder out = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            out.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Inverse of {@link #toHex}; null if the text is not even-length hex.
+     */
+    public static byte[] fromHex(String text) {
+        if (text == null || text.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[text.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = hexValue(text.charAt(2 * i));
+            int low = hexValue(text.charAt(2 * i + 1));
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) text.charAt(i);
+        }
+        return bytes;
+    }
+}
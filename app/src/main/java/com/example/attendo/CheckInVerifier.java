@@ -0,0 +1,183 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+
+/**
+ * Checks scanned {@link CheckInToken}s offline and records each student once per session.
+ *
+ * The hot path parses the token in place, feeds the HMAC one byte at a time into a reused
+ * Mac and output buffer, and deduplicates through {@link ReplayCache}, so a rejected scan
+ * allocates nothing and an accepted one only the strings it hands to the {@link Sink}.
+ */
+public class CheckInVerifier {
+
+    public static final int OK = 0;
+    public static final int MALFORMED = 1;
+    public static final int UNKNOWN_CLASS = 2;
+    public static final int EXPIRED = 3;
+    public static final int BAD_SIGNATURE = 4;
+    public static final int DUPLICATE = 5;
+
+    /**
+     * Check-in keys this device knows about, by class id; null if none.
+     */
+    public interface KeyRing {
+        byte[] keyFor(String classId);
+    }
+
+    public interface Sink {
+        void onCheckIn(CheckIn checkIn);
+    }
+
+    private static final class ClassKey {
+        final String classId;
+        final Mac mac;
+
+        ClassKey(String classId, Mac mac) {
+            this.classId = classId;
+            this.mac = mac;
+        }
+    }
+
+    private final KeyRing keyRing;
+    private final Sink sink;
+    private final int skewWindows;
+    private final ReplayCache seen;
+    private final List<ClassKey> macs = new ArrayList<>();
+    private final byte[] digest = new byte[32];
+
+    /**
+     * @param skewWindows how many windows old (or early, for clock drift) a code may be
+     * @param replayCapacity how many recent check-ins to remember for deduplication
+     */
+    public CheckInVerifier(KeyRing keyRing, Sink sink, int skewWindows, int replayCapacity) {
+        this.keyRing = keyRing;
+        this.sink = sink;
+        this.skewWindows = skewWindows;
+        this.seen = new ReplayCache(replayCapacity);
+    }
+
+    public synchronized int checkIn(CharSequence token, String studentUid, long nowMs) {
+        int length = token.length();
+        int firstDot = indexOf(token, '.', 0);
+        int secondDot = firstDot < 0 ? -1 : indexOf(token, '.', firstDot + 1);
+        int thirdDot = secondDot < 0 ? -1 : indexOf(token, '.', secondDot + 1);
+        if (firstDot <= 0 || secondDot <= firstDot + 1 || thirdDot <= secondDot + 1
+                || length - thirdDot - 1 != CheckInToken.MAC_BYTES * 2) {
+            return MALFORMED;
+        }
+
+        long window = 0;
+        for (int i = secondDot + 1; i < thirdDot; i++) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9' || i - secondDot > 18) {
+                return MALFORMED;
+            }
+            window = window * 10 + (c - '0');
+        }
+        // Cheapest check first: stale screenshots never reach the HMAC
+        if (Math.abs(CheckInToken.window(nowMs) - window) > skewWindows) {
+            return EXPIRED;
+        }
+
+        Mac mac = macFor(token, firstDot);
+        if (mac == null) {
+            return UNKNOWN_CLASS;
+        }
+        for (int i = 0; i < thirdDot; i++) {
+            char c = token.charAt(i);
+            if (c > 0x7f) {
+                mac.reset();
+                return MALFORMED;
+            }
+            mac.update((byte) c);
+        }
+        try {
+            mac.doFinal(digest, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        // Compare every byte so timing does not reveal how much of a forgery was right
+        int diff = 0;
+        for (int i = 0; i < CheckInToken.MAC_BYTES; i++) {
+            int high = CheckInToken.hexValue(token.charAt(thirdDot + 1 + 2 * i));
+            int low = CheckInToken.hexValue(token.charAt(thirdDot + 2 + 2 * i));
+            if (high < 0 || low < 0) {
+                return MALFORMED;
+            }
+            diff |= (digest[i] & 0xff) ^ (high << 4 | low);
+        }
+        if (diff != 0) {
+            return BAD_SIGNATURE;
+        }
+
+        // One check-in per student and session, however often the code is scanned
+        long fingerprint = hash(token, 0, secondDot, hash(studentUid, 0, studentUid.length(), 0x5bd1e995L));
+        if (!seen.add(fingerprint)) {
+            return DUPLICATE;
+        }
+        sink.onCheckIn(new CheckIn(token.subSequence(0, firstDot).toString(),
+                token.subSequence(firstDot + 1, secondDot).toString(),
+                studentUid, window, nowMs));
+        return OK;
+    }
+
+    private Mac macFor(CharSequence token, int classEnd) {
+        for (int i = 0; i < macs.size(); i++) {
+            ClassKey entry = macs.get(i);
+            if (regionEquals(entry.classId, token, classEnd)) {
+                return entry.mac;
+            }
+        }
+        String classId = token.subSequence(0, classEnd).toString();
+        byte[] key = keyRing.keyFor(classId);
+        if (key == null) {
+            return null;
+        }
+        Mac mac = CheckInToken.newMac(key);
+        macs.add(new ClassKey(classId, mac));
+        return mac;
+    }
+
+    /**
+     * Forget cached keys, e.g. after a class key was rotated.
+     */
+    public synchronized void clearKeys() {
+        macs.clear();
+    }
+
+    private static boolean regionEquals(String value, CharSequence token, int end) {
+        if (value.length() != end) {
+            return false;
+        }
+        for (int i = 0; i < end; i++) {
+            if (value.charAt(i) != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence text, char c, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // FNV-1a style 64-bit hash over a char range
+    private static long hash(CharSequence text, int from, int to, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = from; i < to; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Ordered children of a Firebase node, kept up to date from ChildEventListener deltas
+ * instead of re-reading the whole node.
+ *
+ * The children sit in a treap ordered by position, with subtree sizes and parent links,
+ * plus a map from key to node. Adding, changing, moving or removing one child costs
+ * O(log n), and so does reading the position of a key or the child at a position. Only
+ * the one child is touched, whatever the size of the list. Every change is also recorded
+ * as a position change; {@link #drainChanges} hands them over as a {@link ChangeSet}
+ * for the adapter or list.
+ *
+ * Not thread-safe; use it from the thread that delivers the deltas.
+ */
+public class ChildList<T> {
+
+    private static final class Node<T> {
+        final String key;
+        final int priority;
+        T value;
+        int size = 1;
+        Node<T> left;
+        Node<T> right;
+        Node<T> parent;
+
+        Node(String key, T value, int priority) {
+            this.key = key;
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * The two trees a split leaves: the first count nodes, and the rest.
+     */
+    private static final class Split<T> {
+        final Node<T> first;
+        final Node<T> rest;
+
+        Split(@Nullable Node<T> first, @Nullable Node<T> rest) {
+            this.first = first;
+            this.rest = rest;
+        }
+    }
+
+    private final Map<String, Node<T>> nodes = new HashMap<>();
+    private final ChangeSet.Builder changes = new ChangeSet.Builder();
+    // Only shapes the tree; a fixed seed keeps runs repeatable
+    private final Random priorities = new Random(0x5EED);
+    private Node<T> root;
+
+    public int size() {
+        return size(root);
+    }
+
+    public T get(int index) {
+        return nodeAt(index).value;
+    }
+
+    public String keyAt(int index) {
+        return nodeAt(index).key;
+    }
+
+    @Nullable
+    public T valueOf(String key) {
+        Node<T> node = nodes.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Position of a key, or -1.
+     */
+    public int indexOf(String key) {
+        Node<T> node = nodes.get(key);
+        return node == null ? -1 : rank(node);
+    }
+
+    /**
+     * onChildAdded: insert after previousKey, or first if it is null or unknown. Adding
+     * a key that is already there changes and moves it instead.
+     */
+    public void add(String key, T value, @Nullable String previousKey) {
+        if (nodes.containsKey(key)) {
+            set(key, value);
+            move(key, previousKey);
+            return;
+        }
+        int position = positionAfter(previousKey);
+        insert(position, key, value);
+    }
+
+    /**
+     * Insert in key order. Only for lists ordered by key, where it places children the
+     * server has not sent yet (local edits) where the server would.
+     */
+    public void addSorted(String key, T value) {
+        if (nodes.containsKey(key)) {
+            set(key, value);
+            return;
+        }
+        int position = 0;
+        Node<T> node = root;
+        while (node != null) {
+            if (node.key.compareTo(key) < 0) {
+                position += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        insert(position, key, value);
+    }
+
+    /**
+     * onChildChanged: replace the value in place.
+     */
+    public void set(String key, T value) {
+        Node<T> node = nodes.get(key);
+        if (node == null) {
+            return;
+        }
+        node.value = value;
+        changes.changed(rank(node));
+    }
+
+    /**
+     * onChildRemoved.
+     */
+    public void remove(String key) {
+        Node<T> node = nodes.remove(key);
+        if (node == null) {
+            return;
+        }
+        int position = rank(node);
+        removeAt(position);
+        changes.removed(position, 1);
+    }
+
+    /**
+     * onChildMoved: place the child after previousKey, or first.
+     */
+    public void move(String key, @Nullable String previousKey) {
+        Node<T> node = nodes.get(key);
+        if (node == null) {
+            return;
+        }
+        int from = rank(node);
+        removeAt(from);
+        int to = positionAfter(previousKey);
+        node.left = null;
+        node.right = null;
+        node.size = 1;
+        insertNode(to, node);
+        changes.moved(from, to);
+    }
+
+    /**
+     * Remove everything, e.g. before a listener is attached again and replays every child.
+     */
+    public void clear() {
+        int size = size();
+        nodes.clear();
+        root = null;
+        if (size > 0) {
+            changes.removed(0, size);
+        }
+    }
+
+    /**
+     * Changes since the last call, in order.
+     */
+    public ChangeSet drainChanges() {
+        return changes.drain();
+    }
+
+    private int positionAfter(@Nullable String previousKey) {
+        Node<T> previous = previousKey == null ? null : nodes.get(previousKey);
+        return previous == null ? 0 : rank(previous) + 1;
+    }
+
+    private void insert(int position, String key, T value) {
+        Node<T> node = new Node<>(key, value, priorities.nextInt());
+        nodes.put(key, node);
+        insertNode(position, node);
+        changes.inserted(position, 1);
+    }
+
+    private void insertNode(int position, Node<T> node) {
+        Split<T> parts = split(root, position);
+        root = merge(merge(parts.first, node), parts.rest);
+        root.parent = null;
+    }
+
+    private void removeAt(int position) {
+        Split<T> parts = split(root, position);
+        Split<T> rest = split(parts.rest, 1);
+        root = merge(parts.first, rest.rest);
+        if (root != null) {
+            root.parent = null;
+        }
+    }
+
+    private Node<T> nodeAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+        }
+        Node<T> node = root;
+        while (true) {
+            int left = size(node.left);
+            if (index < left) {
+                node = node.left;
+            } else if (index == left) {
+                return node;
+            } else {
+                index -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private int rank(Node<T> node) {
+        int rank = size(node.left);
+        for (Node<T> child = node, parent = node.parent; parent != null; child = parent, parent = parent.parent) {
+            if (parent.right == child) {
+                rank += size(parent.left) + 1;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * The first count nodes of the tree, and the rest.
+     */
+    private Split<T> split(@Nullable Node<T> node, int count) {
+        if (node == null) {
+            return new Split<>(null, null);
+        }
+        if (size(node.left) < count) {
+            Split<T> parts = split(node.right, count - size(node.left) - 1);
+            node.right = parts.first;
+            update(node);
+            detach(parts.rest);
+            return new Split<>(node, parts.rest);
+        }
+        Split<T> parts = split(node.left, count);
+        node.left = parts.rest;
+        update(node);
+        detach(parts.first);
+        return new Split<>(parts.first, node);
+    }
+
+    private Node<T> merge(@Nullable Node<T> left, @Nullable Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private void update(Node<T> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+    }
+
+    private static <T> void detach(@Nullable Node<T> node) {
+        if (node != null) {
+            node.parent = null;
+        }
+    }
+
+    private static int size(@Nullable Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A subject's semester for one class as session bitsets, and who is falling behind.
+ *
+ *   class_bits/<classId>/<subjectKey>/<sessionId>   {@link SessionBits} plus the roster key
+ *   rosters/<rosterKey>                             the roster's uids, comma-separated
+ *
+ * A roster is stored once under a key derived from its contents, so the sessions of an
+ * unchanged class all point at the same one, and the whole semester of a subject is one
+ * read of a few kilobytes. Standings are counted with a {@link BitSlicedCounter} over
+ * the roster of the session that started last; a student who was not on a session's
+ * roster is not held to it.
+ */
+public final class ClassStanding {
+
+    public interface Callback {
+        /**
+         * @param below uids attending less than the ratio, in roster order
+         */
+        void onLoaded(List<String> below, int sessions);
+
+        void onError(Exception error);
+    }
+
+    private ClassStanding() {}
+
+    public static String path(String classId, String subject) {
+        return "class_bits/" + classId + "/" + AttendanceAggregator.subjectKey(subject);
+    }
+
+    public static String rosterPath(String rosterKey) {
+        return "rosters/" + rosterKey;
+    }
+
+    /**
+     * A session's bits as stored, naming the roster they are indexed by and when the
+     * session started.
+     */
+    static Map<String, Object> bits(AttendanceSession session, List<String> roster) {
+        Map<String, Object> bits = SessionBits.from(session, roster).toMap();
+        bits.put("roster", rosterKey(roster));
+        bits.put("started_at", session.startedAt);
+        return bits;
+    }
+
+    /**
+     * Updates filing a session's bits under its subject and storing its roster; sent with
+     * the session record, which carries the same bits.
+     */
+    static Map<String, Object> updates(AttendanceSession session, List<String> roster, Map<String, Object> bits) {
+        Map<String, Object> updates = new HashMap<>(4);
+        updates.put(path(session.classId, session.subject) + "/" + session.sessionId, bits);
+        updates.put(rosterPath(rosterKey(roster)), String.join(",", roster));
+        return updates;
+    }
+
+    static String rosterKey(List<String> roster) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest(String.join(",", roster).getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                key.append(Character.forDigit((digest[i] >> 4) & 0xF, 16))
+                        .append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read a subject's semester and the rosters it refers to, then count.
+     */
+    public static void load(RemoteDatabase database, String classId, String subject, double ratio,
+                            Callback callback) {
+        UserMigration.readOnce(database, path(classId, subject), new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                Map<?, ?> sessions = value instanceof Map ? (Map<?, ?>) value : Collections.emptyMap();
+                List<String> keys = new ArrayList<>();
+                for (Object session : sessions.values()) {
+                    Object key = session instanceof Map ? ((Map<?, ?>) session).get("roster") : null;
+                    if (key != null && !keys.contains(key.toString())) {
+                        keys.add(key.toString());
+                    }
+                }
+                loadRosters(database, keys, new HashMap<>(), rosters ->
+                        callback.onLoaded(below(sessions, rosters, ratio), sessions.size()), callback);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    private interface RostersLoaded {
+        void run(Map<String, List<String>> rosters);
+    }
+
+    private static void loadRosters(RemoteDatabase database, List<String> keys, Map<String, List<String>> loaded,
+                                    RostersLoaded done, Callback callback) {
+        if (loaded.size() == keys.size()) {
+            done.run(loaded);
+            return;
+        }
+        String key = keys.get(loaded.size());
+        UserMigration.readOnce(database, rosterPath(key), new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                loaded.put(key, value == null || value.toString().isEmpty()
+                        ? Collections.emptyList() : Arrays.asList(value.toString().split(",")));
+                loadRosters(database, keys, loaded, done, callback);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Students on the roster of the latest session attending less than ratio of the
+     * sessions.
+     *
+     * @param sessions raw value of class_bits/<classId>/<subjectKey>
+     */
+    static List<String> below(Map<?, ?> sessions, Map<String, List<String>> rosters, double ratio) {
+        List<Object> ids = new ArrayList<>(sessions.keySet());
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // Ids do not sort by time (several slots, push keys), so go by when each started;
+        // bits stored before started_at was kept count as oldest
+        Object latest = null;
+        long latestStart = Long.MIN_VALUE;
+        for (Object id : ids) {
+            long start = startOf(sessions.get(id));
+            if (latest == null || start > latestStart
+                    || start == latestStart && id.toString().compareTo(latest.toString()) > 0) {
+                latest = id;
+                latestStart = start;
+            }
+        }
+        List<String> roster = rosterOf(sessions.get(latest), rosters);
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < roster.size(); i++) {
+            index.put(roster.get(i), i);
+        }
+
+        BitSlicedCounter counter = new BitSlicedCounter(roster.size());
+        for (Object id : ids) {
+            Object value = sessions.get(id);
+            SessionBits bits = SessionBits.fromValue(value);
+            if (bits == null) {
+                continue;
+            }
+            List<String> sessionRoster = rosterOf(value, rosters);
+            if (sessionRoster.equals(roster)) {
+                counter.add(bits.attended);
+                continue;
+            }
+            // Other roster: move the bits over, excusing students who were not on it
+            AttendanceBitset attended = AttendanceBitset.full(roster.size());
+            for (int j = 0; j < sessionRoster.size() && j < bits.attended.size(); j++) {
+                Integer i = index.get(sessionRoster.get(j));
+                if (i != null && !bits.attended.get(j)) {
+                    attended.clear(i);
+                }
+            }
+            counter.add(attended);
+        }
+
+        List<String> below = new ArrayList<>();
+        AttendanceBitset result = counter.belowRatio(ratio);
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            below.add(roster.get(i));
+        }
+        return below;
+    }
+
+    private static long startOf(Object session) {
+        return session instanceof Map ? Values.asLong(((Map<?, ?>) session).get("started_at")) : 0;
+    }
+
+    private static List<String> rosterOf(Object session, Map<String, List<String>> rosters) {
+        Object key = session instanceof Map ? ((Map<?, ?>) session).get("roster") : null;
+        List<String> roster = key == null ? null : rosters.get(key.toString());
+        return roster != null ? roster : Collections.emptyList();
+    }
+}
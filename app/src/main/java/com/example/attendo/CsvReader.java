@@ -0,0 +1,113 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 reader: one record at a time, quoted fields with doubled quotes and
+ * embedded line breaks, CRLF or LF endings and a leading byte order mark. Only the current
+ * record is held in memory, so files of any length can be read.
+ */
+public class CsvReader {
+
+    private final Reader in;
+    private final StringBuilder field = new StringBuilder();
+    private int pushedBack = -2;
+    private int record;
+
+    /**
+     * @param in read a character at a time, so pass something buffered
+     */
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Number of the record last returned by {@link #next}, from 1.
+     */
+    public int record() {
+        return record;
+    }
+
+    /**
+     * The next record, or null at the end of the input. Blank lines are skipped.
+     */
+    @Nullable
+    public String[] next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        boolean any = false;
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (!any) {
+                    return null;
+                }
+                break;
+            }
+            if (c == '\uFEFF' && record == 0 && !any) {
+                continue;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(following);
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+            if (c == '\r') {
+                int following = read();
+                if (following != '\n') {
+                    unread(following);
+                }
+                c = '\n';
+            }
+            if (c == '\n') {
+                if (!any) {
+                    continue;
+                }
+                break;
+            }
+            any = true;
+            if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append((char) c);
+            }
+        }
+        fields.add(field.toString());
+        record++;
+        return fields.toArray(new String[0]);
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
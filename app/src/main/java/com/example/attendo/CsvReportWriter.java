@@ -0,0 +1,74 @@
+package com.example.attendo;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * RFC 4180 CSV. Cells that a spreadsheet would run as a formula are prefixed with an
+ * apostrophe, since names and skills are typed in by users.
+ */
+public class CsvReportWriter implements ReportWriter {
+
+    private final ChannelSink out;
+
+    public CsvReportWriter(WritableByteChannel channel, int bufferSize) throws IOException {
+        out = new ChannelSink(channel, bufferSize);
+        // BOM so Excel opens the file as UTF-8
+        out.write('\uFEFF');
+    }
+
+    @Override
+    public void header(String[] columns) throws IOException {
+        row(columns);
+    }
+
+    @Override
+    public void row(String[] cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            cell(cells[i]);
+        }
+        out.write('\r').write('\n');
+    }
+
+    @Override
+    public long bytesWritten() {
+        return out.bytesWritten();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void cell(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean formula = "=+-@".indexOf(value.charAt(0)) >= 0;
+        boolean quote = formula;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        if (formula) {
+            out.write('\'');
+        }
+        // Double each quote by starting the next run on it; runs keep surrogate pairs whole
+        int run = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.write(value, run, i + 1);
+                run = i;
+            }
+        }
+        out.write(value, run, value.length()).write('"');
+    }
+}
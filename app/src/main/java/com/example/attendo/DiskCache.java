@@ -0,0 +1,140 @@
+package com.example.attendo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Byte-bounded file cache, least recently used entries evicted first.
+ *
+ * Each entry is one file named after its key. Access order survives restarts through the
+ * files' modification times, which are read back when the cache is first used.
+ */
+public class DiskCache {
+
+    private final File directory;
+    private final long maxBytes;
+    // key -> file size, in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private boolean loaded;
+
+    public DiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] get(String key) {
+        load();
+        String name = fileName(key);
+        // get, not containsKey, so the hit counts as a use for eviction order
+        if (entries.get(name) == null) {
+            return null;
+        }
+        File file = new File(directory, name);
+        try {
+            byte[] data = read(file);
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            remove(name);
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, byte[] data) {
+        load();
+        if (data.length > maxBytes) {
+            return;
+        }
+        String name = fileName(key);
+        File file = new File(directory, name);
+        File temp = new File(directory, name + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        remove(name);
+        // Rename so a crash mid-write never leaves a truncated entry behind
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        entries.put(name, (long) data.length);
+        size += data.length;
+        trimToSize();
+    }
+
+    public synchronized long size() {
+        load();
+        return size;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        directory.mkdirs();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+                continue;
+            }
+            entries.put(file.getName(), file.length());
+            size += file.length();
+        }
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (size > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            new File(directory, eldest.getKey()).delete();
+            size -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    private void remove(String name) {
+        Long length = entries.remove(name);
+        if (length != null) {
+            size -= length;
+            new File(directory, name).delete();
+        }
+    }
+
+    static String fileName(String key) {
+        return key.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    throw new IOException("Truncated cache entry " + file);
+                }
+                offset += read;
+            }
+        }
+        return data;
+    }
+}
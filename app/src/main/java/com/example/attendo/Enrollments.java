@@ -0,0 +1,125 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Layout of the partitioned directory, and the multi-path updates that keep it
+ * consistent:
+ *
+ *   institutions/<inst>                       {name}
+ *   classes/<inst>/<classId>                  {name}
+ *   members/<inst>/<uid>                      card of everyone in the institution
+ *   class_students/<inst>/<classId>/<uid>     card of every student in the class
+ *   users/<uid>/institution                   the student's institution
+ *   users/<uid>/classes/<classId>             true for every class the student is in
+ *
+ * A card is a copy of the profile fields a list row shows (username, email, skill,
+ * photo), so a class roster is read from class_students/<inst>/<classId> alone, ordered
+ * by username, without touching any other class or institution. The two directions of
+ * an enrollment are always written together in one update, and a profile edit rewrites
+ * the student's cards in the same update as the profile, so the copies never drift.
+ */
+public final class Enrollments {
+
+    // Institution for accounts that predate institutions
+    public static final String DEFAULT_INSTITUTION = "default";
+
+    static final String[] CARD_FIELDS = {"username", "email", "skill", "photo"};
+
+    private Enrollments() {}
+
+    public static String institutionPath(String institution) {
+        return "institutions/" + institution;
+    }
+
+    public static String classPath(String institution, String classId) {
+        return "classes/" + institution + "/" + classId;
+    }
+
+    public static String membersPath(String institution) {
+        return "members/" + institution;
+    }
+
+    public static String classStudentsPath(String institution, String classId) {
+        return "class_students/" + institution + "/" + classId;
+    }
+
+    public static Map<String, Object> createInstitution(String institution, String name) {
+        Map<String, Object> updates = new HashMap<>(2);
+        updates.put(institutionPath(institution) + "/name", name);
+        return updates;
+    }
+
+    public static Map<String, Object> createClass(String institution, String classId, String name) {
+        Map<String, Object> updates = new HashMap<>(2);
+        updates.put(classPath(institution, classId) + "/name", name);
+        return updates;
+    }
+
+    /**
+     * Make the student a member of an institution.
+     */
+    public static Map<String, Object> join(String institution, String uid, User profile) {
+        Map<String, Object> updates = new HashMap<>(4);
+        updates.put(membersPath(institution) + "/" + uid, card(profile));
+        updates.put("users/" + uid + "/institution", institution);
+        return updates;
+    }
+
+    /**
+     * Put a member of the institution into one of its classes.
+     */
+    public static Map<String, Object> enroll(String institution, String classId, String uid, User profile) {
+        Map<String, Object> updates = new HashMap<>(4);
+        updates.put(classStudentsPath(institution, classId) + "/" + uid, card(profile));
+        updates.put("users/" + uid + "/classes/" + classId, true);
+        return updates;
+    }
+
+    public static Map<String, Object> withdraw(String institution, String classId, String uid) {
+        Map<String, Object> updates = new HashMap<>(4);
+        updates.put(classStudentsPath(institution, classId) + "/" + uid, null);
+        updates.put("users/" + uid + "/classes/" + classId, null);
+        return updates;
+    }
+
+    /**
+     * Card updates to send along with a change to the profile's own fields. profile is
+     * the last copy read from the server, which says where the cards are; null or not
+     * yet migrated means there are none.
+     *
+     * @param changed profile fields about to be written, by name
+     */
+    public static Map<String, Object> profileUpdates(String uid, @Nullable User profile,
+                                                     Map<String, Object> changed) {
+        Map<String, Object> updates = new HashMap<>();
+        if (profile == null || profile.institution == null) {
+            return updates;
+        }
+        for (String field : CARD_FIELDS) {
+            if (!changed.containsKey(field)) {
+                continue;
+            }
+            Object value = changed.get(field);
+            updates.put(membersPath(profile.institution) + "/" + uid + "/" + field, value);
+            for (String classId : profile.classes) {
+                updates.put(classStudentsPath(profile.institution, classId) + "/" + uid + "/" + field, value);
+            }
+        }
+        return updates;
+    }
+
+    static Map<String, Object> card(User profile) {
+        Map<String, Object> card = new HashMap<>(4);
+        card.put("username", profile.username);
+        card.put("email", profile.email);
+        card.put("skill", profile.skill);
+        if (profile.photo != 0) {
+            card.put("photo", profile.photo);
+        }
+        return card;
+    }
+}
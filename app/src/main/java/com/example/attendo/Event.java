@@ -0,0 +1,30 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+/**
+ * A value published through LiveData that should be acted on once, such as an error to
+ * toast: LiveData hands its last value to every new observer, so each observer takes the
+ * content and only the first one gets it.
+ */
+public final class Event<T> {
+
+    private final T content;
+    private boolean taken;
+
+    public Event(T content) {
+        this.content = content;
+    }
+
+    /**
+     * The content the first time this is called, then null. Main thread only.
+     */
+    @Nullable
+    public T take() {
+        if (taken) {
+            return null;
+        }
+        taken = true;
+        return content;
+    }
+}
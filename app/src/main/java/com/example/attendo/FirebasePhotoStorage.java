@@ -0,0 +1,46 @@
+package com.example.attendo;
+
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+
+/**
+ * {@link PhotoStorage} backed by the app's Firebase Storage bucket.
+ */
+public class FirebasePhotoStorage implements PhotoStorage {
+
+    private static final StorageMetadata WEBP = new StorageMetadata.Builder()
+            .setContentType("image/webp")
+            // Paths are versioned, so the bytes behind one never change
+            .setCacheControl("public, max-age=31536000, immutable")
+            .build();
+
+    private final StorageReference root;
+
+    public FirebasePhotoStorage(StorageReference root) {
+        this.root = root;
+    }
+
+    public static FirebasePhotoStorage create() {
+        return new FirebasePhotoStorage(FirebaseStorage.getInstance().getReference());
+    }
+
+    @Override
+    public void upload(String path, byte[] data, CompletionListener listener) {
+        root.child(path).putBytes(data, WEBP)
+                .addOnCompleteListener(task -> listener.onComplete(task.getException()));
+    }
+
+    @Override
+    public void download(String path, long maxBytes, DownloadListener listener) {
+        root.child(path).getBytes(maxBytes)
+                .addOnCompleteListener(task -> listener.onComplete(
+                        task.isSuccessful() ? task.getResult() : null, task.getException()));
+    }
+
+    @Override
+    public void delete(String path, CompletionListener listener) {
+        root.child(path).delete()
+                .addOnCompleteListener(task -> listener.onComplete(task.getException()));
+    }
+}
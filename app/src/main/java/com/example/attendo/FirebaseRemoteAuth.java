@@ -0,0 +1,129 @@
+package com.example.attendo;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseNetworkException;
+import com.google.firebase.FirebaseTooManyRequestsException;
+import com.google.firebase.auth.AuthResult;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthInvalidCredentialsException;
+import com.google.firebase.auth.FirebaseAuthUserCollisionException;
+import com.google.firebase.auth.FirebaseUser;
+
+/**
+ * {@link RemoteAuth} backed by a FirebaseAuth instance: the app's own, or for
+ * {@link #forImport bulk imports} one of a secondary FirebaseApp, so creating accounts
+ * does not sign the importing user out.
+ */
+public class FirebaseRemoteAuth implements RemoteAuth {
+
+    private static final String IMPORT_APP = "roster-import";
+
+    private static FirebaseRemoteAuth instance;
+    private static FirebaseRemoteAuth importInstance;
+
+    private final FirebaseAuth auth;
+
+    FirebaseRemoteAuth(FirebaseAuth auth) {
+        this.auth = auth;
+    }
+
+    public static synchronized FirebaseRemoteAuth getInstance() {
+        if (instance == null) {
+            instance = new FirebaseRemoteAuth(FirebaseAuth.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Auth of a secondary FirebaseApp with the default app's options. Accounts created
+     * through it are signed in there, not in the app.
+     */
+    public static synchronized FirebaseRemoteAuth forImport(Context context) {
+        if (importInstance == null) {
+            FirebaseApp app;
+            try {
+                app = FirebaseApp.getInstance(IMPORT_APP);
+            } catch (IllegalStateException notYetCreated) {
+                app = FirebaseApp.initializeApp(context.getApplicationContext(),
+                        FirebaseApp.getInstance().getOptions(), IMPORT_APP);
+            }
+            importInstance = new FirebaseRemoteAuth(FirebaseAuth.getInstance(app));
+        }
+        return importInstance;
+    }
+
+    @Nullable
+    @Override
+    public String currentUid() {
+        FirebaseUser user = auth.getCurrentUser();
+        return user == null ? null : user.getUid();
+    }
+
+    @Override
+    public void signIn(String email, String password, Listener listener) {
+        complete(auth.signInWithEmailAndPassword(email, password), listener);
+    }
+
+    @Override
+    public void register(String email, String password, Listener listener) {
+        complete(auth.createUserWithEmailAndPassword(email, password), listener);
+    }
+
+    @Override
+    public void updatePassword(String newPassword, Listener listener) {
+        FirebaseUser user = auth.getCurrentUser();
+        if (user == null) {
+            listener.onComplete(new IllegalStateException("Not signed in"), null);
+            return;
+        }
+        complete(user.updatePassword(newPassword), listener);
+    }
+
+    @Override
+    public void sendPasswordReset(String email, Listener listener) {
+        complete(auth.sendPasswordResetEmail(email), listener);
+    }
+
+    @Override
+    public void signOut() {
+        auth.signOut();
+    }
+
+    private void complete(Task<?> task, Listener listener) {
+        task.addOnCompleteListener(done -> {
+            if (!done.isSuccessful()) {
+                listener.onComplete(classify(done.getException()), null);
+                return;
+            }
+            // With several registrations in flight the current user may already be another
+            Object result = done.getResult();
+            FirebaseUser user = result instanceof AuthResult ? ((AuthResult) result).getUser() : null;
+            listener.onComplete(null, user != null ? user.getUid() : currentUid());
+        });
+    }
+
+    private static Exception classify(@Nullable Exception error) {
+        if (error == null) {
+            return new AuthException(AuthException.Reason.OTHER, "Unknown error", null);
+        }
+        AuthException.Reason reason;
+        if (error instanceof FirebaseAuthUserCollisionException) {
+            reason = AuthException.Reason.EMAIL_IN_USE;
+        } else if (error instanceof FirebaseAuthInvalidCredentialsException) {
+            // Includes weak passwords
+            reason = AuthException.Reason.INVALID;
+        } else if (error instanceof FirebaseTooManyRequestsException) {
+            reason = AuthException.Reason.RATE_LIMITED;
+        } else if (error instanceof FirebaseNetworkException) {
+            reason = AuthException.Reason.NETWORK;
+        } else {
+            reason = AuthException.Reason.OTHER;
+        }
+        return new AuthException(reason, error.getMessage(), error);
+    }
+}
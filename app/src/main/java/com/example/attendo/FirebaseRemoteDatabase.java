@@ -0,0 +1,171 @@
+package com.example.attendo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link RemoteDatabase} backed by the app's Firebase Realtime Database. Listeners are
+ * called on the main thread.
+ */
+public class FirebaseRemoteDatabase implements RemoteDatabase {
+
+    private static FirebaseRemoteDatabase instance;
+
+    private final DatabaseReference root;
+
+    FirebaseRemoteDatabase(DatabaseReference root) {
+        this.root = root;
+    }
+
+    public static synchronized FirebaseRemoteDatabase getInstance() {
+        if (instance == null) {
+            instance = new FirebaseRemoteDatabase(FirebaseDatabase.getInstance().getReference());
+        }
+        return instance;
+    }
+
+    @Override
+    public void updateChildren(Map<String, Object> updates, CompletionListener listener) {
+        root.updateChildren(updates, (error, ref) ->
+                listener.onComplete(error == null ? null : error.toException()));
+    }
+
+    @Override
+    public Object increment(long delta) {
+        return ServerValue.increment(delta);
+    }
+
+    @Override
+    public Object serverTimestamp() {
+        return ServerValue.TIMESTAMP;
+    }
+
+    @Override
+    public void runTransaction(String path, TransactionHandler handler, TransactionListener listener) {
+        root.child(path).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                Object value = handler.apply(currentData.getValue());
+                if (value == TransactionHandler.ABORT) {
+                    return Transaction.abort();
+                }
+                currentData.setValue(value);
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(@Nullable DatabaseError error, boolean committed,
+                                   @Nullable DataSnapshot currentData) {
+                listener.onComplete(error == null ? null : error.toException(), committed,
+                        currentData == null ? null : currentData.getValue());
+            }
+        });
+    }
+
+    @Override
+    public Registration listen(String path, ValueListener listener) {
+        DatabaseReference ref = root.child(path);
+        ValueEventListener valueListener = ref.addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                listener.onValue(snapshot.getValue());
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                listener.onError(error.toException());
+            }
+        });
+        return () -> ref.removeEventListener(valueListener);
+    }
+
+    @Override
+    public Registration listenChildren(String path, ChildListener listener) {
+        DatabaseReference ref = root.child(path);
+        ChildEventListener childListener = ref.addChildEventListener(new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                listener.onChild(snapshot.getKey(), snapshot.getValue());
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                listener.onChild(snapshot.getKey(), snapshot.getValue());
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                listener.onChildRemoved(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                // Unordered listener: a move is not a change
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                listener.onError(error.toException());
+            }
+        });
+        return () -> ref.removeEventListener(childListener);
+    }
+
+    @Override
+    public void page(String path, PageQuery page, PageListener listener) {
+        Query query;
+        if (page.orderByChild == null) {
+            query = root.child(path).orderByKey();
+            if (page.key != null) {
+                query = page.before ? query.endBefore(page.key) : query.startAfter(page.key);
+            }
+        } else {
+            query = root.child(path).orderByChild(page.orderByChild);
+            if (page.key != null) {
+                query = page.before ? query.endBefore(page.value, page.key) : query.startAfter(page.value, page.key);
+            }
+        }
+        query = page.before ? query.limitToLast(page.limit) : query.limitToFirst(page.limit);
+        query.get().addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                listener.onError(task.getException());
+                return;
+            }
+            DataSnapshot snapshot = task.getResult();
+            // A page can be hundreds of whole profiles; unpack it off the main thread
+            AppExecutors.compute().execute(() -> {
+                Map<String, Object> children = new LinkedHashMap<>();
+                // Children of an ordered query iterate in query order
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    children.put(child.getKey(), child.getValue());
+                }
+                AppExecutors.mainThread().execute(() -> listener.onPage(children));
+            });
+        });
+    }
+
+    @Override
+    public String pushKey(String path) {
+        return root.child(path).push().getKey();
+    }
+
+    @Override
+    public void keepSynced(String path, boolean keep) {
+        root.child(path).keepSynced(keep);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.attendo;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of non-negative longs with about 6% relative error.
+ *
+ * Values are bucketed by their highest set bit, and each power of two is split into
+ * 16 linear sub-buckets, so recording is a couple of shifts and an array increment with no
+ * allocation. Used for call latencies (micros) and payload sizes (bytes).
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Values below SUB_BUCKETS get one bucket each, then 16 per power of two up to 2^63
+    private static final int BUCKETS = SUB_BUCKETS + (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public synchronized void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized long sum() {
+        return sum;
+    }
+
+    public synchronized long min() {
+        return count == 0 ? 0 : min;
+    }
+
+    public synchronized long max() {
+        return max;
+    }
+
+    public synchronized double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Value at the given percentile (0-100): the upper bound of the bucket holding it,
+     * clamped to the largest value seen. 0 if nothing was recorded.
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * count);
+        rank = Math.max(1, Math.min(count, rank));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(max, Math.max(min, upperBound(bucket)));
+            }
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        long lower = (1L << exponent) + sub * width;
+        return lower + width - 1;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.attendo;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create student accounts from a CSV of name,email,skill rows, see {@link RosterImport}.
+ *
+ * Accounts are created through a secondary FirebaseApp, so the teacher stays signed in.
+ * Each file gets its own journal, so picking the same file again after an interruption
+ * resumes the import. Rows that could not be imported can be saved as an error report.
+ */
+public class ImportActivity extends AppCompatActivity {
+
+    private static final int BUFFER_BYTES = 16 * 1024;
+
+    // Runs the import's tasks one at a time
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor();
+    private TextView status;
+    private ProgressBar progressBar;
+    private Button cancelButton;
+    private Button reportButton;
+    private RosterImport running;
+    private ImportJournal journal;
+
+    private final ActivityResultLauncher<String[]> openCsv = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::start);
+    private final ActivityResultLauncher<String> createReport = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("text/csv"), this::saveReport);
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_import);
+
+        status = findViewById(R.id.import_status);
+        progressBar = findViewById(R.id.import_progress);
+        cancelButton = findViewById(R.id.import_cancel);
+        reportButton = findViewById(R.id.import_report);
+
+        findViewById(R.id.import_pick).setOnClickListener(v ->
+                openCsv.launch(new String[]{"text/csv", "text/comma-separated-values", "text/plain"}));
+        cancelButton.setOnClickListener(v -> {
+            if (running != null) {
+                running.cancel();
+                status.setText("Finishing the accounts in progress...");
+            }
+        });
+        reportButton.setOnClickListener(v -> createReport.launch("import-errors.csv"));
+        findViewById(R.id.migrate_users).setOnClickListener(v -> migrateUsers());
+    }
+
+    /**
+     * Move the global accounts that are in no institution yet into the signed-in
+     * teacher's. Each institution keeps its own checkpoint, see UserMigrationWorker.
+     */
+    private void migrateUsers() {
+        String institution = teacherInstitution();
+        UserMigrationWorker.schedule(this, institution);
+        Toast.makeText(this, "Moving accounts into " + institution, Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * The signed-in teacher's institution, or the default one if they are not in one yet.
+     */
+    private String teacherInstitution() {
+        String uid = FirebaseRemoteAuth.getInstance().currentUid();
+        User teacher = uid == null ? null : UserRepository.getInstance(this).getUser(uid).getServerValue();
+        return teacher != null && teacher.institution != null
+                ? teacher.institution : Enrollments.DEFAULT_INSTITUTION;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (running != null) {
+            // The journal keeps what was done; picking the file again resumes
+            running.cancel();
+        }
+        worker.shutdown();
+    }
+
+    private void start(Uri uri) {
+        if (uri == null || running != null) {
+            return;
+        }
+        File dir = new File(getFilesDir(), "import");
+        File journalFile = new File(dir, Integer.toHexString(uri.toString().hashCode()) + ".journal");
+        boolean resuming = journalFile.exists();
+
+        Reader reader;
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IllegalStateException("Cannot create " + dir);
+            }
+            InputStream stream = getContentResolver().openInputStream(uri);
+            if (stream == null) {
+                throw new IllegalStateException("Cannot open the file");
+            }
+            reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            journal = ImportJournal.open(journalFile);
+        } catch (Exception e) {
+            status.setText("Import failed: " + e.getMessage());
+            return;
+        }
+
+        RosterImport.Scheduler scheduler = new RosterImport.Scheduler() {
+            @Override
+            public void schedule(Runnable task, long delayMs) {
+                if (!worker.isShutdown()) {
+                    worker.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            @Override
+            public long nowMs() {
+                return SystemClock.elapsedRealtime();
+            }
+        };
+        RosterImport.Config config = new RosterImport.Config();
+        config.institution = teacherInstitution();
+        running = new RosterImport(new CsvReader(reader),
+                FirebaseRemoteAuth.forImport(this), FirebaseRemoteDatabase.getInstance(),
+                journal, scheduler, config, new RosterImport.Listener() {
+                    @Override
+                    public void onProgress(RosterImport.Progress progress) {
+                        String text = describe(progress);
+                        runOnUiThread(() -> status.setText(text));
+                    }
+
+                    @Override
+                    public void onFinished(RosterImport.Progress progress, Exception error) {
+                        try {
+                            reader.close();
+                            journal.close();
+                        } catch (Exception ignored) {
+                            // Everything that matters was flushed as it happened
+                        }
+                        String result = error == null ? "Import finished"
+                                : error instanceof CancellationException ? "Import paused; pick the file again to resume"
+                                : "Import stopped (" + error.getMessage() + "); pick the file again to resume";
+                        String text = result + "\n" + describe(progress);
+                        boolean failures = !journal.failures().isEmpty();
+                        runOnUiThread(() -> {
+                            running = null;
+                            progressBar.setVisibility(View.GONE);
+                            cancelButton.setVisibility(View.GONE);
+                            reportButton.setVisibility(failures ? View.VISIBLE : View.GONE);
+                            status.setText(text);
+                        });
+                    }
+                });
+
+        progressBar.setVisibility(View.VISIBLE);
+        cancelButton.setVisibility(View.VISIBLE);
+        reportButton.setVisibility(View.GONE);
+        status.setText(resuming ? "Resuming import..." : "Importing...");
+        running.start();
+    }
+
+    private static String describe(RosterImport.Progress progress) {
+        return String.format(Locale.US,
+                "%,d rows: %,d accounts created, %,d profiles written, %,d failed, %,d done earlier",
+                progress.rows, progress.created, progress.written, progress.failed, progress.skipped);
+    }
+
+    private void saveReport(Uri uri) {
+        ImportJournal finished = journal;
+        if (uri == null || finished == null) {
+            return;
+        }
+        worker.execute(() -> {
+            String result;
+            try (ParcelFileDescriptor file = getContentResolver().openFileDescriptor(uri, "wt");
+                 FileOutputStream stream = new FileOutputStream(file.getFileDescriptor());
+                 FileChannel channel = stream.getChannel();
+                 ReportWriter writer = new CsvReportWriter(channel, BUFFER_BYTES)) {
+                RosterImport.writeErrorReport(finished, writer);
+                result = String.format(Locale.US, "Saved %,d rows to the error report", finished.failures().size());
+            } catch (Exception e) {
+                result = "Failed to save the error report: " + e.getMessage();
+            }
+            String message = result;
+            runOnUiThread(() -> status.setText(message));
+        });
+    }
+}
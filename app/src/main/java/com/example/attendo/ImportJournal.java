@@ -0,0 +1,173 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only record of a {@link RosterImport}, so an interrupted import resumes where
+ * it stopped instead of creating accounts twice. One line per event:
+ *
+ *   c  record  email  uid     account created, profile not yet known to be written
+ *   e  record  email  reason  row rejected or failed; it goes into the error report
+ *   w  record                 every row before this record is finished
+ *
+ * Lines are flushed as they are written; a torn last line from a crash is ignored.
+ */
+public class ImportJournal implements Closeable {
+
+    /**
+     * One row of the error report.
+     */
+    public static final class Failure {
+        public final int record;
+        public final String email;
+        public final String reason;
+
+        Failure(int record, String email, String reason) {
+            this.record = record;
+            this.email = email;
+            this.reason = reason;
+        }
+    }
+
+    private final Writer out;
+    private final Map<Integer, String> created = new HashMap<>();
+    private final Map<Integer, Failure> failed = new HashMap<>();
+    private final List<Failure> failures = new ArrayList<>();
+    private int finishedBefore = 1;
+
+    ImportJournal(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Replay the journal in file, if any, and append to it from now on.
+     */
+    public static ImportJournal open(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+        }
+        ImportJournal journal = new ImportJournal(
+                new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        journal.replay(lines);
+        return journal;
+    }
+
+    void replay(List<String> lines) {
+        for (String line : lines) {
+            String[] parts = line.split("\t", -1);
+            try {
+                switch (parts[0]) {
+                    case "c":
+                        created.put(Integer.parseInt(parts[1]), parts[3]);
+                        break;
+                    case "e":
+                        addFailure(new Failure(Integer.parseInt(parts[1]), parts[2], parts[3]));
+                        break;
+                    case "w":
+                        finishedBefore = Math.max(finishedBefore, Integer.parseInt(parts[1]));
+                        break;
+                    default:
+                        break;
+                }
+            } catch (RuntimeException torn) {
+                // Half-written line from a crash
+            }
+        }
+    }
+
+    /**
+     * Every record before this one was finished in an earlier run.
+     */
+    public int finishedBefore() {
+        return finishedBefore;
+    }
+
+    /**
+     * Uid created for a record in an earlier run, or null.
+     */
+    @Nullable
+    public String createdUid(int record) {
+        return created.get(record);
+    }
+
+    public boolean hasFailed(int record) {
+        return failed.containsKey(record);
+    }
+
+    /**
+     * Failed rows of this and earlier runs, for the error report.
+     */
+    public List<Failure> failures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public void created(int record, String email, String uid) {
+        created.put(record, uid);
+        append("c\t" + record + "\t" + clean(email) + "\t" + uid);
+    }
+
+    public void failed(int record, String email, String reason) {
+        Failure failure = new Failure(record, clean(email), clean(reason));
+        addFailure(failure);
+        append("e\t" + record + "\t" + failure.email + "\t" + failure.reason);
+    }
+
+    public void finishedBefore(int record) {
+        if (record <= finishedBefore) {
+            return;
+        }
+        finishedBefore = record;
+        // Created rows before it are written; no need to keep them around
+        created.keySet().removeIf(r -> r < record);
+        append("w\t" + record);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void addFailure(Failure failure) {
+        if (failed.put(failure.record, failure) == null) {
+            failures.add(failure);
+        }
+    }
+
+    private void append(String line) {
+        try {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
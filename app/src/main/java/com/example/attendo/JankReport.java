@@ -0,0 +1,175 @@
+package com.example.attendo;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What the debug/staging monitors saw since the last reset: frame durations per screen
+ * and UI state, main-thread StrictMode violations grouped by where they happened, and
+ * the main-thread stacks of the last few stalls. Memory stays bounded however long the
+ * app runs. Safe to call from any thread.
+ */
+public class JankReport {
+
+    static final int MAX_STALLS = 10;
+    static final int MAX_VIOLATION_KINDS = 50;
+    private static final int STACK_DEPTH = 12;
+    private static final String APP_PACKAGE = "com.example.attendo";
+
+    static final class FrameStats {
+        final Histogram durationMicros = new Histogram();
+        long janky;
+    }
+
+    static final class Violation {
+        final String sampleStack;
+        int count;
+
+        Violation(String sampleStack) {
+            this.sampleStack = sampleStack;
+        }
+    }
+
+    private final Map<String, FrameStats> frames = new TreeMap<>();
+    private final Map<String, Violation> violations = new LinkedHashMap<>();
+    private final Deque<String> stalls = new ArrayDeque<>();
+    private long droppedViolations;
+    private long stallCount;
+
+    /**
+     * @param tag screen plus UI state, e.g. "RosterActivity roster=dragging"
+     */
+    public synchronized void recordFrame(String tag, long durationNanos, boolean janky) {
+        FrameStats stats = frames.get(tag);
+        if (stats == null) {
+            stats = new FrameStats();
+            frames.put(tag, stats);
+        }
+        stats.durationMicros.record(durationNanos / 1000);
+        if (janky) {
+            stats.janky++;
+        }
+    }
+
+    /**
+     * @param kind e.g. "DiskReadViolation"; grouped with the first app frame of the stack
+     */
+    public synchronized void recordViolation(String kind, StackTraceElement[] stack) {
+        String key = kind + " at " + firstAppFrame(stack);
+        Violation violation = violations.get(key);
+        if (violation == null) {
+            if (violations.size() >= MAX_VIOLATION_KINDS) {
+                droppedViolations++;
+                return;
+            }
+            violation = new Violation(format(stack));
+            violations.put(key, violation);
+        }
+        violation.count++;
+    }
+
+    public synchronized void recordStall(long atMs, long blockedMs, StackTraceElement[] mainStack) {
+        stallCount++;
+        if (stalls.size() == MAX_STALLS) {
+            stalls.removeFirst();
+        }
+        stalls.addLast(timestamp(atMs) + " main thread blocked " + blockedMs + " ms\n" + format(mainStack));
+    }
+
+    public synchronized long stallCount() {
+        return stallCount;
+    }
+
+    synchronized FrameStats frames(String tag) {
+        return frames.get(tag);
+    }
+
+    synchronized int violationCount(String kind) {
+        int count = 0;
+        for (Map.Entry<String, Violation> entry : violations.entrySet()) {
+            if (entry.getKey().startsWith(kind + " ")) {
+                count += entry.getValue().count;
+            }
+        }
+        return count;
+    }
+
+    public synchronized void reset() {
+        frames.clear();
+        violations.clear();
+        stalls.clear();
+        droppedViolations = 0;
+        stallCount = 0;
+    }
+
+    /**
+     * Plain-text report, written to files/monitoring/report.txt and shared from Settings.
+     */
+    public synchronized String toText(long nowMs) {
+        StringBuilder text = new StringBuilder();
+        text.append("Attendo monitoring report, ").append(timestamp(nowMs)).append("\n\n");
+
+        text.append("Frames (ms)\n");
+        text.append(String.format(Locale.US, "%-48s %7s %6s %6s %7s %7s %7s\n",
+                "screen / state", "frames", "janky", "jank%", "p50", "p95", "max"));
+        for (Map.Entry<String, FrameStats> entry : frames.entrySet()) {
+            Histogram duration = entry.getValue().durationMicros;
+            long count = duration.count();
+            text.append(String.format(Locale.US, "%-48s %7d %6d %5.1f%% %7s %7s %7s\n",
+                    entry.getKey(), count, entry.getValue().janky,
+                    count == 0 ? 0 : entry.getValue().janky * 100.0 / count,
+                    Metrics.millis(duration.percentile(50)),
+                    Metrics.millis(duration.percentile(95)),
+                    Metrics.millis(duration.max())));
+        }
+
+        text.append("\nStrictMode violations\n");
+        for (Map.Entry<String, Violation> entry : violations.entrySet()) {
+            text.append(entry.getValue().count).append("x ").append(entry.getKey()).append('\n')
+                    .append(entry.getValue().sampleStack);
+        }
+        if (droppedViolations > 0) {
+            text.append(droppedViolations).append(" more of other kinds not kept\n");
+        }
+
+        text.append("\nMain thread stalls: ").append(stallCount);
+        if (stallCount > stalls.size()) {
+            text.append(" (last ").append(stalls.size()).append(" shown)");
+        }
+        text.append('\n');
+        for (String stall : stalls) {
+            text.append(stall);
+        }
+        return text.toString();
+    }
+
+    private static String firstAppFrame(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(APP_PACKAGE)) {
+                return frame.toString();
+            }
+        }
+        return stack.length > 0 ? stack[0].toString() : "unknown";
+    }
+
+    private static String format(StackTraceElement[] stack) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < stack.length && i < STACK_DEPTH; i++) {
+            text.append("    at ").append(stack[i]).append('\n');
+        }
+        if (stack.length > STACK_DEPTH) {
+            text.append("    ... ").append(stack.length - STACK_DEPTH).append(" more\n");
+        }
+        return text.toString();
+    }
+
+    private static String timestamp(long ms) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date(ms));
+    }
+}
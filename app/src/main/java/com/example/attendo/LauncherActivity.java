@@ -0,0 +1,26 @@
+package com.example.attendo;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+/**
+ * Launcher entry point. Inflates nothing: it only decides whether the user goes to the
+ * dashboard or the login screen, so signed-in users never pay for a throwaway layout.
+ * The window background from Theme.Attendo.Launcher is all that is drawn meanwhile.
+ */
+public class LauncherActivity extends AppCompatActivity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        Class<?> destination = FirebaseRemoteAuth.getInstance().currentUid() != null
+                ? MainActivity.class
+                : LoginActivity.class;
+
+        startActivity(new Intent(this, destination));
+        finish();
+    }
+}
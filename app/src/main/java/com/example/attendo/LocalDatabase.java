@@ -0,0 +1,80 @@
+package com.example.attendo;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * On-device store for users and attendance, so screens can render from disk
+ * before Firebase answers and writes survive a dropped connection.
+ */
+@Database(entities = {UserEntity.class, AttendanceMarkEntity.class, CheckInEntity.class, OutboxEntity.class,
+        RecordedSessionEntity.class}, version = 5, exportSchema = false)
+public abstract class LocalDatabase extends RoomDatabase {
+
+    private static volatile LocalDatabase instance;
+
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE users ADD COLUMN updated_at INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE users ADD COLUMN version INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS check_ins ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "class_id TEXT NOT NULL, session_id TEXT NOT NULL, student_uid TEXT NOT NULL, "
+                    + "window INTEGER NOT NULL, scanned_at INTEGER NOT NULL, synced INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS index_check_ins_session_id_student_uid "
+                    + "ON check_ins (session_id, student_uid)");
+        }
+    };
+
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS outbox ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, key TEXT NOT NULL, "
+                    + "updates TEXT NOT NULL, ack TEXT, created_at INTEGER NOT NULL, attempts INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS index_outbox_key ON outbox (key)");
+        }
+    };
+
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS recorded_sessions ("
+                    + "session_id TEXT PRIMARY KEY NOT NULL, recorded_at INTEGER NOT NULL)");
+        }
+    };
+
+    public abstract UserDao userDao();
+
+    public abstract AttendanceDao attendanceDao();
+
+    public abstract CheckInDao checkInDao();
+
+    public abstract OutboxDao outboxDao();
+
+    public static LocalDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LocalDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                                    LocalDatabase.class, "attendo.db")
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5)
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
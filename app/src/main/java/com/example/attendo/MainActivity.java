@@ -2,90 +2,231 @@ package com.example.attendo;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.view.View;
-import android.widget.ImageView;
-import android.widget.PopupMenu;
-import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.MediatorLiveData;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import com.example.attendo.ui.dashboard.Dashboard;
+import com.example.attendo.ui.dashboard.DashboardActions;
+import com.example.attendo.ui.dashboard.DashboardState;
+import com.example.attendo.ui.dashboard.DashboardTile;
 
-public class MainActivity extends AppCompatActivity {
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 
-    private DatabaseReference mDatabase;
-    private FirebaseAuth mAuth;
-    private ImageView menu;
-    private TextView username;
+/**
+ * Dashboard: greeting, attendance, navigation tiles and per-subject attendance, drawn
+ * with Compose from a {@link DashboardState} rebuilt whenever the user, the timetable or
+ * the outbox changes. The state, schedule line included, is built in a
+ * {@link SnapshotPipeline}; the main thread only hands the result to Compose. On launch
+ * during a timetabled session it goes straight on to that session's attendance.
+ */
+public class MainActivity extends AppCompatActivity implements DashboardActions {
+
+    // Session already opened automatically in this process, so going back stays here
+    private static String autoOpenedSession;
+
+    private RemoteAuth mAuth;
+    private final MediatorLiveData<DashboardState> state = new MediatorLiveData<>();
+    // Only used by the state builder, whose runs never overlap
+    private final DateFormat time = DateFormat.getTimeInstance(DateFormat.SHORT);
+    private final DateFormat dayAndTime = new SimpleDateFormat("EEE HH:mm", Locale.getDefault());
+    private final SnapshotPipeline<Inputs, DashboardState> builder = SnapshotPipeline.onMainThread(
+            inputs -> DashboardState.from(inputs.user, scheduleLine(inputs.timetable, inputs.now),
+                    inputs.pendingSync),
+            new SnapshotPipeline.Sink<DashboardState>() {
+                @Override
+                public void onResult(DashboardState result) {
+                    state.setValue(result);
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    // Keep showing the last state
+                }
+            });
+    private User user;
+    private TimetableIndex timetable;
+    private int pendingSync;
+    private boolean freshLaunch;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
 
-        mDatabase = FirebaseDatabase.getInstance().getReference();
-        mAuth = FirebaseAuth.getInstance();
-
-        menu = findViewById(R.id.menu);
-        username = findViewById(R.id.toolbar_username);
+        mAuth = FirebaseRemoteAuth.getInstance();
 
         // Check if user is already logged in
-        if (mAuth.getCurrentUser() != null) {
-            String userId = mAuth.getCurrentUser().getUid();
-            getUserData(userId);
-        } else {
+        String userId = mAuth.currentUid();
+        if (userId == null) {
             // If not logged in, redirect to Login
             startActivity(new Intent(MainActivity.this, LoginActivity.class));
             finish();
+            return;
         }
 
-        // Show popup menu on icon click
-        menu.setOnClickListener(this::showPopupMenu);
+        freshLaunch = savedInstanceState == null;
+        Dashboard.install(this, state, this);
+        getUserData(userId);
     }
 
-    private void getUserData(String userId) {
-        mDatabase.child("users").child(userId)
-                .addValueEventListener(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        User user = snapshot.getValue(User.class);
-                        if (user != null) {
-                            username.setText("Hii, " + user.username);
-                        }
-                    }
-
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        Toast.makeText(MainActivity.this,
-                                "Failed to load user data: " + error.getMessage(),
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // "Now" and "next" move on while the screen is away
+        publish();
     }
 
-    private void showPopupMenu(View anchor) {
-        PopupMenu popupMenu = new PopupMenu(this, anchor);
-        popupMenu.getMenuInflater().inflate(R.menu.menu_dropdown, popupMenu.getMenu());
-        popupMenu.setOnMenuItemClickListener(item -> {
-            int itemId = item.getItemId();
-            if (itemId == R.id.sign_out) {
-                FirebaseAuth.getInstance().signOut();
-                startActivity(new Intent(MainActivity.this, LoginActivity.class));
-                finish();
-                return true;
-            } else if (itemId == R.id.profile) {
-                startActivity(new Intent(MainActivity.this, ProfileActivity.class));
-                return true;
+    private void getUserData(String userId) {
+        UserLiveData live = UserRepository.getInstance(this).getUser(userId);
+        state.addSource(live, value -> {
+            user = value;
+            publish();
+        });
+        state.addSource(new TimetableLiveData(FirebaseRemoteDatabase.getInstance(), userId), index -> {
+            timetable = index;
+            publish();
+            if (freshLaunch) {
+                openCurrentSession();
+            }
+        });
+        state.addSource(OutboxSync.getInstance(this).observePending(), count -> {
+            pendingSync = count == null ? 0 : count;
+            publish();
+        });
+        live.getError().observe(this, event -> {
+            String message = event == null ? null : event.take();
+            if (message != null) {
+                Toast.makeText(MainActivity.this,
+                        "Failed to load user data: " + message,
+                        Toast.LENGTH_SHORT).show();
             }
-            return false;
         });
-        popupMenu.show();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        builder.cancel();
+    }
+
+    private void publish() {
+        builder.submit(new Inputs(user, timetable, pendingSync, System.currentTimeMillis()));
+    }
+
+    /**
+     * Everything the dashboard state is built from, captured on the main thread.
+     */
+    private static final class Inputs {
+        final User user;
+        final TimetableIndex timetable;
+        final int pendingSync;
+        final long now;
+
+        Inputs(User user, TimetableIndex timetable, int pendingSync, long now) {
+            this.user = user;
+            this.timetable = timetable;
+            this.pendingSync = pendingSync;
+            this.now = now;
+        }
+    }
+
+    private String scheduleLine(TimetableIndex timetable, long now) {
+        if (timetable == null) {
+            return null;
+        }
+        TimetableIndex.Occurrence active = timetable.active(now);
+        if (active != null) {
+            return "Now: " + active.subject + " until " + time.format(new Date(active.end));
+        }
+        TimetableIndex.Occurrence next = timetable.next(now);
+        return next == null ? null : "Next: " + next.subject + ", " + dayAndTime.format(new Date(next.start));
+    }
+
+    private void openCurrentSession() {
+        TimetableIndex.Occurrence active = timetable.active(System.currentTimeMillis());
+        if (active != null && !active.sessionId().equals(autoOpenedSession)) {
+            autoOpenedSession = active.sessionId();
+            startActivity(session(active));
+        }
+    }
+
+    @Override
+    public void onSchedule() {
+        TimetableIndex.Occurrence active = timetable == null ? null : timetable.active(System.currentTimeMillis());
+        if (active != null) {
+            startActivity(session(active));
+        }
+    }
+
+    private Intent session(TimetableIndex.Occurrence occurrence) {
+        return SessionActivity.intent(this, occurrence, timetable.ordinal(occurrence),
+                user == null ? null : user.institution);
+    }
+
+    /**
+     * The roster of the user's institution, or of every user before the directory
+     * migration reached them.
+     */
+    private Intent roster() {
+        return RosterActivity.intent(this, user == null ? null : user.institution, null);
+    }
+
+    @Override
+    public void onTile(DashboardTile tile) {
+        switch (tile) {
+            case PROFILE:
+                startActivity(new Intent(this, ProfileActivity.class));
+                break;
+            case SEARCH:
+                startActivity(SearchActivity.intent(this, user == null ? null : user.institution));
+                break;
+            case ROSTER:
+                startActivity(roster());
+                break;
+            case REPORTS:
+                startActivity(new Intent(this, ReportActivity.class));
+                break;
+            case CHECK_IN:
+                startActivity(new Intent(this, CheckInActivity.class));
+                break;
+            case SYNC:
+                UserRepository.getInstance(this).syncPending();
+                AttendanceRepository.getInstance(this).syncPending();
+                Toast.makeText(this, "Syncing", Toast.LENGTH_SHORT).show();
+                break;
+            case SETTINGS:
+                startActivity(new Intent(this, SettingsActivity.class));
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onMenuItem(int itemId) {
+        if (itemId == R.id.sign_out) {
+            mAuth.signOut();
+            UserRepository.getInstance(this).clear();
+            startActivity(new Intent(MainActivity.this, LoginActivity.class));
+            finish();
+        } else if (itemId == R.id.profile) {
+            startActivity(new Intent(MainActivity.this, ProfileActivity.class));
+        } else if (itemId == R.id.roster) {
+            startActivity(roster());
+        } else if (itemId == R.id.check_in) {
+            startActivity(new Intent(MainActivity.this, CheckInActivity.class));
+        } else if (itemId == R.id.report) {
+            startActivity(new Intent(MainActivity.this, ReportActivity.class));
+        } else if (itemId == R.id.history) {
+            startActivity(new Intent(MainActivity.this, TimelineActivity.class));
+        } else if (itemId == R.id.import_roster) {
+            startActivity(new Intent(MainActivity.this, ImportActivity.class));
+        } else if (itemId == R.id.settings) {
+            startActivity(new Intent(MainActivity.this, SettingsActivity.class));
+        }
     }
 }
@@ -0,0 +1,181 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency, error and payload statistics for backend calls.
+ *
+ * Wrap a call with {@link #begin(String)} and end the span from its completion callback.
+ * Each span is also emitted as an async trace section (see {@link Tracer}) so the same
+ * timings show up in Perfetto next to the rest of the app. Numbers live in memory for the
+ * process lifetime and are shown on {@link SettingsActivity}.
+ */
+public final class Metrics {
+
+    public static final String AUTH_SIGN_IN = "auth.sign_in";
+    public static final String AUTH_REGISTER = "auth.register";
+    public static final String OUTBOX_BATCH = "outbox.batch";
+    public static final String PROFILE_CREATE = "profile.create";
+    public static final String PROFILE_FIRST_LOAD = "profile.first_load";
+    public static final String PROFILE_UPDATE = "profile.update";
+
+    /**
+     * Where trace sections go. The app installs one backed by androidx.tracing; plain JVM
+     * tests keep the no-op default.
+     */
+    public interface Tracer {
+        void beginAsyncSection(String name, int cookie);
+
+        void endAsyncSection(String name, int cookie);
+    }
+
+    public static final class Stats {
+        public final String operation;
+        public final Histogram latencyMicros = new Histogram();
+        public final Histogram payloadBytes = new Histogram();
+        private long errors;
+
+        Stats(String operation) {
+            this.operation = operation;
+        }
+
+        public synchronized long errors() {
+            return errors;
+        }
+
+        synchronized void recordError() {
+            errors++;
+        }
+    }
+
+    /**
+     * One timed call. Ending it more than once only counts the first time.
+     */
+    public final class Span {
+        private final Stats stats;
+        private final int cookie;
+        private final long startNanos;
+        private boolean ended;
+
+        private Span(Stats stats, int cookie, long startNanos) {
+            this.stats = stats;
+            this.cookie = cookie;
+            this.startNanos = startNanos;
+        }
+
+        public void end(Exception error, long payloadBytes) {
+            synchronized (this) {
+                if (ended) {
+                    return;
+                }
+                ended = true;
+            }
+            long micros = (clock.nanoTime() - startNanos) / 1000;
+            stats.latencyMicros.record(micros);
+            if (payloadBytes >= 0) {
+                stats.payloadBytes.record(payloadBytes);
+            }
+            if (error != null) {
+                stats.recordError();
+            }
+            tracer.endAsyncSection(stats.operation, cookie);
+        }
+
+        public void end(Exception error) {
+            end(error, -1);
+        }
+    }
+
+    interface Clock {
+        long nanoTime();
+    }
+
+    private static final Tracer NO_TRACER = new Tracer() {
+        @Override
+        public void beginAsyncSection(String name, int cookie) {
+        }
+
+        @Override
+        public void endAsyncSection(String name, int cookie) {
+        }
+    };
+
+    private static final Metrics INSTANCE = new Metrics(System::nanoTime);
+
+    private final Map<String, Stats> operations = new TreeMap<>();
+    private final AtomicInteger nextCookie = new AtomicInteger();
+    private final Clock clock;
+    private volatile Tracer tracer = NO_TRACER;
+
+    Metrics(Clock clock) {
+        this.clock = clock;
+    }
+
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer == null ? NO_TRACER : tracer;
+    }
+
+    public Span begin(String operation) {
+        Stats stats;
+        synchronized (operations) {
+            stats = operations.get(operation);
+            if (stats == null) {
+                stats = new Stats(operation);
+                operations.put(operation, stats);
+            }
+        }
+        int cookie = nextCookie.incrementAndGet();
+        tracer.beginAsyncSection(operation, cookie);
+        return new Span(stats, cookie, clock.nanoTime());
+    }
+
+    /**
+     * Every operation seen so far, sorted by name.
+     */
+    public List<Stats> snapshot() {
+        synchronized (operations) {
+            return new ArrayList<>(operations.values());
+        }
+    }
+
+    public void reset() {
+        synchronized (operations) {
+            operations.clear();
+        }
+    }
+
+    /**
+     * One line per operation, latencies in milliseconds.
+     */
+    public String toCsv() {
+        StringBuilder out = new StringBuilder(
+                "operation,calls,errors,p50_ms,p95_ms,p99_ms,max_ms,mean_ms,p50_bytes,max_bytes\n");
+        for (Stats stats : snapshot()) {
+            Histogram latency = stats.latencyMicros;
+            out.append(stats.operation).append(',')
+                    .append(latency.count()).append(',')
+                    .append(stats.errors()).append(',')
+                    .append(millis(latency.percentile(50))).append(',')
+                    .append(millis(latency.percentile(95))).append(',')
+                    .append(millis(latency.percentile(99))).append(',')
+                    .append(millis(latency.max())).append(',')
+                    .append(millis((long) latency.mean())).append(',')
+                    .append(stats.payloadBytes.percentile(50)).append(',')
+                    .append(stats.payloadBytes.max()).append('\n');
+        }
+        return out.toString();
+    }
+
+    static String millis(long micros) {
+        return String.format(Locale.US, "%.1f", micros / 1000.0);
+    }
+}
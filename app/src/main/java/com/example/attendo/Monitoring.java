@@ -0,0 +1,206 @@
+package com.example.attendo;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.metrics.performance.JankStats;
+import androidx.metrics.performance.PerformanceMetricsState;
+import androidx.metrics.performance.StateInfo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Main-thread monitoring for debug and staging builds ({@code BuildConfig.MONITORING}):
+ * JankStats per-frame tracking tagged with the Activity and its UI state, StrictMode
+ * disk and network policies on the main thread, and an {@link AnrWatchdog}. Results
+ * collect in one {@link JankReport}, written whenever the app goes to the background:
+ *
+ *   adb shell run-as com.example.attendo cat files/monitoring/report.txt
+ *
+ * In release builds every method returns straight away.
+ */
+public final class Monitoring {
+
+    private static final String TAG = "Monitoring";
+    private static final long WATCHDOG_INTERVAL_MS = 500;
+    private static final long STALL_TIMEOUT_MS = 2_000;
+
+    private static final JankReport REPORT = new JankReport();
+    // Off the main thread and off diskIO, so reporting never adds to what it measures
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor();
+
+    private Monitoring() {}
+
+    public static JankReport report() {
+        return REPORT;
+    }
+
+    public static void install(Application app) {
+        if (!BuildConfig.MONITORING) {
+            return;
+        }
+        installStrictMode();
+
+        Thread watchdog = new Thread(new AnrWatchdog(AppExecutors.mainThread(), Looper.getMainLooper().getThread(),
+                WATCHDOG_INTERVAL_MS, STALL_TIMEOUT_MS, SystemClock::uptimeMillis,
+                (blockedMs, stack) -> REPORT.recordStall(System.currentTimeMillis(), blockedMs, stack)),
+                "anr-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        app.registerActivityLifecycleCallbacks(new FrameTracker(app));
+    }
+
+    /**
+     * Tag the frames of this screen with a piece of UI state, e.g. ("roster", "dragging"),
+     * until it is set again or removed with a null value.
+     */
+    public static void setState(Activity activity, String key, @Nullable String value) {
+        if (!BuildConfig.MONITORING) {
+            return;
+        }
+        View root = activity.getWindow().getDecorView();
+        PerformanceMetricsState state = PerformanceMetricsState.getHolderForHierarchy(root).getState();
+        if (state == null) {
+            return;
+        }
+        if (value == null) {
+            state.removeState(key);
+        } else {
+            state.putState(key, value);
+        }
+    }
+
+    /**
+     * Write the report to files/monitoring/report.txt in the background.
+     */
+    public static void writeReport(Context context) {
+        if (!BuildConfig.MONITORING) {
+            return;
+        }
+        File dir = new File(context.getFilesDir(), "monitoring");
+        WORKER.execute(() -> {
+            String text = REPORT.toText(System.currentTimeMillis());
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return;
+            }
+            try (FileOutputStream out = new FileOutputStream(new File(dir, "report.txt"))) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write the report", e);
+            }
+        });
+    }
+
+    private static void installStrictMode() {
+        StrictMode.ThreadPolicy.Builder thread = new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .detectCustomSlowCalls();
+        StrictMode.VmPolicy.Builder vm = new StrictMode.VmPolicy.Builder()
+                .detectLeakedClosableObjects()
+                .detectActivityLeaks();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            thread.penaltyListener(WORKER, violation ->
+                    REPORT.recordViolation(violation.getClass().getSimpleName(), violation.getStackTrace()));
+            vm.penaltyListener(WORKER, violation ->
+                    REPORT.recordViolation(violation.getClass().getSimpleName(), violation.getStackTrace()));
+        } else {
+            // No listener before API 28; violations only go to logcat
+            thread.penaltyLog();
+            vm.penaltyLog();
+        }
+        StrictMode.setThreadPolicy(thread.build());
+        StrictMode.setVmPolicy(vm.build());
+    }
+
+    /**
+     * One JankStats per resumed Activity; frames are tagged with the Activity's name and
+     * whatever state was set through {@link #setState}.
+     */
+    private static final class FrameTracker implements Application.ActivityLifecycleCallbacks {
+        private final Context context;
+        private final Map<Activity, JankStats> trackers = new HashMap<>();
+        private int started;
+
+        FrameTracker(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+            JankStats stats = trackers.get(activity);
+            if (stats == null) {
+                String screen = activity.getClass().getSimpleName();
+                stats = JankStats.createAndTrack(activity.getWindow(), frame ->
+                        REPORT.recordFrame(tag(screen, frame.getStates()),
+                                frame.getFrameDurationUiNanos(), frame.isJank()));
+                trackers.put(activity, stats);
+            }
+            stats.setTrackingEnabled(true);
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+            JankStats stats = trackers.get(activity);
+            if (stats != null) {
+                stats.setTrackingEnabled(false);
+            }
+        }
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+            started++;
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+            if (--started == 0) {
+                writeReport(context);
+            }
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+            trackers.remove(activity);
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+
+        private static String tag(String screen, List<StateInfo> states) {
+            if (states.isEmpty()) {
+                return screen;
+            }
+            StringBuilder tag = new StringBuilder(screen);
+            for (StateInfo state : states) {
+                tag.append(' ').append(state.getKey()).append('=').append(state.getValue());
+            }
+            return tag.toString();
+        }
+    }
+}
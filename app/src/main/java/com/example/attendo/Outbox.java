@@ -0,0 +1,276 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Durable queue of outgoing writes, drained in a few large multi-path updates.
+ *
+ * Screens and repositories {@link #enqueue} and return; nothing is tied to an Activity.
+ * A background job calls {@link #drain} when the device is online: it reads the oldest
+ * mutations, merges as many as fit into one update and sends it, repeating until the
+ * queue is empty or a write fails, in which case the job is retried with backoff.
+ * Because mutations with the same key replace each other, a day of offline edits to the
+ * same marks goes up once, not once per edit.
+ *
+ * A batch that failed or timed out may still have landed, so it is sent again only if
+ * that is harmless: mutations either set absolute values or, when they add to counters,
+ * carry a {@link Receipts receipt}. Before a mutation is resent its receipt is checked,
+ * and one that already landed is acknowledged instead; if it lands twice anyway, the
+ * server rejects the second copy. Mutations that failed before travel alone, so a
+ * rejection is pinned on the one that caused it; after {@link #MAX_ATTEMPTS} rejections
+ * it is dropped rather than holding back the rest for good. Timeouts never drop anything.
+ */
+public class Outbox {
+
+    static final int READ_LIMIT = 500;
+    static final int MAX_ATTEMPTS = 5;
+
+    public interface Store {
+        /**
+         * Insert, replacing any pending mutation with the same key.
+         */
+        void put(OutboxMutation mutation);
+
+        /**
+         * Oldest first, at most limit.
+         */
+        List<OutboxMutation> pending(int limit);
+
+        void remove(List<OutboxMutation> sent);
+
+        void recordAttempt(List<OutboxMutation> failed);
+    }
+
+    /**
+     * Told about each mutation once its batch was acknowledged.
+     */
+    public interface AckHandler {
+        void onSynced(OutboxMutation mutation);
+
+        /**
+         * The server turned the mutation down {@link #MAX_ATTEMPTS} times and it was
+         * dropped; the server's copy stands.
+         */
+        default void onRejected(OutboxMutation mutation) {
+            onSynced(mutation);
+        }
+    }
+
+    public static final class DrainResult {
+        public final int batches;
+        public final int mutations;
+        public final Exception error;
+
+        DrainResult(int batches, int mutations, Exception error) {
+            this.batches = batches;
+            this.mutations = mutations;
+            this.error = error;
+        }
+    }
+
+    private final Store store;
+    private final RemoteDatabase database;
+    private final int maxPaths;
+    private final int maxBytes;
+    private final long timeoutMs;
+
+    public Outbox(Store store, RemoteDatabase database, int maxPaths, int maxBytes, long timeoutMs) {
+        this.store = store;
+        this.database = database;
+        this.maxPaths = maxPaths;
+        this.maxBytes = maxBytes;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public void enqueue(String key, Map<String, Object> updates, String ack) {
+        store.put(new OutboxMutation(key, updates, ack, System.currentTimeMillis()));
+    }
+
+    /**
+     * Send everything pending. Blocks until done, so call it from a background job.
+     */
+    public DrainResult drain(AckHandler ackHandler) throws InterruptedException {
+        int batches = 0;
+        int mutations = 0;
+        while (true) {
+            List<OutboxMutation> pending = store.pending(READ_LIMIT);
+            if (pending.isEmpty()) {
+                return new DrainResult(batches, mutations, null);
+            }
+            List<OutboxMutation> landed = landedEarlier(pending);
+            if (!landed.isEmpty()) {
+                store.remove(landed);
+                for (OutboxMutation mutation : landed) {
+                    ackHandler.onSynced(mutation);
+                }
+                mutations += landed.size();
+                pending = new ArrayList<>(pending);
+                pending.removeAll(landed);
+            }
+            for (List<OutboxMutation> batch : plan(pending, maxPaths, maxBytes)) {
+                int attempts = batch.get(0).attempts;
+                Exception error = send(merge(batch));
+                if (error != null) {
+                    store.recordAttempt(batch);
+                    if (batch.size() == 1 && !(error instanceof TimeoutException)
+                            && attempts + 1 >= MAX_ATTEMPTS) {
+                        store.remove(batch);
+                        ackHandler.onRejected(batch.get(0));
+                        continue;
+                    }
+                    return new DrainResult(batches, mutations, error);
+                }
+                store.remove(batch);
+                for (OutboxMutation mutation : batch) {
+                    ackHandler.onSynced(mutation);
+                }
+                batches++;
+                mutations += batch.size();
+            }
+        }
+    }
+
+    /**
+     * Mutations that failed before but whose receipt shows they landed after all.
+     */
+    private List<OutboxMutation> landedEarlier(List<OutboxMutation> pending) throws InterruptedException {
+        List<OutboxMutation> landed = new ArrayList<>();
+        for (OutboxMutation mutation : pending) {
+            String receipt = Receipts.find(mutation.updates);
+            if (mutation.attempts > 0 && receipt != null && applied(receipt)) {
+                landed.add(mutation);
+            }
+        }
+        return landed;
+    }
+
+    private boolean applied(String receipt) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        boolean[] applied = new boolean[1];
+        Receipts.check(database, receipt, new Receipts.Callback() {
+            @Override
+            public void onChecked(boolean wasApplied) {
+                applied[0] = wasApplied;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                // Send it; the server turns it down if it did land
+                done.countDown();
+            }
+        });
+        return done.await(timeoutMs, TimeUnit.MILLISECONDS) && applied[0];
+    }
+
+    private Exception send(Map<String, Object> updates) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Exception[] result = new Exception[1];
+        Metrics.Span span = Metrics.get().begin(Metrics.OUTBOX_BATCH);
+        database.updateChildren(updates, error -> {
+            result[0] = error;
+            done.countDown();
+        });
+        if (!done.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+            Exception timeout = new TimeoutException("No acknowledgement within " + timeoutMs + " ms");
+            span.end(timeout);
+            return timeout;
+        }
+        span.end(result[0], AttendanceWriter.estimateBytes(updates));
+        return result[0];
+    }
+
+    /**
+     * Group mutations, in order, into batches within the limits. A batch is closed early
+     * when a mutation touches a path that overlaps one already in it, because Firebase
+     * rejects an update containing both a path and one of its ancestors. A mutation that
+     * failed before gets a batch of its own.
+     */
+    static List<List<OutboxMutation>> plan(List<OutboxMutation> pending, int maxPaths, int maxBytes) {
+        List<List<OutboxMutation>> batches = new ArrayList<>();
+        List<OutboxMutation> batch = new ArrayList<>();
+        PathSet paths = new PathSet();
+        int batchPaths = 0;
+        int batchBytes = 0;
+        for (OutboxMutation mutation : pending) {
+            int size = mutation.updates.size();
+            int bytes = AttendanceWriter.estimateBytes(mutation.updates);
+            boolean overlaps = false;
+            for (String path : mutation.updates.keySet()) {
+                if (paths.overlaps(path)) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            boolean alone = mutation.attempts > 0 || !batch.isEmpty() && batch.get(0).attempts > 0;
+            if (!batch.isEmpty() && (alone || overlaps || batchPaths + size > maxPaths
+                    || batchBytes + bytes > maxBytes)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                paths = new PathSet();
+                batchPaths = 0;
+                batchBytes = 0;
+            }
+            batch.add(mutation);
+            for (String path : mutation.updates.keySet()) {
+                paths.add(path);
+            }
+            batchPaths += size;
+            batchBytes += bytes;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    static Map<String, Object> merge(List<OutboxMutation> batch) {
+        Map<String, Object> updates = new HashMap<>();
+        for (OutboxMutation mutation : batch) {
+            updates.putAll(mutation.updates);
+        }
+        return updates;
+    }
+
+    /**
+     * Paths of one batch as a tree, to find ancestor/descendant overlaps in O(depth).
+     */
+    private static final class PathSet {
+        private final Map<String, PathSet> children = new HashMap<>();
+        private boolean terminal;
+
+        void add(String path) {
+            PathSet node = this;
+            for (String segment : path.split("/")) {
+                PathSet child = node.children.get(segment);
+                if (child == null) {
+                    child = new PathSet();
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            node.terminal = true;
+        }
+
+        boolean overlaps(String path) {
+            PathSet node = this;
+            for (String segment : path.split("/")) {
+                if (node.terminal) {
+                    return true;
+                }
+                node = node.children.get(segment);
+                if (node == null) {
+                    return false;
+                }
+            }
+            // Same path, or an ancestor of a path already in the batch
+            return true;
+        }
+    }
+}
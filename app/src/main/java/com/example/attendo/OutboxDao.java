@@ -0,0 +1,29 @@
+package com.example.attendo;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface OutboxDao {
+
+    // REPLACE deletes the older row with the same key, so the newest write takes its place
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void put(OutboxEntity mutation);
+
+    @Query("SELECT * FROM outbox ORDER BY id LIMIT :limit")
+    List<OutboxEntity> getPending(int limit);
+
+    @Query("DELETE FROM outbox WHERE id IN (:ids)")
+    void delete(List<Long> ids);
+
+    @Query("UPDATE outbox SET attempts = attempts + 1 WHERE id IN (:ids)")
+    void recordAttempt(List<Long> ids);
+
+    @Query("SELECT COUNT(*) FROM outbox")
+    LiveData<Integer> observeCount();
+}
@@ -0,0 +1,30 @@
+package com.example.attendo;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A pending {@link OutboxMutation}; updates are stored as JSON.
+ */
+@Entity(tableName = "outbox", indices = {@Index(value = {"key"}, unique = true)})
+public class OutboxEntity {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    @NonNull
+    public String key = "";
+
+    @NonNull
+    public String updates = "";
+
+    public String ack;
+
+    @ColumnInfo(name = "created_at")
+    public long createdAt;
+
+    public int attempts;
+}
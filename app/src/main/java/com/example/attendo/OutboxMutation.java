@@ -0,0 +1,28 @@
+package com.example.attendo;
+
+import java.util.Map;
+
+/**
+ * One pending multi-path write in the {@link Outbox}.
+ *
+ * key identifies what the write is about (say, one student's mark in one session); a
+ * newer mutation with the same key replaces the pending one instead of queueing behind
+ * it. ack is an opaque note the app uses to clear its local "pending" flags once the
+ * write has landed.
+ */
+public class OutboxMutation {
+    // Local row id, 0 until stored; also the send order
+    public long id;
+    public final String key;
+    public final Map<String, Object> updates;
+    public final String ack;
+    public final long createdAt;
+    public int attempts;
+
+    public OutboxMutation(String key, Map<String, Object> updates, String ack, long createdAt) {
+        this.key = key;
+        this.updates = updates;
+        this.ack = ack;
+        this.createdAt = createdAt;
+    }
+}
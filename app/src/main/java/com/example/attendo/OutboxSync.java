@@ -0,0 +1,230 @@
+package com.example.attendo;
+
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * App side of the {@link Outbox}: Room storage, WorkManager scheduling, and clearing the
+ * local pending flags once writes land.
+ *
+ * Ack notes have the form {@code kind|id...|pendingSince}, e.g.
+ * {@code mark|<sessionId>|<uid>|<pendingSince>}.
+ */
+public class OutboxSync {
+
+    static final String WORK_NAME = "outbox-sync";
+    // A batch not acknowledged by then counts as failed and is resent, which the
+    // receipts carried by every counter update make harmless (see Outbox)
+    private static final long ACK_TIMEOUT_MS = 60_000;
+
+    private static OutboxSync instance;
+
+    private final Context context;
+    private final OutboxDao outboxDao;
+    private final UserDao userDao;
+    private final AttendanceDao attendanceDao;
+    private final Outbox outbox;
+
+    private OutboxSync(Context context) {
+        this.context = context.getApplicationContext();
+        LocalDatabase local = LocalDatabase.getInstance(context);
+        outboxDao = local.outboxDao();
+        userDao = local.userDao();
+        attendanceDao = local.attendanceDao();
+        outbox = new Outbox(new RoomStore(outboxDao), FirebaseRemoteDatabase.getInstance(),
+                AttendanceWriter.DEFAULT_MAX_PATHS, AttendanceWriter.DEFAULT_MAX_BYTES, ACK_TIMEOUT_MS);
+    }
+
+    public static synchronized OutboxSync getInstance(Context context) {
+        if (instance == null) {
+            instance = new OutboxSync(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Persist a write and make sure a sync job will send it. Returns immediately; the
+     * write survives the screen closing, the process dying and the network dropping.
+     */
+    public void enqueue(String key, Map<String, Object> updates, String ack) {
+        AppExecutors.diskIO().execute(() -> {
+            outbox.enqueue(key, updates, ack);
+            schedule();
+        });
+    }
+
+    /**
+     * Number of writes still waiting to go out, for "will sync when online" hints.
+     */
+    public LiveData<Integer> observePending() {
+        return outboxDao.observeCount();
+    }
+
+    public void schedule() {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 10, TimeUnit.SECONDS)
+                .build();
+        // Append so writes queued while a drain is running get a pass of their own
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    Outbox.DrainResult drain() throws InterruptedException {
+        return outbox.drain(this::acknowledge);
+    }
+
+    private void acknowledge(OutboxMutation mutation) {
+        if (mutation.ack == null) {
+            return;
+        }
+        String[] parts = mutation.ack.split("\\|");
+        try {
+            switch (parts[0]) {
+                case "user":
+                    userDao.markSynced(parts[1], Long.parseLong(parts[2]));
+                    break;
+                case "mark":
+                    attendanceDao.markSynced(parts[1], parts[2], Long.parseLong(parts[3]));
+                    break;
+                case "session":
+                    attendanceDao.markSessionSynced(parts[1], Long.parseLong(parts[2]));
+                    break;
+                default:
+                    break;
+            }
+        } catch (RuntimeException e) {
+            // A malformed note only means the local flag stays set until the next sync
+        }
+    }
+
+    private static final class RoomStore implements Outbox.Store {
+        private final OutboxDao dao;
+
+        RoomStore(OutboxDao dao) {
+            this.dao = dao;
+        }
+
+        @Override
+        public void put(OutboxMutation mutation) {
+            OutboxEntity entity = new OutboxEntity();
+            entity.key = mutation.key;
+            entity.updates = toJson(mutation.updates).toString();
+            entity.ack = mutation.ack;
+            entity.createdAt = mutation.createdAt;
+            dao.put(entity);
+        }
+
+        @Override
+        public List<OutboxMutation> pending(int limit) {
+            List<OutboxMutation> mutations = new ArrayList<>();
+            for (OutboxEntity entity : dao.getPending(limit)) {
+                Map<String, Object> updates;
+                try {
+                    updates = fromJson(new JSONObject(entity.updates));
+                } catch (JSONException e) {
+                    // Unreadable rows would block the queue forever
+                    dao.delete(Collections.singletonList(entity.id));
+                    continue;
+                }
+                OutboxMutation mutation = new OutboxMutation(entity.key, updates, entity.ack, entity.createdAt);
+                mutation.id = entity.id;
+                mutation.attempts = entity.attempts;
+                mutations.add(mutation);
+            }
+            return mutations;
+        }
+
+        @Override
+        public void remove(List<OutboxMutation> sent) {
+            dao.delete(ids(sent));
+        }
+
+        @Override
+        public void recordAttempt(List<OutboxMutation> failed) {
+            dao.recordAttempt(ids(failed));
+        }
+
+        private static List<Long> ids(List<OutboxMutation> mutations) {
+            List<Long> ids = new ArrayList<>(mutations.size());
+            for (OutboxMutation mutation : mutations) {
+                ids.add(mutation.id);
+            }
+            return ids;
+        }
+    }
+
+    // Server values (timestamps, increments) are plain maps, so they survive the round trip
+    @SuppressWarnings("unchecked")
+    static JSONObject toJson(Map<String, Object> map) {
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof Map) {
+                    value = toJson((Map<String, Object>) value);
+                } else if (value instanceof List) {
+                    value = new JSONArray((List<?>) value);
+                } else if (value == null) {
+                    value = JSONObject.NULL;
+                }
+                json.put(entry.getKey(), value);
+            }
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return json;
+    }
+
+    static Map<String, Object> fromJson(JSONObject json) throws JSONException {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, fromJsonValue(json.get(key)));
+        }
+        return map;
+    }
+
+    private static List<Object> fromJson(JSONArray json) throws JSONException {
+        List<Object> list = new ArrayList<>(json.length());
+        for (int i = 0; i < json.length(); i++) {
+            list.add(fromJsonValue(json.get(i)));
+        }
+        return list;
+    }
+
+    private static Object fromJsonValue(Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            return fromJson((JSONObject) value);
+        } else if (value instanceof JSONArray) {
+            // Firebase only takes lists, not JSONArrays
+            return fromJson((JSONArray) value);
+        } else if (value == JSONObject.NULL) {
+            // A null in an update deletes the path
+            return null;
+        }
+        return value;
+    }
+}
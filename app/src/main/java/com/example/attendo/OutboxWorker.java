@@ -0,0 +1,30 @@
+package com.example.attendo;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Drains the {@link Outbox}. Scheduled by {@link OutboxSync} with a network constraint;
+ * a failed write makes WorkManager retry with exponential backoff.
+ */
+public class OutboxWorker extends Worker {
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            Outbox.DrainResult result = OutboxSync.getInstance(getApplicationContext()).drain();
+            return result.error == null ? Result.success() : Result.retry();
+        } catch (InterruptedException e) {
+            // Stopped by WorkManager (constraints lost); anything unsent is still queued
+            return Result.retry();
+        }
+    }
+}
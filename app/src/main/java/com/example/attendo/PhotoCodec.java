@@ -0,0 +1,93 @@
+package com.example.attendo;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bitmap decoding and encoding for the photo pipeline.
+ */
+public final class PhotoCodec implements PhotoLoader.Decoder<Bitmap> {
+
+    // Longest edge of stored photos; the profile screen never shows more than this
+    static final int FULL_EDGE = 1024;
+    static final int THUMB_EDGE = 128;
+    static final int QUALITY = 80;
+
+    /**
+     * Decode only as many pixels as the target needs: read the bounds first, then let
+     * BitmapFactory skip rows and columns with inSampleSize. RGB_565 halves the memory of
+     * avatars, which have no transparency.
+     */
+    @Override
+    public Bitmap decode(byte[] data, int width, int height) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Not an image");
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = PhotoLoader.sampleSize(options.outWidth, options.outHeight, width, height);
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (bitmap == null) {
+            throw new IOException("Could not decode image");
+        }
+        return bitmap;
+    }
+
+    /**
+     * Decode a picked image at a little over the stored size, without ever holding the
+     * camera-resolution original in memory.
+     */
+    public static Bitmap decode(ContentResolver resolver, Uri uri, int maxEdge) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Not an image");
+        }
+
+        int[] target = PhotoLoader.boundedSize(options.outWidth, options.outHeight, maxEdge);
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = PhotoLoader.sampleSize(options.outWidth, options.outHeight, target[0], target[1]);
+        try (InputStream in = resolver.openInputStream(uri)) {
+            Bitmap bitmap = BitmapFactory.decodeStream(in, null, options);
+            if (bitmap == null) {
+                throw new IOException("Could not decode image");
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Scale down to fit maxEdge and compress as lossy WebP.
+     */
+    @SuppressWarnings("deprecation")
+    public static byte[] encodeWebp(Bitmap source, int maxEdge) {
+        int[] size = PhotoLoader.boundedSize(source.getWidth(), source.getHeight(), maxEdge);
+        Bitmap scaled = size[0] == source.getWidth() && size[1] == source.getHeight()
+                ? source
+                : Bitmap.createScaledBitmap(source, size[0], size[1], true);
+
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        scaled.compress(format, QUALITY, out);
+        if (scaled != source) {
+            scaled.recycle();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Loads decoded photos into targets (image views) off the main thread.
+ *
+ * Requests for the same path share one fetch and decode. A target can only wait for one
+ * photo: binding it to another path, as a recycled list row does, detaches it from the
+ * old request, and a request nobody waits for any more is cancelled. All bookkeeping
+ * happens on the main thread; only fetching and decoding run on the worker pool.
+ */
+public class PhotoLoader<T> {
+
+    public interface Decoder<T> {
+        /**
+         * Decode to roughly width x height, never much larger.
+         */
+        T decode(byte[] data, int width, int height) throws Exception;
+    }
+
+    public interface MemoryCache<T> {
+        T get(String key);
+
+        void put(String key, T value);
+    }
+
+    public interface Target<T> {
+        void onLoaded(T photo);
+
+        void onFailed(Exception error);
+    }
+
+    private final class Job implements Runnable {
+        final String path;
+        final int width;
+        final int height;
+        final List<Target<T>> targets = new ArrayList<>();
+        Future<?> future;
+
+        Job(String path, int width, int height) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void run() {
+            try {
+                byte[] data = repository.fetch(path);
+                if (Thread.interrupted()) {
+                    return;
+                }
+                T photo = decoder.decode(data, width, height);
+                memoryCache.put(key(path, width, height), photo);
+                mainThread.execute(() -> finish(this, photo, null));
+            } catch (InterruptedException e) {
+                // Cancelled: nobody is waiting for the result
+            } catch (Exception e) {
+                mainThread.execute(() -> finish(this, null, e));
+            }
+        }
+    }
+
+    private final PhotoRepository repository;
+    private final Decoder<T> decoder;
+    private final MemoryCache<T> memoryCache;
+    private final ExecutorService workers;
+    private final Executor mainThread;
+
+    private final Map<String, Job> inFlight = new HashMap<>();
+    private final Map<Target<T>, Job> waiting = new IdentityHashMap<>();
+
+    public PhotoLoader(PhotoRepository repository, Decoder<T> decoder, MemoryCache<T> memoryCache,
+                       ExecutorService workers, Executor mainThread) {
+        this.repository = repository;
+        this.decoder = decoder;
+        this.memoryCache = memoryCache;
+        this.workers = workers;
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Show the photo at path in target, straight from memory if possible.
+     */
+    public void load(String path, int width, int height, Target<T> target) {
+        String key = key(path, width, height);
+        Job current = waiting.get(target);
+        if (current != null && key(current.path, current.width, current.height).equals(key)) {
+            return;
+        }
+        cancel(target);
+
+        T cached = memoryCache.get(key);
+        if (cached != null) {
+            target.onLoaded(cached);
+            return;
+        }
+
+        Job job = inFlight.get(key);
+        if (job == null) {
+            job = new Job(path, width, height);
+            inFlight.put(key, job);
+            job.future = workers.submit(job);
+        }
+        job.targets.add(target);
+        waiting.put(target, job);
+    }
+
+    /**
+     * Stop waiting for whatever target was loading, e.g. when its row is recycled or it
+     * should show the placeholder instead.
+     */
+    public void cancel(Target<T> target) {
+        Job job = waiting.remove(target);
+        if (job == null) {
+            return;
+        }
+        job.targets.remove(target);
+        if (job.targets.isEmpty()) {
+            inFlight.remove(key(job.path, job.width, job.height));
+            job.future.cancel(true);
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private void finish(Job job, T photo, Exception error) {
+        if (inFlight.get(key(job.path, job.width, job.height)) != job) {
+            return;
+        }
+        inFlight.remove(key(job.path, job.width, job.height));
+        for (Target<T> target : job.targets) {
+            waiting.remove(target);
+            if (error == null) {
+                target.onLoaded(photo);
+            } else {
+                target.onFailed(error);
+            }
+        }
+    }
+
+    private static String key(String path, int width, int height) {
+        return path + "@" + width + "x" + height;
+    }
+
+    /**
+     * Largest power of two the source can be divided by while staying at least as big
+     * as the requested size, as BitmapFactory.Options.inSampleSize expects.
+     */
+    public static int sampleSize(int sourceWidth, int sourceHeight, int width, int height) {
+        int sample = 1;
+        if (width <= 0 || height <= 0) {
+            return sample;
+        }
+        while (sourceWidth / (sample * 2) >= width && sourceHeight / (sample * 2) >= height) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    /**
+     * Size that fits within maxEdge on both sides, keeping the aspect ratio and never
+     * scaling up. Returned as {width, height}.
+     */
+    public static int[] boundedSize(int width, int height, int maxEdge) {
+        int longest = Math.max(width, height);
+        if (longest <= maxEdge) {
+            return new int[]{width, height};
+        }
+        double scale = (double) maxEdge / longest;
+        return new int[]{Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale))};
+    }
+}
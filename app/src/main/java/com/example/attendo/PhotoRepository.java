@@ -0,0 +1,115 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Where profile photo bytes come from and go to.
+ *
+ * Each upload gets its own version (users/<uid>/photo), and the storage paths and cache
+ * keys include it, so a new photo never has to invalidate anything: old entries simply
+ * age out of the caches. Every photo is stored twice, a bounded full-size image for the
+ * profile screen and a small thumbnail for lists.
+ */
+public class PhotoRepository {
+
+    public static final String FULL = "full";
+    public static final String THUMB = "thumb";
+
+    // Upper bound for a single download, well above a 1024px WebP
+    static final long MAX_DOWNLOAD_BYTES = 2 * 1024 * 1024;
+
+    private final PhotoStorage storage;
+    private final RemoteDatabase database;
+    private final DiskCache diskCache;
+
+    public PhotoRepository(PhotoStorage storage, RemoteDatabase database, DiskCache diskCache) {
+        this.storage = storage;
+        this.database = database;
+        this.diskCache = diskCache;
+    }
+
+    public static String path(String uid, long version, String variant) {
+        return "photos/" + uid + "/" + version + "_" + variant + ".webp";
+    }
+
+    /**
+     * Bytes for a photo, from the disk cache or else downloaded and cached. Blocks, so
+     * call it from a worker thread. Throws InterruptedException if the load was cancelled.
+     */
+    public byte[] fetch(String path) throws IOException, InterruptedException {
+        byte[] cached = diskCache.get(path);
+        if (cached != null) {
+            return cached;
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        byte[][] result = new byte[1][];
+        Exception[] failure = new Exception[1];
+        storage.download(path, MAX_DOWNLOAD_BYTES, (data, error) -> {
+            result[0] = data;
+            failure[0] = error;
+            done.countDown();
+        });
+        done.await();
+        if (failure[0] != null) {
+            throw new IOException("Download failed: " + path, failure[0]);
+        }
+        diskCache.put(path, result[0]);
+        return result[0];
+    }
+
+    /**
+     * Upload already encoded full-size and thumbnail images, then point the profile at
+     * them and delete the previous version. The new bytes go straight into the disk cache
+     * so this device never downloads its own upload.
+     */
+    public void upload(String uid, long previousVersion, byte[] full, byte[] thumb,
+                       PhotoStorage.CompletionListener listener) {
+        upload(uid, previousVersion, full, thumb, null, listener);
+    }
+
+    /**
+     * As above, also updating the photo on the student's {@link Enrollments} cards, which
+     * profile (the last server copy) locates.
+     */
+    public void upload(String uid, long previousVersion, byte[] full, byte[] thumb,
+                       @Nullable User profile, PhotoStorage.CompletionListener listener) {
+        long version = System.currentTimeMillis();
+        String fullPath = path(uid, version, FULL);
+        String thumbPath = path(uid, version, THUMB);
+
+        storage.upload(fullPath, full, fullError -> {
+            if (fullError != null) {
+                listener.onComplete(fullError);
+                return;
+            }
+            storage.upload(thumbPath, thumb, thumbError -> {
+                if (thumbError != null) {
+                    storage.delete(fullPath, ignored -> {});
+                    listener.onComplete(thumbError);
+                    return;
+                }
+                diskCache.put(fullPath, full);
+                diskCache.put(thumbPath, thumb);
+
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("users/" + uid + "/photo", version);
+                updates.putAll(Enrollments.profileUpdates(uid, profile,
+                        Collections.singletonMap("photo", version)));
+                database.updateChildren(updates, error -> {
+                    if (error == null && previousVersion > 0) {
+                        storage.delete(path(uid, previousVersion, FULL), ignored -> {});
+                        storage.delete(path(uid, previousVersion, THUMB), ignored -> {});
+                    }
+                    listener.onComplete(error);
+                });
+            });
+        });
+    }
+}
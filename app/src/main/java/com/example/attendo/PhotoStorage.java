@@ -0,0 +1,27 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Blob store for profile photos (Firebase Storage in the app), so the photo pipeline can
+ * run against a local stand-in in tests.
+ */
+public interface PhotoStorage {
+
+    void upload(String path, byte[] data, CompletionListener listener);
+
+    /**
+     * Fetch at most maxBytes; larger objects fail instead of being read into memory.
+     */
+    void download(String path, long maxBytes, DownloadListener listener);
+
+    void delete(String path, CompletionListener listener);
+
+    interface CompletionListener {
+        void onComplete(@Nullable Exception error);
+    }
+
+    interface DownloadListener {
+        void onComplete(@Nullable byte[] data, @Nullable Exception error);
+    }
+}
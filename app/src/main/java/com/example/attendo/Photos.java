@@ -0,0 +1,142 @@
+package com.example.attendo;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide photo pipeline: memory cache, then disk cache, then Firebase Storage.
+ *
+ * The memory cache is capped at an eighth of the heap in bitmap bytes, so a long roster
+ * of avatars only keeps the most recently seen ones around.
+ */
+public class Photos {
+
+    private static final long DISK_CACHE_BYTES = 50L * 1024 * 1024;
+
+    private static Photos instance;
+
+    private final Context context;
+    private final PhotoRepository repository;
+    private final ByteLruCache<Bitmap> memoryCache;
+    private final PhotoLoader<Bitmap> loader;
+    private final ExecutorService workers = Executors.newFixedThreadPool(2);
+
+    private Photos(Context context) {
+        this.context = context.getApplicationContext();
+        repository = new PhotoRepository(FirebasePhotoStorage.create(),
+                FirebaseRemoteDatabase.getInstance(),
+                new DiskCache(new File(this.context.getCacheDir(), "photos"), DISK_CACHE_BYTES));
+        memoryCache = new ByteLruCache<>(Runtime.getRuntime().maxMemory() / 8,
+                Bitmap::getAllocationByteCount);
+        loader = new PhotoLoader<>(repository, new PhotoCodec(), memoryCache,
+                workers, AppExecutors.mainThread());
+    }
+
+    public static synchronized Photos getInstance(Context context) {
+        if (instance == null) {
+            instance = new Photos(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Show a user's photo, or the placeholder if they have none. Safe to call on every
+     * bind of a recycled row. Main thread only.
+     */
+    public void show(ImageView view, String uid, long version, boolean thumbnail, int placeholder) {
+        Target target = targetOf(view);
+        if (version <= 0) {
+            loader.cancel(target);
+            view.setImageResource(placeholder);
+            return;
+        }
+        target.placeholder = placeholder;
+        int width = view.getWidth() > 0 ? view.getWidth() : view.getLayoutParams().width;
+        int height = view.getHeight() > 0 ? view.getHeight() : view.getLayoutParams().height;
+        String path = PhotoRepository.path(uid, version,
+                thumbnail ? PhotoRepository.THUMB : PhotoRepository.FULL);
+        // Placeholder until the load lands, so a recycled row never flashes someone else's face
+        view.setImageResource(placeholder);
+        loader.load(path, width, height, target);
+    }
+
+    /**
+     * Forget the view's pending load, e.g. when its row is recycled.
+     */
+    public void cancel(ImageView view) {
+        Object tag = view.getTag(R.id.photo_target);
+        if (tag instanceof Target) {
+            loader.cancel((Target) tag);
+        }
+    }
+
+    /**
+     * Re-encode a picked image and upload it as the user's new photo.
+     */
+    public void upload(String uid, long previousVersion, Uri image, PhotoStorage.CompletionListener listener) {
+        workers.execute(() -> {
+            byte[] full;
+            byte[] thumb;
+            try {
+                Bitmap bitmap = PhotoCodec.decode(context.getContentResolver(), image, PhotoCodec.FULL_EDGE);
+                full = PhotoCodec.encodeWebp(bitmap, PhotoCodec.FULL_EDGE);
+                thumb = PhotoCodec.encodeWebp(bitmap, PhotoCodec.THUMB_EDGE);
+                bitmap.recycle();
+            } catch (Exception e) {
+                AppExecutors.mainThread().execute(() -> listener.onComplete(e));
+                return;
+            }
+            AppExecutors.mainThread().execute(() -> {
+                User profile = UserRepository.getInstance(context).getUser(uid).getServerValue();
+                repository.upload(uid, previousVersion, full, thumb, profile, listener);
+            });
+        });
+    }
+
+    /**
+     * Give memory back when the system asks, e.g. from Application.onTrimMemory.
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            memoryCache.trimTo(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimTo(memoryCache.size() / 2);
+        }
+    }
+
+    private static Target targetOf(ImageView view) {
+        Object tag = view.getTag(R.id.photo_target);
+        if (tag instanceof Target) {
+            return (Target) tag;
+        }
+        Target target = new Target(view);
+        view.setTag(R.id.photo_target, target);
+        return target;
+    }
+
+    private static final class Target implements PhotoLoader.Target<Bitmap> {
+        final ImageView view;
+        int placeholder;
+
+        Target(ImageView view) {
+            this.view = view;
+        }
+
+        @Override
+        public void onLoaded(Bitmap photo) {
+            view.setImageBitmap(photo);
+        }
+
+        @Override
+        public void onFailed(Exception error) {
+            view.setImageResource(placeholder);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running total of a session's presence shards, fed one child event at a time.
+ *
+ * Each event only touches the shard it is about: the old count of that shard is taken
+ * off the total and the new one added, so an update costs the same however many shards
+ * or students there are.
+ */
+public class PresenceAggregator {
+
+    public interface Listener {
+        void onPresent(int present);
+    }
+
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Listener listener;
+    private int total;
+
+    public PresenceAggregator(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    /**
+     * A shard was added or changed.
+     */
+    public void onShard(String key, @Nullable Object value) {
+        int count = PresenceCounter.count(value);
+        Integer previous = count == 0 ? counts.remove(key) : counts.put(key, count);
+        apply(count - (previous == null ? 0 : previous));
+    }
+
+    public void onShardRemoved(String key) {
+        Integer previous = counts.remove(key);
+        apply(previous == null ? 0 : -previous);
+    }
+
+    /**
+     * Forget everything without notifying, e.g. when the listener is detached and will
+     * replay every shard once added again.
+     */
+    public void clear() {
+        counts.clear();
+        total = 0;
+    }
+
+    private void apply(int delta) {
+        if (delta != 0) {
+            total += delta;
+            listener.onPresent(total);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Live "present now" counter for a running session, split over several shards so a burst
+ * of check-ins does not queue up behind one transaction.
+ *
+ * Layout:
+ *   presence/<sessionId>/shards/<k>/<uid> = true
+ *
+ * A student always lands in the same shard (a hash of the uid), and each shard is updated
+ * with its own transaction, so arrivals only compete with the few students that share
+ * their shard. The shard holds the uids rather than a bare number, which makes arriving
+ * twice or leaving without having arrived a no-op. {@link PresenceAggregator} sums the
+ * shards on the reading side.
+ */
+public class PresenceCounter {
+
+    public static final int DEFAULT_SHARDS = 16;
+
+    public interface Listener {
+        /**
+         * @param changed whether the student's presence actually changed
+         */
+        void onComplete(@Nullable Exception error, boolean changed);
+    }
+
+    private final RemoteDatabase database;
+    private final int shards;
+
+    public PresenceCounter(RemoteDatabase database, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be positive");
+        }
+        this.database = database;
+        this.shards = shards;
+    }
+
+    public static String shardsPath(String sessionId) {
+        return "presence/" + sessionId + "/shards";
+    }
+
+    /**
+     * Shard of a student, spread evenly even for uids that share long prefixes.
+     */
+    static int shardOf(String uid, int shards) {
+        int h = uid.hashCode();
+        // Murmur3 finalizer, so neighbouring hash codes end up in different shards
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, shards);
+    }
+
+    public void arrive(String sessionId, String uid, Listener listener) {
+        update(sessionId, uid, true, listener);
+    }
+
+    public void leave(String sessionId, String uid, Listener listener) {
+        update(sessionId, uid, false, listener);
+    }
+
+    /**
+     * Number of students in a shard's value as read from the database.
+     */
+    static int count(@Nullable Object shard) {
+        return shard instanceof Map ? ((Map<?, ?>) shard).size() : 0;
+    }
+
+    private void update(String sessionId, String uid, boolean present, Listener listener) {
+        String path = shardsPath(sessionId) + "/" + shardOf(uid, shards);
+        database.runTransaction(path, current -> {
+            Map<String, Object> members = new HashMap<>();
+            if (current instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) current).entrySet()) {
+                    members.put(entry.getKey().toString(), entry.getValue());
+                }
+            }
+            if (members.containsKey(uid) == present) {
+                return RemoteDatabase.TransactionHandler.ABORT;
+            }
+            if (present) {
+                members.put(uid, true);
+            } else {
+                members.remove(uid);
+            }
+            return members.isEmpty() ? null : members;
+        }, (error, committed, value) -> listener.onComplete(error, committed));
+    }
+}
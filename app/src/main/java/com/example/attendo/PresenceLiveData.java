@@ -0,0 +1,52 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+
+/**
+ * Number of students present in a session right now, kept up to date from the
+ * presence shards while observed.
+ */
+public class PresenceLiveData extends LiveData<Integer> {
+
+    private final RemoteDatabase database;
+    private final String shardsPath;
+    private final PresenceAggregator aggregator = new PresenceAggregator(this::setValue);
+    private RemoteDatabase.Registration registration;
+
+    private final RemoteDatabase.ChildListener listener = new RemoteDatabase.ChildListener() {
+        @Override
+        public void onChild(String key, @Nullable Object value) {
+            aggregator.onShard(key, value);
+        }
+
+        @Override
+        public void onChildRemoved(String key) {
+            aggregator.onShardRemoved(key);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            // Keep showing the last count; the screen still works without it
+        }
+    };
+
+    public PresenceLiveData(RemoteDatabase database, String sessionId) {
+        this.database = database;
+        this.shardsPath = PresenceCounter.shardsPath(sessionId);
+        setValue(0);
+    }
+
+    @Override
+    protected void onActive() {
+        registration = database.listenChildren(shardsPath, listener);
+    }
+
+    @Override
+    protected void onInactive() {
+        registration.remove();
+        registration = null;
+        // Listening again replays every shard
+        aggregator.clear();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.attendo;
 
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
@@ -8,21 +9,12 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-// For reading database changes
-import com.google.firebase.database.ValueEventListener;
-
-import java.text.SimpleDateFormat;
+import java.text.DateFormat;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 public class ProfileActivity extends AppCompatActivity {
 
@@ -39,9 +31,60 @@ public class ProfileActivity extends AppCompatActivity {
     // Optionally, an ImageView for the user photo
     private ImageView profilePhoto;
 
-    private DatabaseReference mDatabase;
-    private FirebaseAuth mAuth;
+    private RemoteAuth mAuth;
     private String userId; // Current logged-in user
+    private long photoVersion; // Currently shown photo, replaced on upload
+
+    private final ActivityResultLauncher<String> pickPhoto =
+            registerForActivityResult(new ActivityResultContracts.GetContent(), uri -> {
+                if (uri != null) {
+                    uploadPhoto(uri);
+                }
+            });
+
+    // Created once; updated_at is stored as epoch millis and formatted in the device locale.
+    // Only used by the pipeline below, whose runs never overlap
+    private final DateFormat lastEditedFormat =
+            DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT);
+
+    // Formats each profile off the main thread; the observer only binds the result
+    private final SnapshotPipeline<User, Shown> formatter = SnapshotPipeline.onMainThread(
+            value -> new Shown(value.username, value.email, value.skill,
+                    // Profiles saved before updated_at existed only have the old string
+                    value.updated_at > 0
+                            ? lastEditedFormat.format(new Date(value.updated_at))
+                            : value.last_edited,
+                    value.photo),
+            new SnapshotPipeline.Sink<Shown>() {
+                @Override
+                public void onResult(Shown shown) {
+                    bind(shown);
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    // Keep showing the last profile
+                }
+            });
+
+    /**
+     * A profile ready to bind.
+     */
+    private static final class Shown {
+        final String name;
+        final String email;
+        final String skill;
+        final String lastEdited;
+        final long photo;
+
+        Shown(String name, String email, String skill, String lastEdited, long photo) {
+            this.name = name;
+            this.email = email;
+            this.skill = skill;
+            this.lastEdited = lastEdited;
+            this.photo = photo;
+        }
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,15 +92,13 @@ public class ProfileActivity extends AppCompatActivity {
         setContentView(R.layout.activity_profile);
 
         // Init Firebase
-        mDatabase = FirebaseDatabase.getInstance().getReference();
-        mAuth = FirebaseAuth.getInstance();
+        mAuth = FirebaseRemoteAuth.getInstance();
 
         // If no user is logged in, finish
-        if (mAuth.getCurrentUser() == null) {
+        userId = mAuth.currentUid();
+        if (userId == null) {
             finish();
             return;
-        } else {
-            userId = mAuth.getCurrentUser().getUid();
         }
 
         // Find views
@@ -86,39 +127,46 @@ public class ProfileActivity extends AppCompatActivity {
         saveBtn.setOnClickListener(v -> canSave());
         editBtn.setOnClickListener(v -> canEdit());
         changePassBtn.setOnClickListener(v -> resetPassword());
+        profilePhoto.setOnClickListener(v -> pickPhoto.launch("image/*"));
     }
 
     /**
-     * Read user data from Firebase and display in read-only fields + fill edit fields.
+     * Observe the shared user profile and display it in read-only fields + fill edit fields.
+     * The listener is detached automatically while this screen is stopped.
      */
     private void getUserData(String userId) {
-        mDatabase.child("users")
-                .child(userId)
-                .addValueEventListener(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        User user = snapshot.getValue(User.class);
-                        if (user != null) {
-                            // Update read-only views
-                            nameTV.setText(user.username);
-                            emailTV.setText(user.email);
-                            skillTV.setText(user.skill);
-                            lastEditedTV.setText(user.last_edited);
-
-                            // Update edit fields
-                            editName.setText(user.username);
-                            editEmail.setText(user.email);
-                            editSkill.setText(user.skill);
-                        }
-                    }
-
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        Toast.makeText(ProfileActivity.this,
-                                "Failed to load user data: " + error.getMessage(),
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        UserLiveData user = UserRepository.getInstance(this).getUser(userId);
+        user.observe(this, formatter::submit);
+        user.getError().observe(this, event -> {
+            String message = event == null ? null : event.take();
+            if (message != null) {
+                Toast.makeText(ProfileActivity.this,
+                        "Failed to load user data: " + message,
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void bind(Shown value) {
+        // Update read-only views
+        nameTV.setText(value.name);
+        emailTV.setText(value.email);
+        skillTV.setText(value.skill);
+        lastEditedTV.setText(value.lastEdited);
+
+        photoVersion = value.photo;
+        Photos.getInstance(this).show(profilePhoto, userId, value.photo, false, R.drawable.profile);
+
+        // Update edit fields
+        editName.setText(value.name);
+        editEmail.setText(value.email);
+        editSkill.setText(value.skill);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        formatter.cancel();
     }
 
     /**
@@ -126,6 +174,8 @@ public class ProfileActivity extends AppCompatActivity {
      * Show EditTexts and change/save password fields; hide read-only TextViews.
      */
     private void canEdit() {
+        Monitoring.setState(this, "profile", "editing");
+
         // Show edit fields
         editName.setVisibility(View.VISIBLE);
         editEmail.setVisibility(View.VISIBLE);
@@ -152,6 +202,7 @@ public class ProfileActivity extends AppCompatActivity {
      */
     private void canSave() {
         saveUserData(userId);
+        Monitoring.setState(this, "profile", null);
 
         // Switch back to read-only mode
         editName.setVisibility(View.GONE);
@@ -171,36 +222,51 @@ public class ProfileActivity extends AppCompatActivity {
     }
 
     /**
-     * Updates only username, email, skill, and last_edited in your Realtime Database.
-     * Password is NOT stored in DB.
+     * Saves the fields that changed since the last server copy. The edit time is set by the
+     * Firebase server. Password is NOT stored in DB.
      */
     private void saveUserData(String userId) {
         String nameText = editName.getText().toString().trim();
         String emailText = editEmail.getText().toString().trim();
         String skillText = editSkill.getText().toString().trim();
 
-        // Set "last_edited" to current date/time
-        String currentTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("username", nameText);
-        updates.put("email", emailText);
-        updates.put("skill", skillText);
-        updates.put("last_edited", currentTime);
-
-        mDatabase.child("users")
-                .child(userId)
-                .updateChildren(updates)
-                .addOnSuccessListener(aVoid ->
-                        Toast.makeText(ProfileActivity.this,
-                                "Profile updated successfully",
-                                Toast.LENGTH_SHORT).show()
-                )
-                .addOnFailureListener(e ->
-                        Toast.makeText(ProfileActivity.this,
-                                "Failed to update profile",
-                                Toast.LENGTH_SHORT).show()
-                );
+        User user = new User(nameText, emailText, skillText, null);
+
+        // Saved on the device first, so the edit survives a dropped connection
+        UserRepository.getInstance(this).saveProfile(userId, user, new ProfileSavePipeline.Listener() {
+            @Override
+            public void onSaved(int fieldsWritten) {
+                Toast.makeText(ProfileActivity.this,
+                        fieldsWritten == 0 ? "Nothing to update" : "Profile updated successfully",
+                        Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onConflict() {
+                Toast.makeText(ProfileActivity.this,
+                        "Profile was changed on another device, please review and save again",
+                        Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                Toast.makeText(ProfileActivity.this,
+                        "Saved on this device, will sync when online",
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Upload a picked image as the new profile photo. It is shrunk and re-encoded as WebP
+     * first, and appears here once users/<uid>/photo changes.
+     */
+    private void uploadPhoto(Uri image) {
+        Toast.makeText(this, "Uploading photo...", Toast.LENGTH_SHORT).show();
+        Photos.getInstance(this).upload(userId, photoVersion, image, error ->
+                Toast.makeText(ProfileActivity.this,
+                        error == null ? "Photo updated" : "Failed to upload photo",
+                        Toast.LENGTH_SHORT).show());
     }
 
     /**
@@ -224,21 +290,20 @@ public class ProfileActivity extends AppCompatActivity {
             return;
         }
 
-        mAuth.getCurrentUser().updatePassword(newPassword)
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        Toast.makeText(ProfileActivity.this,
-                                "Password updated in Firebase Auth",
-                                Toast.LENGTH_SHORT).show();
-
-                        // Clear fields after successful update
-                        editPassword.setText("");
-                        editRepassword.setText("");
-                    } else {
-                        Toast.makeText(ProfileActivity.this,
-                                "Failed to update password: " + task.getException().getMessage(),
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        mAuth.updatePassword(newPassword, (error, uid) -> {
+            if (error == null) {
+                Toast.makeText(ProfileActivity.this,
+                        "Password updated in Firebase Auth",
+                        Toast.LENGTH_SHORT).show();
+
+                // Clear fields after successful update
+                editPassword.setText("");
+                editRepassword.setText("");
+            } else {
+                Toast.makeText(ProfileActivity.this,
+                        "Failed to update password: " + error.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 }
@@ -0,0 +1,322 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Saves profile edits as small, versioned deltas.
+ *
+ * Each save is diffed against the last profile the server confirmed and only the changed
+ * fields are kept. Saves arriving within the coalescing window are merged into one write.
+ * The delta goes out in one update with updated_at set from the server clock, the
+ * student's {@link Enrollments} cards, and users/<uid>/version set to our base version
+ * plus one. database.rules.json only accepts a version one above the stored one, so the
+ * server applies the whole update only if nobody else edited the profile since our base;
+ * a second device editing the same profile cannot silently overwrite it. A rejected
+ * write reads the profile back: if the other device changed only other fields, our
+ * delta is rebased onto its copy and sent again; if it changed one of ours, its value
+ * stands and the edit is reported as a conflict. This is also how an edit made offline
+ * is settled, since Firebase only answers the write once the device is back online. A
+ * write that fails for any other reason leaves the version where it was, so the retry is
+ * checked against the same base.
+ */
+public class ProfileSavePipeline {
+
+    static final String[] FIELDS = {"username", "email", "skill"};
+
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+    }
+
+    public interface Listener {
+        /**
+         * @param fieldsWritten profile fields actually sent, 0 if nothing had changed
+         */
+        void onSaved(int fieldsWritten);
+
+        /**
+         * Someone else changed the profile first; the edit was not written.
+         */
+        void onConflict();
+
+        void onError(Exception error);
+    }
+
+    private final RemoteDatabase database;
+    private final String userId;
+    private final String userPath;
+    private final Scheduler scheduler;
+    private final long windowMs;
+
+    private User base;
+    private final Map<String, Object> pending = new HashMap<>();
+    private final List<Listener> pendingListeners = new ArrayList<>();
+    private boolean flushScheduled;
+    private boolean inFlight;
+
+    public ProfileSavePipeline(RemoteDatabase database, String userId, Scheduler scheduler, long windowMs) {
+        this.database = database;
+        this.userId = userId;
+        this.userPath = "users/" + userId;
+        this.scheduler = scheduler;
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * Queue an edit. server is the latest profile received from Firebase; it becomes the
+     * diff base unless an earlier edit is still waiting, in which case that edit's base
+     * (and version) is kept so the merged write is checked against it.
+     */
+    public void save(User server, User edited, Listener listener) {
+        if (pending.isEmpty() && !inFlight && server != null) {
+            base = server;
+        }
+        diffInto(edited);
+
+        if (pending.isEmpty() && !flushScheduled && !inFlight) {
+            listener.onSaved(0);
+            return;
+        }
+        pendingListeners.add(listener);
+        if (!flushScheduled && !inFlight) {
+            flushScheduled = true;
+            scheduler.schedule(this::flush, windowMs);
+        }
+    }
+
+    /**
+     * The fields of edited that differ from base.
+     */
+    static Map<String, Object> delta(User base, User edited) {
+        Map<String, Object> delta = new HashMap<>();
+        for (String field : FIELDS) {
+            String before = valueOf(base, field);
+            String after = valueOf(edited, field);
+            if (after == null ? before != null : !after.equals(before)) {
+                delta.put(field, after);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * The profile fields of user that are set; a null in an update would delete the field.
+     */
+    static Map<String, Object> fields(User user) {
+        Map<String, Object> fields = new HashMap<>();
+        for (String field : FIELDS) {
+            String value = valueOf(user, field);
+            if (value != null) {
+                fields.put(field, value);
+            }
+        }
+        return fields;
+    }
+
+    private void diffInto(User edited) {
+        for (String field : FIELDS) {
+            String before = base == null ? null : valueOf(base, field);
+            String after = valueOf(edited, field);
+            if (after == null ? before == null : after.equals(before)) {
+                // Changed and changed back within the window: nothing to send
+                pending.remove(field);
+            } else {
+                pending.put(field, after);
+            }
+        }
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        List<Listener> listeners = new ArrayList<>(pendingListeners);
+        pendingListeners.clear();
+        if (pending.isEmpty()) {
+            for (Listener listener : listeners) {
+                listener.onSaved(0);
+            }
+            return;
+        }
+
+        Map<String, Object> delta = new HashMap<>(pending);
+        pending.clear();
+        inFlight = true;
+        long expected = base == null ? 0 : base.version;
+
+        Map<String, Object> updates = new HashMap<>();
+        for (Map.Entry<String, Object> entry : delta.entrySet()) {
+            updates.put(userPath + "/" + entry.getKey(), entry.getValue());
+        }
+        updates.put(userPath + "/updated_at", database.serverTimestamp());
+        // Only accepted by the server on top of the version we started from
+        updates.put(userPath + "/version", expected + 1);
+        // The directory cards change in the same write, so they never disagree with it
+        updates.putAll(Enrollments.profileUpdates(userId, base, delta));
+
+        Metrics.Span updateSpan = Metrics.get().begin(Metrics.PROFILE_UPDATE);
+        database.updateChildren(updates, error -> {
+            updateSpan.end(error, AttendanceWriter.estimateBytes(updates));
+            if (error == null) {
+                saved(delta, expected + 1, listeners);
+            } else {
+                rejected(delta, expected, error, listeners);
+            }
+        });
+    }
+
+    private void saved(Map<String, Object> delta, long version, List<Listener> listeners) {
+        if (base == null) {
+            base = new User();
+        }
+        for (Map.Entry<String, Object> entry : delta.entrySet()) {
+            setValue(base, entry.getKey(), (String) entry.getValue());
+        }
+        base.version = version;
+        finish(null, listeners, true);
+        for (Listener listener : listeners) {
+            listener.onSaved(delta.size());
+        }
+    }
+
+    /**
+     * The write failed. Read the profile back to tell whether someone else moved the
+     * version on (a conflict), our own write landed after all, or it just did not get
+     * through, in which case the delta waits for the next save with the same base.
+     */
+    private void rejected(Map<String, Object> delta, long expected, Exception error, List<Listener> listeners) {
+        UserMigration.readOnce(database, userPath, new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(Object value) {
+                User server = UserMapper.fromValue(value);
+                long version = server == null ? 0 : server.version;
+                if (version == expected + 1 && hasFields(server, delta)) {
+                    saved(delta, version, listeners);
+                } else if (version != expected) {
+                    Map<String, Object> rebased = rebase(delta, server);
+                    if (rebased == null) {
+                        finish(null, listeners, false);
+                        for (Listener listener : listeners) {
+                            listener.onConflict();
+                        }
+                    } else {
+                        retry(rebased, server, listeners);
+                    }
+                } else {
+                    failed(delta, error, listeners);
+                }
+            }
+
+            @Override
+            public void onError(Exception readError) {
+                failed(delta, error, listeners);
+            }
+        });
+    }
+
+    /**
+     * Our delta on top of a profile someone else saved since our base, or null if they
+     * changed one of the same fields, in which case theirs stands.
+     */
+    private Map<String, Object> rebase(Map<String, Object> delta, User server) {
+        if (server == null) {
+            return null;
+        }
+        Map<String, Object> rebased = new HashMap<>();
+        for (Map.Entry<String, Object> entry : delta.entrySet()) {
+            String theirs = valueOf(server, entry.getKey());
+            if (Objects.equals(theirs, entry.getValue())) {
+                continue;
+            }
+            if (!Objects.equals(theirs, base == null ? null : valueOf(base, entry.getKey()))) {
+                return null;
+            }
+            rebased.put(entry.getKey(), entry.getValue());
+        }
+        return rebased;
+    }
+
+    /**
+     * Send a rebased delta again, checked against the server copy it now sits on. The
+     * listeners hear how that write goes.
+     */
+    private void retry(Map<String, Object> rebased, User server, List<Listener> listeners) {
+        base = server;
+        inFlight = false;
+        for (Map.Entry<String, Object> entry : rebased.entrySet()) {
+            if (!pending.containsKey(entry.getKey())) {
+                pending.put(entry.getKey(), entry.getValue());
+            }
+        }
+        pendingListeners.addAll(0, listeners);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(this::flush, windowMs);
+        }
+    }
+
+    private void failed(Map<String, Object> delta, Exception error, List<Listener> listeners) {
+        finish(delta, listeners, false);
+        for (Listener listener : listeners) {
+            listener.onError(error);
+        }
+    }
+
+    private static boolean hasFields(User server, Map<String, Object> delta) {
+        for (Map.Entry<String, Object> entry : delta.entrySet()) {
+            String value = valueOf(server, entry.getKey());
+            if (value == null ? entry.getValue() != null : !value.equals(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Put an unsent delta back (unless newer edits replaced those fields) and start
+     * the next flush if more edits arrived meanwhile.
+     */
+    private void finish(Map<String, Object> unsent, List<Listener> listeners, boolean success) {
+        inFlight = false;
+        if (unsent != null) {
+            for (Map.Entry<String, Object> entry : unsent.entrySet()) {
+                if (!pending.containsKey(entry.getKey())) {
+                    pending.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (pendingListeners.isEmpty()) {
+                // Nobody is waiting; keep the fields for the next save to retry
+                return;
+            }
+        }
+        if (!pendingListeners.isEmpty() && !flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(this::flush, windowMs);
+        }
+    }
+
+    private static String valueOf(User user, String field) {
+        switch (field) {
+            case "username":
+                return user.username;
+            case "email":
+                return user.email;
+            default:
+                return user.skill;
+        }
+    }
+
+    private static void setValue(User user, String field, String value) {
+        switch (field) {
+            case "username":
+                user.username = value;
+                break;
+            case "email":
+                user.email = value;
+                break;
+            default:
+                user.skill = value;
+        }
+    }
+}
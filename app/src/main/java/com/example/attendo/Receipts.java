@@ -0,0 +1,95 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * Write-once markers that make a multi-path update safe to send more than once:
+ *
+ *   receipts/<id>    server time at which the update carrying it was applied
+ *
+ * database.rules.json lets a receipt be created but never overwritten, so the server
+ * checks it before applying anything else in the update, and rejects the whole update
+ * once it has been applied. Every update that adds to counters carries one. A sender
+ * whose write failed or whose acknowledgement was lost may simply send it again; if that
+ * is rejected, {@link #check} reads the receipt to tell "already applied" from a real
+ * rejection.
+ */
+public final class Receipts {
+
+    static final String ROOT = "receipts";
+
+    public interface Callback {
+        /**
+         * @param applied whether the update carrying the receipt has been applied
+         */
+        void onChecked(boolean applied);
+
+        void onError(Exception error);
+    }
+
+    private Receipts() {}
+
+    public static String path(String id) {
+        return ROOT + "/" + id;
+    }
+
+    /**
+     * Add the receipt to an update.
+     */
+    public static void put(Map<String, Object> updates, RemoteDatabase database, String id) {
+        updates.put(path(id), database.serverTimestamp());
+    }
+
+    /**
+     * The receipt carried by an update, or null if it has none.
+     */
+    @Nullable
+    public static String find(Map<String, Object> updates) {
+        for (String path : updates.keySet()) {
+            if (path.startsWith(ROOT + "/")) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the update carrying the receipt at path has been applied.
+     */
+    public static void check(RemoteDatabase database, String path, Callback callback) {
+        RemoteDatabase.Registration[] registration = new RemoteDatabase.Registration[1];
+        boolean[] answered = new boolean[1];
+        registration[0] = database.listen(path, new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                if (answer()) {
+                    callback.onChecked(value != null);
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                if (answer()) {
+                    callback.onError(error);
+                }
+            }
+
+            private boolean answer() {
+                if (answered[0]) {
+                    return false;
+                }
+                answered[0] = true;
+                if (registration[0] != null) {
+                    registration[0].remove();
+                }
+                return true;
+            }
+        });
+        // Answered from the cache before listen() returned
+        if (answered[0]) {
+            registration[0].remove();
+        }
+    }
+}
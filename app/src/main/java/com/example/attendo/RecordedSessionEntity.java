@@ -0,0 +1,29 @@
+package com.example.attendo;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A session this device has recorded and queued, so finishing it again (e.g. from a
+ * recreated screen before the outbox drained) does nothing.
+ */
+@Entity(tableName = "recorded_sessions")
+public class RecordedSessionEntity {
+
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "session_id")
+    public String sessionId = "";
+
+    @ColumnInfo(name = "recorded_at")
+    public long recordedAt;
+
+    public static RecordedSessionEntity of(String sessionId, long recordedAt) {
+        RecordedSessionEntity entity = new RecordedSessionEntity();
+        entity.sessionId = sessionId;
+        entity.recordedAt = recordedAt;
+        return entity;
+    }
+}
@@ -8,22 +8,11 @@ import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
-import com.google.firebase.auth.AuthResult;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseUser;
-// For Realtime Database
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-
 public class RegisterActivity extends AppCompatActivity {
 
-    private FirebaseAuth mAuth;
-    private DatabaseReference mDatabase;
+    private RemoteAuth mAuth;
 
     private EditText name, email, password;
     private Button register;
@@ -32,19 +21,18 @@ public class RegisterActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_register);
 
-        mAuth = FirebaseAuth.getInstance();
-        mDatabase = FirebaseDatabase.getInstance().getReference();
+        mAuth = FirebaseRemoteAuth.getInstance();
 
-        // If user is already logged in, skip registration
-        FirebaseUser currentUser = mAuth.getCurrentUser();
-        if (currentUser != null) {
+        // If user is already logged in, skip registration (before inflating the layout)
+        if (mAuth.currentUid() != null) {
             startActivity(new Intent(RegisterActivity.this, MainActivity.class));
             finish();
             return;
         }
 
+        setContentView(R.layout.activity_register);
+
         name = findViewById(R.id.register_name);
         email = findViewById(R.id.register_email);
         password = findViewById(R.id.register_password);
@@ -70,24 +58,25 @@ public class RegisterActivity extends AppCompatActivity {
             }
 
             // Create user in Firebase Auth
-            mAuth.createUserWithEmailAndPassword(emailtext, passtext)
-                    .addOnCompleteListener(RegisterActivity.this, new OnCompleteListener<AuthResult>() {
-                        @Override
-                        public void onComplete(@NonNull Task<AuthResult> task) {
-                            if (task.isSuccessful()) {
-                                // If user creation is successful
-                                FirebaseUser user = mAuth.getCurrentUser();
-                                if (user != null) {
-                                    saveUserData(user.getUid(), nametext, emailtext);
-                                }
-                            } else {
-                                // If user creation fails
-                                Toast.makeText(RegisterActivity.this,
-                                        "Registration Failed: " + task.getException().getMessage(),
-                                        Toast.LENGTH_SHORT).show();
-                            }
-                        }
-                    });
+            Metrics.Span span = Metrics.get().begin(Metrics.AUTH_REGISTER);
+            mAuth.register(emailtext, passtext, (error, uid) -> {
+                // No payload: nothing about the credentials goes into the numbers
+                span.end(error, 0);
+                if (isDestroyed()) {
+                    return;
+                }
+                if (error == null) {
+                    // If user creation is successful
+                    if (uid != null) {
+                        saveUserData(uid, nametext, emailtext);
+                    }
+                } else {
+                    // If user creation fails
+                    Toast.makeText(RegisterActivity.this,
+                            "Registration Failed: " + error.getMessage(),
+                            Toast.LENGTH_SHORT).show();
+                }
+            });
         });
     }
 
@@ -95,7 +84,12 @@ public class RegisterActivity extends AppCompatActivity {
         // Just store name, email, skill = "" & last_edited = "Just Created"
         User user = new User(name, email, "", "Just Created");
 
-        mDatabase.child("users").child(userId).setValue(user)
+        // Completes once the profile is on disk and queued; the outbox uploads it in the
+        // background, timed under Metrics.OUTBOX_BATCH
+        Metrics.Span span = Metrics.get().begin(Metrics.PROFILE_CREATE);
+        UserRepository.getInstance(this).saveUser(userId, user)
+                .addOnCompleteListener(task -> span.end(task.getException(),
+                        AttendanceWriter.estimateBytes(UserMapper.toMap(user))))
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(RegisterActivity.this, "Registration Successful", Toast.LENGTH_SHORT).show();
                     startActivity(new Intent(RegisterActivity.this, MainActivity.class));
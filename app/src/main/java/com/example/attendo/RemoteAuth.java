@@ -0,0 +1,74 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+/**
+ * The parts of Firebase Authentication the app uses, so screens and the load simulator
+ * do not depend on FirebaseAuth directly.
+ */
+public interface RemoteAuth {
+
+    /**
+     * Uid of the signed-in user, or null when signed out.
+     */
+    @Nullable
+    String currentUid();
+
+    void signIn(String email, String password, Listener listener);
+
+    void register(String email, String password, Listener listener);
+
+    /**
+     * Fails if nobody is signed in.
+     */
+    void updatePassword(String newPassword, Listener listener);
+
+    /**
+     * Email the user a link to choose a new password.
+     */
+    void sendPasswordReset(String email, Listener listener);
+
+    void signOut();
+
+    /**
+     * Failure with a reason callers can act on. Implementations report the failures they
+     * can classify this way; anything else may arrive as a plain exception.
+     */
+    class AuthException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        public enum Reason {
+            EMAIL_IN_USE,
+            INVALID,
+            // Too many requests; retry later
+            RATE_LIMITED,
+            // No connection; retry later
+            NETWORK,
+            OTHER
+        }
+
+        public final Reason reason;
+
+        public AuthException(Reason reason, String message, @Nullable Throwable cause) {
+            super(message, cause);
+            this.reason = reason;
+        }
+
+        /**
+         * Whether trying again later can succeed.
+         */
+        public static boolean isTransient(@Nullable Exception error) {
+            return error instanceof AuthException
+                    && (((AuthException) error).reason == Reason.RATE_LIMITED
+                    || ((AuthException) error).reason == Reason.NETWORK);
+        }
+    }
+
+    interface Listener {
+        /**
+         * @param uid the signed-in user on success, null on error
+         */
+        void onComplete(@Nullable Exception error, @Nullable String uid);
+    }
+}
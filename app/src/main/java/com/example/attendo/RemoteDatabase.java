@@ -0,0 +1,162 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * The parts of Firebase Realtime Database the data layer reads and writes through, so
+ * that engines built on top of it can run against an in-memory stand-in in tests and
+ * the load simulator.
+ */
+public interface RemoteDatabase {
+
+    /**
+     * Atomically apply a multi-path update. Keys are slash-separated paths from the root.
+     */
+    void updateChildren(Map<String, Object> updates, CompletionListener listener);
+
+    /**
+     * Value that adds delta to the number stored at a path when written.
+     */
+    Object increment(long delta);
+
+    /**
+     * Value replaced by the server's clock (epoch millis) when written.
+     */
+    Object serverTimestamp();
+
+    /**
+     * Compare-and-set on a single path. The handler may run several times, first against
+     * the locally cached value (possibly null even when the server has data).
+     */
+    void runTransaction(String path, TransactionHandler handler, TransactionListener listener);
+
+    /**
+     * Deliver the value at a path (null if absent) once it is known, and again after every
+     * change, until the returned registration is removed.
+     */
+    Registration listen(String path, ValueListener listener);
+
+    /**
+     * Like {@link #listen}, one child at a time: every child of the path is delivered
+     * once known, then again whenever it changes, and reported when removed, so a change
+     * costs one child rather than the whole node.
+     */
+    Registration listenChildren(String path, ChildListener listener);
+
+    /**
+     * Read one page of the children of a path once, in the order the query asks for.
+     */
+    void page(String path, PageQuery query, PageListener listener);
+
+    /**
+     * A new child key under path, unique and ordered by creation time, made on the device
+     * without a round trip.
+     */
+    String pushKey(String path);
+
+    /**
+     * Keep a path in the local cache even while nobody listens to it.
+     */
+    void keepSynced(String path, boolean keep);
+
+    interface ValueListener {
+        void onValue(@Nullable Object value);
+
+        void onError(Exception error);
+    }
+
+    interface ChildListener {
+        /**
+         * A child was added or changed.
+         */
+        void onChild(String key, @Nullable Object value);
+
+        void onChildRemoved(String key);
+
+        void onError(Exception error);
+    }
+
+    interface PageListener {
+        /**
+         * @param children child key to value, in query order
+         */
+        void onPage(Map<String, Object> children);
+
+        void onError(Exception error);
+    }
+
+    /**
+     * Which children {@link #page} reads: ordered by key, or by a string child with the
+     * key breaking ties, and either the first limit after a cursor or the last limit
+     * before one. A null cursor key starts from the beginning (or the end).
+     */
+    final class PageQuery {
+        @Nullable
+        public final String orderByChild;
+        @Nullable
+        public final String value;
+        @Nullable
+        public final String key;
+        public final boolean before;
+        public final int limit;
+
+        private PageQuery(@Nullable String orderByChild, @Nullable String value, @Nullable String key,
+                          boolean before, int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("limit must be positive: " + limit);
+            }
+            this.orderByChild = orderByChild;
+            this.value = value;
+            this.key = key;
+            this.before = before;
+            this.limit = limit;
+        }
+
+        public static PageQuery byKeyAfter(@Nullable String key, int limit) {
+            return new PageQuery(null, null, key, false, limit);
+        }
+
+        public static PageQuery byChildAfter(String child, @Nullable String value, @Nullable String key,
+                                             int limit) {
+            return new PageQuery(child, value, key, false, limit);
+        }
+
+        public static PageQuery byChildBefore(String child, @Nullable String value, @Nullable String key,
+                                              int limit) {
+            return new PageQuery(child, value, key, true, limit);
+        }
+    }
+
+    interface Registration {
+        void remove();
+    }
+
+    interface TransactionHandler {
+        /**
+         * Returned from {@link #apply} to give up without writing.
+         */
+        Object ABORT = new Object();
+
+        /**
+         * @return the new value for the path, or {@link #ABORT}
+         */
+        Object apply(@Nullable Object current);
+    }
+
+    interface TransactionListener {
+        /**
+         * @param committed whether a value was written
+         * @param value     the value at the path once the transaction settled
+         */
+        void onComplete(@Nullable Exception error, boolean committed, @Nullable Object value);
+    }
+
+    interface CompletionListener {
+        /**
+         * @param error null on success
+         */
+        void onComplete(@Nullable Exception error);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.attendo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * {@link ReportSource} reading sessions/, attendance/ and users/ one key-ordered page
+ * at a time, blocking on each read.
+ */
+public class RemoteReportSource implements ReportSource {
+
+    private final RemoteDatabase database;
+
+    public RemoteReportSource(RemoteDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public long countSessions() {
+        // Counting would mean reading the whole node, which is what we are avoiding
+        return -1;
+    }
+
+    @Override
+    public List<Session> sessions(String afterSessionId, int limit) throws IOException, InterruptedException {
+        List<Session> sessions = new ArrayList<>(limit);
+        for (Map.Entry<String, Object> child : page("sessions", afterSessionId, limit).entrySet()) {
+            Map<?, ?> record = child.getValue() instanceof Map ? (Map<?, ?>) child.getValue() : null;
+            sessions.add(new Session(child.getKey(),
+                    record == null ? null : Values.asString(record.get("class_id")),
+                    record == null ? null : Values.asString(record.get("subject")),
+                    record == null ? 0 : Values.asLong(record.get("started_at")),
+                    record == null ? null : Values.asString(record.get("zone"))));
+        }
+        return sessions;
+    }
+
+    @Override
+    public List<AttendanceRecord> marks(String sessionId, String afterUid, int limit)
+            throws IOException, InterruptedException {
+        List<AttendanceRecord> marks = new ArrayList<>(limit);
+        for (Map.Entry<String, Object> child : page("attendance/" + sessionId, afterUid, limit).entrySet()) {
+            AttendanceRecord record = AttendanceRecordMapper.fromValue(sessionId, child.getKey(), child.getValue());
+            // Keep unreadable marks as a row so a short page still means the last page
+            marks.add(record != null ? record : new AttendanceRecord(sessionId, child.getKey(), null, 0));
+        }
+        return marks;
+    }
+
+    @Override
+    public List<StudentRow> students(String afterUid, int limit) throws IOException, InterruptedException {
+        List<StudentRow> students = new ArrayList<>(limit);
+        for (Map.Entry<String, Object> child : page("users", afterUid, limit).entrySet()) {
+            Map<?, ?> profile = child.getValue() instanceof Map ? (Map<?, ?>) child.getValue() : null;
+            students.add(new StudentRow(child.getKey(),
+                    profile == null ? null : Values.asString(profile.get("username")),
+                    profile == null ? null : Values.asString(profile.get("email")),
+                    null));
+        }
+        return students;
+    }
+
+    private Map<String, Object> page(String path, String afterKey, int limit)
+            throws IOException, InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Object[] result = new Object[1];
+        database.page(path, RemoteDatabase.PageQuery.byKeyAfter(afterKey, limit), new RemoteDatabase.PageListener() {
+            @Override
+            public void onPage(Map<String, Object> children) {
+                result[0] = children;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                result[0] = error;
+                done.countDown();
+            }
+        });
+        done.await();
+        if (result[0] instanceof Exception) {
+            throw new IOException("Could not read " + path, (Exception) result[0]);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> children = (Map<String, Object>) result[0];
+        return children;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pages through users/, or a members or class_students node of {@link Enrollments},
+ * ordered by username, with the (username, uid) pair as cursor so equal names never
+ * skip or repeat rows.
+ * Relies on the ".indexOn": ["username"] rules in database.rules.json.
+ */
+public class RemoteRosterPagingSource implements RosterPagingSource {
+
+    private final RemoteDatabase database;
+    private final String path;
+
+    public RemoteRosterPagingSource(RemoteDatabase database, String path) {
+        this.database = database;
+        this.path = path;
+    }
+
+    @Override
+    public void loadAfter(Cursor cursor, int size, Callback callback) {
+        load(cursor == null
+                ? RemoteDatabase.PageQuery.byChildAfter("username", null, null, size)
+                : RemoteDatabase.PageQuery.byChildAfter("username", cursor.value, cursor.key, size), callback);
+    }
+
+    @Override
+    public void loadBefore(Cursor cursor, int size, Callback callback) {
+        load(RemoteDatabase.PageQuery.byChildBefore("username", cursor.value, cursor.key, size), callback);
+    }
+
+    @Override
+    public Cursor cursorOf(StudentRow row) {
+        return new Cursor(row.username, row.uid);
+    }
+
+    private void load(RemoteDatabase.PageQuery query, Callback callback) {
+        database.page(path, query, new RemoteDatabase.PageListener() {
+            @Override
+            public void onPage(Map<String, Object> children) {
+                List<StudentRow> rows = new ArrayList<>(children.size());
+                for (Map.Entry<String, Object> child : children.entrySet()) {
+                    User user = UserMapper.fromValue(child.getValue());
+                    if (user != null) {
+                        rows.add(new StudentRow(child.getKey(), user.username, user.email, user.skill, user.photo));
+                    }
+                }
+                callback.onLoaded(rows);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                callback.onError(error);
+            }
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * Pages through users/ by uid for {@link UserMigration}, starting after the last uid of
+ * the previous page.
+ */
+public class RemoteUserSource implements UserMigration.Source {
+
+    private final RemoteDatabase database;
+
+    public RemoteUserSource(RemoteDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public void loadAfter(@Nullable String uid, int size, Callback callback) {
+        database.page("users", RemoteDatabase.PageQuery.byKeyAfter(uid, size), new RemoteDatabase.PageListener() {
+            @Override
+            public void onPage(Map<String, Object> children) {
+                callback.onLoaded(children);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                callback.onError(error);
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.attendo;
+
+/**
+ * Fixed-capacity set of 64-bit fingerprints; once full, the oldest one is forgotten.
+ *
+ * Linear-probing hash table over a primitive array plus a ring buffer recording insertion
+ * order, so checking and adding never allocates. 0 marks an empty slot, so a fingerprint
+ * of 0 is stored as 1.
+ */
+final class ReplayCache {
+
+    private final long[] table;
+    private final int mask;
+    private final long[] order;
+    private int next;
+    private int size;
+
+    // The table is the next power of two above twice the capacity, which must fit an int
+    static final int MAX_CAPACITY = 1 << 29;
+
+    ReplayCache(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        table = new long[tableSize];
+        mask = tableSize - 1;
+        order = new long[capacity];
+    }
+
+    /**
+     * @return false if the fingerprint was already present
+     */
+    boolean add(long fingerprint) {
+        long key = fingerprint == 0 ? 1 : fingerprint;
+        int slot = slotOf(key);
+        while (table[slot] != 0) {
+            if (table[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == order.length) {
+            remove(order[next]);
+            size--;
+            // Removal may have shifted entries, so look for a free slot again
+            slot = slotOf(key);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        table[slot] = key;
+        order[next] = key;
+        next = (next + 1) % order.length;
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void remove(long key) {
+        int slot = slotOf(key);
+        while (table[slot] != key) {
+            if (table[slot] == 0) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Backward-shift deletion keeps every probe chain unbroken without tombstones
+        int hole = slot;
+        int i = (hole + 1) & mask;
+        while (table[i] != 0) {
+            int home = slotOf(table[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private int slotOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
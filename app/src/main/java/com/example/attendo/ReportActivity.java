@@ -0,0 +1,139 @@
+package com.example.attendo;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+
+
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Export the semester's attendance as CSV or XLSX into a file the user picks.
+ */
+public class ReportActivity extends AppCompatActivity {
+
+    private static final int SESSION_PAGE = 100;
+    private static final int MARK_PAGE = 500;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private TextView status;
+    private ProgressBar progressBar;
+    private Button cancelButton;
+    private ReportExporter running;
+
+    private final ActivityResultLauncher<String> createCsv = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("text/csv"), uri -> export(uri, false));
+    private final ActivityResultLauncher<String> createXlsx = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+            uri -> export(uri, true));
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_report);
+
+        status = findViewById(R.id.report_status);
+        progressBar = findViewById(R.id.report_progress);
+        cancelButton = findViewById(R.id.report_cancel);
+
+        String name = "attendance-" + new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+        findViewById(R.id.report_csv).setOnClickListener(v -> createCsv.launch(name + ".csv"));
+        findViewById(R.id.report_xlsx).setOnClickListener(v -> createXlsx.launch(name + ".xlsx"));
+        cancelButton.setOnClickListener(v -> {
+            if (running != null) {
+                running.cancel();
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (running != null) {
+            running.cancel();
+        }
+        worker.shutdown();
+    }
+
+    private void export(Uri uri, boolean xlsx) {
+        if (uri == null || running != null) {
+            return;
+        }
+        ReportExporter exporter = new ReportExporter(
+                new RemoteReportSource(FirebaseRemoteDatabase.getInstance()),
+                SESSION_PAGE, MARK_PAGE);
+        running = exporter;
+        progressBar.setVisibility(View.VISIBLE);
+        cancelButton.setVisibility(View.VISIBLE);
+        status.setText("Exporting...");
+
+        worker.execute(() -> {
+            String result;
+            boolean keep = false;
+            try (ParcelFileDescriptor file = getContentResolver().openFileDescriptor(uri, "wt");
+                 FileOutputStream stream = new FileOutputStream(file.getFileDescriptor());
+                 FileChannel channel = stream.getChannel();
+                 ReportWriter writer = xlsx
+                         ? new XlsxReportWriter(channel, BUFFER_BYTES)
+                         : new CsvReportWriter(channel, BUFFER_BYTES)) {
+                long rows = exporter.export(writer, (rowCount, sessionsDone, totalSessions, bytes) ->
+                        onUiThread(() -> status.setText(String.format(Locale.US,
+                                "%,d rows from %,d sessions (%,d KB)", rowCount, sessionsDone, bytes / 1024))));
+                result = String.format(Locale.US, "Exported %,d rows", rows);
+                keep = true;
+            } catch (CancellationException e) {
+                result = "Export cancelled";
+            } catch (Exception e) {
+                result = "Export failed: " + e.getMessage();
+            }
+            if (!keep) {
+                try {
+                    // Don't leave a half-written report behind
+                    DocumentsContract.deleteDocument(getContentResolver(), uri);
+                } catch (Exception ignored) {
+                    // The provider may not support deleting; the partial file stays
+                }
+            }
+            String message = result;
+            onUiThread(() -> {
+                running = null;
+                progressBar.setVisibility(View.GONE);
+                cancelButton.setVisibility(View.GONE);
+                status.setText(message);
+            });
+        });
+    }
+
+    /**
+     * Run on the main thread unless the screen is gone by then: after onDestroy cancels
+     * it, an export still reports until it reaches the next page.
+     */
+    private void onUiThread(Runnable update) {
+        if (isDestroyed()) {
+            return;
+        }
+        runOnUiThread(() -> {
+            if (!isDestroyed()) {
+                update.run();
+            }
+        });
+    }
+}
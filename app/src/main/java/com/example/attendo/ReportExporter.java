@@ -0,0 +1,143 @@
+package com.example.attendo;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Semester attendance report: one row per mark, joined with the session and the student.
+ *
+ * Sessions and their marks are read page by page and each row goes straight to the
+ * {@link ReportWriter}, so memory depends on the page sizes and the roster, not on how
+ * many rows the report has. Only the roster's name and email are kept for the join.
+ * Dates and times are shown in the zone each session was held in.
+ */
+public class ReportExporter {
+
+    public static final String[] COLUMNS = {
+            "date", "class", "subject", "session", "student_uid", "student", "email", "status", "marked_at"
+    };
+
+    public interface Progress {
+        /**
+         * Called after every page of marks; totalSessions is -1 if unknown.
+         */
+        void onProgress(long rows, long sessionsDone, long totalSessions, long bytes);
+    }
+
+    private final ReportSource source;
+    private final int sessionPage;
+    private final int markPage;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    public ReportExporter(ReportSource source, int sessionPage, int markPage) {
+        this.source = source;
+        this.sessionPage = sessionPage;
+        this.markPage = markPage;
+    }
+
+    /**
+     * Stop at the next page boundary; {@link #export} then throws CancellationException.
+     * Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * @return number of rows written
+     */
+    public long export(ReportWriter writer, Progress progress) throws IOException, InterruptedException {
+        Map<String, String[]> roster = loadRoster();
+        long totalSessions = source.countSessions();
+
+        SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        SimpleDateFormat time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        String deviceZone = TimeZone.getDefault().getID();
+        String zone = null;
+        Date reusable = new Date();
+
+        String[] cells = new String[COLUMNS.length];
+        writer.header(COLUMNS);
+        long rows = 0;
+        long sessionsDone = 0;
+        String afterSession = null;
+        while (true) {
+            checkCancelled();
+            List<ReportSource.Session> sessions = source.sessions(afterSession, sessionPage);
+            for (ReportSource.Session session : sessions) {
+                String sessionZone = session.zone != null ? session.zone : deviceZone;
+                if (!sessionZone.equals(zone)) {
+                    // Sessions mostly share a zone, so this rarely runs
+                    zone = sessionZone;
+                    TimeZone timeZone = TimeZone.getTimeZone(zone);
+                    date.setTimeZone(timeZone);
+                    time.setTimeZone(timeZone);
+                }
+                reusable.setTime(session.startedAt);
+                String day = date.format(reusable);
+                String afterUid = null;
+                while (true) {
+                    checkCancelled();
+                    List<AttendanceRecord> marks = source.marks(session.sessionId, afterUid, markPage);
+                    for (AttendanceRecord mark : marks) {
+                        String[] student = roster.get(mark.studentUid);
+                        reusable.setTime(mark.marked_at);
+                        cells[0] = day;
+                        cells[1] = session.classId;
+                        cells[2] = session.subject;
+                        cells[3] = session.sessionId;
+                        cells[4] = mark.studentUid;
+                        cells[5] = student == null ? null : student[0];
+                        cells[6] = student == null ? null : student[1];
+                        cells[7] = mark.status;
+                        cells[8] = mark.marked_at > 0 ? time.format(reusable) : null;
+                        writer.row(cells);
+                        rows++;
+                    }
+                    progress.onProgress(rows, sessionsDone, totalSessions, writer.bytesWritten());
+                    if (marks.size() < markPage) {
+                        break;
+                    }
+                    afterUid = marks.get(marks.size() - 1).studentUid;
+                }
+                sessionsDone++;
+            }
+            if (sessions.size() < sessionPage) {
+                break;
+            }
+            afterSession = sessions.get(sessions.size() - 1).sessionId;
+        }
+        progress.onProgress(rows, sessionsDone, totalSessions, writer.bytesWritten());
+        return rows;
+    }
+
+    private Map<String, String[]> loadRoster() throws IOException, InterruptedException {
+        Map<String, String[]> roster = new HashMap<>();
+        String after = null;
+        while (true) {
+            checkCancelled();
+            List<StudentRow> page = source.students(after, markPage);
+            for (StudentRow student : page) {
+                roster.put(student.uid, new String[]{student.username, student.email});
+            }
+            if (page.size() < markPage) {
+                return roster;
+            }
+            after = page.get(page.size() - 1).uid;
+        }
+    }
+
+    private void checkCancelled() {
+        if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Export cancelled");
+        }
+    }
+}
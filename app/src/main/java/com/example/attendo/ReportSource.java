@@ -0,0 +1,48 @@
+package com.example.attendo;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Paged, blocking read access to what a report needs. Every call returns at most limit
+ * items after the given key (null for the first page), ordered by key, so an export
+ * never holds more than one page of each at a time. Called from a worker thread.
+ */
+public interface ReportSource {
+
+    final class Session {
+        public final String sessionId;
+        public final String classId;
+        public final String subject;
+        public final long startedAt;
+        /**
+         * Time zone id the session was held in; null for records from before zones were
+         * stored, which are shown in the device's zone.
+         */
+        public final String zone;
+
+        public Session(String sessionId, String classId, String subject, long startedAt) {
+            this(sessionId, classId, subject, startedAt, null);
+        }
+
+        public Session(String sessionId, String classId, String subject, long startedAt, String zone) {
+            this.sessionId = sessionId;
+            this.classId = classId;
+            this.subject = subject;
+            this.startedAt = startedAt;
+            this.zone = zone;
+        }
+    }
+
+    /**
+     * Number of sessions, for progress; -1 if unknown.
+     */
+    long countSessions() throws IOException, InterruptedException;
+
+    List<Session> sessions(String afterSessionId, int limit) throws IOException, InterruptedException;
+
+    List<AttendanceRecord> marks(String sessionId, String afterUid, int limit)
+            throws IOException, InterruptedException;
+
+    List<StudentRow> students(String afterUid, int limit) throws IOException, InterruptedException;
+}
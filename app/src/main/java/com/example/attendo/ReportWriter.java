@@ -0,0 +1,20 @@
+package com.example.attendo;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streaming sink for report rows. Rows are written as they arrive and nothing is kept
+ * after {@link #row} returns, so callers may reuse the cells array.
+ */
+public interface ReportWriter extends Closeable {
+
+    void header(String[] columns) throws IOException;
+
+    void row(String[] cells) throws IOException;
+
+    /**
+     * Total bytes produced so far, for progress reporting.
+     */
+    long bytesWritten();
+}
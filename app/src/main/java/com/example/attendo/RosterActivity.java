@@ -0,0 +1,92 @@
+package com.example.attendo;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+
+/**
+ * A roster, loaded a page at a time as the list scrolls: one class, one institution's
+ * members, or (for accounts not yet migrated into {@link Enrollments}) every user.
+ */
+public class RosterActivity extends AppCompatActivity {
+
+    private static final String EXTRA_INSTITUTION = "institution";
+    private static final String EXTRA_CLASS_ID = "class_id";
+
+    private static final int PAGE_SIZE = 30;
+    // About two screens of rows, so a fling rarely reaches an unloaded edge
+    private static final int PREFETCH_DISTANCE = 20;
+    private static final int MAX_ROWS = PAGE_SIZE * 6;
+
+    private RosterPager pager;
+
+    /**
+     * @param institution null for every user
+     * @param classId     null for the whole institution
+     */
+    public static Intent intent(Context context, @Nullable String institution, @Nullable String classId) {
+        return new Intent(context, RosterActivity.class)
+                .putExtra(EXTRA_INSTITUTION, institution)
+                .putExtra(EXTRA_CLASS_ID, classId);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_roster);
+
+        // Only the partition asked for is read, however many institutions there are
+        String institution = getIntent().getStringExtra(EXTRA_INSTITUTION);
+        String classId = getIntent().getStringExtra(EXTRA_CLASS_ID);
+        String path = institution == null ? "users"
+                : classId == null ? Enrollments.membersPath(institution)
+                : Enrollments.classStudentsPath(institution, classId);
+        pager = new RosterPager(
+                new RemoteRosterPagingSource(FirebaseRemoteDatabase.getInstance(), path),
+                PAGE_SIZE, PREFETCH_DISTANCE, MAX_ROWS);
+
+        RecyclerView list = findViewById(R.id.roster_list);
+        list.setLayoutManager(new LinearLayoutManager(this));
+        StudentAdapter adapter = new StudentAdapter(pager.getRows());
+        // Binding happens during layout; defer loads so we never notify mid-layout
+        adapter.setOnBindListener(position -> list.post(() -> pager.onRowBound(position)));
+        list.setAdapter(adapter);
+        list.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                // Lets the jank report tell scrolling frames from the rest
+                Monitoring.setState(RosterActivity.this, "roster",
+                        newState == RecyclerView.SCROLL_STATE_DRAGGING ? "dragging"
+                                : newState == RecyclerView.SCROLL_STATE_SETTLING ? "flinging" : null);
+            }
+        });
+
+        pager.setListener(new RosterPager.Listener() {
+            @Override
+            public void onInserted(int position, int count) {
+                adapter.notifyItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                adapter.notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                Toast.makeText(RosterActivity.this,
+                        "Failed to load roster: " + error.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+        pager.start();
+    }
+}
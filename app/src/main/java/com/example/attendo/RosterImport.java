@@ -0,0 +1,422 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Pattern;
+
+/**
+ * Creates student accounts in bulk from a CSV of name,email,skill rows.
+ *
+ * The file is read one row at a time and validated as it goes; duplicate emails are
+ * caught in the same pass. Accounts are created through {@link RemoteAuth} with at
+ * most {@link Config#concurrency} requests in flight, paced by a {@link TokenBucket}.
+ * Transient failures are retried with backoff. Each new student gets a random password
+ * and a reset email. Their users/<uid> profiles are written as multi-path updates of up
+ * to {@link Config#batchSize} students.
+ *
+ * Progress goes to an {@link ImportJournal}. Running again with the same journal skips
+ * finished rows and reuses accounts that were created but whose profile was not written
+ * yet. Rejected rows end up in the journal's failures, which become the error report.
+ *
+ * All state is touched only from tasks on the {@link Scheduler}, which must run them one
+ * at a time; auth and database callbacks are handed back to it.
+ */
+public class RosterImport {
+
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+
+        long nowMs();
+    }
+
+    public interface Listener {
+        void onProgress(Progress progress);
+
+        /**
+         * @param error null when every row was handled, {@link CancellationException}
+         *              when cancelled, otherwise why the import stopped; run it again
+         *              with the same journal to resume
+         */
+        void onFinished(Progress progress, @Nullable Exception error);
+    }
+
+    public static final class Config {
+        public int concurrency = 4;
+        // Firebase limits sign-ups per project and IP; raise only with a raised quota
+        public double ratePerSecond = 2;
+        public int burst = 10;
+        public int batchSize = 50;
+        public int maxAttempts = 5;
+        public long backoffMs = 1000;
+        // When set, every imported account also joins this institution's directory
+        public String institution;
+    }
+
+    public static final class Progress {
+        public int rows;
+        public int created;
+        public int written;
+        public int failed;
+        // Finished in an earlier run
+        public int skipped;
+        public int retries;
+
+        Progress copy() {
+            Progress copy = new Progress();
+            copy.rows = rows;
+            copy.created = created;
+            copy.written = written;
+            copy.failed = failed;
+            copy.skipped = skipped;
+            copy.retries = retries;
+            return copy;
+        }
+    }
+
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    private static final String PASSWORD_CHARS =
+            "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz23456789!#%+";
+
+    private static final class Row {
+        final int record;
+        final String name;
+        final String email;
+        final String skill;
+        String uid;
+        int attempts;
+
+        Row(int record, String name, String email, String skill) {
+            this.record = record;
+            this.name = name;
+            this.email = email;
+            this.skill = skill;
+        }
+    }
+
+    private final CsvReader csv;
+    private final RemoteAuth auth;
+    private final RemoteDatabase database;
+    private final ImportJournal journal;
+    private final Scheduler scheduler;
+    private final Config config;
+    private final Listener listener;
+    private final TokenBucket bucket;
+    private final SecureRandom random = new SecureRandom();
+
+    // Record of each email seen so far, for duplicates
+    private final Map<String, Integer> seen = new HashMap<>();
+    // Rows read but not finished; the smallest is how far the journal can move on
+    private final TreeSet<Integer> open = new TreeSet<>();
+    private final List<Row> batch = new ArrayList<>();
+    private final Progress progress = new Progress();
+    private int inFlight;
+    private boolean inputDone;
+    private boolean writing;
+    private boolean cancelled;
+    private boolean finished;
+    private int nextRecord = 1;
+
+    public RosterImport(CsvReader csv, RemoteAuth auth, RemoteDatabase database, ImportJournal journal,
+                        Scheduler scheduler, Config config, Listener listener) {
+        this.csv = csv;
+        this.auth = auth;
+        this.database = database;
+        this.journal = journal;
+        this.scheduler = scheduler;
+        this.config = config;
+        this.listener = listener;
+        this.bucket = new TokenBucket(config.ratePerSecond, config.burst);
+    }
+
+    /**
+     * The journal's failed rows as a CSV (or XLSX) of row, email and reason, in file order.
+     */
+    public static void writeErrorReport(ImportJournal journal, ReportWriter writer) throws IOException {
+        List<ImportJournal.Failure> failures = new ArrayList<>(journal.failures());
+        Collections.sort(failures, (a, b) -> Integer.compare(a.record, b.record));
+        writer.header(new String[]{"row", "email", "reason"});
+        for (ImportJournal.Failure failure : failures) {
+            writer.row(new String[]{String.valueOf(failure.record), failure.email, failure.reason});
+        }
+    }
+
+    public void start() {
+        scheduler.schedule(this::pump, 0);
+    }
+
+    /**
+     * Stop taking new rows. Requests in flight finish and their profiles are written, so
+     * the journal stays exact; then the listener hears a {@link CancellationException}.
+     */
+    public void cancel() {
+        scheduler.schedule(() -> {
+            cancelled = true;
+            pump();
+        }, 0);
+    }
+
+    private void pump() {
+        if (finished) {
+            return;
+        }
+        try {
+            while (!cancelled && !inputDone && inFlight < config.concurrency) {
+                Row row = readRow();
+                if (row == null) {
+                    continue;
+                }
+                if (row.uid != null) {
+                    // Created in an earlier run; only the profile is missing
+                    addToBatch(row);
+                    continue;
+                }
+                inFlight++;
+                register(row);
+            }
+        } catch (IOException | RuntimeException e) {
+            finish(e);
+            return;
+        }
+        if (batch.size() >= config.batchSize || (idle() && !batch.isEmpty())) {
+            flush();
+        }
+        if (idle() && batch.isEmpty() && !writing) {
+            finish(cancelled ? new CancellationException("Import cancelled") : null);
+        }
+    }
+
+    private boolean idle() {
+        return inFlight == 0 && (inputDone || cancelled);
+    }
+
+    /**
+     * The next row to create an account for, or null if the record needs no request
+     * (header, rejected, finished earlier). Sets inputDone at the end of the file.
+     */
+    @Nullable
+    private Row readRow() throws IOException {
+        String[] fields = csv.next();
+        if (fields == null) {
+            inputDone = true;
+            return null;
+        }
+        int record = csv.record();
+        nextRecord = record + 1;
+        if (record == 1 && fields[0].trim().equalsIgnoreCase("name")) {
+            return null;
+        }
+        progress.rows++;
+
+        String email = fields.length > 1 ? fields[1].trim().toLowerCase(Locale.ROOT) : "";
+        Integer first = email.isEmpty() ? null : seen.get(email);
+        if (first == null && !email.isEmpty()) {
+            seen.put(email, record);
+        }
+        // Seen above even when skipped, so duplicates of earlier runs' rows are caught
+        String createdUid = journal.createdUid(record);
+        if (record < journal.finishedBefore() || (createdUid == null && journal.hasFailed(record))) {
+            progress.skipped++;
+            return null;
+        }
+
+        String name = fields[0].trim();
+        // A created row was validated by the run that created it
+        String reason = createdUid != null ? null : validate(fields, name, email, first);
+        if (reason != null) {
+            fail(record, email, reason);
+            return null;
+        }
+
+        Row row = new Row(record, name, email, fields.length > 2 ? fields[2].trim() : "");
+        row.uid = createdUid;
+        open.add(record);
+        return row;
+    }
+
+    @Nullable
+    private static String validate(String[] fields, String name, String email, @Nullable Integer first) {
+        if (fields.length > 3) {
+            return "Expected name,email,skill";
+        }
+        if (name.isEmpty()) {
+            return "Missing name";
+        }
+        if (!EMAIL.matcher(email).matches()) {
+            return "Invalid email";
+        }
+        if (first != null) {
+            return "Duplicate of row " + first;
+        }
+        return null;
+    }
+
+    private void register(Row row) {
+        long wait = bucket.tryTake(scheduler.nowMs());
+        if (wait > 0) {
+            scheduler.schedule(() -> register(row), wait);
+            return;
+        }
+        row.attempts++;
+        auth.register(row.email, password(), (error, uid) -> scheduler.schedule(() -> {
+            if (error != null || uid == null) {
+                if (retry(row, error, () -> register(row))) {
+                    return;
+                }
+                inFlight--;
+                fail(row.record, row.email, reasonOf(error));
+                pump();
+                return;
+            }
+            row.uid = uid;
+            row.attempts = 0;
+            progress.created++;
+            journal.created(row.record, row.email, uid);
+            sendReset(row);
+        }, 0));
+    }
+
+    private void sendReset(Row row) {
+        long wait = bucket.tryTake(scheduler.nowMs());
+        if (wait > 0) {
+            scheduler.schedule(() -> sendReset(row), wait);
+            return;
+        }
+        row.attempts++;
+        auth.sendPasswordReset(row.email, (error, uid) -> scheduler.schedule(() -> {
+            if (error != null && retry(row, error, () -> sendReset(row))) {
+                return;
+            }
+            inFlight--;
+            if (error != null) {
+                // The account works; the student can still use "forgot password"
+                journal.failed(row.record, row.email, "Created, but no password email: " + reasonOf(error));
+                progress.failed++;
+            }
+            addToBatch(row);
+            pump();
+        }, 0));
+    }
+
+    private boolean retry(Row row, @Nullable Exception error, Runnable again) {
+        if (!RemoteAuth.AuthException.isTransient(error) || row.attempts >= config.maxAttempts) {
+            return false;
+        }
+        if (((RemoteAuth.AuthException) error).reason == RemoteAuth.AuthException.Reason.RATE_LIMITED) {
+            bucket.drain(scheduler.nowMs());
+        }
+        progress.retries++;
+        scheduler.schedule(again, backoff(row.attempts));
+        return true;
+    }
+
+    private void addToBatch(Row row) {
+        batch.add(row);
+        listener.onProgress(progress.copy());
+    }
+
+    private void flush() {
+        if (writing) {
+            return;
+        }
+        List<Row> rows = new ArrayList<>(batch.subList(0, Math.min(batch.size(), config.batchSize)));
+        batch.subList(0, rows.size()).clear();
+        Map<String, Object> updates = new HashMap<>();
+        for (Row row : rows) {
+            String prefix = "users/" + row.uid + "/";
+            User user = new User(row.name, row.email, row.skill, "Imported");
+            for (Map.Entry<String, Object> field : UserMapper.toMap(user).entrySet()) {
+                updates.put(prefix + field.getKey(), field.getValue());
+            }
+            updates.put(prefix + "updated_at", database.serverTimestamp());
+            updates.put(prefix + "version", 1L);
+            if (config.institution != null) {
+                updates.putAll(Enrollments.join(config.institution, row.uid, user));
+            }
+        }
+        writing = true;
+        write(rows, updates, 1);
+    }
+
+    private void write(List<Row> rows, Map<String, Object> updates, int attempt) {
+        database.updateChildren(updates, error -> scheduler.schedule(() -> {
+            if (error != null) {
+                if (attempt < config.maxAttempts) {
+                    progress.retries++;
+                    scheduler.schedule(() -> write(rows, updates, attempt + 1), backoff(attempt));
+                    return;
+                }
+                // Stop; the accounts are journaled and the next run writes them
+                writing = false;
+                finish(error);
+                return;
+            }
+            writing = false;
+            for (Row row : rows) {
+                open.remove(row.record);
+            }
+            progress.written += rows.size();
+            journal.finishedBefore(open.isEmpty() ? nextRecord : open.first());
+            listener.onProgress(progress.copy());
+            pump();
+        }, 0));
+    }
+
+    private void fail(int record, String email, String reason) {
+        journal.failed(record, email, reason);
+        open.remove(record);
+        progress.failed++;
+    }
+
+    private void finish(@Nullable Exception error) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (error == null || error instanceof CancellationException) {
+            try {
+                journal.finishedBefore(open.isEmpty() ? nextRecord : open.first());
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+        listener.onFinished(progress.copy(), error);
+    }
+
+    private long backoff(int attempt) {
+        long delay = config.backoffMs << Math.min(attempt - 1, 10);
+        // Jitter, so retries of a burst don't all land together
+        return delay + random.nextInt((int) Math.min(delay, Integer.MAX_VALUE) / 2 + 1);
+    }
+
+    private String password() {
+        StringBuilder password = new StringBuilder(20);
+        for (int i = 0; i < 20; i++) {
+            password.append(PASSWORD_CHARS.charAt(random.nextInt(PASSWORD_CHARS.length())));
+        }
+        return password.toString();
+    }
+
+    private static String reasonOf(@Nullable Exception error) {
+        if (error instanceof RemoteAuth.AuthException) {
+            switch (((RemoteAuth.AuthException) error).reason) {
+                case EMAIL_IN_USE:
+                    return "Account already exists";
+                case INVALID:
+                    return "Rejected: " + error.getMessage();
+                default:
+                    break;
+            }
+        }
+        return "Failed: " + (error == null ? "no user returned" : error.getMessage());
+    }
+}
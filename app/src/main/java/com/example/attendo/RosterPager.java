@@ -0,0 +1,185 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a sliding window of roster pages in memory, in the spirit of the Paging library.
+ *
+ * The list is filled by cursor-based queries: when a row within prefetchDistance of either
+ * end is bound, the next page on that side is requested. Once the window holds more than
+ * maxSize rows, whole pages are dropped from the far end and reloaded from their cursor if
+ * the user scrolls back, so memory and bandwidth follow what is on screen, not the size of
+ * the institution.
+ */
+public class RosterPager {
+
+    /**
+     * Mirrors RecyclerView.Adapter's range notifications.
+     */
+    public interface Listener {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onError(Exception error);
+    }
+
+    private final RosterPagingSource source;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxSize;
+
+    private final List<StudentRow> rows = new ArrayList<>();
+    private final List<Integer> pageSizes = new ArrayList<>();
+    private Listener listener;
+
+    private boolean loadingAfter;
+    private boolean loadingBefore;
+    private boolean reachedEnd;
+    private boolean reachedStart = true;
+
+    /**
+     * @param prefetchDistance how many rows from an edge a bind triggers the next load;
+     *                         around two screens keeps fast flings from hitting the end
+     * @param maxSize          rows kept in memory before pages are dropped; at least
+     *                         three pages so the window never thrashes
+     */
+    public RosterPager(RosterPagingSource source, int pageSize, int prefetchDistance, int maxSize) {
+        if (maxSize < pageSize * 3) {
+            throw new IllegalArgumentException("maxSize must hold at least three pages");
+        }
+        this.source = source;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.maxSize = maxSize;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * The rows currently in memory; hand this list to the adapter.
+     */
+    public List<StudentRow> getRows() {
+        return rows;
+    }
+
+    public boolean hasReachedEnd() {
+        return reachedEnd;
+    }
+
+    /**
+     * Load the first page.
+     */
+    public void start() {
+        if (rows.isEmpty() && !loadingAfter) {
+            loadAfter();
+        }
+    }
+
+    /**
+     * Call whenever a row is bound; loads ahead in whichever direction is running out.
+     */
+    public void onRowBound(int position) {
+        if (!reachedEnd && !loadingAfter && position >= rows.size() - 1 - prefetchDistance) {
+            loadAfter();
+        }
+        if (!reachedStart && !loadingBefore && position <= prefetchDistance) {
+            loadBefore();
+        }
+    }
+
+    private void loadAfter() {
+        loadingAfter = true;
+        RosterPagingSource.Cursor cursor = rows.isEmpty() ? null : source.cursorOf(rows.get(rows.size() - 1));
+        source.loadAfter(cursor, pageSize, new RosterPagingSource.Callback() {
+            @Override
+            public void onLoaded(List<StudentRow> page) {
+                loadingAfter = false;
+                if (page.size() < pageSize) {
+                    reachedEnd = true;
+                }
+                if (page.isEmpty()) {
+                    return;
+                }
+                int position = rows.size();
+                rows.addAll(page);
+                pageSizes.add(page.size());
+                notifyInserted(position, page.size());
+                trimFront();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                loadingAfter = false;
+                notifyError(error);
+            }
+        });
+    }
+
+    private void loadBefore() {
+        loadingBefore = true;
+        RosterPagingSource.Cursor cursor = source.cursorOf(rows.get(0));
+        source.loadBefore(cursor, pageSize, new RosterPagingSource.Callback() {
+            @Override
+            public void onLoaded(List<StudentRow> page) {
+                loadingBefore = false;
+                if (page.size() < pageSize) {
+                    reachedStart = true;
+                }
+                if (page.isEmpty()) {
+                    return;
+                }
+                rows.addAll(0, page);
+                pageSizes.add(0, page.size());
+                notifyInserted(0, page.size());
+                trimBack();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                loadingBefore = false;
+                notifyError(error);
+            }
+        });
+    }
+
+    private void trimFront() {
+        while (rows.size() > maxSize && pageSizes.size() > 1) {
+            int count = pageSizes.remove(0);
+            rows.subList(0, count).clear();
+            reachedStart = false;
+            notifyRemoved(0, count);
+        }
+    }
+
+    private void trimBack() {
+        while (rows.size() > maxSize && pageSizes.size() > 1) {
+            int count = pageSizes.remove(pageSizes.size() - 1);
+            int position = rows.size() - count;
+            rows.subList(position, rows.size()).clear();
+            reachedEnd = false;
+            notifyRemoved(position, count);
+        }
+    }
+
+    private void notifyInserted(int position, int count) {
+        if (listener != null) {
+            listener.onInserted(position, count);
+        }
+    }
+
+    private void notifyRemoved(int position, int count) {
+        if (listener != null) {
+            listener.onRemoved(position, count);
+        }
+    }
+
+    private void notifyError(Exception error) {
+        if (listener != null) {
+            listener.onError(error);
+        }
+    }
+}
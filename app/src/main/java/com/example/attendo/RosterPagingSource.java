@@ -0,0 +1,43 @@
+package com.example.attendo;
+
+import java.util.List;
+
+/**
+ * Loads the roster a page at a time, relative to a cursor. Pages come back in roster order.
+ */
+public interface RosterPagingSource {
+
+    /**
+     * Position in the roster: the sort value of a row plus its key as tie-breaker.
+     */
+    final class Cursor {
+        public final String value;
+        public final String key;
+
+        public Cursor(String value, String key) {
+            this.value = value;
+            this.key = key;
+        }
+    }
+
+    interface Callback {
+        void onLoaded(List<StudentRow> rows);
+
+        void onError(Exception error);
+    }
+
+    /**
+     * Up to size rows after cursor (from the start if cursor is null).
+     */
+    void loadAfter(Cursor cursor, int size, Callback callback);
+
+    /**
+     * Up to size rows before cursor, still in roster order.
+     */
+    void loadBefore(Cursor cursor, int size, Callback callback);
+
+    /**
+     * The cursor that points at row.
+     */
+    Cursor cursorOf(StudentRow row);
+}
@@ -0,0 +1,134 @@
+package com.example.attendo;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.EditText;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Search students by name, email or skill as you type.
+ *
+ * The roster is kept in a {@link StudentSearchIndex} fed by child events, so each change
+ * costs one student, and lookups run after a short pause in typing. Only the user's
+ * institution is listened to, from the directory cards in members/<institution>.
+ */
+public class SearchActivity extends AppCompatActivity {
+
+    private static final String EXTRA_INSTITUTION = "institution";
+
+    private static final long DEBOUNCE_MS = 150;
+    private static final int MAX_RESULTS = 50;
+
+    private final StudentSearchIndex index = new StudentSearchIndex();
+    private final List<StudentSearchIndex.Entry> results = new ArrayList<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable runSearch = this::runSearch;
+
+    private RemoteDatabase database;
+    private String rosterPath;
+    private RemoteDatabase.Registration registration;
+    private EditText query;
+    private StudentAdapter adapter;
+
+    private final RemoteDatabase.ChildListener rosterListener = new RemoteDatabase.ChildListener() {
+        @Override
+        public void onChild(String key, @Nullable Object value) {
+            index(key, value);
+        }
+
+        @Override
+        public void onChildRemoved(String key) {
+            index.remove(key);
+            scheduleSearch();
+        }
+
+        @Override
+        public void onError(Exception error) {
+        }
+    };
+
+    /**
+     * @param institution null for every user, before the directory migration reached them
+     */
+    public static Intent intent(Context context, @Nullable String institution) {
+        return new Intent(context, SearchActivity.class).putExtra(EXTRA_INSTITUTION, institution);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        database = FirebaseRemoteDatabase.getInstance();
+        String institution = getIntent().getStringExtra(EXTRA_INSTITUTION);
+        rosterPath = institution == null ? "users" : Enrollments.membersPath(institution);
+
+        query = findViewById(R.id.search_query);
+        RecyclerView list = findViewById(R.id.search_results);
+        list.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new StudentAdapter(results);
+        list.setAdapter(adapter);
+
+        query.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                scheduleSearch();
+            }
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Listening replays the whole roster, so start from an empty index
+        index.clear();
+        registration = database.listenChildren(rosterPath, rosterListener);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        registration.remove();
+        registration = null;
+        handler.removeCallbacks(runSearch);
+    }
+
+    private void index(String uid, @Nullable Object value) {
+        User user = UserMapper.fromValue(value);
+        if (user != null) {
+            index.put(uid, user.username, user.email, user.skill);
+            scheduleSearch();
+        }
+    }
+
+    private void scheduleSearch() {
+        handler.removeCallbacks(runSearch);
+        handler.postDelayed(runSearch, DEBOUNCE_MS);
+    }
+
+    private void runSearch() {
+        results.clear();
+        index.search(query.getText(), MAX_RESULTS, results);
+        adapter.notifyDataSetChanged();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.attendo;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.attendo.ui.session.SessionActions;
+import com.example.attendo.ui.session.SessionScreen;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Attendance of one timetabled session: who is marked and how many are present right
+ * now. Opened from the dashboard when a session is in progress. Finishing the session
+ * records it from the roster and the check-ins; tapping a mark corrects it.
+ */
+public class SessionActivity extends AppCompatActivity implements SessionActions {
+
+    private static final String EXTRA_SESSION_ID = "session_id";
+    private static final String EXTRA_CLASS_ID = "class_id";
+    private static final String EXTRA_SUBJECT = "subject";
+    private static final String EXTRA_START = "start";
+    private static final String EXTRA_END = "end";
+    private static final String EXTRA_ORDINAL = "ordinal";
+    private static final String EXTRA_INSTITUTION = "institution";
+    // Share of the subject's sessions below which a student is flagged
+    private static final double MIN_ATTENDANCE = 0.75;
+
+    private AttendanceRepository repository;
+    private AttendanceSession session;
+    private String institution;
+    private boolean finished;
+    // The session as its record describes it, once there is one; corrections go through it
+    private AttendanceSession recorded;
+    private RemoteDatabase.Registration recordListener;
+    private final MutableLiveData<String> standing = new MutableLiveData<>();
+
+    /**
+     * @param ordinal     position of the occurrence within its subject, or -1
+     * @param institution the teacher's institution, or null before the directory migration
+     */
+    public static Intent intent(Context context, TimetableIndex.Occurrence occurrence, int ordinal,
+                                String institution) {
+        return new Intent(context, SessionActivity.class)
+                .putExtra(EXTRA_SESSION_ID, occurrence.sessionId())
+                .putExtra(EXTRA_CLASS_ID, occurrence.classId)
+                .putExtra(EXTRA_SUBJECT, occurrence.subject)
+                .putExtra(EXTRA_START, occurrence.start)
+                .putExtra(EXTRA_END, occurrence.end)
+                .putExtra(EXTRA_ORDINAL, ordinal)
+                .putExtra(EXTRA_INSTITUTION, institution);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        Intent intent = getIntent();
+        String sessionId = intent.getStringExtra(EXTRA_SESSION_ID);
+        if (sessionId == null) {
+            finish();
+            return;
+        }
+        DateFormat time = DateFormat.getTimeInstance(DateFormat.SHORT);
+        String subtitle = intent.getStringExtra(EXTRA_CLASS_ID) + ", "
+                + time.format(new Date(intent.getLongExtra(EXTRA_START, 0))) + " - "
+                + time.format(new Date(intent.getLongExtra(EXTRA_END, 0)));
+
+        String institution = intent.getStringExtra(EXTRA_INSTITUTION);
+        this.institution = institution != null ? institution : Enrollments.DEFAULT_INSTITUTION;
+        session = new AttendanceSession(sessionId, intent.getStringExtra(EXTRA_CLASS_ID),
+                intent.getStringExtra(EXTRA_SUBJECT), intent.getLongExtra(EXTRA_START, 0))
+                .withOrdinal(intent.getIntExtra(EXTRA_ORDINAL, -1));
+        repository = AttendanceRepository.getInstance(this);
+
+        SessionScreen.install(this, String.valueOf(intent.getStringExtra(EXTRA_SUBJECT)), subtitle,
+                repository.observeSheet(sessionId),
+                new PresenceLiveData(FirebaseRemoteDatabase.getInstance(), sessionId), standing, this);
+        loadStanding();
+        recordListener = FirebaseRemoteDatabase.getInstance().listen("sessions/" + sessionId,
+                new RemoteDatabase.ValueListener() {
+                    @Override
+                    public void onValue(Object value) {
+                        recorded = AttendanceSession.fromRecord(sessionId, value);
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        // Corrections wait until the record is readable
+                    }
+                });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (recordListener != null) {
+            recordListener.remove();
+        }
+    }
+
+    private void loadStanding() {
+        ClassStanding.load(FirebaseRemoteDatabase.getInstance(), session.classId, session.subject,
+                MIN_ATTENDANCE, new ClassStanding.Callback() {
+                    @Override
+                    public void onLoaded(List<String> below, int sessions) {
+                        if (sessions > 0) {
+                            standing.postValue(below.size() + " below "
+                                    + Math.round(MIN_ATTENDANCE * 100) + "% over " + sessions + " sessions");
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        // Leave the line out
+                    }
+                });
+    }
+
+    @Override
+    public void onFinish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        repository.recordSession(institution, session, new SessionRecorder.Listener() {
+            @Override
+            public void onRecorded(AttendanceSession recorded) {
+                Toast.makeText(SessionActivity.this, "Session recorded", Toast.LENGTH_SHORT).show();
+                loadStanding();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                finished = false;
+                Toast.makeText(SessionActivity.this, "Could not record session: " + error.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    @Override
+    public void onCorrect(String studentUid, String status) {
+        if (recorded == null) {
+            Toast.makeText(this, "Finish the session before correcting marks", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // The record's zone, not this device's, decides the timeline buckets
+        repository.correct(recorded, studentUid, status, next(status));
+    }
+
+    /**
+     * Present, late, absent, and round again.
+     */
+    private static String next(String status) {
+        if (AttendanceSession.PRESENT.equals(status)) {
+            return AttendanceSession.LATE;
+        }
+        if (AttendanceSession.LATE.equals(status)) {
+            return AttendanceSession.ABSENT;
+        }
+        return AttendanceSession.PRESENT;
+    }
+}
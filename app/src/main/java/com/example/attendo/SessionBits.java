@@ -0,0 +1,85 @@
+package com.example.attendo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One session's attendance as two bitsets over the class roster: who attended
+ * (present or late) and who was late. Absent is everything not attended.
+ *
+ * Stored at sessions/<sessionId>/bits as {size, attended, late}, each bitset encoded
+ * with {@link AttendanceBitsetCodec}, instead of a child node per student.
+ */
+public final class SessionBits {
+
+    public final AttendanceBitset attended;
+    public final AttendanceBitset late;
+
+    public SessionBits(AttendanceBitset attended, AttendanceBitset late) {
+        if (attended.size() != late.size()) {
+            throw new IllegalArgumentException("attended and late must cover the same roster");
+        }
+        this.attended = attended;
+        this.late = late;
+    }
+
+    /**
+     * Bits for a session, indexed by position in roster. Students missing from the
+     * session count as absent; marks for students not on the roster are ignored.
+     */
+    public static SessionBits from(AttendanceSession session, List<String> roster) {
+        AttendanceBitset attended = new AttendanceBitset(roster.size());
+        AttendanceBitset late = new AttendanceBitset(roster.size());
+        for (int i = 0; i < roster.size(); i++) {
+            String status = session.marks.get(roster.get(i));
+            if (AttendanceSession.isAttended(status)) {
+                attended.set(i);
+            }
+            if (AttendanceSession.LATE.equals(status)) {
+                late.set(i);
+            }
+        }
+        return new SessionBits(attended, late);
+    }
+
+    public AttendanceBitset present() {
+        return attended.andNot(late);
+    }
+
+    public AttendanceBitset absent() {
+        return attended.complement();
+    }
+
+    public String statusOf(int rosterIndex) {
+        if (late.get(rosterIndex)) {
+            return AttendanceSession.LATE;
+        }
+        return attended.get(rosterIndex) ? AttendanceSession.PRESENT : AttendanceSession.ABSENT;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>(4);
+        map.put("size", attended.size());
+        map.put("attended", AttendanceBitsetCodec.toText(attended));
+        map.put("late", AttendanceBitsetCodec.toText(late));
+        return map;
+    }
+
+    /**
+     * Parse snapshot.getValue() of a bits node, or null if it is missing.
+     */
+    public static SessionBits fromValue(Object value) {
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) value;
+        Object attended = map.get("attended");
+        Object late = map.get("late");
+        if (attended == null || late == null) {
+            return null;
+        }
+        return new SessionBits(AttendanceBitsetCodec.fromText(attended.toString()),
+                AttendanceBitsetCodec.fromText(late.toString()));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records a finished session: everyone who checked in at checkins/<sessionId> is
+ * present, the rest of the class roster at class_students/<inst>/<classId> absent.
+ *
+ * Before the session is built, every student the aggregator does not track yet is
+ * seeded from users/<uid>/summary, so the summary updates carry streaks that continue
+ * the stored history instead of starting over. A session that already has a record at
+ * sessions/<sessionId> is left alone; change its marks with a correction instead.
+ */
+public class SessionRecorder {
+
+    /**
+     * Where a built session goes, e.g. {@link AttendanceRepository#markSession}.
+     */
+    public interface Sink {
+        void record(AttendanceSession session);
+    }
+
+    public interface Listener {
+        void onRecorded(AttendanceSession session);
+
+        void onError(Exception error);
+    }
+
+    private final RemoteDatabase database;
+    private final AttendanceAggregator aggregator;
+    private final Sink sink;
+
+    public SessionRecorder(RemoteDatabase database, AttendanceAggregator aggregator, Sink sink) {
+        this.database = database;
+        this.aggregator = aggregator;
+        this.sink = sink;
+    }
+
+    /**
+     * @param session the session to fill; its marks are replaced
+     */
+    public void record(String institution, AttendanceSession session, Listener listener) {
+        read("sessions/" + session.sessionId, listener, existing -> {
+            if (existing != null) {
+                listener.onError(new IllegalStateException("Session already recorded"));
+                return;
+            }
+            read(Enrollments.classStudentsPath(institution, session.classId), listener, students ->
+                    read("checkins/" + session.sessionId, listener, checkIns -> {
+                        List<String> roster = keys(students);
+                        // The bits of the session are indexed by it, see ClassStanding
+                        session.withRoster(roster);
+                        session.marks.clear();
+                        for (String uid : roster) {
+                            session.mark(uid, AttendanceSession.ABSENT);
+                        }
+                        // Checked in, whether or not the roster has caught up with them
+                        for (String uid : keys(checkIns)) {
+                            session.mark(uid, AttendanceSession.PRESENT);
+                        }
+                        seed(new ArrayList<>(session.marks.keySet()), listener, () -> {
+                            sink.record(session);
+                            listener.onRecorded(session);
+                        });
+                    }));
+        });
+    }
+
+    /**
+     * Seed every untracked student, then run done.
+     */
+    private void seed(List<String> uids, Listener listener, Runnable done) {
+        List<String> untracked = new ArrayList<>();
+        for (String uid : uids) {
+            if (!aggregator.isTracked(uid)) {
+                untracked.add(uid);
+            }
+        }
+        if (untracked.isEmpty()) {
+            done.run();
+            return;
+        }
+        int[] remaining = {untracked.size()};
+        boolean[] failed = new boolean[1];
+        for (String uid : untracked) {
+            UserMigration.readOnce(database, "users/" + uid + "/summary", new RemoteDatabase.ValueListener() {
+                @Override
+                public void onValue(@Nullable Object value) {
+                    if (failed[0]) {
+                        return;
+                    }
+                    if (!aggregator.isTracked(uid)) {
+                        aggregator.seed(uid, value);
+                    }
+                    if (--remaining[0] == 0) {
+                        done.run();
+                    }
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    if (!failed[0]) {
+                        failed[0] = true;
+                        listener.onError(error);
+                    }
+                }
+            });
+        }
+    }
+
+    private interface Next {
+        void run(@Nullable Object value);
+    }
+
+    private void read(String path, Listener listener, Next next) {
+        UserMigration.readOnce(database, path, new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                next.run(value);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                listener.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Child keys of a node, sorted.
+     */
+    private static List<String> keys(@Nullable Object value) {
+        if (!(value instanceof Map)) {
+            return Collections.emptyList();
+        }
+        List<String> keys = new ArrayList<>();
+        for (Object key : ((Map<?, ?>) value).keySet()) {
+            keys.add(String.valueOf(key));
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+}
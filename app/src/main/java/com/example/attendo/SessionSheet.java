@@ -0,0 +1,133 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Live attendance sheet of one session: the marks on the server under
+ * attendance/<sessionId>, with this device's unsynced marks laid over them.
+ *
+ * Server marks arrive one child at a time; only that child is parsed and merged, so a
+ * student checking in costs the same in a class of 20 or 2,000. Local marks come from
+ * the outbox's pending set and win over the server until they are synced. The rows are
+ * in student uid order, which is Firebase's key order for uids.
+ */
+public class SessionSheet {
+
+    /**
+     * One line of the sheet.
+     */
+    public static final class Row {
+        public final String studentUid;
+        public final String status;
+        public final boolean pending;
+
+        Row(String studentUid, String status, boolean pending) {
+            this.studentUid = studentUid;
+            this.status = status;
+            this.pending = pending;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Row)) {
+                return false;
+            }
+            Row row = (Row) other;
+            return pending == row.pending && studentUid.equals(row.studentUid)
+                    && Objects.equals(status, row.status);
+        }
+
+        @Override
+        public int hashCode() {
+            return studentUid.hashCode();
+        }
+    }
+
+    private final String sessionId;
+    private final ChildList<Row> rows = new ChildList<>();
+    private final Map<String, String> server = new HashMap<>();
+    // Unsynced status per student; null status is a local retraction
+    private Map<String, String> pending = new HashMap<>();
+
+    public SessionSheet(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public ChildList<Row> rows() {
+        return rows;
+    }
+
+    /**
+     * onChildAdded and onChildChanged of attendance/<sessionId>.
+     */
+    public void onServerMark(String studentUid, @Nullable Object value) {
+        AttendanceRecord record = AttendanceRecordMapper.fromValue(sessionId, studentUid, value);
+        if (record == null || record.status == null) {
+            onServerRemoved(studentUid);
+            return;
+        }
+        server.put(studentUid, record.status);
+        apply(studentUid);
+    }
+
+    /**
+     * onChildRemoved of attendance/<sessionId>.
+     */
+    public void onServerRemoved(String studentUid) {
+        if (server.remove(studentUid) != null) {
+            apply(studentUid);
+        }
+    }
+
+    /**
+     * Forget the server's marks before the listener is attached again and replays them.
+     */
+    public void clearServer() {
+        server.clear();
+        rows.clear();
+        for (String studentUid : pending.keySet()) {
+            apply(studentUid);
+        }
+    }
+
+    /**
+     * The device's current unsynced marks for this session, student uid to status. Only
+     * students entering or leaving the set are touched.
+     */
+    public void onPending(Map<String, String> current) {
+        Set<String> touched = new HashSet<>(pending.keySet());
+        touched.addAll(current.keySet());
+        pending = new HashMap<>(current);
+        for (String studentUid : touched) {
+            apply(studentUid);
+        }
+    }
+
+    private void apply(String studentUid) {
+        Row wanted;
+        if (pending.containsKey(studentUid)) {
+            String status = pending.get(studentUid);
+            wanted = status == null ? null : new Row(studentUid, status, true);
+        } else {
+            String status = server.get(studentUid);
+            wanted = status == null ? null : new Row(studentUid, status, false);
+        }
+
+        Row shown = rows.valueOf(studentUid);
+        if (wanted == null) {
+            if (shown != null) {
+                rows.remove(studentUid);
+            }
+        } else if (shown == null) {
+            rows.addSorted(studentUid, wanted);
+        } else if (!shown.equals(wanted)) {
+            rows.set(studentUid, wanted);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link SessionSheet} kept up to date while observed, publishing the
+ * {@link ChangeSet} of every delta. Observers read the rows from {@link #sheet()} and
+ * apply the change set to their list. Changes are published as they happen, so an
+ * adapter is never asked to lay out rows it has not been notified about; Compose folds
+ * a burst (the first load, a wave of check-ins) into one frame by itself.
+ */
+public class SessionSheetLiveData extends MediatorLiveData<ChangeSet> {
+
+    private final SessionSheet sheet;
+    private final RemoteDatabase database;
+    private final String sessionPath;
+    private RemoteDatabase.Registration registration;
+
+    private final RemoteDatabase.ChildListener listener = new RemoteDatabase.ChildListener() {
+        @Override
+        public void onChild(String key, @Nullable Object value) {
+            sheet.onServerMark(key, value);
+            publish();
+        }
+
+        @Override
+        public void onChildRemoved(String key) {
+            sheet.onServerRemoved(key);
+            publish();
+        }
+
+        @Override
+        public void onError(Exception error) {
+            // Keep showing what we have; local marks still update
+        }
+    };
+
+    SessionSheetLiveData(String sessionId, RemoteDatabase database, String sessionPath,
+                         LiveData<List<AttendanceMarkEntity>> pending) {
+        this.sheet = new SessionSheet(sessionId);
+        this.database = database;
+        this.sessionPath = sessionPath;
+        addSource(pending, marks -> {
+            Map<String, String> byStudent = new HashMap<>();
+            if (marks != null) {
+                for (AttendanceMarkEntity mark : marks) {
+                    byStudent.put(mark.studentUid, mark.status);
+                }
+            }
+            sheet.onPending(byStudent);
+            publish();
+        });
+    }
+
+    public SessionSheet sheet() {
+        return sheet;
+    }
+
+    @Override
+    protected void onActive() {
+        super.onActive();
+        registration = database.listenChildren(sessionPath, listener);
+    }
+
+    @Override
+    protected void onInactive() {
+        super.onInactive();
+        registration.remove();
+        registration = null;
+        // Listening again replays every child
+        sheet.clearServer();
+        publish();
+    }
+
+    private void publish() {
+        ChangeSet changes = sheet.rows().drainChanges();
+        if (!changes.isEmpty()) {
+            setValue(changes);
+        }
+    }
+}
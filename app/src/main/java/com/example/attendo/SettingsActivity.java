@@ -1,16 +1,88 @@
 package com.example.attendo;
 
+import android.content.Intent;
 import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.util.List;
+import java.util.Locale;
+
 public class SettingsActivity extends AppCompatActivity {
 
+    private TextView table;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
         setContentView(R.layout.activity_settings);
 
+        table = findViewById(R.id.diagnostics_table);
+        findViewById(R.id.diagnostics_export).setOnClickListener(v -> exportDiagnostics());
+        findViewById(R.id.diagnostics_reset).setOnClickListener(v -> {
+            Metrics.get().reset();
+            showDiagnostics();
+        });
+
+        if (BuildConfig.MONITORING) {
+            findViewById(R.id.monitoring_section).setVisibility(View.VISIBLE);
+            findViewById(R.id.monitoring_share).setOnClickListener(v -> shareMonitoringReport());
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showDiagnostics();
+        if (BuildConfig.MONITORING) {
+            TextView summary = findViewById(R.id.monitoring_summary);
+            summary.setText("Frames, StrictMode violations and main-thread stalls since start. "
+                    + Monitoring.report().stallCount() + " stalls so far.");
+        }
+    }
+
+    /**
+     * Per-operation p50/p95/p99 latency, errors and payload size.
+     */
+    private void showDiagnostics() {
+        List<Metrics.Stats> operations = Metrics.get().snapshot();
+        if (operations.isEmpty()) {
+            table.setText("No backend calls recorded yet.");
+            return;
+        }
+        StringBuilder text = new StringBuilder(String.format(Locale.US,
+                "%-20s %6s %5s %8s %8s %8s %8s\n",
+                "operation", "calls", "err", "p50", "p95", "p99", "bytes"));
+        for (Metrics.Stats stats : operations) {
+            Histogram latency = stats.latencyMicros;
+            text.append(String.format(Locale.US, "%-20s %6d %5d %8s %8s %8s %8d\n",
+                    stats.operation,
+                    latency.count(),
+                    stats.errors(),
+                    Metrics.millis(latency.percentile(50)),
+                    Metrics.millis(latency.percentile(95)),
+                    Metrics.millis(latency.percentile(99)),
+                    stats.payloadBytes.percentile(50)));
+        }
+        table.setText(text);
+    }
+
+    private void shareMonitoringReport() {
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType("text/plain");
+        send.putExtra(Intent.EXTRA_SUBJECT, "Attendo jank report");
+        send.putExtra(Intent.EXTRA_TEXT, Monitoring.report().toText(System.currentTimeMillis()));
+        startActivity(Intent.createChooser(send, "Share jank report"));
+    }
+
+    private void exportDiagnostics() {
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType("text/csv");
+        send.putExtra(Intent.EXTRA_SUBJECT, "Attendo diagnostics");
+        send.putExtra(Intent.EXTRA_TEXT, Metrics.get().toCsv());
+        startActivity(Intent.createChooser(send, "Export diagnostics"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package com.example.attendo;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Turns raw snapshots into finished UI state off the main thread.
+ *
+ * {@link #submit} hands over a snapshot and returns at once; the transform (parsing,
+ * sorting, formatting) runs on the background executor and only its result is posted
+ * to the delivery executor, normally the main thread. Snapshots are conflated: while a
+ * transform runs, newer submissions replace each other and only the latest is processed
+ * next, and a result already overtaken by a newer snapshot is never delivered. Transforms
+ * of one pipeline never overlap, so they may keep state between runs.
+ *
+ * {@link #cancel} (when the screen or LiveData goes away) drops the waiting snapshot and
+ * any result still in flight; the pipeline can be used again afterwards.
+ */
+public final class SnapshotPipeline<I, R> {
+
+    public interface Transform<I, R> {
+        /**
+         * Runs on the background executor. The result should be immutable.
+         */
+        R apply(I input) throws Exception;
+    }
+
+    public interface Sink<R> {
+        void onResult(R result);
+
+        void onError(Exception error);
+    }
+
+    private final Executor background;
+    private final Executor delivery;
+    private final Transform<I, R> transform;
+    private final Sink<R> sink;
+
+    private final Object lock = new Object();
+    private I pending;
+    private boolean hasPending;
+    private boolean running;
+    // Bumped by cancel(); results of an older generation are dropped
+    private volatile int generation;
+
+    public SnapshotPipeline(Executor background, Executor delivery, Transform<I, R> transform, Sink<R> sink) {
+        this.background = background;
+        this.delivery = delivery;
+        this.transform = transform;
+        this.sink = sink;
+    }
+
+    /**
+     * Pipeline on {@link AppExecutors#compute()} delivering on the main thread.
+     */
+    public static <I, R> SnapshotPipeline<I, R> onMainThread(Transform<I, R> transform, Sink<R> sink) {
+        return new SnapshotPipeline<>(AppExecutors.compute(), AppExecutors.mainThread(), transform, sink);
+    }
+
+    public void submit(I input) {
+        synchronized (lock) {
+            pending = input;
+            hasPending = true;
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        background.execute(this::drain);
+    }
+
+    public void cancel() {
+        synchronized (lock) {
+            generation++;
+            pending = null;
+            hasPending = false;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            I input;
+            int runGeneration;
+            synchronized (lock) {
+                if (!hasPending) {
+                    running = false;
+                    return;
+                }
+                input = pending;
+                pending = null;
+                hasPending = false;
+                runGeneration = generation;
+            }
+
+            R result = null;
+            Exception error = null;
+            try {
+                result = transform.apply(input);
+            } catch (Exception e) {
+                error = e;
+            }
+
+            synchronized (lock) {
+                if (hasPending || runGeneration != generation) {
+                    // Overtaken or cancelled while running
+                    continue;
+                }
+            }
+            R finished = result;
+            Exception failed = error;
+            delivery.execute(() -> {
+                if (runGeneration != generation) {
+                    return;
+                }
+                if (failed != null) {
+                    sink.onError(failed);
+                } else {
+                    sink.onResult(finished);
+                }
+            });
+        }
+    }
+}
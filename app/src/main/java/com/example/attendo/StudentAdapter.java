@@ -0,0 +1,82 @@
+package com.example.attendo;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * Two-line student rows with an avatar: name, then email and skill.
+ */
+public class StudentAdapter extends RecyclerView.Adapter<StudentAdapter.Holder> {
+
+    /**
+     * Told which row is being bound, e.g. so a pager can prefetch ahead of it.
+     */
+    public interface OnBindListener {
+        void onBind(int position);
+    }
+
+    private final List<? extends StudentRow> students;
+    private OnBindListener onBindListener;
+
+    public StudentAdapter(List<? extends StudentRow> students) {
+        this.students = students;
+    }
+
+    public void setOnBindListener(OnBindListener onBindListener) {
+        this.onBindListener = onBindListener;
+    }
+
+    @NonNull
+    @Override
+    public Holder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_student, parent, false);
+        return new Holder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Holder holder, int position) {
+        StudentRow student = students.get(position);
+        Photos.getInstance(holder.itemView.getContext())
+                .show(holder.avatar, student.uid, student.photo, true, R.drawable.profile);
+        holder.name.setText(student.username);
+        holder.details.setText(student.skill == null || student.skill.isEmpty()
+                ? student.email
+                : student.email + " · " + student.skill);
+        if (onBindListener != null) {
+            onBindListener.onBind(position);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull Holder holder) {
+        // Off screen: don't keep decoding an avatar nobody will see
+        Photos.getInstance(holder.itemView.getContext()).cancel(holder.avatar);
+    }
+
+    @Override
+    public int getItemCount() {
+        return students.size();
+    }
+
+    static class Holder extends RecyclerView.ViewHolder {
+        final ImageView avatar;
+        final TextView name;
+        final TextView details;
+
+        Holder(View itemView) {
+            super(itemView);
+            avatar = itemView.findViewById(R.id.student_avatar);
+            name = itemView.findViewById(R.id.student_name);
+            details = itemView.findViewById(R.id.student_details);
+        }
+    }
+}
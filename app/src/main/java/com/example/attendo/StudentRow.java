@@ -0,0 +1,25 @@
+package com.example.attendo;
+
+/**
+ * What a student list row shows.
+ */
+public class StudentRow {
+    public final String uid;
+    public final String username;
+    public final String email;
+    public final String skill;
+    // Photo version for the avatar, 0 for the placeholder
+    public final long photo;
+
+    public StudentRow(String uid, String username, String email, String skill) {
+        this(uid, username, email, skill, 0);
+    }
+
+    public StudentRow(String uid, String username, String email, String skill, long photo) {
+        this.uid = uid;
+        this.username = username;
+        this.email = email;
+        this.skill = skill;
+        this.photo = photo;
+    }
+}
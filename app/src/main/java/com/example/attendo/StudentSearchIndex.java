@@ -0,0 +1,373 @@
+package com.example.attendo;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory prefix index over the roster's names, emails and skills.
+ *
+ * Every normalised token (lower case, accents stripped, split on anything that is not a
+ * letter or digit) is stored in a trie whose nodes know how many tokens live below them.
+ * A query walks down to the node of its rarest token, streams the students under it and
+ * keeps those whose other tokens match too, stopping as soon as it has enough results.
+ * The query is folded a character at a time straight from the text field, so typing
+ * does not allocate. Updates are incremental, one student at a time, as child events
+ * arrive; branches left without tokens are cut off.
+ *
+ * Not thread-safe: build and query it from one thread (the main thread in the app).
+ */
+public class StudentSearchIndex {
+
+    /**
+     * What a search hit shows; kept so results can be bound without another lookup.
+     */
+    public static final class Entry extends StudentRow {
+        final String[] tokens;
+
+        Entry(String uid, String username, String email, String skill, String[] tokens) {
+            super(uid, username, email, skill);
+            this.tokens = tokens;
+        }
+    }
+
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        int[] docs = new int[0];
+        int docCount;
+        int subtreeCount;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newKeys[at] = c;
+            newChildren[at] = new Node();
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[at];
+        }
+
+        void removeChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+            System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        void addDoc(int doc) {
+            if (docCount == docs.length) {
+                docs = Arrays.copyOf(docs, Math.max(2, docCount * 2));
+            }
+            docs[docCount++] = doc;
+        }
+
+        void removeDoc(int doc) {
+            for (int i = 0; i < docCount; i++) {
+                if (docs[i] == doc) {
+                    docs[i] = docs[--docCount];
+                    return;
+                }
+            }
+        }
+    }
+
+    // What a character folds to: itself lower-cased with its accents stripped, MARK for
+    // an accent on its own (dropped) or SEPARATOR between words. Filled in the first time
+    // each character is seen; 0 means not yet
+    private static final char[] FOLDED = new char[Character.MAX_VALUE + 1];
+    private static final char MARK = '\uFFFF';
+    private static final char SEPARATOR = ' ';
+
+    private final Node root = new Node();
+    private final Map<String, Integer> docByUid = new HashMap<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private final List<Integer> freeDocs = new ArrayList<>();
+
+    // Reused between queries so typing does not allocate per keystroke
+    private int[] seen = new int[0];
+    private int generation;
+    private int added;
+    private final Node[] queryNodes = new Node[8];
+    private final int[] queryStarts = new int[8];
+    private final int[] queryEnds = new int[8];
+
+    public int size() {
+        return docByUid.size();
+    }
+
+    /**
+     * Trie nodes in use, root included.
+     */
+    int nodeCount() {
+        return nodeCount(root);
+    }
+
+    private static int nodeCount(Node node) {
+        int count = 1;
+        for (Node child : node.children) {
+            count += nodeCount(child);
+        }
+        return count;
+    }
+
+    /**
+     * Add or replace a student.
+     */
+    public void put(String uid, String username, String email, String skill) {
+        remove(uid);
+        String[] tokens = tokenize(username, email, skill);
+        Entry entry = new Entry(uid, username, email, skill, tokens);
+
+        int doc;
+        if (freeDocs.isEmpty()) {
+            doc = entries.size();
+            entries.add(entry);
+        } else {
+            doc = freeDocs.remove(freeDocs.size() - 1);
+            entries.set(doc, entry);
+        }
+        docByUid.put(uid, doc);
+
+        for (String token : tokens) {
+            Node node = root;
+            node.subtreeCount++;
+            for (int i = 0; i < token.length(); i++) {
+                node = node.childOrCreate(token.charAt(i));
+                node.subtreeCount++;
+            }
+            node.addDoc(doc);
+        }
+    }
+
+    public void remove(String uid) {
+        Integer doc = docByUid.remove(uid);
+        if (doc == null) {
+            return;
+        }
+        for (String token : entries.get(doc).tokens) {
+            Node node = root;
+            node.subtreeCount--;
+            for (int i = 0; i < token.length(); i++) {
+                Node child = node.child(token.charAt(i));
+                if (--child.subtreeCount == 0) {
+                    // Nothing left below: drop the branch rather than keep empty nodes
+                    node.removeChild(token.charAt(i));
+                    node = null;
+                    break;
+                }
+                node = child;
+            }
+            if (node != null) {
+                node.removeDoc(doc);
+            }
+        }
+        entries.set(doc, null);
+        freeDocs.add(doc);
+    }
+
+    public void clear() {
+        root.keys = new char[0];
+        root.children = new Node[0];
+        root.docCount = 0;
+        root.subtreeCount = 0;
+        docByUid.clear();
+        entries.clear();
+        freeDocs.clear();
+    }
+
+    /**
+     * Students matching every word of the query as a prefix of one of their tokens,
+     * at most limit of them, appended to out. Returns the number added.
+     */
+    public int search(CharSequence query, int limit, List<Entry> out) {
+        int tokenCount = 0;
+        int start = -1;
+        Node node = null;
+        for (int i = 0; i <= query.length() && tokenCount < queryNodes.length; i++) {
+            char c = i < query.length() ? fold(query.charAt(i)) : SEPARATOR;
+            if (c == MARK) {
+                continue;
+            }
+            if (c != SEPARATOR) {
+                if (start < 0) {
+                    start = i;
+                    node = root;
+                }
+                if (node != null) {
+                    node = node.child(c);
+                }
+            } else if (start >= 0) {
+                if (node == null || node.subtreeCount == 0) {
+                    return 0;
+                }
+                queryStarts[tokenCount] = start;
+                queryEnds[tokenCount] = i;
+                queryNodes[tokenCount] = node;
+                tokenCount++;
+                start = -1;
+            }
+        }
+        if (tokenCount == 0 || limit <= 0) {
+            return 0;
+        }
+
+        // Drive the search from the rarest prefix
+        int rarest = 0;
+        for (int i = 1; i < tokenCount; i++) {
+            if (queryNodes[i].subtreeCount < queryNodes[rarest].subtreeCount) {
+                rarest = i;
+            }
+        }
+
+        if (seen.length < entries.size()) {
+            seen = Arrays.copyOf(seen, Math.max(entries.size(), seen.length * 2));
+        }
+        if (++generation == 0) {
+            Arrays.fill(seen, 0);
+            generation = 1;
+        }
+        added = 0;
+        collect(queryNodes[rarest], query, rarest, tokenCount, limit, out);
+        return added;
+    }
+
+    private boolean collect(Node node, CharSequence query, int rarest, int tokenCount, int limit,
+                            List<Entry> out) {
+        for (int i = 0; i < node.docCount; i++) {
+            int doc = node.docs[i];
+            if (seen[doc] == generation) {
+                continue;
+            }
+            seen[doc] = generation;
+            Entry entry = entries.get(doc);
+            if (matchesAll(entry, query, rarest, tokenCount)) {
+                out.add(entry);
+                if (++added == limit) {
+                    return true;
+                }
+            }
+        }
+        for (Node child : node.children) {
+            if (child.subtreeCount > 0 && collect(child, query, rarest, tokenCount, limit, out)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAll(Entry entry, CharSequence query, int skip, int tokenCount) {
+        for (int q = 0; q < tokenCount; q++) {
+            if (q == skip) {
+                continue;
+            }
+            boolean found = false;
+            for (String token : entry.tokens) {
+                if (startsWith(token, query, queryStarts[q], queryEnds[q])) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether token starts with the folded query[start, end).
+     */
+    private static boolean startsWith(String token, CharSequence query, int start, int end) {
+        int at = 0;
+        for (int i = start; i < end; i++) {
+            char c = fold(query.charAt(i));
+            if (c == MARK) {
+                continue;
+            }
+            if (at == token.length() || token.charAt(at) != c) {
+                return false;
+            }
+            at++;
+        }
+        return true;
+    }
+
+    static String[] tokenize(String... fields) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            for (int i = 0; i <= field.length(); i++) {
+                char c = i < field.length() ? fold(field.charAt(i)) : SEPARATOR;
+                if (c == MARK) {
+                    continue;
+                }
+                if (c != SEPARATOR) {
+                    token.append(c);
+                } else if (token.length() > 0) {
+                    String word = token.toString();
+                    if (!tokens.contains(word)) {
+                        tokens.add(word);
+                    }
+                    token.setLength(0);
+                }
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    static char fold(char c) {
+        char folded = FOLDED[c];
+        if (folded == 0) {
+            folded = foldOnce(c);
+            FOLDED[c] = folded;
+        }
+        return folded;
+    }
+
+    private static char foldOnce(char c) {
+        int type = Character.getType(c);
+        if (type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK) {
+            return MARK;
+        }
+        if (!Character.isLetterOrDigit(c)) {
+            return SEPARATOR;
+        }
+        String folded = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        // Characters that do not fold to a single one (Hangul syllables, say) are kept
+        // whole, the same way for the index and the query
+        return folded.length() == 1 ? folded.charAt(0) : Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.attendo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Materialised attendance for one student, stored at users/<uid>/summary so the
+ * dashboard reads one small node instead of the student's whole history.
+ */
+public final class StudentSummary {
+
+    public int attended;
+    public int late;
+    public int total;
+    public final Map<String, SubjectSummary> subjects = new HashMap<>();
+
+    /**
+     * Attendance as a whole percentage, or -1 before the first session.
+     */
+    public int percentage() {
+        return total == 0 ? -1 : Math.round(attended * 100f / total);
+    }
+
+    SubjectSummary subject(String key) {
+        SubjectSummary summary = subjects.get(key);
+        if (summary == null) {
+            summary = new SubjectSummary();
+            subjects.put(key, summary);
+        }
+        return summary;
+    }
+
+    public static StudentSummary fromValue(Object value) {
+        StudentSummary summary = new StudentSummary();
+        if (!(value instanceof Map)) {
+            return summary;
+        }
+        Map<?, ?> map = (Map<?, ?>) value;
+        summary.attended = (int) Values.asLong(map.get("attended"));
+        summary.late = (int) Values.asLong(map.get("late"));
+        summary.total = (int) Values.asLong(map.get("total"));
+        Object subjects = map.get("subjects");
+        if (subjects instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) subjects).entrySet()) {
+                if (entry.getValue() instanceof Map) {
+                    summary.subjects.put(entry.getKey().toString(),
+                            SubjectSummary.fromMap((Map<?, ?>) entry.getValue()));
+                }
+            }
+        }
+        return summary;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>(8);
+        map.put("attended", attended);
+        map.put("late", late);
+        map.put("total", total);
+        Map<String, Object> subjectMaps = new HashMap<>();
+        for (Map.Entry<String, SubjectSummary> entry : subjects.entrySet()) {
+            subjectMaps.put(entry.getKey(), entry.getValue().toMap());
+        }
+        map.put("subjects", subjectMaps);
+        return map;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.attendo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Materialised attendance for one student in one subject.
+ *
+ * Besides the counters it keeps two small bitsets indexed by session ordinal (the
+ * session's position in the subject's semester): which sessions the student was marked
+ * in, and which of those were absences. They are what lets the current streak be
+ * recomputed correctly when an old mark is corrected or retracted.
+ */
+public final class SubjectSummary {
+
+    public int attended;
+    public int late;
+    public int total;
+    public int streak;
+
+    AttendanceBitset marked = new AttendanceBitset(0);
+    AttendanceBitset absent = new AttendanceBitset(0);
+
+    void retract(int ordinal, String status) {
+        total--;
+        if (AttendanceSession.isAttended(status)) {
+            attended--;
+        }
+        if (AttendanceSession.LATE.equals(status)) {
+            late--;
+        }
+        if (ordinal >= 0 && ordinal < marked.size()) {
+            marked.clear(ordinal);
+            absent.clear(ordinal);
+        }
+    }
+
+    void record(int ordinal, String status) {
+        total++;
+        if (AttendanceSession.isAttended(status)) {
+            attended++;
+        }
+        if (AttendanceSession.LATE.equals(status)) {
+            late++;
+        }
+        if (ordinal < 0) {
+            return;
+        }
+        if (ordinal >= marked.size()) {
+            int size = Math.max(ordinal + 1, marked.size() * 2);
+            marked = marked.resized(size);
+            absent = absent.resized(size);
+        }
+        marked.set(ordinal);
+        if (!AttendanceSession.isAttended(status)) {
+            absent.set(ordinal);
+        }
+    }
+
+    SubjectSummary copy() {
+        SubjectSummary copy = new SubjectSummary();
+        copy.attended = attended;
+        copy.late = late;
+        copy.total = total;
+        copy.streak = streak;
+        copy.marked = marked.resized(marked.size());
+        copy.absent = absent.resized(absent.size());
+        return copy;
+    }
+
+    /**
+     * Sessions attended in a row since the most recent absence.
+     */
+    void updateStreak() {
+        int lastAbsence = absent.previousSetBit(absent.size() - 1);
+        streak = marked.cardinalityFrom(lastAbsence + 1);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>(8);
+        map.put("attended", attended);
+        map.put("late", late);
+        map.put("total", total);
+        map.put("streak", streak);
+        map.put("marked", AttendanceBitsetCodec.toText(marked));
+        map.put("absent", AttendanceBitsetCodec.toText(absent));
+        return map;
+    }
+
+    static SubjectSummary fromMap(Map<?, ?> map) {
+        SubjectSummary summary = new SubjectSummary();
+        summary.attended = (int) Values.asLong(map.get("attended"));
+        summary.late = (int) Values.asLong(map.get("late"));
+        summary.total = (int) Values.asLong(map.get("total"));
+        summary.streak = (int) Values.asLong(map.get("streak"));
+        Object marked = map.get("marked");
+        Object absent = map.get("absent");
+        if (marked != null && absent != null) {
+            summary.marked = AttendanceBitsetCodec.fromText(marked.toString());
+            summary.absent = AttendanceBitsetCodec.fromText(absent.toString());
+            if (summary.absent.size() != summary.marked.size()) {
+                summary.absent = summary.absent.resized(summary.marked.size());
+            }
+        }
+        return summary;
+    }
+}
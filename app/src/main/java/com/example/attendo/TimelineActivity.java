@@ -0,0 +1,48 @@
+package com.example.attendo;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.attendo.ui.timeline.TimelineScreen;
+
+import java.util.TimeZone;
+
+/**
+ * A student's attendance history as a calendar heat-map, one month per card, newest
+ * first. Shows the signed-in user unless another student is passed in.
+ */
+public class TimelineActivity extends AppCompatActivity {
+
+    private static final String EXTRA_STUDENT_UID = "student_uid";
+    private static final String EXTRA_NAME = "name";
+    // How far back the calendar scrolls; months are only loaded once on screen
+    private static final int MONTHS = 48;
+
+    public static Intent intent(Context context, String studentUid, String name) {
+        return new Intent(context, TimelineActivity.class)
+                .putExtra(EXTRA_STUDENT_UID, studentUid)
+                .putExtra(EXTRA_NAME, name);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        String studentUid = getIntent().getStringExtra(EXTRA_STUDENT_UID);
+        if (studentUid == null) {
+            studentUid = FirebaseRemoteAuth.getInstance().currentUid();
+        }
+        if (studentUid == null) {
+            finish();
+            return;
+        }
+        String name = getIntent().getStringExtra(EXTRA_NAME);
+
+        TimelineScreen.install(this, name == null ? "Attendance history" : name,
+                TimelineBuckets.recent(System.currentTimeMillis(), TimeZone.getDefault(), MONTHS),
+                new TimelineLiveData(studentUid));
+    }
+}
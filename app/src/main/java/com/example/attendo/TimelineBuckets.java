@@ -0,0 +1,160 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Layout of a student's attendance history, split into one node per calendar month:
+ *
+ *   timelines/<uid>/<yyyy-MM>/entries/<sessionId>   {class_id, status, at}
+ *   timelines/<uid>/<yyyy-MM>/summary               {total, attended, late, days/dNN/...}
+ *
+ * The summary holds the month's counters and the same counters per day, so a calendar
+ * can be drawn from a few hundred bytes per month before any entry is downloaded. Both
+ * are kept up to date by server-side increments, like users/<uid>/summary. Month keys
+ * sort as strings in calendar order.
+ */
+public final class TimelineBuckets {
+
+    private TimelineBuckets() {}
+
+    public static String path(String studentUid, String month) {
+        return "timelines/" + studentUid + "/" + month;
+    }
+
+    public static String summaryPath(String studentUid, String month) {
+        return path(studentUid, month) + "/summary";
+    }
+
+    public static String entriesPath(String studentUid, String month) {
+        return path(studentUid, month) + "/entries";
+    }
+
+    /**
+     * Month holding an instant, as yyyy-MM.
+     */
+    public static String month(long at, TimeZone zone) {
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.setTimeInMillis(at);
+        return key(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH));
+    }
+
+    /**
+     * Day of the month of an instant, 1-based.
+     */
+    public static int day(long at, TimeZone zone) {
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.setTimeInMillis(at);
+        return calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    /**
+     * The month delta months after (or before, if negative) the given one.
+     */
+    public static String shift(String month, int delta) {
+        int index = index(month) + delta;
+        return key(Math.floorDiv(index, 12), Math.floorMod(index, 12));
+    }
+
+    /**
+     * Number of months from first to last; negative if last comes first.
+     */
+    public static int between(String first, String last) {
+        return index(last) - index(first);
+    }
+
+    /**
+     * The count months up to and including the one holding now, newest first.
+     */
+    public static List<String> recent(long now, TimeZone zone, int count) {
+        String current = month(now, zone);
+        List<String> months = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            months.add(shift(current, -i));
+        }
+        return months;
+    }
+
+    public static int daysIn(String month) {
+        return calendar(month).getActualMaximum(Calendar.DAY_OF_MONTH);
+    }
+
+    /**
+     * Weekday of the 1st, as a {@link Calendar} constant (SUNDAY is 1).
+     */
+    public static int firstWeekday(String month) {
+        return calendar(month).get(Calendar.DAY_OF_WEEK);
+    }
+
+    /**
+     * Updates (paths from the root) that move one student's mark in a session from
+     * oldStatus to newStatus: the entry itself and every counter of its month and day.
+     * Either status may be null for a new or retracted mark.
+     */
+    public static Map<String, Object> updates(RemoteDatabase database, TimeZone zone, String studentUid,
+                                              String sessionId, String classId, long at,
+                                              String oldStatus, String newStatus) {
+        Map<String, Object> updates = new HashMap<>(8);
+        String month = month(at, zone);
+        String entry = entriesPath(studentUid, month) + "/" + sessionId;
+        if (newStatus == null) {
+            updates.put(entry, null);
+        } else {
+            Map<String, Object> value = new HashMap<>(4);
+            value.put("class_id", classId);
+            value.put("status", newStatus);
+            value.put("at", at);
+            updates.put(entry, value);
+        }
+
+        String summary = summaryPath(studentUid, month);
+        String day = summary + "/days/" + dayKey(day(at, zone));
+        int totalDelta = (newStatus != null ? 1 : 0) - (oldStatus != null ? 1 : 0);
+        int attendedDelta = (AttendanceSession.isAttended(newStatus) ? 1 : 0)
+                - (AttendanceSession.isAttended(oldStatus) ? 1 : 0);
+        int lateDelta = (AttendanceSession.LATE.equals(newStatus) ? 1 : 0)
+                - (AttendanceSession.LATE.equals(oldStatus) ? 1 : 0);
+        putIncrement(updates, database, summary, day, "total", totalDelta);
+        putIncrement(updates, database, summary, day, "attended", attendedDelta);
+        putIncrement(updates, database, summary, day, "late", lateDelta);
+        return updates;
+    }
+
+    /**
+     * Key of a day under summary/days. Prefixed, as Firebase turns nodes with numeric
+     * keys into arrays.
+     */
+    static String dayKey(int day) {
+        return day < 10 ? "d0" + day : "d" + day;
+    }
+
+    private static void putIncrement(Map<String, Object> updates, RemoteDatabase database,
+                                     String summary, String day, String field, int delta) {
+        if (delta != 0) {
+            updates.put(summary + "/" + field, database.increment(delta));
+            updates.put(day + "/" + field, database.increment(delta));
+        }
+    }
+
+    private static String key(int year, int month) {
+        return String.format(Locale.US, "%04d-%02d", year, month + 1);
+    }
+
+    // Months since year 0, with January 0
+    private static int index(String month) {
+        return Integer.parseInt(month.substring(0, 4)) * 12 + Integer.parseInt(month.substring(5, 7)) - 1;
+    }
+
+    private static Calendar calendar(String month) {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(Integer.parseInt(month.substring(0, 4)), Integer.parseInt(month.substring(5, 7)) - 1, 1);
+        return calendar;
+    }
+}
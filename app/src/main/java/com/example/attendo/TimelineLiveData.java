@@ -0,0 +1,52 @@
+package com.example.attendo;
+
+import androidx.lifecycle.LiveData;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The loaded months of one student's attendance history, keyed by yyyy-MM, for the
+ * calendar screen. The screen reports which months are on screen through {@link #show};
+ * only those, and the summaries of their neighbours, are downloaded (see
+ * {@link TimelineStore}). Listeners are removed while nobody observes.
+ */
+public class TimelineLiveData extends LiveData<Map<String, TimelineMonth>> {
+
+    private final TimelineStore store;
+
+    public TimelineLiveData(String studentUid) {
+        this(FirebaseRemoteDatabase.getInstance(), studentUid);
+    }
+
+    TimelineLiveData(RemoteDatabase database, String studentUid) {
+        store = new TimelineStore(database, studentUid, month -> publish());
+        setValue(Collections.emptyMap());
+    }
+
+    /**
+     * The months now on screen, from first to last (yyyy-MM). Call on the main thread.
+     */
+    public void show(String first, String last) {
+        store.show(first, last);
+        if (!hasActiveObservers()) {
+            // Remembered for onActive; nothing is fetched for a stopped screen
+            store.stop();
+        }
+    }
+
+    @Override
+    protected void onActive() {
+        store.resume();
+    }
+
+    @Override
+    protected void onInactive() {
+        store.stop();
+    }
+
+    private void publish() {
+        // A month holds a few hundred bytes of counters, so copying the cache is cheap
+        setValue(Collections.unmodifiableMap(store.months()));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One month of a student's history as read from its {@link TimelineBuckets bucket}: the
+ * summary, and the entries once they have arrived. Instances are immutable; new data
+ * produces a new instance sharing the part that did not change.
+ */
+public final class TimelineMonth {
+
+    /**
+     * One session the student was marked in.
+     */
+    public static final class Entry {
+        public final String sessionId;
+        public final String classId;
+        public final String status;
+        public final long at;
+
+        Entry(String sessionId, String classId, String status, long at) {
+            this.sessionId = sessionId;
+            this.classId = classId;
+            this.status = status;
+            this.at = at;
+        }
+    }
+
+    public final String month;
+    public final int total;
+    public final int attended;
+    public final int late;
+    private final boolean hasSummary;
+    // Indexed by day of month, 1-based; index 0 is unused
+    private final int[] dayTotals;
+    private final int[] dayAttended;
+    @Nullable
+    private final List<Entry> entries;
+
+    private TimelineMonth(String month, boolean hasSummary, int total, int attended, int late,
+                          int[] dayTotals, int[] dayAttended, @Nullable List<Entry> entries) {
+        this.month = month;
+        this.hasSummary = hasSummary;
+        this.total = total;
+        this.attended = attended;
+        this.late = late;
+        this.dayTotals = dayTotals;
+        this.dayAttended = dayAttended;
+        this.entries = entries;
+    }
+
+    /**
+     * A month whose summary has not arrived yet.
+     */
+    static TimelineMonth empty(String month) {
+        return new TimelineMonth(month, false, 0, 0, 0, new int[32], new int[32], null);
+    }
+
+    /**
+     * This month with the summary replaced by the value stored at summary (null if the
+     * student has no marks that month).
+     */
+    TimelineMonth withSummary(@Nullable Object value) {
+        int[] dayTotals = new int[32];
+        int[] dayAttended = new int[32];
+        if (!(value instanceof Map)) {
+            return new TimelineMonth(month, true, 0, 0, 0, dayTotals, dayAttended, entries);
+        }
+        Map<?, ?> summary = (Map<?, ?>) value;
+        Object days = summary.get("days");
+        if (days instanceof Map) {
+            for (Map.Entry<?, ?> day : ((Map<?, ?>) days).entrySet()) {
+                int index = dayIndex(String.valueOf(day.getKey()));
+                if (index > 0 && day.getValue() instanceof Map) {
+                    Map<?, ?> counters = (Map<?, ?>) day.getValue();
+                    dayTotals[index] = (int) Values.asLong(counters.get("total"));
+                    dayAttended[index] = (int) Values.asLong(counters.get("attended"));
+                }
+            }
+        }
+        return new TimelineMonth(month, true, (int) Values.asLong(summary.get("total")),
+                (int) Values.asLong(summary.get("attended")), (int) Values.asLong(summary.get("late")),
+                dayTotals, dayAttended, entries);
+    }
+
+    /**
+     * This month with the entries replaced by the value stored at entries, sorted by time.
+     */
+    TimelineMonth withEntries(@Nullable Object value) {
+        List<Entry> parsed = new ArrayList<>();
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> child : ((Map<?, ?>) value).entrySet()) {
+                if (child.getValue() instanceof Map) {
+                    Map<?, ?> entry = (Map<?, ?>) child.getValue();
+                    parsed.add(new Entry(String.valueOf(child.getKey()), Values.asString(entry.get("class_id")),
+                            Values.asString(entry.get("status")), Values.asLong(entry.get("at"))));
+                }
+            }
+        }
+        Collections.sort(parsed, (a, b) -> Long.compare(a.at, b.at));
+        return new TimelineMonth(month, hasSummary, total, attended, late, dayTotals, dayAttended,
+                Collections.unmodifiableList(parsed));
+    }
+
+    /**
+     * Whether the summary has arrived; until then the counters are all zero.
+     */
+    public boolean hasSummary() {
+        return hasSummary;
+    }
+
+    /**
+     * Sessions marked on a day of this month.
+     */
+    public int totalOn(int day) {
+        return day > 0 && day < dayTotals.length ? dayTotals[day] : 0;
+    }
+
+    /**
+     * Sessions attended (present or late) on a day of this month.
+     */
+    public int attendedOn(int day) {
+        return day > 0 && day < dayAttended.length ? dayAttended[day] : 0;
+    }
+
+    /**
+     * The month's sessions in time order, or null while they are still loading.
+     */
+    @Nullable
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    private static int dayIndex(String key) {
+        if (key.length() != 3 || key.charAt(0) != 'd') {
+            return -1;
+        }
+        try {
+            int day = Integer.parseInt(key.substring(1));
+            return day >= 1 && day <= 31 ? day : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
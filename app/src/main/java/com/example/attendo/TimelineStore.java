@@ -0,0 +1,179 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The months of one student's {@link TimelineBuckets timeline} that a screen is looking
+ * at, and nothing else.
+ *
+ * {@link #show} names the visible months. Their summaries and entries are listened to,
+ * and so are the summaries of the months on either side, so scrolling a month further
+ * draws straight away from the summary while its entries load. Months that scroll out
+ * of range lose their listeners but stay cached, up to {@link #CACHED_MONTHS}, for
+ * scrolling back. What is downloaded therefore depends on how many months are on
+ * screen, never on how long the student's history is.
+ *
+ * Not thread-safe; use it from the thread the database delivers on.
+ */
+public class TimelineStore {
+
+    // Months on either side of the visible ones whose summaries are fetched ahead
+    static final int PREFETCH_MONTHS = 1;
+    static final int CACHED_MONTHS = 12;
+
+    public interface Listener {
+        /**
+         * A month got new data; read it with {@link #month}.
+         */
+        void onMonth(TimelineMonth month);
+    }
+
+    private final RemoteDatabase database;
+    private final String studentUid;
+    private final Listener listener;
+    // Access order, so the least recently shown month is dropped first
+    private final LinkedHashMap<String, TimelineMonth> months = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, RemoteDatabase.Registration> summaries = new HashMap<>();
+    private final Map<String, RemoteDatabase.Registration> details = new HashMap<>();
+    private String first;
+    private String last;
+
+    public TimelineStore(RemoteDatabase database, String studentUid, Listener listener) {
+        this.database = database;
+        this.studentUid = studentUid;
+        this.listener = listener;
+    }
+
+    /**
+     * The month as far as it has loaded, or null if its summary was never requested.
+     */
+    @Nullable
+    public TimelineMonth month(String month) {
+        return months.get(month);
+    }
+
+    /**
+     * Every cached month, keyed by yyyy-MM. A copy; it does not follow later updates.
+     */
+    public Map<String, TimelineMonth> months() {
+        return new HashMap<>(months);
+    }
+
+    /**
+     * Show the months from first to last (yyyy-MM, inclusive). Listeners already in
+     * place for these months are kept.
+     */
+    public void show(String first, String last) {
+        if (TimelineBuckets.between(first, last) < 0) {
+            String swap = first;
+            first = last;
+            last = swap;
+        }
+        this.first = first;
+        this.last = last;
+
+        Set<String> wantSummary = new HashSet<>();
+        Set<String> wantDetail = new HashSet<>();
+        int span = TimelineBuckets.between(first, last);
+        for (int i = -PREFETCH_MONTHS; i <= span + PREFETCH_MONTHS; i++) {
+            String month = TimelineBuckets.shift(first, i);
+            wantSummary.add(month);
+            if (i >= 0 && i <= span) {
+                wantDetail.add(month);
+            }
+        }
+
+        release(summaries, wantSummary);
+        release(details, wantDetail);
+        // Summaries first, so every month on screen can be drawn before any entry lands
+        for (String month : wantSummary) {
+            touch(month);
+            if (!summaries.containsKey(month)) {
+                summaries.put(month, database.listen(TimelineBuckets.summaryPath(studentUid, month),
+                        new MonthListener(month, true)));
+            }
+        }
+        for (String month : wantDetail) {
+            if (!details.containsKey(month)) {
+                details.put(month, database.listen(TimelineBuckets.entriesPath(studentUid, month),
+                        new MonthListener(month, false)));
+            }
+        }
+        trim(wantSummary);
+    }
+
+    /**
+     * Remove every listener, e.g. while the screen is stopped. The cache is kept, and
+     * {@link #resume} listens to the last shown months again.
+     */
+    public void stop() {
+        release(summaries, new HashSet<>());
+        release(details, new HashSet<>());
+    }
+
+    /**
+     * Listen to the months last passed to {@link #show} again.
+     */
+    public void resume() {
+        if (first != null) {
+            show(first, last);
+        }
+    }
+
+    private void touch(String month) {
+        if (months.get(month) == null) {
+            months.put(month, TimelineMonth.empty(month));
+        }
+    }
+
+    private void trim(Set<String> keep) {
+        Iterator<String> eldest = months.keySet().iterator();
+        while (months.size() > Math.max(CACHED_MONTHS, keep.size()) && eldest.hasNext()) {
+            if (!keep.contains(eldest.next())) {
+                eldest.remove();
+            }
+        }
+    }
+
+    private static void release(Map<String, RemoteDatabase.Registration> registrations, Set<String> keep) {
+        for (String month : new ArrayList<>(registrations.keySet())) {
+            if (!keep.contains(month)) {
+                registrations.remove(month).remove();
+            }
+        }
+    }
+
+    private final class MonthListener implements RemoteDatabase.ValueListener {
+        private final String month;
+        private final boolean summary;
+
+        MonthListener(String month, boolean summary) {
+            this.month = month;
+            this.summary = summary;
+        }
+
+        @Override
+        public void onValue(@Nullable Object value) {
+            TimelineMonth current = months.get(month);
+            if (current == null) {
+                current = TimelineMonth.empty(month);
+            }
+            TimelineMonth updated = summary ? current.withSummary(value) : current.withEntries(value);
+            months.put(month, updated);
+            listener.onMonth(updated);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            // Keep whatever the month already shows; the calendar still works without it
+        }
+    }
+}
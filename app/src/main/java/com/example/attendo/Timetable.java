@@ -0,0 +1,170 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A user's timetable as stored at timetable/<uid>:
+ *
+ *   slots/<slotId>        {class_id, subject, day, start, end, from, until}
+ *   exceptions/<key>      {slot, date, cancelled, start, end}
+ *   holidays/<key>        {from, until, name}
+ *
+ * Weekdays use {@link java.util.Calendar} numbering (1 = Sunday), times are minutes after
+ * local midnight and dates are yyyyMMdd integers, so nothing here depends on java.time.
+ * Instances are not modified after parsing; {@link TimetableIndex} expands them.
+ */
+public final class Timetable {
+
+    public static final Timetable EMPTY = new Timetable(Collections.<Slot>emptyList(),
+            Collections.<Change>emptyList(), Collections.<Holiday>emptyList());
+
+    /**
+     * A class held every week on the same weekday and time.
+     */
+    public static final class Slot {
+        public final String id;
+        public final String classId;
+        public final String subject;
+        public final int dayOfWeek;
+        public final int startMinute;
+        public final int endMinute;
+        // First and last date the slot runs, 0 for open-ended
+        public final int fromDate;
+        public final int untilDate;
+
+        public Slot(String id, String classId, String subject, int dayOfWeek, int startMinute,
+                    int endMinute, int fromDate, int untilDate) {
+            this.id = id;
+            this.classId = classId;
+            this.subject = subject;
+            this.dayOfWeek = dayOfWeek;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+            this.fromDate = fromDate;
+            this.untilDate = untilDate;
+        }
+
+        boolean runsOn(int date) {
+            return (fromDate == 0 || date >= fromDate) && (untilDate == 0 || date <= untilDate);
+        }
+
+        boolean sameAs(Slot other) {
+            return id.equals(other.id) && eq(classId, other.classId) && eq(subject, other.subject)
+                    && dayOfWeek == other.dayOfWeek && startMinute == other.startMinute
+                    && endMinute == other.endMinute && fromDate == other.fromDate
+                    && untilDate == other.untilDate;
+        }
+    }
+
+    /**
+     * An exception to a slot: one date on which it is cancelled or held at another time.
+     */
+    public static final class Change {
+        public final String slotId;
+        public final int date;
+        public final boolean cancelled;
+        public final int startMinute;
+        public final int endMinute;
+
+        public Change(String slotId, int date, boolean cancelled, int startMinute, int endMinute) {
+            this.slotId = slotId;
+            this.date = date;
+            this.cancelled = cancelled;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+        }
+
+        boolean sameAs(Change other) {
+            return slotId.equals(other.slotId) && date == other.date && cancelled == other.cancelled
+                    && startMinute == other.startMinute && endMinute == other.endMinute;
+        }
+    }
+
+    /**
+     * Dates, inclusive, on which no class is held.
+     */
+    public static final class Holiday {
+        public final int fromDate;
+        public final int untilDate;
+        public final String name;
+
+        public Holiday(int fromDate, int untilDate, String name) {
+            this.fromDate = fromDate;
+            this.untilDate = untilDate;
+            this.name = name;
+        }
+
+        boolean covers(int date) {
+            return date >= fromDate && date <= untilDate;
+        }
+
+        boolean sameAs(Holiday other) {
+            return fromDate == other.fromDate && untilDate == other.untilDate && eq(name, other.name);
+        }
+    }
+
+    public final List<Slot> slots;
+    public final List<Change> exceptions;
+    public final List<Holiday> holidays;
+
+    public Timetable(List<Slot> slots, List<Change> exceptions, List<Holiday> holidays) {
+        this.slots = Collections.unmodifiableList(new ArrayList<>(slots));
+        this.exceptions = Collections.unmodifiableList(new ArrayList<>(exceptions));
+        this.holidays = Collections.unmodifiableList(new ArrayList<>(holidays));
+    }
+
+    public static Timetable fromValue(Object value) {
+        if (!(value instanceof Map)) {
+            return EMPTY;
+        }
+        Map<?, ?> map = (Map<?, ?>) value;
+        List<Slot> slots = new ArrayList<>();
+        for (Map.Entry<?, ?> entry : children(map.get("slots"))) {
+            Map<?, ?> slot = (Map<?, ?>) entry.getValue();
+            slots.add(new Slot(entry.getKey().toString(),
+                    Values.asString(slot.get("class_id")),
+                    Values.asString(slot.get("subject")),
+                    (int) Values.asLong(slot.get("day")),
+                    (int) Values.asLong(slot.get("start")),
+                    (int) Values.asLong(slot.get("end")),
+                    (int) Values.asLong(slot.get("from")),
+                    (int) Values.asLong(slot.get("until"))));
+        }
+        List<Change> exceptions = new ArrayList<>();
+        for (Map.Entry<?, ?> entry : children(map.get("exceptions"))) {
+            Map<?, ?> exception = (Map<?, ?>) entry.getValue();
+            exceptions.add(new Change(Values.asString(exception.get("slot")),
+                    (int) Values.asLong(exception.get("date")),
+                    Boolean.TRUE.equals(exception.get("cancelled")),
+                    (int) Values.asLong(exception.get("start")),
+                    (int) Values.asLong(exception.get("end"))));
+        }
+        List<Holiday> holidays = new ArrayList<>();
+        for (Map.Entry<?, ?> entry : children(map.get("holidays"))) {
+            Map<?, ?> holiday = (Map<?, ?>) entry.getValue();
+            holidays.add(new Holiday((int) Values.asLong(holiday.get("from")),
+                    (int) Values.asLong(holiday.get("until")),
+                    Values.asString(holiday.get("name"))));
+        }
+        return new Timetable(slots, exceptions, holidays);
+    }
+
+    private static List<Map.Entry<?, ?>> children(Object node) {
+        List<Map.Entry<?, ?>> children = new ArrayList<>();
+        if (node instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet()) {
+                if (entry.getValue() instanceof Map) {
+                    children.add(entry);
+                }
+            }
+        }
+        return children;
+    }
+
+    private static boolean eq(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
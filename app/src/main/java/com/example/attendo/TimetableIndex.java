@@ -0,0 +1,450 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+
+/**
+ * A {@link Timetable} expanded into the concrete sessions of seven days, starting at
+ * local midnight of the first, and indexed for time lookups.
+ *
+ * Each day keeps its occurrences sorted by start together with a running maximum of
+ * their ends, so {@link #active} and {@link #next} are a binary search within the day
+ * holding the instant: O(log n) with no database query. Instances are immutable; after
+ * a timetable edit {@link #update} re-expands only the days the edit can touch and
+ * shares the rest with the previous index. Build them off the main thread.
+ */
+public final class TimetableIndex {
+
+    public static final int DAYS = 7;
+    private static final long MINUTE_MS = 60_000;
+
+    /**
+     * One concrete class session.
+     */
+    public static final class Occurrence {
+        public final String slotId;
+        public final String classId;
+        public final String subject;
+        public final int date;
+        public final long start;
+        public final long end;
+
+        Occurrence(String slotId, String classId, String subject, int date, long start, long end) {
+            this.slotId = slotId;
+            this.classId = classId;
+            this.subject = subject;
+            this.date = date;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Session id every device derives the same way for this occurrence.
+         */
+        public String sessionId() {
+            return slotId + "_" + date;
+        }
+    }
+
+    private static final Occurrence[] NONE = new Occurrence[0];
+
+    private final TimeZone zone;
+    private final Timetable timetable;
+    // DAYS + 1 boundaries; differ from 24h apart across DST changes
+    private final long[] dayStarts;
+    private final int[] dates;
+    private final int[] weekdays;
+    private final Occurrence[][] days;
+    private final long[][] maxEnds;
+
+    private TimetableIndex(TimeZone zone, Timetable timetable, long[] dayStarts, int[] dates,
+                           int[] weekdays, Occurrence[][] days, long[][] maxEnds) {
+        this.zone = zone;
+        this.timetable = timetable;
+        this.dayStarts = dayStarts;
+        this.dates = dates;
+        this.weekdays = weekdays;
+        this.days = days;
+        this.maxEnds = maxEnds;
+    }
+
+    /**
+     * Expand the seven days starting with the one containing nowMs.
+     */
+    public static TimetableIndex build(Timetable timetable, long nowMs, TimeZone zone) {
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.setTimeInMillis(nowMs);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        long[] dayStarts = new long[DAYS + 1];
+        int[] dates = new int[DAYS];
+        int[] weekdays = new int[DAYS];
+        for (int day = 0; day <= DAYS; day++) {
+            dayStarts[day] = calendar.getTimeInMillis();
+            if (day < DAYS) {
+                dates[day] = dateOf(calendar);
+                weekdays[day] = calendar.get(Calendar.DAY_OF_WEEK);
+            }
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        TimetableIndex index = new TimetableIndex(zone, timetable, dayStarts, dates, weekdays,
+                new Occurrence[DAYS][], new long[DAYS][]);
+        for (int day = 0; day < DAYS; day++) {
+            index.expand(day);
+        }
+        return index;
+    }
+
+    /**
+     * Index of the same seven days for an edited timetable. Days the edit cannot affect
+     * are shared with this index instead of being expanded again.
+     */
+    public TimetableIndex update(Timetable edited) {
+        boolean[] dirty = dirtyDays(timetable, edited);
+        TimetableIndex index = new TimetableIndex(zone, edited, dayStarts, dates, weekdays,
+                days.clone(), maxEnds.clone());
+        for (int day = 0; day < DAYS; day++) {
+            if (dirty[day]) {
+                index.expand(day);
+            }
+        }
+        return index;
+    }
+
+    public Timetable timetable() {
+        return timetable;
+    }
+
+    /**
+     * Whether nowMs falls within the indexed days; if not, build a new index.
+     */
+    public boolean covers(long nowMs) {
+        return nowMs >= dayStarts[0] && nowMs < dayStarts[DAYS];
+    }
+
+    /**
+     * The session in progress at nowMs, or null. If several overlap, the one that
+     * started last.
+     */
+    @Nullable
+    public Occurrence active(long nowMs) {
+        int day = dayOf(nowMs);
+        if (day < 0) {
+            return null;
+        }
+        Occurrence[] occurrences = days[day];
+        long[] ends = maxEnds[day];
+        // Last occurrence starting at or before now, then back while one may still run
+        for (int i = lastStartAtOrBefore(occurrences, nowMs); i >= 0 && ends[i] > nowMs; i--) {
+            if (occurrences[i].end > nowMs) {
+                return occurrences[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The first session starting after nowMs within the indexed days, or null.
+     */
+    @Nullable
+    public Occurrence next(long nowMs) {
+        int day = dayOf(nowMs);
+        if (day < 0) {
+            if (nowMs >= dayStarts[0]) {
+                return null;
+            }
+            day = 0;
+        }
+        for (; day < DAYS; day++) {
+            Occurrence[] occurrences = days[day];
+            int i = lastStartAtOrBefore(occurrences, nowMs) + 1;
+            if (i < occurrences.length) {
+                return occurrences[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Every occurrence of the indexed days in start order.
+     */
+    public List<Occurrence> occurrences() {
+        List<Occurrence> all = new ArrayList<>();
+        for (Occurrence[] day : days) {
+            Collections.addAll(all, day);
+        }
+        return all;
+    }
+
+    /**
+     * Position of an occurrence among all occurrences of its class and subject, counted
+     * from the first date any of their slots runs, skipping holidays and cancellations.
+     * Every device derives the same number, so it can key the student's streak history.
+     *
+     * @return the position, or -1 if one of the slots has no start date
+     */
+    public int ordinal(Occurrence occurrence) {
+        List<Timetable.Slot> slots = new ArrayList<>();
+        int first = Integer.MAX_VALUE;
+        for (Timetable.Slot slot : timetable.slots) {
+            // Slots stored without a class or subject have them null
+            if (Objects.equals(slot.classId, occurrence.classId) && Objects.equals(slot.subject, occurrence.subject)) {
+                if (slot.fromDate == 0) {
+                    return -1;
+                }
+                slots.add(slot);
+                first = Math.min(first, slot.fromDate);
+            }
+        }
+        Map<String, Timetable.Change> changes = new HashMap<>();
+        for (Timetable.Change change : timetable.exceptions) {
+            changes.put(change.slotId + "_" + change.date, change);
+        }
+
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.clear();
+        calendar.set(first / 10_000, first / 100 % 100 - 1, first % 100);
+        int ordinal = 0;
+        for (int date = first; date <= occurrence.date; date = dateOf(calendar)) {
+            if (!isHoliday(date)) {
+                int weekday = calendar.get(Calendar.DAY_OF_WEEK);
+                for (Timetable.Slot slot : slots) {
+                    if (slot.dayOfWeek != weekday || !slot.runsOn(date)) {
+                        continue;
+                    }
+                    Timetable.Change change = changes.get(slot.id + "_" + date);
+                    if (change != null && change.cancelled) {
+                        continue;
+                    }
+                    if (date < occurrence.date || startsBefore(slot, change, occurrence)) {
+                        ordinal++;
+                    }
+                }
+            }
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return ordinal;
+    }
+
+    /**
+     * Occurrences of one indexed day, exposed so tests can see which days were reused.
+     */
+    Occurrence[] day(int day) {
+        return days[day];
+    }
+
+    /**
+     * yyyyMMdd of the calendar's current date.
+     */
+    static int dateOf(Calendar calendar) {
+        return calendar.get(Calendar.YEAR) * 10_000
+                + (calendar.get(Calendar.MONTH) + 1) * 100
+                + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    private boolean isHoliday(int date) {
+        for (Timetable.Holiday holiday : timetable.holidays) {
+            if (holiday.covers(date)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a slot's session on the occurrence's date comes before the occurrence,
+     * by start time and then slot id.
+     */
+    private boolean startsBefore(Timetable.Slot slot, @Nullable Timetable.Change change,
+                                 Occurrence occurrence) {
+        if (slot.id.equals(occurrence.slotId)) {
+            return false;
+        }
+        int start = change != null ? change.startMinute : slot.startMinute;
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.setTimeInMillis(occurrence.start);
+        int occurrenceStart = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+        return start < occurrenceStart || start == occurrenceStart && slot.id.compareTo(occurrence.slotId) < 0;
+    }
+
+    private int dayOf(long nowMs) {
+        if (!covers(nowMs)) {
+            return -1;
+        }
+        int day = Arrays.binarySearch(dayStarts, nowMs);
+        return day >= 0 ? day : -day - 2;
+    }
+
+    private static int lastStartAtOrBefore(Occurrence[] occurrences, long nowMs) {
+        int low = 0;
+        int high = occurrences.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (occurrences[mid].start <= nowMs) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private void expand(int day) {
+        int date = dates[day];
+        if (isHoliday(date)) {
+            days[day] = NONE;
+            maxEnds[day] = new long[0];
+            return;
+        }
+
+        Map<String, Timetable.Change> changes = new HashMap<>();
+        for (Timetable.Change change : timetable.exceptions) {
+            if (change.date == date) {
+                changes.put(change.slotId, change);
+            }
+        }
+
+        List<Occurrence> occurrences = new ArrayList<>();
+        for (Timetable.Slot slot : timetable.slots) {
+            if (slot.dayOfWeek != weekdays[day] || !slot.runsOn(date)) {
+                continue;
+            }
+            int startMinute = slot.startMinute;
+            int endMinute = slot.endMinute;
+            Timetable.Change change = changes.get(slot.id);
+            if (change != null) {
+                if (change.cancelled) {
+                    continue;
+                }
+                startMinute = change.startMinute;
+                endMinute = change.endMinute;
+            }
+            if (endMinute <= startMinute) {
+                continue;
+            }
+            occurrences.add(new Occurrence(slot.id, slot.classId, slot.subject, date,
+                    at(day, startMinute), at(day, endMinute)));
+        }
+        Collections.sort(occurrences, (a, b) -> Long.compare(a.start, b.start));
+
+        Occurrence[] sorted = occurrences.toArray(NONE);
+        long[] ends = new long[sorted.length];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < sorted.length; i++) {
+            max = Math.max(max, sorted[i].end);
+            ends[i] = max;
+        }
+        days[day] = sorted;
+        maxEnds[day] = ends;
+    }
+
+    /**
+     * Wall-clock minute of an indexed day as epoch millis.
+     */
+    private long at(int day, int minute) {
+        if (dayStarts[day + 1] - dayStarts[day] == 24 * 60 * MINUTE_MS) {
+            return dayStarts[day] + minute * MINUTE_MS;
+        }
+        // DST change that day: let the calendar place the wall-clock time
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.setTimeInMillis(dayStarts[day]);
+        calendar.set(Calendar.HOUR_OF_DAY, minute / 60);
+        calendar.set(Calendar.MINUTE, minute % 60);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Days whose occurrences can differ between the two timetables.
+     */
+    private boolean[] dirtyDays(Timetable before, Timetable after) {
+        boolean[] dirty = new boolean[DAYS];
+
+        Map<String, Timetable.Slot> oldSlots = new HashMap<>();
+        for (Timetable.Slot slot : before.slots) {
+            oldSlots.put(slot.id, slot);
+        }
+        for (Timetable.Slot slot : after.slots) {
+            Timetable.Slot old = oldSlots.remove(slot.id);
+            if (old == null) {
+                markWeekday(dirty, slot.dayOfWeek);
+            } else if (!old.sameAs(slot)) {
+                markWeekday(dirty, old.dayOfWeek);
+                markWeekday(dirty, slot.dayOfWeek);
+            }
+        }
+        for (Timetable.Slot removed : oldSlots.values()) {
+            markWeekday(dirty, removed.dayOfWeek);
+        }
+
+        for (Timetable.Change change : symmetricDifference(before.exceptions, after.exceptions)) {
+            markDate(dirty, change.date, change.date);
+        }
+        for (Timetable.Holiday holiday : symmetricDifference(before.holidays, after.holidays)) {
+            markDate(dirty, holiday.fromDate, holiday.untilDate);
+        }
+        return dirty;
+    }
+
+    private void markWeekday(boolean[] dirty, int weekday) {
+        for (int day = 0; day < DAYS; day++) {
+            if (weekdays[day] == weekday) {
+                dirty[day] = true;
+            }
+        }
+    }
+
+    private void markDate(boolean[] dirty, int fromDate, int untilDate) {
+        for (int day = 0; day < DAYS; day++) {
+            if (dates[day] >= fromDate && dates[day] <= untilDate) {
+                dirty[day] = true;
+            }
+        }
+    }
+
+    /**
+     * Entries present in only one of the lists; exceptions and holidays are few, so a
+     * quadratic comparison is fine.
+     */
+    private static <T> List<T> symmetricDifference(List<T> a, List<T> b) {
+        List<T> difference = new ArrayList<>();
+        addMissing(a, b, difference);
+        addMissing(b, a, difference);
+        return difference;
+    }
+
+    private static <T> void addMissing(List<T> from, List<T> in, List<T> out) {
+        for (T item : from) {
+            boolean found = false;
+            for (T other : in) {
+                if (same(item, other)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                out.add(item);
+            }
+        }
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a instanceof Timetable.Change) {
+            return ((Timetable.Change) a).sameAs((Timetable.Change) b);
+        }
+        return ((Timetable.Holiday) a).sameAs((Timetable.Holiday) b);
+    }
+}
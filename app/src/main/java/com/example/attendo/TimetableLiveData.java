@@ -0,0 +1,92 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+
+import java.util.Collections;
+import java.util.TimeZone;
+
+/**
+ * The signed-in user's timetable at timetable/<uid>, as a {@link TimetableIndex} of the
+ * coming seven days.
+ *
+ * The node is kept synced, so after the first sync it is answered from Firebase's disk
+ * cache even offline. Expansion runs in a {@link SnapshotPipeline}; an edit only
+ * re-expands the days it touches, and the index is rebuilt when the day rolls over.
+ */
+public class TimetableLiveData extends LiveData<TimetableIndex> {
+
+    private final RemoteDatabase database;
+    private final String timetablePath;
+    private RemoteDatabase.Registration registration;
+    // Only touched by the pipeline's transform, which never runs concurrently
+    private TimetableIndex latest;
+
+    // Input is the raw value (a missing node is an empty map), or null to re-expand the
+    // last timetable
+    private final SnapshotPipeline<Object, TimetableIndex> expander = SnapshotPipeline.onMainThread(
+            value -> expand(value == null ? null : Timetable.fromValue(value)),
+            new SnapshotPipeline.Sink<TimetableIndex>() {
+                @Override
+                public void onResult(TimetableIndex index) {
+                    if (index != null) {
+                        setValue(index);
+                    }
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    // Keep the last index
+                }
+            });
+
+    private final RemoteDatabase.ValueListener listener = new RemoteDatabase.ValueListener() {
+        @Override
+        public void onValue(@Nullable Object value) {
+            // Parsing and expanding are left to the pipeline
+            expander.submit(value == null ? Collections.emptyMap() : value);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            // Keep the last index; a schedule is only a convenience
+        }
+    };
+
+    public TimetableLiveData(RemoteDatabase database, String userId) {
+        this.database = database;
+        this.timetablePath = "timetable/" + userId;
+        database.keepSynced(timetablePath, true);
+    }
+
+    @Override
+    protected void onActive() {
+        // Back after midnight: move the seven days along
+        expander.submit(null);
+        registration = database.listen(timetablePath, listener);
+    }
+
+    @Override
+    protected void onInactive() {
+        registration.remove();
+        registration = null;
+        expander.cancel();
+    }
+
+    @Nullable
+    private TimetableIndex expand(@Nullable Timetable timetable) {
+        long now = System.currentTimeMillis();
+        if (timetable == null) {
+            if (latest == null || latest.covers(now)) {
+                return null;
+            }
+            timetable = latest.timetable();
+        }
+        if (latest != null && latest.covers(now)) {
+            latest = latest.update(timetable);
+        } else {
+            latest = TimetableIndex.build(timetable, now, TimeZone.getDefault());
+        }
+        return latest;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.attendo;
+
+/**
+ * Token bucket rate limiter: up to burst requests at once, then ratePerSecond on average.
+ * Not thread-safe; use it from one thread.
+ */
+public class TokenBucket {
+
+    private final double ratePerMs;
+    private final double burst;
+    private double tokens;
+    private long lastMs;
+    private boolean started;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.ratePerMs = ratePerSecond / 1000;
+        this.burst = burst;
+        this.tokens = burst;
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the millis until one will be
+     */
+    public long tryTake(long nowMs) {
+        refill(nowMs);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / ratePerMs));
+    }
+
+    /**
+     * Empty the bucket, e.g. when the server says we are going too fast.
+     */
+    public void drain(long nowMs) {
+        refill(nowMs);
+        tokens = 0;
+    }
+
+    private void refill(long nowMs) {
+        if (started) {
+            tokens = Math.min(burst, tokens + (nowMs - lastMs) * ratePerMs);
+        }
+        started = true;
+        lastMs = nowMs;
+    }
+}
@@ -1,11 +1,28 @@
 package com.example.attendo;
 
+import java.util.Collections;
+import java.util.List;
+
 public class User {
     public String username;
     public String email;
     public String skill;
     public String last_edited;
 
+    // Set by ProfileSavePipeline: server time of the last edit (epoch millis) and edit counter
+    public long updated_at;
+    public long version;
+
+    // Version of the profile photo (see PhotoRepository), 0 if there is none
+    public long photo;
+
+    // Read-only: where the student's directory cards are, see Enrollments; null before migration
+    public String institution;
+    public List<String> classes = Collections.emptyList();
+
+    // Read-only: maintained by AttendanceAggregator under users/<uid>/summary, never saved from here
+    public StudentSummary summary;
+
     // Required no-argument constructor for Firebase
     public User() {}
 
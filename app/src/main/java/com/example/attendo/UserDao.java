@@ -0,0 +1,25 @@
+package com.example.attendo;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface UserDao {
+
+    @Query("SELECT * FROM users WHERE uid = :uid")
+    UserEntity get(String uid);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(UserEntity user);
+
+    @Query("SELECT * FROM users WHERE pending_since != 0")
+    List<UserEntity> getPending();
+
+    // Only clears the flag if no newer local edit arrived while the write was in flight
+    @Query("UPDATE users SET pending_since = 0 WHERE uid = :uid AND pending_since = :pendingSince")
+    void markSynced(String uid, long pendingSince);
+}
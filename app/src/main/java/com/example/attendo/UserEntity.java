@@ -0,0 +1,53 @@
+package com.example.attendo;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Local copy of users/<uid>. pendingSince is non-zero while a local edit
+ * has not been acknowledged by Firebase yet.
+ */
+@Entity(tableName = "users")
+public class UserEntity {
+
+    @PrimaryKey
+    @NonNull
+    public String uid = "";
+
+    public String username;
+    public String email;
+    public String skill;
+
+    @ColumnInfo(name = "last_edited")
+    public String lastEdited;
+
+    @ColumnInfo(name = "updated_at", defaultValue = "0")
+    public long updatedAt;
+
+    @ColumnInfo(defaultValue = "0")
+    public long version;
+
+    @ColumnInfo(name = "pending_since")
+    public long pendingSince;
+
+    public static UserEntity from(String uid, User user) {
+        UserEntity entity = new UserEntity();
+        entity.uid = uid;
+        entity.username = user.username;
+        entity.email = user.email;
+        entity.skill = user.skill;
+        entity.lastEdited = user.last_edited;
+        entity.updatedAt = user.updated_at;
+        entity.version = user.version;
+        return entity;
+    }
+
+    public User toUser() {
+        User user = new User(username, email, skill, lastEdited);
+        user.updated_at = updatedAt;
+        user.version = version;
+        return user;
+    }
+}
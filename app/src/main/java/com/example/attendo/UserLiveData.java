@@ -0,0 +1,158 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+/**
+ * Live view of a single users/<uid> node.
+ *
+ * The Firebase listener is attached when the first observer becomes active and removed
+ * when the last one stops, so any number of screens share one listener. The last User
+ * received stays cached in the LiveData and is handed to new observers straight away.
+ * On a cold start the copy kept in {@link LocalDatabase} is shown until Firebase answers.
+ * Snapshots are parsed by a {@link SnapshotPipeline}, so the main thread only sets values.
+ */
+public class UserLiveData extends LiveData<User> {
+
+    private final String userId;
+    private final RemoteDatabase database;
+    private final UserDao userDao;
+    private final MutableLiveData<Event<String>> error = new MutableLiveData<>();
+    private User serverValue;
+    // Time from the first observer to the first server answer, recorded once
+    private Metrics.Span firstLoad;
+    private boolean firstLoadStarted;
+    private RemoteDatabase.Registration registration;
+
+    // Parses each snapshot off the main thread; cancelled while nobody observes
+    private final SnapshotPipeline<Object, Parsed> parser = SnapshotPipeline.onMainThread(
+            value -> new Parsed(UserMapper.fromValue(value), AttendanceWriter.estimateBytes(value)),
+            new SnapshotPipeline.Sink<Parsed>() {
+                @Override
+                public void onResult(Parsed parsed) {
+                    if (firstLoad != null) {
+                        firstLoad.end(null, parsed.bytes);
+                        firstLoad = null;
+                    }
+                    if (parsed.user != null) {
+                        error.setValue(null);
+                        serverValue = parsed.user;
+                        setValue(parsed.user);
+                        storeLocally(parsed.user);
+                    }
+                }
+
+                @Override
+                public void onError(Exception parseError) {
+                    error.setValue(new Event<>(parseError.getMessage()));
+                }
+            });
+
+    private final RemoteDatabase.ValueListener listener = new RemoteDatabase.ValueListener() {
+        @Override
+        public void onValue(@Nullable Object value) {
+            parser.submit(value);
+        }
+
+        @Override
+        public void onError(Exception databaseError) {
+            if (firstLoad != null) {
+                firstLoad.end(databaseError);
+                firstLoad = null;
+            }
+            error.setValue(new Event<>(databaseError.getMessage()));
+        }
+    };
+
+    private static final class Parsed {
+        final User user;
+        final int bytes;
+
+        Parsed(@Nullable User user, int bytes) {
+            this.user = user;
+            this.bytes = bytes;
+        }
+    }
+
+    UserLiveData(String userId, RemoteDatabase database, UserDao userDao) {
+        this.userId = userId;
+        this.database = database;
+        this.userDao = userDao;
+    }
+
+    /**
+     * Message of the last failed read, to be {@link Event#take taken} once so that a
+     * screen observing later does not show it again; null once data is flowing again.
+     */
+    public LiveData<Event<String>> getError() {
+        return error;
+    }
+
+    /**
+     * Show a locally saved profile before Firebase echoes it back.
+     */
+    void showLocalEdit(User user) {
+        setValue(user);
+    }
+
+    /**
+     * Drop a local edit that was rejected and go back to the last server copy.
+     */
+    void revertLocalEdit() {
+        if (serverValue != null) {
+            setValue(serverValue);
+        }
+    }
+
+    /**
+     * Last profile Firebase delivered, ignoring local edits; null before the first answer.
+     */
+    User getServerValue() {
+        return serverValue;
+    }
+
+    @Override
+    protected void onActive() {
+        if (!firstLoadStarted) {
+            firstLoadStarted = true;
+            firstLoad = Metrics.get().begin(Metrics.PROFILE_FIRST_LOAD);
+        }
+        registration = database.listen("users/" + userId, listener);
+        if (getValue() == null) {
+            loadLocalCopy();
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        registration.remove();
+        registration = null;
+        parser.cancel();
+    }
+
+    private void loadLocalCopy() {
+        AppExecutors.diskIO().execute(() -> {
+            UserEntity entity = userDao.get(userId);
+            if (entity == null) {
+                return;
+            }
+            AppExecutors.mainThread().execute(() -> {
+                // Firebase may have answered while we were reading the disk
+                if (getValue() == null) {
+                    setValue(entity.toUser());
+                }
+            });
+        });
+    }
+
+    private void storeLocally(User user) {
+        AppExecutors.diskIO().execute(() -> {
+            UserEntity existing = userDao.get(userId);
+            // Don't clobber a local edit that is still waiting to be pushed
+            if (existing == null || existing.pendingSince == 0) {
+                userDao.upsert(UserEntity.from(userId, user));
+            }
+        });
+    }
+}
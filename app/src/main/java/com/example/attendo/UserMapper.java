@@ -0,0 +1,68 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts between {@link User} and the plain maps Firebase reads and writes.
+ *
+ * Used instead of snapshot.getValue(User.class) / setValue(user), which go through
+ * Firebase's reflection-based class mapper on every change.
+ */
+public final class UserMapper {
+
+    private UserMapper() {}
+
+    /**
+     * Build a User from snapshot.getValue(). Returns null if the node is missing or not an object.
+     */
+    public static User fromValue(Object value) {
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        return fromMap((Map<?, ?>) value);
+    }
+
+    public static User fromMap(Map<?, ?> map) {
+        User user = new User();
+        user.username = Values.asString(map.get("username"));
+        user.email = Values.asString(map.get("email"));
+        user.skill = Values.asString(map.get("skill"));
+        user.last_edited = Values.asString(map.get("last_edited"));
+        user.updated_at = Values.asLong(map.get("updated_at"));
+        user.version = Values.asLong(map.get("version"));
+        user.photo = Values.asLong(map.get("photo"));
+        user.institution = Values.asString(map.get("institution"));
+        if (map.get("classes") instanceof Map) {
+            List<String> classes = new ArrayList<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) map.get("classes")).entrySet()) {
+                if (Boolean.TRUE.equals(entry.getValue())) {
+                    classes.add(String.valueOf(entry.getKey()));
+                }
+            }
+            Collections.sort(classes);
+            user.classes = classes;
+        }
+        if (map.get("summary") != null) {
+            user.summary = StudentSummary.fromValue(map.get("summary"));
+        }
+        return user;
+    }
+
+    /**
+     * Profile fields only; the attendance summary is owned by {@link AttendanceAggregator},
+     * updated_at/version by {@link ProfileSavePipeline} and institution/classes by
+     * {@link Enrollments}.
+     */
+    public static Map<String, Object> toMap(User user) {
+        Map<String, Object> map = new HashMap<>(8);
+        map.put("username", user.username);
+        map.put("email", user.email);
+        map.put("skill", user.skill);
+        map.put("last_edited", user.last_edited);
+        return map;
+    }
+}
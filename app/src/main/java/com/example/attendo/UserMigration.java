@@ -0,0 +1,247 @@
+package com.example.attendo;
+
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies the accounts in the global users/ node into the partitioned directory
+ * ({@link Enrollments}): a member card per account, class cards for the classes the
+ * {@link Placement} assigns, and the reverse index on the profile.
+ *
+ * Accounts are read in uid order, a chunk at a time. Each chunk is one multi-path update
+ * that also advances the checkpoint at migrations/<name>, so a chunk is either fully
+ * applied and recorded or not at all. After a crash, an error or {@link #cancel} the
+ * next run resumes after the last recorded chunk; a finished migration does nothing.
+ * Every write sets a value rather than adding to one, so re-applying a chunk is harmless.
+ *
+ * A profile edited between the read and the write of its chunk gets the card as read;
+ * running the migration while users are editing profiles may leave such a card behind
+ * until the next edit.
+ */
+public class UserMigration {
+
+    static final int DEFAULT_CHUNK_SIZE = 200;
+
+    /**
+     * Pages through users/ in key order.
+     */
+    public interface Source {
+        /**
+         * Load up to size accounts with uids after the given one (from the start if null).
+         */
+        void loadAfter(@Nullable String uid, int size, Callback callback);
+
+        interface Callback {
+            /**
+             * @param page uid to the raw value of users/<uid>, in uid order
+             */
+            void onLoaded(Map<String, Object> page);
+
+            void onError(Exception error);
+        }
+    }
+
+    /**
+     * Where an account belongs.
+     */
+    public interface Placement {
+        /**
+         * @return the account's institution and classes, or null to leave it out
+         */
+        @Nullable
+        Target place(String uid, User user);
+    }
+
+    public static final class Target {
+        public final String institution;
+        public final List<String> classes;
+
+        public Target(String institution, List<String> classes) {
+            this.institution = institution;
+            this.classes = classes;
+        }
+    }
+
+    public interface Listener {
+        void onProgress(Progress progress);
+
+        void onDone(Progress progress);
+
+        /**
+         * The run stopped; nothing after the last recorded chunk was applied.
+         */
+        void onError(Exception error);
+    }
+
+    public static final class Progress {
+        public final int migrated;
+        public final int skipped;
+        @Nullable
+        public final String cursor;
+
+        Progress(int migrated, int skipped, @Nullable String cursor) {
+            this.migrated = migrated;
+            this.skipped = skipped;
+            this.cursor = cursor;
+        }
+    }
+
+    /**
+     * Every account not in an institution yet into this one, in no class. Accounts that
+     * already joined one, e.g. through a roster import, keep their institution and classes.
+     */
+    public static Placement into(String institution) {
+        return (uid, user) -> user.institution != null ? null : new Target(institution, Collections.emptyList());
+    }
+
+    private final RemoteDatabase database;
+    private final Source source;
+    private final Placement placement;
+    private final String checkpoint;
+    private final int chunkSize;
+    private volatile boolean cancelled;
+
+    public UserMigration(RemoteDatabase database, Source source, Placement placement, String name) {
+        this(database, source, placement, name, DEFAULT_CHUNK_SIZE);
+    }
+
+    UserMigration(RemoteDatabase database, Source source, Placement placement, String name, int chunkSize) {
+        this.database = database;
+        this.source = source;
+        this.placement = placement;
+        this.checkpoint = "migrations/" + name;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Run from the checkpoint to the end, or until an error or {@link #cancel}.
+     */
+    public void run(Listener listener) {
+        readOnce(database, checkpoint, new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                Map<?, ?> state = value instanceof Map ? (Map<?, ?>) value : Collections.emptyMap();
+                Progress progress = new Progress((int) Values.asLong(state.get("migrated")),
+                        (int) Values.asLong(state.get("skipped")), Values.asString(state.get("cursor")));
+                if (Boolean.TRUE.equals(state.get("done"))) {
+                    listener.onDone(progress);
+                } else {
+                    next(progress, listener);
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                listener.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Stop after the chunk in flight; the next run resumes from there.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void next(Progress progress, Listener listener) {
+        if (cancelled) {
+            listener.onError(new IllegalStateException("Cancelled"));
+            return;
+        }
+        source.loadAfter(progress.cursor, chunkSize, new Source.Callback() {
+            @Override
+            public void onLoaded(Map<String, Object> page) {
+                write(progress, page, listener);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                listener.onError(error);
+            }
+        });
+    }
+
+    private void write(Progress progress, Map<String, Object> page, Listener listener) {
+        Map<String, Object> updates = new HashMap<>();
+        int migrated = 0;
+        int skipped = 0;
+        String cursor = progress.cursor;
+        for (Map.Entry<String, Object> account : page.entrySet()) {
+            String uid = account.getKey();
+            cursor = uid;
+            User user = UserMapper.fromValue(account.getValue());
+            Target target = user == null ? null : placement.place(uid, user);
+            if (target == null) {
+                skipped++;
+                continue;
+            }
+            updates.putAll(Enrollments.join(target.institution, uid, user));
+            for (String classId : target.classes) {
+                updates.putAll(Enrollments.enroll(target.institution, classId, uid, user));
+            }
+            migrated++;
+        }
+
+        boolean done = page.size() < chunkSize;
+        updates.put(checkpoint + "/cursor", cursor);
+        updates.put(checkpoint + "/migrated", progress.migrated + migrated);
+        updates.put(checkpoint + "/skipped", progress.skipped + skipped);
+        if (done) {
+            updates.put(checkpoint + "/done", true);
+        }
+        Progress next = new Progress(progress.migrated + migrated, progress.skipped + skipped, cursor);
+        database.updateChildren(updates, error -> {
+            if (error != null) {
+                listener.onError(error);
+            } else if (done) {
+                listener.onDone(next);
+            } else {
+                listener.onProgress(next);
+                next(next, listener);
+            }
+        });
+    }
+
+    /**
+     * Deliver the value at a path once, then stop listening.
+     */
+    static void readOnce(RemoteDatabase database, String path, RemoteDatabase.ValueListener listener) {
+        RemoteDatabase.Registration[] registration = new RemoteDatabase.Registration[1];
+        boolean[] answered = new boolean[1];
+        registration[0] = database.listen(path, new RemoteDatabase.ValueListener() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                if (answer()) {
+                    listener.onValue(value);
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                if (answer()) {
+                    listener.onError(error);
+                }
+            }
+
+            private boolean answer() {
+                if (answered[0]) {
+                    return false;
+                }
+                answered[0] = true;
+                if (registration[0] != null) {
+                    registration[0].remove();
+                }
+                return true;
+            }
+        });
+        // Answered from the cache before listen() returned
+        if (answered[0]) {
+            registration[0].remove();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.attendo;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link UserMigration} into one institution to the end. A failed chunk makes
+ * WorkManager retry with backoff, and the retry resumes from the migration's checkpoint
+ * at migrations/users_to_directory/<institution>.
+ */
+public class UserMigrationWorker extends Worker {
+
+    static final String MIGRATION = "users_to_directory";
+    private static final String WORK_NAME = "user-migration";
+    private static final String KEY_INSTITUTION = "institution";
+
+    /**
+     * Each institution's migration has its own checkpoint, so finishing one does not
+     * stop another from running.
+     */
+    static String migrationName(String institution) {
+        return MIGRATION + "/" + institution;
+    }
+
+    public UserMigrationWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void schedule(Context context, String institution) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(UserMigrationWorker.class)
+                .setInputData(new Data.Builder().putString(KEY_INSTITUTION, institution).build())
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+        // A run already going carries on; its checkpoint makes a second one pointless
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME + "-" + institution,
+                ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String institution = getInputData().getString(KEY_INSTITUTION);
+        if (institution == null) {
+            return Result.failure();
+        }
+        UserMigration migration = new UserMigration(FirebaseRemoteDatabase.getInstance(),
+                new RemoteUserSource(FirebaseRemoteDatabase.getInstance()),
+                UserMigration.into(institution), migrationName(institution));
+        CountDownLatch finished = new CountDownLatch(1);
+        boolean[] done = new boolean[1];
+        AppExecutors.mainThread().execute(() -> migration.run(new UserMigration.Listener() {
+            @Override
+            public void onProgress(UserMigration.Progress progress) {
+                if (isStopped()) {
+                    migration.cancel();
+                }
+            }
+
+            @Override
+            public void onDone(UserMigration.Progress progress) {
+                done[0] = true;
+                finished.countDown();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                finished.countDown();
+            }
+        }));
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            // Stopped by WorkManager; the checkpoint keeps what was done
+            migration.cancel();
+            return Result.retry();
+        }
+        return done[0] ? Result.success() : Result.retry();
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.attendo;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide entry point for user profiles.
+ *
+ * Every screen asking for the same uid gets the same {@link UserLiveData}, so there is at
+ * most one Firebase listener per user no matter how often the screens are opened.
+ * Writes go to {@link LocalDatabase} first and are pushed to Firebase in the background,
+ * through the durable {@link OutboxSync} queue when they cannot go out right away.
+ */
+public class UserRepository {
+
+    // Saves pressed within this window go out as one write
+    private static final long SAVE_WINDOW_MS = 500;
+
+    private static UserRepository instance;
+
+    private final RemoteDatabase database;
+    private final UserDao userDao;
+    private final OutboxSync outbox;
+    private final Map<String, UserLiveData> users = new HashMap<>();
+    private final Map<String, ProfileSavePipeline> pipelines = new HashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private UserRepository(RemoteDatabase database, UserDao userDao, OutboxSync outbox) {
+        this.database = database;
+        this.userDao = userDao;
+        this.outbox = outbox;
+    }
+
+    public static synchronized UserRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new UserRepository(FirebaseRemoteDatabase.getInstance(),
+                    LocalDatabase.getInstance(context).userDao(), OutboxSync.getInstance(context));
+        }
+        return instance;
+    }
+
+    /**
+     * Shared, lifecycle-aware view of users/<uid>. Observe it with a LifecycleOwner so the
+     * listener is detached while the screen is stopped.
+     */
+    public synchronized UserLiveData getUser(String userId) {
+        UserLiveData user = users.get(userId);
+        if (user == null) {
+            // Keep the signed-in profile in Firebase's disk cache even while nobody listens
+            database.keepSynced("users/" + userId, true);
+            user = new UserLiveData(userId, database, userDao);
+            users.put(userId, user);
+        }
+        return user;
+    }
+
+    /**
+     * Store the profile locally, show it right away, and queue it for Firebase. The
+     * returned task completes once the profile is safely on disk; the upload itself
+     * happens in the background whether or not the calling screen is still open.
+     */
+    public Task<Void> saveUser(String userId, User user) {
+        UserLiveData live;
+        synchronized (this) {
+            live = users.get(userId);
+        }
+        if (live != null) {
+            live.showLocalEdit(user);
+        }
+
+        TaskCompletionSource<Void> result = new TaskCompletionSource<>();
+        AppExecutors.diskIO().execute(() -> {
+            UserEntity entity = UserEntity.from(userId, user);
+            entity.pendingSince = System.currentTimeMillis();
+            userDao.upsert(entity);
+            push(entity);
+            result.trySetResult(null);
+        });
+        return result.getTask();
+    }
+
+    /**
+     * Save an edit from the profile screen. Only fields that differ from the last server
+     * copy are written, rapid saves are coalesced, and the write is rejected with
+     * {@link ProfileSavePipeline.Listener#onConflict()} if another device saved first.
+     * Must be called on the main thread.
+     */
+    public void saveProfile(String userId, User edited, ProfileSavePipeline.Listener listener) {
+        UserLiveData live = getUser(userId);
+        ProfileSavePipeline pipeline;
+        synchronized (this) {
+            pipeline = pipelines.get(userId);
+            if (pipeline == null) {
+                pipeline = new ProfileSavePipeline(database, userId,
+                        mainHandler::postDelayed, SAVE_WINDOW_MS);
+                pipelines.put(userId, pipeline);
+            }
+        }
+
+        User server = live.getServerValue();
+        edited.version = server == null ? 0 : server.version;
+        edited.updated_at = server == null ? 0 : server.updated_at;
+        edited.last_edited = server == null ? null : server.last_edited;
+        edited.institution = server == null ? null : server.institution;
+        edited.classes = server == null ? edited.classes : server.classes;
+        live.showLocalEdit(edited);
+        long pendingSince = System.currentTimeMillis();
+        AppExecutors.diskIO().execute(() -> {
+            UserEntity entity = UserEntity.from(userId, edited);
+            entity.pendingSince = pendingSince;
+            userDao.upsert(entity);
+        });
+
+        pipeline.save(server, edited, new ProfileSavePipeline.Listener() {
+            @Override
+            public void onSaved(int fieldsWritten) {
+                markSynced(userId, pendingSince);
+                listener.onSaved(fieldsWritten);
+            }
+
+            @Override
+            public void onConflict() {
+                // The other device's profile wins; drop ours instead of overwriting it
+                markSynced(userId, pendingSince);
+                live.revertLocalEdit();
+                listener.onConflict();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                // Couldn't check the version now (offline?): hand the edit to the outbox
+                // so it survives the screen closing, and let the caller say so
+                AppExecutors.diskIO().execute(() -> {
+                    UserEntity entity = UserEntity.from(userId, edited);
+                    entity.pendingSince = pendingSince;
+                    push(entity);
+                });
+                listener.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Queue every local edit that Firebase has not acknowledged yet. Edits already in the
+     * outbox are replaced, not duplicated.
+     */
+    public void syncPending() {
+        AppExecutors.diskIO().execute(() -> {
+            for (UserEntity entity : userDao.getPending()) {
+                push(entity);
+            }
+        });
+    }
+
+    /**
+     * Drop every cached profile, e.g. on sign out. Observers still attached keep their
+     * listener until they stop; new requests start from scratch.
+     */
+    public synchronized void clear() {
+        for (String userId : users.keySet()) {
+            database.keepSynced("users/" + userId, false);
+        }
+        users.clear();
+        pipelines.clear();
+    }
+
+    private void markSynced(String userId, long pendingSince) {
+        AppExecutors.diskIO().execute(() -> userDao.markSynced(userId, pendingSince));
+    }
+
+    /**
+     * Queue the edit under one key per user, so only the newest one is sent. Like
+     * {@link ProfileSavePipeline} it sends only the fields that differ from the server
+     * copy it was made on and sets the version to that copy's plus one, so the server
+     * turns it down if another device saved in between; the receipt lets the outbox
+     * tell a write whose acknowledgement was lost from one that never landed. The
+     * student's directory cards go along, located from the last server copy.
+     *
+     * Unlike the pipeline, the queued edit has no base to rebase from: if another device
+     * saved first it is rejected until the outbox gives up on it, and the server's copy
+     * wins.
+     */
+    private void push(UserEntity entity) {
+        String prefix = "users/" + entity.uid + "/";
+        UserLiveData live;
+        synchronized (this) {
+            live = users.get(entity.uid);
+        }
+        User server = live == null ? null : live.getServerValue();
+        User edited = entity.toUser();
+        // Without the copy the edit was based on, send every profile field that is set;
+        // the version still decides whether it lands
+        Map<String, Object> fields = server != null && server.version == entity.version
+                ? ProfileSavePipeline.delta(server, edited) : ProfileSavePipeline.fields(edited);
+        if (server == null && edited.last_edited != null) {
+            // A new account's "Just Created"
+            fields.put("last_edited", edited.last_edited);
+        }
+        if (fields.isEmpty()) {
+            markSynced(entity.uid, entity.pendingSince);
+            return;
+        }
+        Map<String, Object> updates = new HashMap<>();
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            updates.put(prefix + field.getKey(), field.getValue());
+        }
+        updates.putAll(Enrollments.profileUpdates(entity.uid, server, fields));
+        updates.put(prefix + "updated_at", database.serverTimestamp());
+        updates.put(prefix + "version", entity.version + 1);
+        Receipts.put(updates, database, "profile_" + entity.uid + "_" + entity.pendingSince);
+        outbox.enqueue("profile/" + entity.uid, updates, "user|" + entity.uid + "|" + entity.pendingSince);
+    }
+}
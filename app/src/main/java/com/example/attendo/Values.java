@@ -0,0 +1,17 @@
+package com.example.attendo;
+
+/**
+ * Lenient conversions for values read out of snapshot.getValue() maps.
+ */
+final class Values {
+
+    private Values() {}
+
+    static String asString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    static long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.attendo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Minimal streaming XLSX (Office Open XML) writer.
+ *
+ * Sheets are written row by row with inline strings, so there is no shared-strings table
+ * to build up in memory. The workbook parts that list the sheets are written last, once
+ * the number of sheets is known; zip readers don't care about entry order. A sheet holds
+ * at most {@link #MAX_ROWS} rows, after which the report continues on a new sheet.
+ */
+public class XlsxReportWriter implements ReportWriter {
+
+    static final int MAX_ROWS = 1_048_576;
+
+    private final ZipOutputStream zip;
+    private final ChannelSink out;
+    private String[] header;
+    private int sheets;
+    private int rowsInSheet;
+
+    public XlsxReportWriter(WritableByteChannel channel, int bufferSize) {
+        OutputStream stream = Channels.newOutputStream(channel);
+        zip = new ZipOutputStream(stream);
+        out = new ChannelSink(Channels.newChannel(zip), bufferSize);
+    }
+
+    @Override
+    public void header(String[] columns) throws IOException {
+        header = columns.clone();
+        startSheet();
+    }
+
+    @Override
+    public void row(String[] cells) throws IOException {
+        if (sheets == 0) {
+            startSheet();
+        } else if (rowsInSheet == MAX_ROWS) {
+            endSheet();
+            startSheet();
+        }
+        writeRow(cells);
+    }
+
+    @Override
+    public long bytesWritten() {
+        return out.bytesWritten();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sheets == 0) {
+            startSheet();
+        }
+        endSheet();
+        writeWorkbook();
+        out.flush();
+        zip.close();
+    }
+
+    private void startSheet() throws IOException {
+        sheets++;
+        rowsInSheet = 0;
+        out.flush();
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheets + ".xml"));
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                + "<sheetData>");
+        if (header != null) {
+            writeRow(header);
+        }
+    }
+
+    private void endSheet() throws IOException {
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+    }
+
+    private void writeRow(String[] cells) throws IOException {
+        rowsInSheet++;
+        out.write("<row r=\"").write(rowsInSheet).write("\">");
+        for (String cell : cells) {
+            if (cell == null || cell.isEmpty()) {
+                out.write("<c/>");
+                continue;
+            }
+            out.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+            escape(cell);
+            out.write("</t></is></c>");
+        }
+        out.write("</row>");
+    }
+
+    private void escape(String value) throws IOException {
+        // Plain runs go out whole, so surrogate pairs stay together
+        int run = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String entity;
+            switch (c) {
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '"':
+                    entity = "&quot;";
+                    break;
+                default:
+                    // Control characters other than tab and newline are not allowed in XML
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        continue;
+                    }
+                    entity = "";
+            }
+            out.write(value, run, i).write(entity);
+            run = i + 1;
+        }
+        out.write(value, run, value.length());
+    }
+
+    private void writeWorkbook() throws IOException {
+        StringBuilder types = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                        + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                        + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                        + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                        + "<Override PartName=\"/xl/workbook.xml\" "
+                        + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        StringBuilder sheetList = new StringBuilder();
+        StringBuilder sheetRels = new StringBuilder();
+        for (int i = 1; i <= sheets; i++) {
+            types.append("<Override PartName=\"/xl/worksheets/sheet").append(i).append(".xml\" ")
+                    .append("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            sheetList.append("<sheet name=\"Attendance").append(i == 1 ? "" : " " + i)
+                    .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+            sheetRels.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" ")
+                    .append("Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        types.append("</Types>");
+
+        entry("[Content_Types].xml", types);
+        entry("_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" "
+                + "Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" "
+                + "Target=\"xl/workbook.xml\"/></Relationships>");
+        entry("xl/workbook.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                + "<sheets>" + sheetList + "</sheets></workbook>");
+        entry("xl/_rels/workbook.xml.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + sheetRels + "</Relationships>");
+    }
+
+    private void entry(String name, CharSequence content) throws IOException {
+        out.flush();
+        zip.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.flush();
+        zip.closeEntry();
+    }
+}
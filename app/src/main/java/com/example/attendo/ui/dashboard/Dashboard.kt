@@ -0,0 +1,49 @@
+package com.example.attendo.ui.dashboard
+
+import android.widget.PopupMenu
+import androidx.activity.ComponentActivity
+import androidx.activity.compose.setContent
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.livedata.observeAsState
+import androidx.compose.runtime.remember
+import androidx.lifecycle.LiveData
+import androidx.tracing.Trace
+import com.example.attendo.R
+import com.example.attendo.ui.theme.AttendoTheme
+
+/**
+ * Java entry point for the Compose dashboard.
+ */
+object Dashboard {
+
+    /**
+     * Replace the activity's content with the dashboard, observing [state] while the
+     * activity is started.
+     */
+    @JvmStatic
+    fun install(activity: ComponentActivity, state: LiveData<DashboardState>, actions: DashboardActions) {
+        Trace.beginSection("Dashboard.setContent")
+        try {
+            activity.setContent {
+                AttendoTheme(dynamicColor = false) {
+                    val current by state.observeAsState(DashboardState.EMPTY)
+                    val menu = remember { menuEntries(activity) }
+                    DashboardScreen(current, menu, actions)
+                }
+            }
+        } finally {
+            Trace.endSection()
+        }
+    }
+
+    private fun menuEntries(activity: ComponentActivity): List<MenuEntry> {
+        // PopupMenu is only used as a Menu to inflate into; it is never shown
+        val popup = PopupMenu(activity, activity.window.decorView)
+        popup.menuInflater.inflate(R.menu.menu_dropdown, popup.menu)
+        val menu = popup.menu
+        return (0 until menu.size()).map { index ->
+            val item = menu.getItem(index)
+            MenuEntry(item.itemId, item.title.toString())
+        }
+    }
+}
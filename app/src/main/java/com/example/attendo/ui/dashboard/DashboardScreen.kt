@@ -0,0 +1,230 @@
+package com.example.attendo.ui.dashboard
+
+import androidx.compose.foundation.Image
+import androidx.compose.foundation.background
+import androidx.compose.foundation.clickable
+import androidx.compose.foundation.layout.Arrangement
+import androidx.compose.foundation.layout.Box
+import androidx.compose.foundation.layout.Column
+import androidx.compose.foundation.layout.Row
+import androidx.compose.foundation.layout.Spacer
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.layout.size
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material3.Badge
+import androidx.compose.material3.BadgedBox
+import androidx.compose.material3.Card
+import androidx.compose.material3.DropdownMenu
+import androidx.compose.material3.DropdownMenuItem
+import androidx.compose.material3.LinearProgressIndicator
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Text
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.Immutable
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.setValue
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.ExperimentalComposeUiApi
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.res.painterResource
+import androidx.compose.ui.semantics.semantics
+import androidx.compose.ui.semantics.testTag
+import androidx.compose.ui.semantics.testTagsAsResourceId
+import androidx.compose.ui.unit.dp
+import com.example.attendo.R
+
+private const val TILES_PER_ROW = 4
+private val TILE_ROWS = DashboardTile.values().toList().chunked(TILES_PER_ROW)
+private val HeaderColor = Color(0xFFFF4444)
+private val ScreenColor = Color(0xFFFFF3F3)
+
+/**
+ * A dropdown entry, taken from res/menu/menu_dropdown.xml so the menu is declared once.
+ */
+@Immutable
+data class MenuEntry(val id: Int, val title: String)
+
+/**
+ * Callbacks for the dashboard, implemented by MainActivity. [DashboardTile.MORE] is
+ * handled here by opening the menu.
+ */
+interface DashboardActions {
+    fun onTile(tile: DashboardTile)
+    fun onSchedule()
+    fun onMenuItem(id: Int)
+}
+
+/**
+ * Header, tile grid and per-subject attendance as one lazy list. Every item has a stable
+ * key and a content type, so updates to one subject only recompose that row and rows of
+ * the same type reuse each other's slots while scrolling.
+ */
+@OptIn(ExperimentalComposeUiApi::class)
+@Composable
+fun DashboardScreen(state: DashboardState, menu: List<MenuEntry>, actions: DashboardActions) {
+    RecompositionCounter("DashboardScreen")
+    var menuOpen by remember { mutableStateOf(false) }
+    val onTile = remember(actions) {
+        { tile: DashboardTile -> if (tile == DashboardTile.MORE) menuOpen = true else actions.onTile(tile) }
+    }
+    LazyColumn(
+        modifier = Modifier
+            .fillMaxSize()
+            .background(ScreenColor)
+            // Lets UiAutomator (and the macrobenchmarks) find elements by test tag
+            .semantics {
+                testTagsAsResourceId = true
+                testTag = "dashboard_list"
+            },
+    ) {
+        item(key = "header", contentType = "header") {
+            Header(state.greeting, state.attendance, state.schedule, menu, menuOpen, { menuOpen = it }, actions)
+        }
+        items(TILE_ROWS.size, key = { "tiles-$it" }, contentType = { "tiles" }) { index ->
+            TileRow(TILE_ROWS[index], state.pendingSync, onTile)
+        }
+        item(key = "subjects-title", contentType = "title") {
+            Text(
+                text = if (state.subjects.isEmpty()) "No sessions yet" else "Subjects",
+                style = MaterialTheme.typography.titleMedium,
+                modifier = Modifier.padding(start = 16.dp, top = 16.dp, bottom = 8.dp),
+            )
+        }
+        items(state.subjects, key = { it.key }, contentType = { "subject" }) { subject ->
+            SubjectRow(subject)
+        }
+    }
+}
+
+@Composable
+private fun Header(
+    greeting: String,
+    attendance: String?,
+    schedule: String?,
+    menu: List<MenuEntry>,
+    menuOpen: Boolean,
+    onMenuOpen: (Boolean) -> Unit,
+    actions: DashboardActions,
+) {
+    RecompositionCounter("Header")
+    Row(
+        modifier = Modifier
+            .fillMaxWidth()
+            .background(HeaderColor)
+            .padding(32.dp, 16.dp, 16.dp, 16.dp),
+        verticalAlignment = Alignment.CenterVertically,
+    ) {
+        Column(modifier = Modifier.weight(1f)) {
+            Text(greeting, color = Color.White, style = MaterialTheme.typography.titleLarge)
+            if (attendance != null) {
+                Text(attendance, color = Color.White, style = MaterialTheme.typography.bodyMedium)
+            }
+            if (schedule != null) {
+                Text(
+                    schedule,
+                    color = Color.White,
+                    style = MaterialTheme.typography.bodyMedium,
+                    modifier = Modifier.clickable { actions.onSchedule() },
+                )
+            }
+        }
+        Box {
+            Image(
+                painter = painterResource(R.drawable.baseline_account_circle_24),
+                contentDescription = "Menu",
+                modifier = Modifier
+                    .size(32.dp)
+                    .clickable { onMenuOpen(true) }
+                    .semantics { testTag = "menu" },
+            )
+            DropdownMenu(expanded = menuOpen, onDismissRequest = { onMenuOpen(false) }) {
+                for (entry in menu) {
+                    DropdownMenuItem(
+                        text = { Text(entry.title) },
+                        onClick = {
+                            onMenuOpen(false)
+                            actions.onMenuItem(entry.id)
+                        },
+                    )
+                }
+            }
+        }
+    }
+}
+
+@Composable
+private fun TileRow(tiles: List<DashboardTile>, pendingSync: Int, onTile: (DashboardTile) -> Unit) {
+    RecompositionCounter("TileRow")
+    Row(
+        modifier = Modifier
+            .fillMaxWidth()
+            .padding(horizontal = 8.dp, vertical = 4.dp),
+        horizontalArrangement = Arrangement.SpaceEvenly,
+    ) {
+        for (tile in tiles) {
+            Tile(tile, if (tile == DashboardTile.SYNC) pendingSync else 0, onTile, Modifier.weight(1f))
+        }
+    }
+}
+
+@Composable
+private fun Tile(tile: DashboardTile, badge: Int, onTile: (DashboardTile) -> Unit, modifier: Modifier) {
+    Card(
+        modifier = modifier
+            .padding(4.dp)
+            .clickable { onTile(tile) }
+            .semantics { testTag = "tile_" + tile.name.lowercase() },
+    ) {
+        Column(
+            modifier = Modifier
+                .fillMaxWidth()
+                .padding(vertical = 12.dp),
+            horizontalAlignment = Alignment.CenterHorizontally,
+        ) {
+            BadgedBox(badge = { if (badge > 0) Badge { Text(badge.toString()) } }) {
+                Image(
+                    painter = painterResource(tile.icon),
+                    contentDescription = null,
+                    modifier = Modifier.size(36.dp),
+                )
+            }
+            Spacer(modifier = Modifier.size(6.dp))
+            Text(tile.label, style = MaterialTheme.typography.labelMedium)
+        }
+    }
+}
+
+@Composable
+private fun SubjectRow(subject: SubjectRowState) {
+    RecompositionCounter("SubjectRow")
+    Column(
+        modifier = Modifier
+            .fillMaxWidth()
+            .padding(horizontal = 16.dp, vertical = 8.dp),
+    ) {
+        Row(verticalAlignment = Alignment.CenterVertically) {
+            Text(subject.key, style = MaterialTheme.typography.bodyLarge, modifier = Modifier.weight(1f))
+            Text(
+                if (subject.percentage < 0) "-" else "${subject.percentage}%",
+                style = MaterialTheme.typography.bodyLarge,
+            )
+        }
+        LinearProgressIndicator(
+            progress = { if (subject.total == 0) 0f else subject.attended.toFloat() / subject.total },
+            modifier = Modifier
+                .fillMaxWidth()
+                .padding(vertical = 4.dp),
+        )
+        Text(
+            "${subject.attended}/${subject.total} attended" +
+                if (subject.streak > 1) ", ${subject.streak} in a row" else "",
+            style = MaterialTheme.typography.bodySmall,
+        )
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.attendo.ui.dashboard
+
+import androidx.annotation.DrawableRes
+import androidx.compose.runtime.Immutable
+import com.example.attendo.R
+import com.example.attendo.User
+
+/**
+ * Everything the dashboard draws, derived from the signed-in [User], the timetable and
+ * the outbox.
+ * Instances are never mutated; a change in the data layer produces a new one, so
+ * Compose can skip every part of the screen whose slice of the state is equal.
+ */
+@Immutable
+data class DashboardState(
+    val greeting: String,
+    val attendance: String?,
+    // The session in progress or the next one, if the timetable has any
+    val schedule: String?,
+    val pendingSync: Int,
+    val subjects: List<SubjectRowState>,
+) {
+    companion object {
+        @JvmField
+        val EMPTY = DashboardState("Hii", null, null, 0, emptyList())
+
+        @JvmStatic
+        fun from(user: User?, schedule: String?, pendingSync: Int): DashboardState {
+            if (user == null) {
+                return EMPTY.copy(schedule = schedule, pendingSync = pendingSync)
+            }
+            val summary = user.summary
+            val attendance = if (summary != null && summary.percentage() >= 0) {
+                "Attendance ${summary.percentage()}% (${summary.attended}/${summary.total})"
+            } else {
+                null
+            }
+            val subjects = summary?.subjects.orEmpty()
+                .map { (key, subject) ->
+                    SubjectRowState(
+                        key = key,
+                        attended = subject.attended,
+                        total = subject.total,
+                        streak = subject.streak,
+                    )
+                }
+                .sortedBy { it.key }
+            return DashboardState("Hii, ${user.username}", attendance, schedule, pendingSync, subjects)
+        }
+    }
+}
+
+/**
+ * One subject's line in the attendance list; [key] is the subject key and the list key.
+ */
+@Immutable
+data class SubjectRowState(
+    val key: String,
+    val attended: Int,
+    val total: Int,
+    val streak: Int,
+) {
+    val percentage: Int
+        get() = if (total == 0) -1 else Math.round(attended * 100f / total)
+}
+
+/**
+ * The dashboard tiles, in display order.
+ */
+enum class DashboardTile(val label: String, @DrawableRes val icon: Int) {
+    PROFILE("Profile", R.drawable.ic_1),
+    SEARCH("Search", R.drawable.ic_2),
+    ROSTER("Roster", R.drawable.ic_3),
+    REPORTS("Reports", R.drawable.ic_4),
+    CHECK_IN("Check-in", R.drawable.ic_5),
+    SYNC("Sync now", R.drawable.ic_6),
+    SETTINGS("Settings", R.drawable.ic_7),
+    MORE("More", R.drawable.ic_8),
+}
@@ -0,0 +1,35 @@
+package com.example.attendo.ui.dashboard
+
+import android.util.Log
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.SideEffect
+import com.example.attendo.BuildConfig
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Debug-only count of how often each tagged composable recomposes. Place
+ * [RecompositionCounter] first in a composable body; in release builds it does nothing.
+ * Counts are logged under the "Recompose" tag and kept until [reset].
+ */
+object RecompositionCounters {
+
+    private val counts = ConcurrentHashMap<String, AtomicLong>()
+
+    fun snapshot(): Map<String, Long> = counts.mapValues { it.value.get() }.toSortedMap()
+
+    fun reset() = counts.clear()
+
+    internal fun record(tag: String) {
+        val count = counts.getOrPut(tag) { AtomicLong() }.incrementAndGet()
+        Log.d("Recompose", "$tag #$count")
+    }
+}
+
+@Composable
+fun RecompositionCounter(tag: String) {
+    if (BuildConfig.DEBUG) {
+        // Runs once per successful composition of the caller
+        SideEffect { RecompositionCounters.record(tag) }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.attendo.ui.session
+
+import androidx.activity.ComponentActivity
+import androidx.activity.compose.setContent
+import androidx.compose.foundation.background
+import androidx.compose.foundation.clickable
+import androidx.compose.foundation.layout.Column
+import androidx.compose.foundation.layout.Row
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.material3.Button
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Text
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.Immutable
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.livedata.observeAsState
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.unit.dp
+import androidx.lifecycle.LiveData
+import com.example.attendo.ChildList
+import com.example.attendo.SessionSheet
+import com.example.attendo.SessionSheetLiveData
+import com.example.attendo.ui.dashboard.RecompositionCounter
+import com.example.attendo.ui.theme.AttendoTheme
+
+/**
+ * One mark as the session screen shows it.
+ */
+@Immutable
+data class MarkRowState(val studentUid: String, val status: String, val pending: Boolean)
+
+/**
+ * Callbacks for the session screen, implemented by SessionActivity.
+ */
+interface SessionActions {
+    /**
+     * Record the session from the roster and the check-ins.
+     */
+    fun onFinish()
+
+    /**
+     * The teacher tapped a mark to change it.
+     */
+    fun onCorrect(studentUid: String, status: String)
+}
+
+/**
+ * The sheet's rows as of one change set. A new instance per change set, so the list
+ * is rebuilt exactly when the rows changed.
+ */
+private class SheetRows(val rows: ChildList<SessionSheet.Row>, val size: Int)
+
+/**
+ * Java entry point for the session screen.
+ */
+object SessionScreen {
+
+    @JvmStatic
+    fun install(
+        activity: ComponentActivity,
+        title: String,
+        subtitle: String,
+        sheet: SessionSheetLiveData,
+        present: LiveData<Int>,
+        standing: LiveData<String>,
+        actions: SessionActions,
+    ) {
+        val rows = sheet.sheet().rows()
+        activity.setContent {
+            AttendoTheme(dynamicColor = false) {
+                // Each change set means the rows moved on; the list itself reads only the
+                // rows on screen, by key, so nothing is copied or diffed
+                val changes by sheet.observeAsState()
+                val marks = remember(changes) { SheetRows(rows, rows.size()) }
+                val currentPresent by present.observeAsState(0)
+                val currentStanding by standing.observeAsState()
+                SessionContent(title, subtitle, currentPresent, currentStanding, marks, actions)
+            }
+        }
+    }
+}
+
+@Composable
+private fun SessionContent(
+    title: String,
+    subtitle: String,
+    present: Int,
+    standing: String?,
+    marks: SheetRows,
+    actions: SessionActions,
+) {
+    RecompositionCounter("SessionContent")
+    LazyColumn(modifier = Modifier.fillMaxSize()) {
+        item(key = "header", contentType = "header") {
+            Column(
+                modifier = Modifier
+                    .fillMaxWidth()
+                    .background(Color(0xFFFF4444))
+                    .padding(16.dp),
+            ) {
+                Text(title, color = Color.White, style = MaterialTheme.typography.titleLarge)
+                Text(subtitle, color = Color.White, style = MaterialTheme.typography.bodyMedium)
+                Text("Present now: $present", color = Color.White, style = MaterialTheme.typography.bodyMedium)
+                if (standing != null) {
+                    Text(standing, color = Color.White, style = MaterialTheme.typography.bodyMedium)
+                }
+                Button(onClick = actions::onFinish, modifier = Modifier.padding(top = 8.dp)) {
+                    Text("Finish session")
+                }
+            }
+        }
+        if (marks.size == 0) {
+            item(key = "empty", contentType = "empty") {
+                Text("No marks yet", modifier = Modifier.padding(16.dp))
+            }
+        }
+        items(marks.size, key = { marks.rows.keyAt(it) }, contentType = { "mark" }) { index ->
+            val row = marks.rows.get(index)
+            MarkRow(MarkRowState(row.studentUid, row.status, row.pending), actions)
+        }
+    }
+}
+
+@Composable
+private fun MarkRow(mark: MarkRowState, actions: SessionActions) {
+    RecompositionCounter("MarkRow")
+    Row(
+        modifier = Modifier
+            .fillMaxWidth()
+            .clickable { actions.onCorrect(mark.studentUid, mark.status) }
+            .padding(horizontal = 16.dp, vertical = 10.dp),
+    ) {
+        Text(mark.studentUid, modifier = Modifier.weight(1f), style = MaterialTheme.typography.bodyLarge)
+        Text(
+            if (mark.pending) "${mark.status} (not synced)" else mark.status,
+            style = MaterialTheme.typography.bodyLarge,
+        )
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.attendo.ui.timeline
+
+import androidx.activity.ComponentActivity
+import androidx.activity.compose.setContent
+import androidx.compose.foundation.background
+import androidx.compose.foundation.layout.Arrangement
+import androidx.compose.foundation.layout.Box
+import androidx.compose.foundation.layout.Column
+import androidx.compose.foundation.layout.Row
+import androidx.compose.foundation.layout.aspectRatio
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.foundation.lazy.rememberLazyListState
+import androidx.compose.foundation.shape.RoundedCornerShape
+import androidx.compose.material3.Card
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Text
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.Immutable
+import androidx.compose.runtime.LaunchedEffect
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.livedata.observeAsState
+import androidx.compose.runtime.snapshotFlow
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.graphics.lerp
+import androidx.compose.ui.unit.dp
+import com.example.attendo.TimelineBuckets
+import com.example.attendo.TimelineLiveData
+import com.example.attendo.TimelineMonth
+import com.example.attendo.ui.dashboard.RecompositionCounter
+import com.example.attendo.ui.theme.AttendoTheme
+import kotlinx.coroutines.flow.distinctUntilChanged
+import java.text.DateFormat
+import java.text.SimpleDateFormat
+import java.util.Calendar
+import java.util.Date
+import java.util.Locale
+import java.util.TimeZone
+
+private val HeaderColor = Color(0xFFFF4444)
+private val NoClassColor = Color(0xFFEEEEEE)
+private val AbsentColor = Color(0xFFE57373)
+private val AttendedColor = Color(0xFF66BB6A)
+private val WEEKDAYS = listOf("S", "M", "T", "W", "T", "F", "S")
+
+/**
+ * One month card: the key, and the month as far as it has loaded (null before its
+ * summary was asked for). [TimelineMonth] instances are replaced, never changed, so
+ * equal slots mean nothing to redraw.
+ */
+@Immutable
+private data class MonthSlot(val key: String, val month: TimelineMonth?)
+
+/**
+ * Java entry point for the history screen.
+ */
+object TimelineScreen {
+
+    @JvmStatic
+    fun install(
+        activity: ComponentActivity,
+        title: String,
+        months: List<String>,
+        timeline: TimelineLiveData,
+    ) {
+        activity.setContent {
+            AttendoTheme(dynamicColor = false) {
+                val loaded by timeline.observeAsState(emptyMap())
+                TimelineContent(title, months, loaded, timeline::show)
+            }
+        }
+    }
+}
+
+@Composable
+private fun TimelineContent(
+    title: String,
+    months: List<String>,
+    loaded: Map<String, TimelineMonth>,
+    onVisible: (String, String) -> Unit,
+) {
+    RecompositionCounter("TimelineContent")
+    val list = rememberLazyListState()
+    // Tell the store which months are on screen; it fetches those and their neighbours
+    LaunchedEffect(list, months) {
+        snapshotFlow {
+            val visible = list.layoutInfo.visibleItemsInfo
+            if (visible.isEmpty()) null else visible.first().index to visible.last().index
+        }
+            .distinctUntilChanged()
+            .collect { range ->
+                if (range != null && months.isNotEmpty()) {
+                    onVisible(months[range.first], months[range.second.coerceAtMost(months.size - 1)])
+                }
+            }
+    }
+
+    Column(modifier = Modifier.fillMaxSize()) {
+        Text(
+            title,
+            color = Color.White,
+            style = MaterialTheme.typography.titleLarge,
+            modifier = Modifier
+                .fillMaxWidth()
+                .background(HeaderColor)
+                .padding(16.dp),
+        )
+        LazyColumn(state = list, modifier = Modifier.fillMaxSize()) {
+            items(months, key = { it }, contentType = { "month" }) { key ->
+                MonthCard(MonthSlot(key, loaded[key]))
+            }
+        }
+    }
+}
+
+@Composable
+private fun MonthCard(slot: MonthSlot) {
+    RecompositionCounter("MonthCard")
+    val month = slot.month
+    Card(
+        modifier = Modifier
+            .fillMaxWidth()
+            .padding(horizontal = 12.dp, vertical = 6.dp),
+    ) {
+        Column(modifier = Modifier.padding(12.dp)) {
+            Row(modifier = Modifier.fillMaxWidth()) {
+                Text(monthLabel(slot.key), style = MaterialTheme.typography.titleMedium, modifier = Modifier.weight(1f))
+                Text(
+                    when {
+                        month == null || !month.hasSummary() -> "Loading..."
+                        month.total == 0 -> "No classes"
+                        else -> "${month.attended}/${month.total} attended"
+                    },
+                    style = MaterialTheme.typography.bodyMedium,
+                )
+            }
+            HeatMap(slot.key, month)
+            Entries(month)
+        }
+    }
+}
+
+/**
+ * The month as a calendar, each day shaded by the share of its classes attended. Drawn
+ * from the summary alone.
+ */
+@Composable
+private fun HeatMap(key: String, month: TimelineMonth?) {
+    val days = TimelineBuckets.daysIn(key)
+    val offset = TimelineBuckets.firstWeekday(key) - Calendar.SUNDAY
+    Column(modifier = Modifier.padding(vertical = 8.dp), verticalArrangement = Arrangement.spacedBy(2.dp)) {
+        Row(horizontalArrangement = Arrangement.spacedBy(2.dp)) {
+            WEEKDAYS.forEach { weekday ->
+                Text(
+                    weekday,
+                    style = MaterialTheme.typography.labelSmall,
+                    modifier = Modifier.weight(1f),
+                )
+            }
+        }
+        for (week in 0 until (offset + days + 6) / 7) {
+            Row(horizontalArrangement = Arrangement.spacedBy(2.dp)) {
+                for (column in 0 until 7) {
+                    val day = week * 7 + column - offset + 1
+                    Box(
+                        modifier = Modifier
+                            .weight(1f)
+                            .aspectRatio(1f)
+                            .background(
+                                if (day in 1..days) dayColor(month, day) else Color.Transparent,
+                                RoundedCornerShape(3.dp),
+                            ),
+                        contentAlignment = Alignment.Center,
+                    ) {
+                        if (day in 1..days) {
+                            Text(day.toString(), style = MaterialTheme.typography.labelSmall)
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
+
+@Composable
+private fun Entries(month: TimelineMonth?) {
+    val entries = month?.entries()
+    if (entries == null) {
+        if (month != null && month.total > 0) {
+            Text("Loading sessions...", style = MaterialTheme.typography.bodySmall)
+        }
+        return
+    }
+    val format = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT)
+    entries.forEach { entry ->
+        Row(modifier = Modifier.fillMaxWidth().padding(vertical = 2.dp)) {
+            Text(
+                format.format(Date(entry.at)) + "  " + entry.classId,
+                style = MaterialTheme.typography.bodySmall,
+                modifier = Modifier.weight(1f),
+            )
+            Text(entry.status ?: "", style = MaterialTheme.typography.bodySmall)
+        }
+    }
+}
+
+private fun dayColor(month: TimelineMonth?, day: Int): Color {
+    val total = month?.totalOn(day) ?: 0
+    if (total == 0) {
+        return NoClassColor
+    }
+    return lerp(AbsentColor, AttendedColor, month!!.attendedOn(day).toFloat() / total)
+}
+
+private fun monthLabel(key: String): String {
+    val calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"))
+    calendar.clear()
+    calendar.set(key.substring(0, 4).toInt(), key.substring(5, 7).toInt() - 1, 1)
+    val format = SimpleDateFormat("MMMM yyyy", Locale.getDefault())
+    format.timeZone = calendar.timeZone
+    return format.format(calendar.time)
+}
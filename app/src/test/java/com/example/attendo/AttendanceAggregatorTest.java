@@ -0,0 +1,134 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AttendanceAggregatorTest {
+
+    private final InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+    private final AttendanceAggregator aggregator = new AttendanceAggregator(database);
+
+    private void apply(int ordinal, String oldStatus, String newStatus) {
+        AttendanceAggregator.Update update = aggregator.apply(
+                new AttendanceAggregator.MarkChange("u1", "Maths", ordinal, oldStatus, newStatus));
+        database.updateChildren(update.updates, error -> assertNull(error));
+        aggregator.commit(update);
+    }
+
+    @Test
+    public void countersFollowMarksCorrectionsAndRetractions() {
+        aggregator.seed("u1", null);
+        apply(0, null, AttendanceSession.PRESENT);
+        apply(1, null, AttendanceSession.ABSENT);
+        apply(2, null, AttendanceSession.LATE);
+
+        assertEquals(3L, database.get("users/u1/summary/total"));
+        assertEquals(2L, database.get("users/u1/summary/attended"));
+        assertEquals(1L, database.get("users/u1/summary/late"));
+        assertEquals(2L, database.get("users/u1/summary/subjects/Maths/attended"));
+
+        // Absence turns out to be a mistake, late is retracted entirely
+        apply(1, AttendanceSession.ABSENT, AttendanceSession.PRESENT);
+        apply(2, AttendanceSession.LATE, null);
+
+        assertEquals(2L, database.get("users/u1/summary/total"));
+        assertEquals(2L, database.get("users/u1/summary/attended"));
+        assertEquals(0L, database.get("users/u1/summary/late"));
+
+        StudentSummary summary = aggregator.get("u1");
+        assertEquals(2, summary.total);
+        assertEquals(2, summary.attended);
+        assertEquals(100, summary.percentage());
+    }
+
+    @Test
+    public void streakSurvivesCorrectionOfOldSessions() {
+        aggregator.seed("u1", null);
+        apply(0, null, AttendanceSession.PRESENT);
+        apply(1, null, AttendanceSession.ABSENT);
+        apply(2, null, AttendanceSession.PRESENT);
+        apply(3, null, AttendanceSession.LATE);
+        assertEquals(2, database.get("users/u1/summary/subjects/Maths/streak"));
+
+        apply(1, AttendanceSession.ABSENT, AttendanceSession.PRESENT);
+        assertEquals(4, database.get("users/u1/summary/subjects/Maths/streak"));
+
+        apply(2, AttendanceSession.PRESENT, AttendanceSession.ABSENT);
+        assertEquals(1, database.get("users/u1/summary/subjects/Maths/streak"));
+
+        apply(3, AttendanceSession.LATE, null);
+        assertEquals(0, database.get("users/u1/summary/subjects/Maths/streak"));
+    }
+
+    @Test
+    public void seedingFromStoredSummaryContinuesWhereItLeftOff() {
+        aggregator.seed("u1", null);
+        for (int i = 0; i < 40; i++) {
+            apply(i, null, i == 10 ? AttendanceSession.ABSENT : AttendanceSession.PRESENT);
+        }
+
+        AttendanceAggregator restarted = new AttendanceAggregator(database);
+        restarted.seed("u1", database.get("users/u1/summary"));
+        AttendanceAggregator.Update update = restarted.apply(new AttendanceAggregator.MarkChange(
+                "u1", "Maths", 10, AttendanceSession.ABSENT, AttendanceSession.PRESENT));
+        database.updateChildren(update.updates, error -> {});
+        restarted.commit(update);
+
+        assertEquals(40, restarted.get("u1").subjects.get("Maths").streak);
+        assertEquals(40L, database.get("users/u1/summary/attended"));
+    }
+
+    @Test
+    public void unseededStudentsStillGetCounters() {
+        apply(5, null, AttendanceSession.PRESENT);
+
+        assertNull(aggregator.get("u1"));
+        assertEquals(1L, database.get("users/u1/summary/attended"));
+        assertNull(database.get("users/u1/summary/subjects/Maths/streak"));
+    }
+
+    @Test
+    public void unchangedMarkIsANoOp() {
+        assertTrue(aggregator.apply(new AttendanceAggregator.MarkChange(
+                "u1", "Maths", 0, AttendanceSession.PRESENT, AttendanceSession.PRESENT)).updates.isEmpty());
+    }
+
+    @Test
+    public void failedWriteLeavesTheTrackedSummaryAlone() {
+        aggregator.seed("u1", null);
+        apply(0, null, AttendanceSession.PRESENT);
+
+        // Computed, but the write never lands
+        aggregator.apply(new AttendanceAggregator.MarkChange(
+                "u1", "Maths", 1, null, AttendanceSession.ABSENT));
+        assertEquals(1, aggregator.get("u1").total);
+        assertEquals(1, aggregator.get("u1").subjects.get("Maths").streak);
+
+        // The retry is computed from the same state and lands once
+        apply(1, null, AttendanceSession.ABSENT);
+        assertEquals(2, aggregator.get("u1").total);
+        assertEquals(0, aggregator.get("u1").subjects.get("Maths").streak);
+        assertEquals(2L, database.get("users/u1/summary/total"));
+    }
+
+    @Test
+    public void staleUpdateDropsTheStudentInsteadOfOverwriting() {
+        aggregator.seed("u1", null);
+        AttendanceAggregator.Update first = aggregator.apply(new AttendanceAggregator.MarkChange(
+                "u1", "Maths", 0, null, AttendanceSession.PRESENT));
+        AttendanceAggregator.Update second = aggregator.apply(new AttendanceAggregator.MarkChange(
+                "u1", "Maths", 1, null, AttendanceSession.PRESENT));
+        aggregator.commit(first);
+        aggregator.commit(second);
+
+        assertFalse(aggregator.isTracked("u1"));
+    }
+
+    @Test
+    public void subjectNamesAreSafeKeys() {
+        assertEquals("C__C++", AttendanceAggregator.subjectKey("C#/C++"));
+        assertEquals("general", AttendanceAggregator.subjectKey(""));
+        assertEquals("Sem_1", AttendanceAggregator.subjectKey("Sem.1"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AttendanceBitsetTest {
+
+    private static AttendanceBitset random(int size, double density, Random random) {
+        AttendanceBitset bitset = new AttendanceBitset(size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextDouble() < density) {
+                bitset.set(i);
+            }
+        }
+        return bitset;
+    }
+
+    @Test
+    public void codecRoundTripsAnySizeAndDensity() {
+        Random random = new Random(7);
+        int[] sizes = {0, 1, 7, 63, 64, 65, 200, 1000};
+        double[] densities = {0, 0.02, 0.5, 0.97, 1};
+        for (int size : sizes) {
+            for (double density : densities) {
+                AttendanceBitset bitset = random(size, density, random);
+                assertEquals(bitset, AttendanceBitsetCodec.decode(AttendanceBitsetCodec.encode(bitset)));
+                assertEquals(bitset, AttendanceBitsetCodec.fromText(AttendanceBitsetCodec.toText(bitset)));
+            }
+        }
+    }
+
+    @Test
+    public void sparseAbsencesEncodeAsRuns() {
+        AttendanceBitset attended = AttendanceBitset.full(60);
+        attended.clear(17);
+        byte[] encoded = AttendanceBitsetCodec.encode(attended);
+        assertEquals(AttendanceBitsetCodec.MODE_RUNS, encoded[1]);
+        assertTrue(encoded.length < 8);
+    }
+
+    @Test
+    public void setOperations() {
+        AttendanceBitset a = new AttendanceBitset(70);
+        AttendanceBitset b = new AttendanceBitset(70);
+        a.set(1);
+        a.set(65);
+        b.set(65);
+        b.set(69);
+
+        assertEquals(1, a.and(b).cardinality());
+        assertEquals(3, a.or(b).cardinality());
+        assertTrue(a.andNot(b).get(1));
+        assertFalse(a.andNot(b).get(65));
+        assertEquals(68, a.complement().cardinality());
+        assertEquals(65, a.nextSetBit(2));
+        assertEquals(1, a.previousSetBit(64));
+        assertEquals(2, a.nextClearBit(1));
+    }
+
+    @Test
+    public void sessionStatusesFromRoster() {
+        List<String> roster = List.of("u0", "u1", "u2", "u3");
+        AttendanceSession session = new AttendanceSession("s", "c", "Maths", 0)
+                .mark("u0", AttendanceSession.PRESENT)
+                .mark("u1", AttendanceSession.LATE)
+                .mark("u2", AttendanceSession.ABSENT);
+
+        SessionBits bits = SessionBits.fromValue(SessionBits.from(session, roster).toMap());
+
+        assertEquals(AttendanceSession.PRESENT, bits.statusOf(0));
+        assertEquals(AttendanceSession.LATE, bits.statusOf(1));
+        assertEquals(AttendanceSession.ABSENT, bits.statusOf(2));
+        // Not marked at all counts as absent
+        assertEquals(AttendanceSession.ABSENT, bits.statusOf(3));
+        assertEquals(2, bits.absent().cardinality());
+        assertEquals(1, bits.present().cardinality());
+    }
+
+    @Test
+    public void semesterFitsInAFewKilobytesAndFindsStudentsBelowThreshold() {
+        Random random = new Random(1);
+        int students = 60;
+        int sessions = 90;
+        // Every fifth student skips often, the rest rarely
+        List<AttendanceBitset> semester = new ArrayList<>();
+        int[] expected = new int[students];
+        int encodedBytes = 0;
+        BitSlicedCounter counter = new BitSlicedCounter(students);
+        for (int s = 0; s < sessions; s++) {
+            AttendanceBitset attended = new AttendanceBitset(students);
+            for (int i = 0; i < students; i++) {
+                if (random.nextDouble() < (i % 5 == 0 ? 0.6 : 0.97)) {
+                    attended.set(i);
+                    expected[i]++;
+                }
+            }
+            semester.add(attended);
+            counter.add(attended);
+            encodedBytes += AttendanceBitsetCodec.toText(attended).length();
+        }
+
+        assertTrue("semester took " + encodedBytes + " bytes", encodedBytes < 4096);
+
+        AttendanceBitset below = counter.belowRatio(0.75);
+        for (int i = 0; i < students; i++) {
+            assertEquals(expected[i], counter.count(i));
+            assertEquals("student " + i, expected[i] < 68, below.get(i));
+        }
+
+        AttendanceBitset everAbsent = AttendanceBitset.union(
+                semester.stream().map(AttendanceBitset::complement)::iterator, students);
+        for (int i = 0; i < students; i++) {
+            assertEquals(expected[i] < sessions, everAbsent.get(i));
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class AttendanceWriterTest {
+
+    private static final long STARTED_AT = 1_700_000_000_000L;
+
+    private static String entry(String uid, String sessionId) {
+        return TimelineBuckets.entriesPath(uid, TimelineBuckets.month(STARTED_AT, TimeZone.getDefault()))
+                + "/" + sessionId;
+    }
+
+    private static String monthSummary(String uid) {
+        return TimelineBuckets.summaryPath(uid, TimelineBuckets.month(STARTED_AT, TimeZone.getDefault()));
+    }
+
+    private static AttendanceSession classOf(int students) {
+        AttendanceSession session = new AttendanceSession("s1", "cse-a", "Maths", STARTED_AT);
+        for (int i = 0; i < students; i++) {
+            session.mark("uid" + i, i % 10 == 0 ? AttendanceSession.ABSENT : AttendanceSession.PRESENT);
+        }
+        return session;
+    }
+
+    @Test
+    public void wholeClassIsOneRoundTrip() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        Exception[] result = {new Exception("not called")};
+
+        new AttendanceWriter(database).write(classOf(200), error -> result[0] = error);
+
+        assertNull(result[0]);
+        assertEquals(1, database.roundTrips);
+        assertEquals("absent", database.get("attendance/s1/uid0/status"));
+        assertEquals("present", database.get(entry("uid1", "s1") + "/status"));
+        assertEquals(1L, database.get(monthSummary("uid1") + "/attended"));
+        assertEquals(1L, database.get(monthSummary("uid0") + "/total"));
+        assertNull(database.get(monthSummary("uid0") + "/attended"));
+        assertEquals(1L, database.get("users/uid1/summary/attended"));
+        assertNull(database.get("users/uid0/summary/attended"));
+        assertEquals(1L, database.get("users/uid0/summary/total"));
+        assertEquals(180, database.get("sessions/s1/attended"));
+        assertEquals(200, database.get("sessions/s1/total"));
+    }
+
+    @Test
+    public void summariesAccumulateAcrossSessions() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        AttendanceWriter writer = new AttendanceWriter(database);
+
+        writer.write(classOf(5), error -> {});
+        AttendanceSession second = new AttendanceSession("s2", "cse-a", "Maths", 1_700_000_100_000L);
+        second.mark("uid1", AttendanceSession.LATE);
+        writer.write(second, error -> {});
+
+        assertEquals(2L, database.get("users/uid1/summary/total"));
+        assertEquals(2L, database.get("users/uid1/summary/attended"));
+    }
+
+    @Test
+    public void oversizedBatchIsChunkedWithSessionRecordLast() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        // 10 paths per present student, so at most 10 students per chunk
+        AttendanceWriter writer = new AttendanceWriter(database, 100, Integer.MAX_VALUE);
+
+        List<Map<String, Object>> batches = writer.buildBatches(classOf(200));
+        assertTrue(batches.size() > 1);
+        for (Map<String, Object> batch : batches) {
+            assertTrue(batch.size() <= 101);
+        }
+        assertTrue(batches.get(batches.size() - 1).containsKey("sessions/s1"));
+        for (int i = 0; i < batches.size() - 1; i++) {
+            assertFalse(batches.get(i).containsKey("sessions/s1"));
+        }
+
+        writer.write(classOf(200), error -> assertNull(error));
+        assertEquals(batches.size(), database.roundTrips);
+        assertEquals("present", database.get("attendance/s1/uid199/status"));
+    }
+
+    @Test
+    public void studentIsNeverSplitAcrossChunks() {
+        AttendanceWriter writer = new AttendanceWriter(new InMemoryRemoteDatabase(), 10, Integer.MAX_VALUE);
+
+        for (Map<String, Object> batch : writer.buildBatches(classOf(50))) {
+            for (String path : batch.keySet()) {
+                if (path.startsWith("attendance/")) {
+                    String uid = path.substring(path.lastIndexOf('/') + 1);
+                    assertTrue(batch.containsKey(entry(uid, "s1")));
+                    assertTrue(batch.containsKey("users/" + uid + "/summary/total"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void chunksHoldTheSameStudentsWhateverTheTrackedSummaries() {
+        AttendanceWriter writer = new AttendanceWriter(new InMemoryRemoteDatabase(), 100, Integer.MAX_VALUE);
+        AttendanceSession session = classOf(200).withOrdinal(3);
+        List<AttendanceWriter.Chunk> first = writer.chunks(session);
+
+        // Tracked students get streak and history paths on top of the counters
+        for (int i = 0; i < 200; i++) {
+            writer.getAggregator().seed("uid" + i, null);
+        }
+        List<AttendanceWriter.Chunk> retry = writer.chunks(session);
+
+        assertEquals(first.size(), retry.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(students(first.get(i)), students(retry.get(i)));
+            assertEquals(Receipts.find(first.get(i).updates), Receipts.find(retry.get(i).updates));
+        }
+    }
+
+    private static Set<String> students(AttendanceWriter.Chunk chunk) {
+        Set<String> students = new TreeSet<>();
+        for (String path : chunk.updates.keySet()) {
+            if (path.startsWith("attendance/")) {
+                students.add(path);
+            }
+        }
+        return students;
+    }
+
+    @Test
+    public void failedChunkStopsTheFanOut() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        database.failNextWith = new IllegalStateException("offline");
+        Exception[] result = new Exception[1];
+
+        new AttendanceWriter(database, 100, Integer.MAX_VALUE).write(classOf(200), error -> result[0] = error);
+
+        assertEquals(1, database.roundTrips);
+        assertNotNull(result[0]);
+        assertNull(database.get("sessions/s1"));
+    }
+
+    @Test
+    public void resendAfterPartialFailureSkipsTheChunksThatLanded() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase() {
+            @Override
+            public synchronized void updateChildren(Map<String, Object> updates, CompletionListener listener) {
+                if (roundTrips == 3) {
+                    failNextWith = new IllegalStateException("offline");
+                }
+                super.updateChildren(updates, listener);
+            }
+        };
+        AttendanceWriter writer = new AttendanceWriter(database, 100, Integer.MAX_VALUE);
+        AttendanceSession session = classOf(200);
+        int chunks = writer.buildBatches(session).size();
+
+        Exception[] first = new Exception[1];
+        writer.write(session, error -> first[0] = error);
+        assertNotNull(first[0]);
+        assertNull(database.get("sessions/s1"));
+        assertEquals(1L, database.get("users/uid1/summary/total"));
+        assertNull(database.get("users/uid199/summary/total"));
+
+        // The three chunks that landed are rejected by their receipts, the rest go through
+        Exception[] second = {new Exception("not called")};
+        writer.write(session, error -> second[0] = error);
+        assertNull(second[0]);
+        assertEquals(4 + chunks, database.roundTrips);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(1L, database.get("users/uid" + i + "/summary/total"));
+            assertEquals(1L, database.get(monthSummary("uid" + i) + "/total"));
+        }
+        assertEquals(200, database.get("sessions/s1/total"));
+
+        // Once everything landed, sending again changes nothing
+        writer.write(session, error -> assertNull(error));
+        assertEquals(1L, database.get("users/uid1/summary/total"));
+    }
+
+    @Test
+    public void chunkFoundAlreadyAppliedIsNotCountedAgainLocally() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        AttendanceWriter writer = new AttendanceWriter(database, 100, Integer.MAX_VALUE);
+        AttendanceSession session = classOf(50).withOrdinal(0);
+        for (int i = 0; i < 50; i++) {
+            writer.getAggregator().seed("uid" + i, null);
+        }
+        writer.write(session, error -> assertNull(error));
+        assertEquals(1, writer.getAggregator().get("uid1").total);
+
+        // Every chunk is rejected by its receipt; the students are re-seeded from the server
+        writer.write(session, error -> assertNull(error));
+        assertNull(writer.getAggregator().get("uid1"));
+        assertEquals(1L, database.get("users/uid1/summary/total"));
+    }
+
+    @Test
+    public void correctionMovesEveryCounterInOneRoundTrip() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        AttendanceWriter writer = new AttendanceWriter(database);
+        AttendanceSession session = classOf(20);
+        writer.write(session, error -> {});
+
+        writer.correct(session, "uid0", AttendanceSession.ABSENT, AttendanceSession.LATE, error -> assertNull(error));
+
+        assertEquals(2, database.roundTrips);
+        assertEquals("late", database.get("attendance/s1/uid0/status"));
+        assertEquals("late", database.get(entry("uid0", "s1") + "/status"));
+        assertEquals(1L, database.get(monthSummary("uid0") + "/late"));
+        assertEquals(1L, database.get(monthSummary("uid0") + "/attended"));
+        assertEquals(1L, database.get(monthSummary("uid0") + "/total"));
+        assertEquals(19L, database.get("sessions/s1/attended"));
+        assertEquals(1L, database.get("sessions/s1/late"));
+        assertEquals(1L, database.get("users/uid0/summary/attended"));
+        assertEquals(1L, database.get("users/uid0/summary/total"));
+    }
+
+    @Test
+    public void correctionFollowsTheZoneStoredWithTheSession() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        AttendanceWriter writer = new AttendanceWriter(database);
+        // 2023-11-30 23:30 UTC is already December in Auckland
+        long at = 1_701_387_000_000L;
+        AttendanceSession session = new AttendanceSession("s1", "cse-a", "Maths", at)
+                .withZone("Pacific/Auckland")
+                .mark("uid0", AttendanceSession.ABSENT);
+        writer.write(session, error -> assertNull(error));
+
+        // Another device only knows the record
+        AttendanceSession recorded = AttendanceSession.fromRecord("s1", database.get("sessions/s1"));
+        assertEquals("Pacific/Auckland", recorded.zone);
+        writer.correct(recorded, "uid0", AttendanceSession.ABSENT, AttendanceSession.PRESENT,
+                error -> assertNull(error));
+
+        String december = TimelineBuckets.month(at, TimeZone.getTimeZone("Pacific/Auckland"));
+        String november = TimelineBuckets.month(at, TimeZone.getTimeZone("UTC"));
+        assertNotEquals(december, november);
+        assertEquals("present", database.get(TimelineBuckets.entriesPath("uid0", december) + "/s1/status"));
+        assertEquals(1L, database.get(TimelineBuckets.summaryPath("uid0", december) + "/attended"));
+        assertEquals(1L, database.get(TimelineBuckets.summaryPath("uid0", december) + "/total"));
+        assertNull(database.get(TimelineBuckets.summaryPath("uid0", november)));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.attendo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.crypto.Mac;
+
+import static org.junit.Assert.*;
+
+public class CheckInVerifierTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final byte[] key = CheckInToken.newKey();
+    private final List<CheckIn> recorded = new ArrayList<>();
+    private CheckInVerifier verifier;
+    private Mac mac;
+
+    @Before
+    public void setUp() {
+        verifier = new CheckInVerifier(classId -> "cse-a".equals(classId) ? key : null,
+                recorded::add, 2, 1024);
+        mac = CheckInToken.newMac(key);
+    }
+
+    private String token(long atMs) {
+        return CheckInToken.issue(mac, "cse-a", "s1", CheckInToken.window(atMs));
+    }
+
+    @Test
+    public void currentCodeChecksInOncePerStudent() {
+        String token = token(NOW);
+        assertEquals(CheckInVerifier.OK, verifier.checkIn(token, "u1", NOW));
+        assertEquals(CheckInVerifier.DUPLICATE, verifier.checkIn(token, "u1", NOW + 1000));
+        // The next code of the same session is still the same check-in
+        assertEquals(CheckInVerifier.DUPLICATE,
+                verifier.checkIn(token(NOW + CheckInToken.STEP_MS), "u1", NOW + CheckInToken.STEP_MS));
+        assertEquals(CheckInVerifier.OK, verifier.checkIn(token, "u2", NOW));
+
+        assertEquals(2, recorded.size());
+        assertEquals("cse-a", recorded.get(0).classId);
+        assertEquals("s1", recorded.get(0).sessionId);
+        assertEquals(CheckInToken.window(NOW), recorded.get(0).window);
+    }
+
+    @Test
+    public void staleForgedAndUnknownCodesAreRejected() {
+        assertEquals(CheckInVerifier.EXPIRED,
+                verifier.checkIn(token(NOW - 3 * CheckInToken.STEP_MS), "u1", NOW));
+        assertEquals(CheckInVerifier.OK,
+                verifier.checkIn(token(NOW - 2 * CheckInToken.STEP_MS), "u1", NOW));
+
+        String token = token(NOW);
+        char last = token.charAt(token.length() - 1);
+        String forged = token.substring(0, token.length() - 1) + (last == '0' ? '1' : '0');
+        assertEquals(CheckInVerifier.BAD_SIGNATURE, verifier.checkIn(forged, "u2", NOW));
+
+        String otherSession = token.replace(".s1.", ".s2.");
+        assertEquals(CheckInVerifier.BAD_SIGNATURE, verifier.checkIn(otherSession, "u2", NOW));
+
+        Mac otherKey = CheckInToken.newMac(CheckInToken.newKey());
+        String wrongClass = CheckInToken.issue(otherKey, "cse-b", "s1", CheckInToken.window(NOW));
+        assertEquals(CheckInVerifier.UNKNOWN_CLASS, verifier.checkIn(wrongClass, "u2", NOW));
+
+        assertEquals(CheckInVerifier.MALFORMED, verifier.checkIn("https://example.com", "u2", NOW));
+        assertEquals(CheckInVerifier.MALFORMED, verifier.checkIn("a.b.x1.0011", "u2", NOW));
+        assertEquals(1, recorded.size());
+    }
+
+    @Test
+    public void replayCacheForgetsOldestWhenFull() {
+        ReplayCache cache = new ReplayCache(100);
+        for (long i = 1; i <= 1000; i++) {
+            assertTrue(cache.add(i * 7919));
+            assertFalse(cache.add(i * 7919));
+        }
+        assertEquals(100, cache.size());
+        // The last 100 are still remembered, older ones are not
+        for (long i = 901; i <= 1000; i++) {
+            assertFalse(cache.add(i * 7919));
+        }
+        assertTrue(cache.add(7919));
+    }
+
+    @Test
+    public void replayCacheRejectsCapacitiesItCannotHold() {
+        for (int capacity : new int[]{0, -1, ReplayCache.MAX_CAPACITY + 1}) {
+            try {
+                new ReplayCache(capacity);
+                fail("Accepted capacity " + capacity);
+            } catch (IllegalArgumentException expected) {
+                // As intended
+            }
+        }
+        ReplayCache one = new ReplayCache(1);
+        assertTrue(one.add(1));
+        assertTrue(one.add(2));
+        assertTrue(one.add(1));
+    }
+
+    @Test
+    public void handlesAFullDoorOfScansQuickly() {
+        List<String> uids = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            uids.add("student" + i);
+        }
+        String token = token(NOW);
+        // Warm up the JIT, then time a minute's worth of scans at a busy door
+        for (String uid : uids) {
+            verifier.checkIn(token, uid, NOW);
+        }
+        recorded.clear();
+        verifier = new CheckInVerifier(classId -> key, recorded::add, 2, 1024);
+        Collections.shuffle(uids);
+
+        long start = System.nanoTime();
+        for (String uid : uids) {
+            verifier.checkIn(token, uid, NOW);
+            verifier.checkIn(token, uid, NOW);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(600, recorded.size());
+        assertTrue("1200 scans took " + elapsedMs + " ms", elapsedMs < 1000);
+    }
+
+    @Test
+    public void queueSyncsInBatches() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        List<CheckIn> stored = new ArrayList<>();
+        List<CheckIn> synced = new ArrayList<>();
+        CheckInQueue queue = new CheckInQueue(new CheckInQueue.Store() {
+            @Override
+            public void append(CheckIn checkIn) {
+                stored.add(checkIn);
+            }
+
+            @Override
+            public List<CheckIn> pending(int limit) {
+                List<CheckIn> pending = new ArrayList<>(stored);
+                pending.removeAll(synced);
+                return pending.subList(0, Math.min(limit, pending.size()));
+            }
+
+            @Override
+            public void markSynced(List<CheckIn> checkIns) {
+                synced.addAll(checkIns);
+            }
+        }, database, Runnable::run, 100);
+        verifier = new CheckInVerifier(classId -> key, queue, 2, 1024);
+
+        String token = token(NOW);
+        for (int i = 0; i < 250; i++) {
+            verifier.checkIn(token, "student" + i, NOW);
+        }
+        // Two full batches went out on their own; the rest waits for a flush
+        assertEquals(2, database.roundTrips);
+        assertEquals(200, synced.size());
+
+        queue.flush();
+        assertEquals(3, database.roundTrips);
+        assertEquals(250, synced.size());
+        assertEquals(CheckInToken.window(NOW), database.get("checkins/s1/student249/window"));
+    }
+}
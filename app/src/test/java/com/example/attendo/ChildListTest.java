@@ -0,0 +1,277 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChildListTest {
+
+    /**
+     * What an adapter would hold: the rows as they were, updated only through the
+     * change sets. Inserted and changed rows are marked fresh, i.e. rebound.
+     */
+    private static final class Mirror implements ChangeSet.Receiver {
+        final List<String> keys = new ArrayList<>();
+        final List<Integer> values = new ArrayList<>();
+        final List<Boolean> fresh = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                keys.add(position, null);
+                values.add(position, null);
+                fresh.add(position, true);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                keys.remove(position);
+                values.remove(position);
+                fresh.remove(position);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            keys.add(toPosition, keys.remove(fromPosition));
+            values.add(toPosition, values.remove(fromPosition));
+            fresh.add(toPosition, fresh.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                fresh.set(position + i, true);
+            }
+        }
+
+        /**
+         * Replay the changes and check the result against the list, then rebind.
+         */
+        void sync(ChildList<Integer> list) {
+            list.drainChanges().dispatch(this);
+            assertEquals(list.size(), keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                if (!fresh.get(i)) {
+                    assertEquals("key at " + i, list.keyAt(i), keys.get(i));
+                    assertEquals("value at " + i, list.get(i), values.get(i));
+                }
+                keys.set(i, list.keyAt(i));
+                values.set(i, list.get(i));
+                fresh.set(i, false);
+            }
+        }
+    }
+
+    private static final class Child {
+        final String key;
+        final int value;
+
+        Child(String key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static int indexOf(List<Child> reference, String key) {
+        for (int i = 0; i < reference.size(); i++) {
+            if (reference.get(i).key.equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void randomDeltasMatchAPlainListAndReplayThroughChangeSets() {
+        Random random = new Random(7);
+        ChildList<Integer> list = new ChildList<>();
+        List<Child> reference = new ArrayList<>();
+        Mirror mirror = new Mirror();
+
+        for (int step = 0; step < 5000; step++) {
+            String key = "k" + random.nextInt(300);
+            int at = indexOf(reference, key);
+            String previous = reference.isEmpty() || random.nextInt(10) == 0
+                    ? null : reference.get(random.nextInt(reference.size())).key;
+            int op = random.nextInt(4);
+            if (at < 0 || op == 0) {
+                if (at < 0) {
+                    int to = previous == null ? 0 : indexOf(reference, previous) + 1;
+                    reference.add(to, new Child(key, step));
+                    list.add(key, step, previous);
+                }
+            } else if (op == 1) {
+                reference.set(at, new Child(key, step));
+                list.set(key, step);
+            } else if (op == 2) {
+                reference.remove(at);
+                list.remove(key);
+            } else if (!key.equals(previous)) {
+                Child child = reference.remove(at);
+                int to = previous == null ? 0 : indexOf(reference, previous) + 1;
+                reference.add(to, child);
+                list.move(key, previous);
+            }
+
+            if (random.nextInt(5) == 0) {
+                mirror.sync(list);
+            }
+        }
+        mirror.sync(list);
+
+        assertEquals(reference.size(), list.size());
+        for (int i = 0; i < reference.size(); i++) {
+            Child child = reference.get(i);
+            assertEquals(child.key, list.keyAt(i));
+            assertEquals(Integer.valueOf(child.value), list.get(i));
+            assertEquals(Integer.valueOf(child.value), list.valueOf(child.key));
+            assertEquals(i, list.indexOf(child.key));
+        }
+        assertEquals(-1, list.indexOf("missing"));
+        assertNull(list.valueOf("missing"));
+    }
+
+    @Test
+    public void addSortedKeepsKeyOrder() {
+        Random random = new Random(11);
+        ChildList<Integer> list = new ChildList<>();
+        List<String> keys = new ArrayList<>();
+        Mirror mirror = new Mirror();
+        for (int i = 0; i < 2000; i++) {
+            String key = "uid" + random.nextInt(1000);
+            if (!keys.contains(key)) {
+                keys.add(key);
+            }
+            list.addSorted(key, i);
+            if (i % 7 == 0) {
+                mirror.sync(list);
+            }
+        }
+        mirror.sync(list);
+
+        Collections.sort(keys);
+        assertEquals(keys.size(), list.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(keys.get(i), list.keyAt(i));
+        }
+    }
+
+    @Test
+    public void neighbouringChangesAreMerged() {
+        ChildList<Integer> list = new ChildList<>();
+        String previous = null;
+        for (int i = 0; i < 10; i++) {
+            String key = "k" + i;
+            list.add(key, i, previous);
+            previous = key;
+        }
+        assertEquals(1, list.drainChanges().size());
+
+        for (int i = 3; i < 7; i++) {
+            list.set("k" + i, -i);
+        }
+        assertEquals(1, list.drainChanges().size());
+
+        for (int i = 3; i < 7; i++) {
+            list.remove("k" + i);
+        }
+        assertEquals(1, list.drainChanges().size());
+        assertTrue(list.drainChanges().isEmpty());
+    }
+
+    @Test
+    public void singleChangesInAHugeListStayCheap() {
+        ChildList<Integer> list = new ChildList<>();
+        int size = 100_000;
+        String previous = null;
+        for (int i = 0; i < size; i++) {
+            String key = String.format("k%06d", i);
+            list.add(key, i, previous);
+            previous = key;
+        }
+        list.drainChanges();
+
+        // 100k O(n) updates would take minutes; O(log n) ones take well under a second
+        long start = System.nanoTime();
+        Random random = new Random(3);
+        for (int i = 0; i < size; i++) {
+            String key = String.format("k%06d", random.nextInt(size));
+            list.set(key, -i);
+            list.move(key, String.format("k%06d", random.nextInt(size)));
+            list.drainChanges();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(size, list.size());
+        assertTrue("took " + millis + " ms", millis < 20_000);
+    }
+
+    private static Map<String, Object> mark(String status) {
+        Map<String, Object> value = new HashMap<>();
+        value.put("status", status);
+        value.put("marked_at", 1L);
+        return value;
+    }
+
+    private static List<String> rows(SessionSheet sheet) {
+        List<String> rows = new ArrayList<>();
+        ChildList<SessionSheet.Row> list = sheet.rows();
+        for (int i = 0; i < list.size(); i++) {
+            SessionSheet.Row row = list.get(i);
+            rows.add(row.studentUid + "=" + row.status + (row.pending ? "*" : ""));
+        }
+        return rows;
+    }
+
+    @Test
+    public void sheetLaysUnsyncedMarksOverTheServer() {
+        SessionSheet sheet = new SessionSheet("s1");
+        sheet.onServerMark("b", mark("present"));
+        sheet.onServerMark("d", mark("absent"));
+        assertEquals(Arrays.asList("b=present", "d=absent"), rows(sheet));
+
+        Map<String, String> pending = new HashMap<>();
+        pending.put("a", "present");
+        pending.put("d", "present");
+        pending.put("b", null);
+        sheet.onPending(pending);
+        assertEquals(Arrays.asList("a=present*", "d=present*"), rows(sheet));
+
+        // A server echo does not override an unsynced mark
+        sheet.onServerMark("d", mark("late"));
+        assertEquals(Arrays.asList("a=present*", "d=present*"), rows(sheet));
+
+        // Once synced, the server copy shows again
+        sheet.onServerMark("a", mark("present"));
+        sheet.onPending(Collections.emptyMap());
+        assertEquals(Arrays.asList("a=present", "b=present", "d=late"), rows(sheet));
+
+        sheet.onServerRemoved("b");
+        sheet.onServerMark("c", null);
+        assertEquals(Arrays.asList("a=present", "d=late"), rows(sheet));
+    }
+
+    @Test
+    public void reattachingKeepsUnsyncedMarks() {
+        SessionSheet sheet = new SessionSheet("s1");
+        sheet.onServerMark("a", mark("present"));
+        sheet.onServerMark("b", mark("present"));
+        sheet.onPending(Collections.singletonMap("c", "absent"));
+        sheet.rows().drainChanges();
+
+        sheet.clearServer();
+        assertEquals(Arrays.asList("c=absent*"), rows(sheet));
+        sheet.onServerMark("a", mark("present"));
+        assertEquals(Arrays.asList("a=present", "c=absent*"), rows(sheet));
+    }
+}
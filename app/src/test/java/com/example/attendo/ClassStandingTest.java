@@ -0,0 +1,88 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ClassStandingTest {
+
+    private final InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+    private final AttendanceWriter writer = new AttendanceWriter(database);
+
+    private void session(int day, List<String> roster, String... absent) {
+        session("m1_202403" + (10 + day), day, roster, absent);
+    }
+
+    private void session(String sessionId, int day, List<String> roster, String... absent) {
+        AttendanceSession session = new AttendanceSession(sessionId, "cse-a", "Maths",
+                1_700_000_000_000L + day * 86_400_000L).withRoster(roster).withOrdinal(day);
+        for (String uid : roster) {
+            session.mark(uid, Arrays.asList(absent).contains(uid) ? AttendanceSession.ABSENT : AttendanceSession.PRESENT);
+        }
+        writer.write(session, error -> assertNull(error));
+    }
+
+    private List<String> below(double ratio) {
+        Object[] result = new Object[1];
+        ClassStanding.load(database, "cse-a", "Maths", ratio, new ClassStanding.Callback() {
+            @Override
+            public void onLoaded(List<String> below, int sessions) {
+                result[0] = below;
+            }
+
+            @Override
+            public void onError(Exception error) {
+                fail(error.getMessage());
+            }
+        });
+        @SuppressWarnings("unchecked")
+        List<String> below = (List<String>) result[0];
+        return below;
+    }
+
+    @Test
+    public void flagsStudentsBelowTheRatioAcrossTheSemester() {
+        List<String> roster = Arrays.asList("u1", "u2", "u3");
+        session(0, roster, "u2");
+        session(1, roster, "u2", "u3");
+        session(2, roster);
+        session(3, roster);
+
+        // u2 attended 2 of 4, u3 3 of 4
+        assertEquals(Arrays.asList("u2"), below(0.75));
+        assertEquals(Arrays.asList("u2", "u3"), below(0.8));
+
+        // Stored once, referenced by every session
+        Map<?, ?> rosters = (Map<?, ?>) database.get("rosters");
+        assertEquals(1, rosters.size());
+        assertEquals("u1,u2,u3", rosters.values().iterator().next());
+        assertNotNull(database.get("sessions/m1_20240310/bits/attended"));
+    }
+
+    @Test
+    public void studentsWhoJoinedLaterAreNotHeldToEarlierSessions() {
+        session(0, Arrays.asList("u1", "u2"), "u1");
+        session(1, Arrays.asList("u1", "u2"), "u1");
+        session(2, Arrays.asList("u1", "u2", "u3"));
+        session(3, Arrays.asList("u1", "u2", "u3"), "u3");
+
+        // u1 attended 2 of 4; u3 is excused from the two before they joined, so 3 of 4
+        assertEquals(Arrays.asList("u1"), below(0.6));
+        assertEquals(Arrays.asList("u1", "u3"), below(0.8));
+    }
+
+    @Test
+    public void latestSessionIsFoundByStartNotById() {
+        // The second slot's ids sort after the first slot's, whatever the dates
+        session("m2_20240310", 0, Arrays.asList("u1", "u2"));
+        session("m1_20240311", 1, Arrays.asList("u1", "u2", "u3"), "u3");
+        session("-push000001", 2, Arrays.asList("u1", "u2", "u3"), "u3");
+
+        // u3 joined before the two later sessions and missed both
+        assertEquals(Arrays.asList("u3"), below(0.75));
+    }
+}
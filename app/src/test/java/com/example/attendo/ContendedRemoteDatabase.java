@@ -0,0 +1,81 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link InMemoryRemoteDatabase} whose transactions behave like Firebase's optimistic
+ * ones under a burst: everything queued is run in rounds by {@link #settle()}. In each
+ * round every pending transaction computes its value from the same snapshot, then only
+ * the first one per path commits; the others saw a stale value and retry next round,
+ * up to Firebase's limit of {@link #MAX_RETRIES}.
+ */
+class ContendedRemoteDatabase extends InMemoryRemoteDatabase {
+
+    static final int MAX_RETRIES = 25;
+
+    private static final class Pending {
+        final String path;
+        final TransactionHandler handler;
+        final TransactionListener listener;
+        int retries;
+        Object next;
+
+        Pending(String path, TransactionHandler handler, TransactionListener listener) {
+            this.path = path;
+            this.handler = handler;
+            this.listener = listener;
+        }
+    }
+
+    private final List<Pending> pending = new ArrayList<>();
+    int rounds;
+    int retries;
+    int maxRetries;
+    int gaveUp;
+
+    @Override
+    public synchronized void runTransaction(String path, TransactionHandler handler,
+                                            TransactionListener listener) {
+        pending.add(new Pending(path, handler, listener));
+    }
+
+    void settle() {
+        while (!pending.isEmpty()) {
+            rounds++;
+            List<Pending> round = new ArrayList<>(pending);
+            pending.clear();
+            for (Pending transaction : round) {
+                roundTrips++;
+                transaction.next = transaction.handler.apply(get(transaction.path));
+            }
+            Set<String> written = new HashSet<>();
+            for (Pending transaction : round) {
+                if (written.contains(transaction.path)) {
+                    retry(transaction);
+                } else if (transaction.next == TransactionHandler.ABORT) {
+                    transaction.listener.onComplete(null, false, get(transaction.path));
+                } else {
+                    put(transaction.path, transaction.next);
+                    written.add(transaction.path);
+                    transaction.listener.onComplete(null, true, get(transaction.path));
+                }
+            }
+        }
+    }
+
+    private void retry(Pending transaction) {
+        transaction.retries++;
+        retries++;
+        maxRetries = Math.max(maxRetries, transaction.retries);
+        if (transaction.retries > MAX_RETRIES) {
+            gaveUp++;
+            transaction.listener.onComplete(new IllegalStateException("maxretries"), false,
+                    get(transaction.path));
+        } else {
+            pending.add(transaction);
+        }
+    }
+}
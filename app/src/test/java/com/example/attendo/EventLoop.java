@@ -0,0 +1,67 @@
+package com.example.attendo;
+
+import java.util.PriorityQueue;
+
+/**
+ * Single-threaded discrete-event scheduler on a virtual clock. Tasks run in time order,
+ * ties in the order they were scheduled, so a simulation driven by it replays exactly
+ * for the same inputs and thousands of virtual clients cost no threads.
+ */
+class EventLoop implements ProfileSavePipeline.Scheduler, RosterImport.Scheduler {
+
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long seq;
+        final Runnable task;
+
+        Event(long time, long seq, Runnable task) {
+            this.time = time;
+            this.seq = seq;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(seq, other.seq);
+        }
+    }
+
+    private final PriorityQueue<Event> queue = new PriorityQueue<>();
+    private long now;
+    private long seq;
+    private long executed;
+
+    /**
+     * Virtual time in millis.
+     */
+    long now() {
+        return now;
+    }
+
+    @Override
+    public long nowMs() {
+        return now;
+    }
+
+    long executed() {
+        return executed;
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMs) {
+        queue.add(new Event(now + Math.max(0, delayMs), seq++, task));
+    }
+
+    /**
+     * Run events until none are left.
+     */
+    void run() {
+        Event event;
+        while ((event = queue.poll()) != null) {
+            now = event.time;
+            executed++;
+            event.task.run();
+        }
+    }
+}
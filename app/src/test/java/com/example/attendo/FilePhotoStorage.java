@@ -0,0 +1,62 @@
+package com.example.attendo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * {@link PhotoStorage} stand-in that keeps objects as files under a directory, completes
+ * synchronously and counts transfers.
+ */
+class FilePhotoStorage implements PhotoStorage {
+
+    private final File root;
+    int uploads;
+    int downloads;
+
+    FilePhotoStorage(File root) {
+        this.root = root;
+    }
+
+    @Override
+    public synchronized void upload(String path, byte[] data, CompletionListener listener) {
+        uploads++;
+        File file = new File(root, path);
+        try {
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), data);
+            listener.onComplete(null);
+        } catch (IOException e) {
+            listener.onComplete(e);
+        }
+    }
+
+    @Override
+    public synchronized void download(String path, long maxBytes, DownloadListener listener) {
+        downloads++;
+        File file = new File(root, path);
+        if (!file.exists()) {
+            listener.onComplete(null, new IOException("Object does not exist: " + path));
+            return;
+        }
+        if (file.length() > maxBytes) {
+            listener.onComplete(null, new IOException("Object exceeds " + maxBytes + " bytes"));
+            return;
+        }
+        try {
+            listener.onComplete(Files.readAllBytes(file.toPath()), null);
+        } catch (IOException e) {
+            listener.onComplete(null, e);
+        }
+    }
+
+    @Override
+    public synchronized void delete(String path, CompletionListener listener) {
+        new File(root, path).delete();
+        listener.onComplete(null);
+    }
+
+    boolean exists(String path) {
+        return new File(root, path).exists();
+    }
+}
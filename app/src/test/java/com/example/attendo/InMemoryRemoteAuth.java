@@ -0,0 +1,81 @@
+package com.example.attendo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link RemoteAuth} stand-in keeping accounts in a map and answering synchronously.
+ * Uids are handed out in registration order, so runs are repeatable.
+ */
+class InMemoryRemoteAuth implements RemoteAuth {
+
+    private final Map<String, String> passwords = new HashMap<>();
+    private final Map<String, String> uids = new HashMap<>();
+    private String currentEmail;
+    int resetsSent;
+
+    @Override
+    public String currentUid() {
+        return currentEmail == null ? null : uids.get(currentEmail);
+    }
+
+    @Override
+    public void signIn(String email, String password, Listener listener) {
+        if (!password.equals(passwords.get(email))) {
+            listener.onComplete(new AuthException(AuthException.Reason.INVALID,
+                    "Wrong email or password", null), null);
+            return;
+        }
+        currentEmail = email;
+        listener.onComplete(null, uids.get(email));
+    }
+
+    @Override
+    public void register(String email, String password, Listener listener) {
+        if (passwords.containsKey(email)) {
+            listener.onComplete(new AuthException(AuthException.Reason.EMAIL_IN_USE,
+                    "Email already in use", null), null);
+            return;
+        }
+        passwords.put(email, password);
+        uids.put(email, "u" + uids.size());
+        currentEmail = email;
+        listener.onComplete(null, uids.get(email));
+    }
+
+    @Override
+    public void updatePassword(String newPassword, Listener listener) {
+        if (currentEmail == null) {
+            listener.onComplete(new IllegalStateException("Not signed in"), null);
+            return;
+        }
+        passwords.put(currentEmail, newPassword);
+        listener.onComplete(null, uids.get(currentEmail));
+    }
+
+    @Override
+    public void sendPasswordReset(String email, Listener listener) {
+        if (!uids.containsKey(email)) {
+            listener.onComplete(new AuthException(AuthException.Reason.INVALID, "No such user", null), null);
+            return;
+        }
+        resetsSent++;
+        listener.onComplete(null, uids.get(email));
+    }
+
+    /**
+     * Uid registered for an email, or null.
+     */
+    String uidOf(String email) {
+        return uids.get(email);
+    }
+
+    int accounts() {
+        return uids.size();
+    }
+
+    @Override
+    public void signOut() {
+        currentEmail = null;
+    }
+}
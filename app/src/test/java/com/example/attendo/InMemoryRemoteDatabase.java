@@ -0,0 +1,155 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RemoteDatabase} stand-in that keeps the tree in nested maps, applies every
+ * update atomically and synchronously (or rejects it, as {@link ServerRules} say),
+ * notifies listeners straight away and counts round trips.
+ */
+class InMemoryRemoteDatabase implements RemoteDatabase {
+
+    private final MapTree tree = new MapTree();
+    private final Map<String, List<ValueListener>> listeners = new HashMap<>();
+    int roundTrips;
+    Map<String, Object> lastUpdate;
+    Exception failNextWith;
+    // Apply the next update but never acknowledge it
+    boolean loseNextAck;
+    long clock = 1_700_000_000_000L;
+    private int pushed;
+
+    @Override
+    public synchronized void updateChildren(Map<String, Object> updates, CompletionListener listener) {
+        roundTrips++;
+        lastUpdate = new HashMap<>(updates);
+        if (failNextWith != null) {
+            Exception error = failNextWith;
+            failNextWith = null;
+            listener.onComplete(error);
+            return;
+        }
+        Exception denied = ServerRules.check(tree, updates);
+        if (denied != null) {
+            listener.onComplete(denied);
+            return;
+        }
+        for (Map.Entry<String, Object> entry : updates.entrySet()) {
+            tree.set(entry.getKey(), entry.getValue(), clock);
+        }
+        notifyListeners(updates.keySet());
+        if (loseNextAck) {
+            loseNextAck = false;
+            return;
+        }
+        listener.onComplete(null);
+    }
+
+    @Override
+    public Object increment(long delta) {
+        return new MapTree.Increment(delta);
+    }
+
+    @Override
+    public Object serverTimestamp() {
+        return MapTree.SERVER_TIMESTAMP;
+    }
+
+    @Override
+    public synchronized void runTransaction(String path, TransactionHandler handler,
+                                            TransactionListener listener) {
+        roundTrips++;
+        if (failNextWith != null) {
+            Exception error = failNextWith;
+            failNextWith = null;
+            listener.onComplete(error, false, get(path));
+            return;
+        }
+        Object value = handler.apply(get(path));
+        if (value == TransactionHandler.ABORT) {
+            listener.onComplete(null, false, get(path));
+            return;
+        }
+        put(path, value);
+        listener.onComplete(null, true, get(path));
+    }
+
+    @Override
+    public synchronized Registration listen(String path, ValueListener listener) {
+        List<ValueListener> forPath = listeners.get(path);
+        if (forPath == null) {
+            forPath = new ArrayList<>();
+            listeners.put(path, forPath);
+        }
+        forPath.add(listener);
+        listener.onValue(get(path));
+        return () -> {
+            synchronized (InMemoryRemoteDatabase.this) {
+                List<ValueListener> registered = listeners.get(path);
+                if (registered != null) {
+                    registered.remove(listener);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Registration listenChildren(String path, ChildListener listener) {
+        return listen(path, MapTree.children(listener));
+    }
+
+    @Override
+    public synchronized void page(String path, PageQuery query, PageListener listener) {
+        roundTrips++;
+        if (failNextWith != null) {
+            Exception error = failNextWith;
+            failNextWith = null;
+            listener.onError(error);
+            return;
+        }
+        listener.onPage(MapTree.page(get(path), query));
+    }
+
+    @Override
+    public synchronized String pushKey(String path) {
+        return String.format("-push%06d", ++pushed);
+    }
+
+    @Override
+    public void keepSynced(String path, boolean keep) {
+        // Everything is always "cached" here
+    }
+
+    /**
+     * Write directly, as another client would.
+     */
+    synchronized void put(String path, Object value) {
+        tree.set(path, value, clock);
+        notifyListeners(Collections.singleton(path));
+    }
+
+    synchronized Object get(String path) {
+        return tree.get(path);
+    }
+
+    private void notifyListeners(Iterable<String> changed) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, List<ValueListener>> entry : listeners.entrySet()) {
+            for (String path : changed) {
+                if (MapTree.overlaps(entry.getKey(), path)) {
+                    Object value = get(entry.getKey());
+                    for (ValueListener listener : new ArrayList<>(entry.getValue())) {
+                        listener.onValue(MapTree.copy(value));
+                    }
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LoadSimulationTest {
+
+    @Test
+    public void thousandsOfClientsAllFinishAndAreReported() {
+        LoadSimulator.Config config = new LoadSimulator.Config();
+        LoadSimulator simulator = new LoadSimulator(config);
+        LoadSimulator.Report report = simulator.run();
+        System.out.print(report.toText());
+
+        int students = config.teachers * config.studentsPerClass;
+        assertTrue(report.clients > 2000);
+        // One profile save per student device, one write per session
+        assertEquals(report.clients - config.teachers + config.teachers * config.sessionsPerTeacher,
+                report.operations);
+        assertEquals(report.operations, report.completed + report.conflicts + report.errors);
+        assertEquals(0, report.errors);
+        // Only second devices can lose a race, and each student has at most one
+        assertTrue(report.conflicts > 0);
+        assertTrue(report.conflicts <= report.clients - students - config.teachers);
+
+        assertTrue(report.throughput() > 0);
+        assertTrue(report.fanOut() >= 1);
+        assertTrue(report.deliveredBytes > 0);
+        assertTrue(report.requestLatency.percentile(50) >= 2 * config.latencyMs);
+        assertTrue(report.requestLatency.percentile(99) >= report.requestLatency.percentile(50));
+        assertEquals(config.teachers * config.sessionsPerTeacher, report.markLatency.count());
+
+        // Every mark landed and moved the student's summary
+        SimulatedRemoteDatabase database = simulator.database();
+        assertEquals(config.studentsPerClass, ((Map<?, ?>) database.get("attendance/t0_s0")).size());
+        assertNotNull(database.get("sessions/t49_s1"));
+    }
+
+    @Test
+    public void sameSeedReplaysTheSameRun() {
+        LoadSimulator.Config config = small();
+        String first = new LoadSimulator(config).run().toText();
+        String second = new LoadSimulator(config).run().toText();
+        assertEquals(first, second);
+
+        config.seed = 7;
+        assertNotEquals(first, new LoadSimulator(config).run().toText());
+    }
+
+    @Test
+    public void failuresSurfaceAsErrorsWithoutHangingClients() {
+        LoadSimulator.Config config = small();
+        config.failureRate = 0.2;
+        LoadSimulator.Report report = new LoadSimulator(config).run();
+
+        assertTrue(report.failures > 0);
+        assertTrue(report.errors > 0);
+        assertEquals(report.operations, report.completed + report.conflicts + report.errors);
+    }
+
+    @Test
+    public void concurrentProfileEditsNeverLoseAnUpdateSilently() {
+        LoadSimulator.Config config = small();
+        config.secondDevices = 1;
+        LoadSimulator simulator = new LoadSimulator(config);
+        LoadSimulator.Report report = simulator.run();
+
+        // Two devices per student changing the same field: one save wins, the other
+        // conflicts (or both win when the second saw the first's result)
+        int students = config.teachers * config.studentsPerClass;
+        assertTrue(report.conflicts > 0);
+        // Lost races are turned down by the version rule, in the same round trip as the edit
+        assertTrue(simulator.database().rejections > 0);
+        long landed = 0;
+        for (int i = 0; i < students; i++) {
+            User user = UserMapper.fromValue(simulator.database().get("users/u" + i));
+            assertNotNull(user);
+            // Both devices changed the skill; whichever landed last is stored
+            assertTrue(user.skill, "Java".equals(user.skill) || "Kotlin".equals(user.skill));
+            assertTrue(user.version == 2 || user.version == 3);
+            landed += user.version - 1;
+        }
+        // Every save either landed, moving the version on, or was reported
+        assertEquals(2L * students, landed + report.conflicts);
+        assertEquals(0, report.errors);
+    }
+
+    private static LoadSimulator.Config small() {
+        LoadSimulator.Config config = new LoadSimulator.Config();
+        config.teachers = 5;
+        config.studentsPerClass = 20;
+        return config;
+    }
+}
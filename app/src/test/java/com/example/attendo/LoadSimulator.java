@@ -0,0 +1,263 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Many devices marking attendance and editing profiles against one
+ * {@link SimulatedRemoteDatabase}, for capacity planning.
+ *
+ * Every student signs in, listens to its own users/<uid> node and saves one profile edit
+ * through {@link ProfileSavePipeline}; some also change the same field from a second
+ * device at the same time, which should end in a conflict rather than a lost update. Every teacher listens
+ * to its sessions' attendance and writes them with {@link AttendanceWriter}, which also
+ * moves the summaries the students are listening to. Clients start at random points of
+ * the window. All of it runs on one {@link EventLoop}, so a run with the same config
+ * produces the same {@link Report}.
+ */
+class LoadSimulator {
+
+    static final class Config {
+        int teachers = 50;
+        int studentsPerClass = 40;
+        int sessionsPerTeacher = 2;
+        // Share of students who also edit from a second device
+        double secondDevices = 0.1;
+        long windowMs = 60_000;
+        long latencyMs = 40;
+        long jitterMs = 60;
+        double failureRate;
+        long seed = 42;
+    }
+
+    static final class Report {
+        int clients;
+        long operations;
+        long completed;
+        long conflicts;
+        long errors;
+        long simulatedMs;
+        long requests;
+        long retries;
+        long failures;
+        long writes;
+        long deliveries;
+        long deliveredBytes;
+        final Histogram markLatency = new Histogram();
+        final Histogram profileLatency = new Histogram();
+        Histogram requestLatency;
+
+        double throughput() {
+            return simulatedMs == 0 ? 0 : completed * 1000.0 / simulatedMs;
+        }
+
+        double fanOut() {
+            return writes == 0 ? 0 : (double) deliveries / writes;
+        }
+
+        String toText() {
+            return String.format(Locale.ROOT,
+                    "clients=%d operations=%d completed=%d conflicts=%d errors=%d%n"
+                            + "simulated=%dms throughput=%.1f ops/s%n"
+                            + "requests=%d retries=%d failures=%d%n"
+                            + "writes=%d deliveries=%d fanout=%.2f/write bytes=%d%n"
+                            + "request p50=%d p95=%d p99=%d max=%d ms%n"
+                            + "mark p50=%d p95=%d p99=%d ms%n"
+                            + "profile p50=%d p95=%d p99=%d ms%n",
+                    clients, operations, completed, conflicts, errors,
+                    simulatedMs, throughput(),
+                    requests, retries, failures,
+                    writes, deliveries, fanOut(), deliveredBytes,
+                    requestLatency.percentile(50), requestLatency.percentile(95),
+                    requestLatency.percentile(99), requestLatency.max(),
+                    markLatency.percentile(50), markLatency.percentile(95), markLatency.percentile(99),
+                    profileLatency.percentile(50), profileLatency.percentile(95),
+                    profileLatency.percentile(99));
+        }
+    }
+
+    private static final String[] STATUSES = {
+            AttendanceSession.PRESENT, AttendanceSession.PRESENT, AttendanceSession.PRESENT,
+            AttendanceSession.LATE, AttendanceSession.ABSENT};
+
+    private final Config config;
+    private final EventLoop loop = new EventLoop();
+    private final Random random;
+    private final SimulatedRemoteDatabase database;
+    private final InMemoryRemoteAuth auth = new InMemoryRemoteAuth();
+    private final Report report = new Report();
+
+    LoadSimulator(Config config) {
+        this.config = config;
+        this.random = new Random(config.seed);
+        this.database = new SimulatedRemoteDatabase(loop, config.seed + 1,
+                config.latencyMs, config.jitterMs, config.failureRate);
+    }
+
+    SimulatedRemoteDatabase database() {
+        return database;
+    }
+
+    Report run() {
+        List<String> students = new ArrayList<>();
+        int count = config.teachers * config.studentsPerClass;
+        for (int i = 0; i < count; i++) {
+            auth.register("student" + i + "@example.com", "secret", (error, uid) -> students.add(uid));
+            auth.signOut();
+        }
+        for (String uid : students) {
+            startStudent(uid);
+        }
+        for (int t = 0; t < config.teachers; t++) {
+            startTeacher(t, students.subList(t * config.studentsPerClass, (t + 1) * config.studentsPerClass));
+        }
+
+        loop.run();
+
+        report.simulatedMs = loop.now();
+        report.requests = database.requests;
+        report.retries = database.retries;
+        report.failures = database.failures;
+        report.writes = database.writes;
+        report.deliveries = database.deliveries;
+        report.deliveredBytes = database.deliveredBytes;
+        report.requestLatency = database.latency;
+        return report;
+    }
+
+    private void startStudent(String uid) {
+        String path = "users/" + uid;
+        database.put(path, UserMapper.toMap(new User("Student " + uid, uid + "@example.com", "None", null)));
+        database.put(path + "/version", 1L);
+        report.clients++;
+        Device phone = new Device(uid);
+        loop.schedule(() -> phone.open(path), startTime());
+        loop.schedule(() -> phone.edit("skill", "Java"), startTime());
+        if (random.nextDouble() < config.secondDevices) {
+            report.clients++;
+            Device tablet = new Device(uid);
+            loop.schedule(() -> tablet.open(path), startTime());
+            // Lands while the phone's save is still settling, so one of them must lose;
+            // edits of different fields would be rebased instead
+            loop.schedule(() -> tablet.edit("skill", "Kotlin"), startTime());
+        }
+    }
+
+    private void startTeacher(int teacher, List<String> roster) {
+        report.clients++;
+        AttendanceWriter writer = new AttendanceWriter(database);
+        for (int s = 0; s < config.sessionsPerTeacher; s++) {
+            String sessionId = "t" + teacher + "_s" + s;
+            AttendanceSession session = new AttendanceSession(sessionId, "class" + teacher,
+                    "Subject " + (teacher % 5), 0).withRoster(roster).withOrdinal(s);
+            for (String uid : roster) {
+                session.mark(uid, STATUSES[random.nextInt(STATUSES.length)]);
+            }
+            long at = startTime();
+            loop.schedule(() -> database.listen("attendance/" + sessionId, new CountingListener()), at);
+            loop.schedule(() -> {
+                report.operations++;
+                long started = loop.now();
+                writer.write(session, error -> {
+                    report.markLatency.record(loop.now() - started);
+                    finished(error, false);
+                });
+            }, at);
+        }
+    }
+
+    private long startTime() {
+        return (long) (random.nextDouble() * config.windowMs);
+    }
+
+    private void finished(Exception error, boolean conflict) {
+        if (error != null) {
+            report.errors++;
+        } else if (conflict) {
+            report.conflicts++;
+        } else {
+            report.completed++;
+        }
+    }
+
+    /**
+     * One signed-in device of a student: the profile it last received and its own save
+     * pipeline.
+     */
+    private final class Device {
+        final ProfileSavePipeline pipeline;
+        User server;
+        User pendingEdit;
+        String field;
+        String value;
+
+        Device(String uid) {
+            pipeline = new ProfileSavePipeline(database, uid, loop, 500);
+        }
+
+        void open(String path) {
+            database.listen(path, new CountingListener() {
+                @Override
+                public void onValue(Object value) {
+                    server = UserMapper.fromValue(value);
+                    if (pendingEdit != null) {
+                        save();
+                    }
+                }
+            });
+        }
+
+        /**
+         * Edit once the profile has arrived, like a user who waits for the screen to load.
+         */
+        void edit(String field, String value) {
+            this.field = field;
+            this.value = value;
+            pendingEdit = new User();
+            if (server != null) {
+                save();
+            }
+        }
+
+        private void save() {
+            User edited = pendingEdit;
+            pendingEdit = null;
+            edited.username = "username".equals(field) ? value : server.username;
+            edited.email = server.email;
+            edited.skill = "skill".equals(field) ? value : server.skill;
+            report.operations++;
+            long started = loop.now();
+            pipeline.save(server, edited, new ProfileSavePipeline.Listener() {
+                @Override
+                public void onSaved(int fieldsWritten) {
+                    report.profileLatency.record(loop.now() - started);
+                    finished(null, false);
+                }
+
+                @Override
+                public void onConflict() {
+                    report.profileLatency.record(loop.now() - started);
+                    finished(null, true);
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    report.profileLatency.record(loop.now() - started);
+                    finished(error, false);
+                }
+            });
+        }
+    }
+
+    private static class CountingListener implements RemoteDatabase.ValueListener {
+        @Override
+        public void onValue(Object value) {
+        }
+
+        @Override
+        public void onError(Exception error) {
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.attendo;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * JSON-like tree of nested maps addressed by slash-separated paths, shared by the
+ * in-memory {@link RemoteDatabase} stand-ins.
+ */
+class MapTree {
+
+    static final class Increment {
+        final long delta;
+
+        Increment(long delta) {
+            this.delta = delta;
+        }
+    }
+
+    static final Object SERVER_TIMESTAMP = new Object();
+
+    private final Map<String, Object> root = new HashMap<>();
+
+    Object get(String path) {
+        Object node = root;
+        for (String key : path.split("/")) {
+            if (!(node instanceof Map)) {
+                return null;
+            }
+            node = ((Map<?, ?>) node).get(key);
+        }
+        return node;
+    }
+
+    /**
+     * Write a value; {@link Increment} adds to the number there, {@link #SERVER_TIMESTAMP}
+     * becomes nowMs and null removes the path.
+     */
+    @SuppressWarnings("unchecked")
+    void set(String path, Object value, long nowMs) {
+        String[] keys = path.split("/");
+        Map<String, Object> parent = root;
+        for (int i = 0; i < keys.length - 1; i++) {
+            Object child = parent.get(keys[i]);
+            if (!(child instanceof Map)) {
+                child = new HashMap<String, Object>();
+                parent.put(keys[i], child);
+            }
+            parent = (Map<String, Object>) child;
+        }
+        String leaf = keys[keys.length - 1];
+        if (value instanceof Increment) {
+            Object current = parent.get(leaf);
+            long base = current instanceof Number ? ((Number) current).longValue() : 0;
+            parent.put(leaf, base + ((Increment) value).delta);
+        } else if (value == SERVER_TIMESTAMP) {
+            parent.put(leaf, nowMs);
+        } else if (value == null) {
+            parent.remove(leaf);
+        } else {
+            parent.put(leaf, copy(value));
+        }
+    }
+
+    /**
+     * Deep copy, so callers never share a node with the tree.
+     */
+    static Object copy(Object value) {
+        if (!(value instanceof Map)) {
+            return value;
+        }
+        Map<String, Object> copy = new HashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            copy.put(entry.getKey().toString(), copy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * Whether a write at one path can change what is at the other.
+     */
+    static boolean overlaps(String a, String b) {
+        return a.equals(b) || a.startsWith(b + "/") || b.startsWith(a + "/");
+    }
+
+    /**
+     * Children of node selected and ordered as the query asks, in a map that keeps that
+     * order.
+     */
+    static Map<String, Object> page(Object node, RemoteDatabase.PageQuery query) {
+        List<Map.Entry<String, Object>> children = new ArrayList<>();
+        if (node instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet()) {
+                children.add(new AbstractMap.SimpleEntry<>(entry.getKey().toString(), copy(entry.getValue())));
+            }
+        }
+        Comparator<Map.Entry<String, Object>> byKey = Map.Entry.comparingByKey();
+        Comparator<Map.Entry<String, Object>> order = query.orderByChild == null ? byKey
+                : Comparator.<Map.Entry<String, Object>, String>comparing(
+                        entry -> childValue(entry.getValue(), query.orderByChild),
+                        Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(byKey);
+        children.sort(order);
+
+        int from = 0;
+        int to = children.size();
+        if (query.key != null) {
+            Map.Entry<String, Object> cursor = new AbstractMap.SimpleEntry<>(query.key,
+                    query.orderByChild == null ? null : cursorNode(query.orderByChild, query.value));
+            int at = 0;
+            while (at < children.size() && order.compare(children.get(at), cursor) <= 0) {
+                at++;
+            }
+            if (query.before) {
+                to = at > 0 && order.compare(children.get(at - 1), cursor) == 0 ? at - 1 : at;
+            } else {
+                from = at;
+            }
+        }
+        if (query.before) {
+            from = Math.max(from, to - query.limit);
+        } else {
+            to = Math.min(to, from + query.limit);
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : children.subList(from, to)) {
+            page.put(entry.getKey(), entry.getValue());
+        }
+        return page;
+    }
+
+    private static String childValue(Object node, String child) {
+        Object value = node instanceof Map ? ((Map<?, ?>) node).get(child) : null;
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static Map<String, Object> cursorNode(String child, String value) {
+        Map<String, Object> node = new HashMap<>();
+        node.put(child, value);
+        return node;
+    }
+
+    /**
+     * A value listener that reports what changed between the values it is given, child
+     * by child, the way a Firebase child listener would.
+     */
+    static RemoteDatabase.ValueListener children(RemoteDatabase.ChildListener listener) {
+        return new RemoteDatabase.ValueListener() {
+            private Map<String, Object> last = new HashMap<>();
+
+            @Override
+            public void onValue(Object value) {
+                Map<String, Object> next = new HashMap<>();
+                if (value instanceof Map) {
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                        next.put(entry.getKey().toString(), entry.getValue());
+                    }
+                }
+                for (String key : last.keySet()) {
+                    if (!next.containsKey(key)) {
+                        listener.onChildRemoved(key);
+                    }
+                }
+                for (Map.Entry<String, Object> entry : next.entrySet()) {
+                    if (!Objects.equals(last.get(entry.getKey()), entry.getValue())) {
+                        listener.onChild(entry.getKey(), copy(entry.getValue()));
+                    }
+                }
+                last = next;
+            }
+
+            @Override
+            public void onError(Exception error) {
+                listener.onError(error);
+            }
+        };
+    }
+}
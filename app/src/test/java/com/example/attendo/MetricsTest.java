@@ -0,0 +1,71 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void percentilesStayWithinBucketError() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10_000, histogram.count());
+        assertEquals(5_000, histogram.percentile(50), 5_000 * 0.07);
+        assertEquals(9_500, histogram.percentile(95), 9_500 * 0.07);
+        assertEquals(9_900, histogram.percentile(99), 9_900 * 0.07);
+        assertEquals(10_000, histogram.percentile(100));
+        assertEquals(1, histogram.percentile(0));
+    }
+
+    @Test
+    public void bucketsCoverEveryValueInOrder() {
+        long previous = -1;
+        for (long value = 0; value < 100_000; value++) {
+            long upper = Histogram.upperBound(Histogram.bucketOf(value));
+            assertTrue(upper >= value);
+            assertTrue(upper >= previous);
+            previous = upper;
+        }
+    }
+
+    @Test
+    public void spansRecordLatencyErrorsAndTraceSections() {
+        long[] now = {0};
+        Metrics metrics = new Metrics(() -> now[0]);
+        List<String> trace = new ArrayList<>();
+        metrics.setTracer(new Metrics.Tracer() {
+            @Override
+            public void beginAsyncSection(String name, int cookie) {
+                trace.add("begin " + name);
+            }
+
+            @Override
+            public void endAsyncSection(String name, int cookie) {
+                trace.add("end " + name);
+            }
+        });
+
+        Metrics.Span ok = metrics.begin(Metrics.AUTH_SIGN_IN);
+        now[0] += 120_000_000L;
+        ok.end(null, 40);
+        ok.end(null, 40);
+
+        Metrics.Span failed = metrics.begin(Metrics.AUTH_SIGN_IN);
+        now[0] += 30_000_000L;
+        failed.end(new Exception("denied"));
+
+        Metrics.Stats stats = metrics.snapshot().get(0);
+        assertEquals(2, stats.latencyMicros.count());
+        assertEquals(1, stats.errors());
+        assertEquals(120_000, stats.latencyMicros.max());
+        assertEquals(1, stats.payloadBytes.count());
+        assertEquals(4, trace.size());
+        assertTrue(metrics.toCsv().contains("auth.sign_in,2,1,"));
+    }
+}
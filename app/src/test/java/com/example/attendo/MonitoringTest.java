@@ -0,0 +1,96 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+public class MonitoringTest {
+
+    private static StackTraceElement[] stack(String... classes) {
+        StackTraceElement[] stack = new StackTraceElement[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            stack[i] = new StackTraceElement(classes[i], "call", classes[i] + ".java", i + 1);
+        }
+        return stack;
+    }
+
+    @Test
+    public void watchdogReportsEachStallOnce() {
+        Queue<Runnable> mainQueue = new ArrayDeque<>();
+        long[] now = {0};
+        List<Long> stalls = new ArrayList<>();
+        AnrWatchdog watchdog = new AnrWatchdog(mainQueue::add, Thread.currentThread(), 500, 2_000,
+                () -> now[0], (blockedMs, stack) -> stalls.add(blockedMs));
+
+        // Responsive main thread: each tick runs before the next check
+        for (int i = 0; i < 10; i++) {
+            watchdog.step();
+            mainQueue.poll().run();
+            now[0] += 500;
+        }
+        assertTrue(stalls.isEmpty());
+
+        // Main thread stuck for 5 s: one report, when the timeout is reached
+        watchdog.step();
+        for (int i = 0; i < 10; i++) {
+            now[0] += 500;
+            watchdog.step();
+        }
+        assertEquals(1, stalls.size());
+        assertEquals(2_000, (long) stalls.get(0));
+        assertEquals(1, mainQueue.size());
+
+        // Caught up: a new stall is a new report
+        mainQueue.poll().run();
+        watchdog.step();
+        now[0] += 3_000;
+        watchdog.step();
+        assertEquals(2, stalls.size());
+    }
+
+    @Test
+    public void reportGroupsFramesViolationsAndStalls() {
+        JankReport report = new JankReport();
+        for (int i = 0; i < 90; i++) {
+            report.recordFrame("RosterActivity roster=dragging", 8_000_000, false);
+        }
+        for (int i = 0; i < 10; i++) {
+            report.recordFrame("RosterActivity roster=dragging", 40_000_000, true);
+        }
+        report.recordFrame("MainActivity", 5_000_000, false);
+
+        StackTraceElement[] read = stack("android.os.StrictMode", "com.example.attendo.ProfileActivity",
+                "android.app.Activity");
+        report.recordViolation("DiskReadViolation", read);
+        report.recordViolation("DiskReadViolation", read);
+        report.recordViolation("NetworkViolation", stack("java.net.Socket"));
+
+        for (int i = 0; i < JankReport.MAX_STALLS + 3; i++) {
+            report.recordStall(1_700_000_000_000L, 2_000 + i, stack("com.example.attendo.Slow"));
+        }
+
+        assertEquals(10, report.frames("RosterActivity roster=dragging").janky);
+        assertEquals(100, report.frames("RosterActivity roster=dragging").durationMicros.count());
+        assertEquals(2, report.violationCount("DiskReadViolation"));
+        assertEquals(1, report.violationCount("NetworkViolation"));
+        assertEquals(JankReport.MAX_STALLS + 3, report.stallCount());
+
+        String text = report.toText(1_700_000_000_000L);
+        assertTrue(text, text.contains("RosterActivity roster=dragging"));
+        assertTrue(text, text.contains(" 10.0%"));
+        assertTrue(text, text.contains("2x DiskReadViolation at com.example.attendo.ProfileActivity.call"));
+        assertTrue(text, text.contains("(last " + JankReport.MAX_STALLS + " shown)"));
+        // Oldest stalls fall out of the ring
+        assertFalse(text, text.contains("blocked 2000 ms"));
+        assertTrue(text, text.contains("blocked 2012 ms"));
+
+        report.reset();
+        assertNull(report.frames("MainActivity"));
+        assertEquals(0, report.stallCount());
+    }
+}
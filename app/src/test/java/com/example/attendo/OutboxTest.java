@@ -0,0 +1,198 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class OutboxTest {
+
+    /** Keeps mutations in insertion order; a put with an existing key moves to the end. */
+    private static class MemoryStore implements Outbox.Store {
+        final LinkedHashMap<String, OutboxMutation> rows = new LinkedHashMap<>();
+        long nextId = 1;
+
+        @Override
+        public void put(OutboxMutation mutation) {
+            mutation.id = nextId++;
+            rows.remove(mutation.key);
+            rows.put(mutation.key, mutation);
+        }
+
+        @Override
+        public List<OutboxMutation> pending(int limit) {
+            List<OutboxMutation> pending = new ArrayList<>(rows.values());
+            return new ArrayList<>(pending.subList(0, Math.min(limit, pending.size())));
+        }
+
+        @Override
+        public void remove(List<OutboxMutation> sent) {
+            for (OutboxMutation mutation : sent) {
+                rows.remove(mutation.key, mutation);
+            }
+        }
+
+        @Override
+        public void recordAttempt(List<OutboxMutation> failed) {
+            for (OutboxMutation mutation : failed) {
+                mutation.attempts++;
+            }
+        }
+    }
+
+    private static Map<String, Object> update(String path, Object value) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(path, value);
+        return updates;
+    }
+
+    @Test
+    public void offlineDayGoesUpInFewBatches() throws Exception {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        MemoryStore store = new MemoryStore();
+        Outbox outbox = new Outbox(store, database, 5000, 256 * 1024, 1000);
+
+        // Six periods of 40 students, each mark edited twice while offline
+        for (int edit = 0; edit < 2; edit++) {
+            for (int period = 0; period < 6; period++) {
+                for (int student = 0; student < 40; student++) {
+                    String path = "attendance/p" + period + "/uid" + student;
+                    outbox.enqueue(path, update(path + "/status", edit == 0 ? "absent" : "present"), null);
+                }
+            }
+        }
+        assertEquals(240, store.rows.size());
+
+        List<OutboxMutation> acked = new ArrayList<>();
+        Outbox.DrainResult result = outbox.drain(acked::add);
+
+        assertNull(result.error);
+        assertEquals(1, result.batches);
+        assertEquals(1, database.roundTrips);
+        assertEquals(240, acked.size());
+        assertTrue(store.rows.isEmpty());
+        assertEquals("present", database.get("attendance/p5/uid39/status"));
+    }
+
+    @Test
+    public void overlappingPathsAreSplitSoIncrementsAreNotLost() throws Exception {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        MemoryStore store = new MemoryStore();
+        Outbox outbox = new Outbox(store, database, 5000, 256 * 1024, 1000);
+
+        outbox.enqueue("session/s1/0", update("users/u1/summary/total", database.increment(1)), null);
+        outbox.enqueue("session/s2/0", update("users/u1/summary/total", database.increment(1)), null);
+        outbox.drain(mutation -> {});
+
+        assertEquals(2, database.roundTrips);
+        assertEquals(2L, database.get("users/u1/summary/total"));
+
+        List<List<OutboxMutation>> plan = Outbox.plan(Arrays.asList(
+                new OutboxMutation("a", update("attendance/s1/u1", "x"), null, 0),
+                new OutboxMutation("b", update("attendance/s1/u2", "x"), null, 0),
+                new OutboxMutation("c", update("attendance/s1", "x"), null, 0)), 5000, 256 * 1024);
+        assertEquals(2, plan.size());
+        assertEquals(2, plan.get(0).size());
+    }
+
+    @Test
+    public void failedBatchStaysQueuedForTheNextAttempt() throws Exception {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        MemoryStore store = new MemoryStore();
+        Outbox outbox = new Outbox(store, database, 5000, 256 * 1024, 1000);
+        outbox.enqueue("profile/u1", update("users/u1/username", "Asha"), "user|u1|1");
+
+        database.failNextWith = new Exception("offline");
+        Outbox.DrainResult failed = outbox.drain(mutation -> fail("not sent yet"));
+        assertNotNull(failed.error);
+        assertEquals(1, store.rows.get("profile/u1").attempts);
+
+        List<String> acks = new ArrayList<>();
+        Outbox.DrainResult retried = outbox.drain(mutation -> acks.add(mutation.ack));
+        assertNull(retried.error);
+        assertEquals(Collections.singletonList("user|u1|1"), acks);
+        assertEquals("Asha", database.get("users/u1/username"));
+    }
+
+    @Test
+    public void batchWhoseAcknowledgementWasLostIsNotAppliedTwice() throws Exception {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        MemoryStore store = new MemoryStore();
+        Outbox outbox = new Outbox(store, database, 5000, 256 * 1024, 50);
+        Map<String, Object> updates = update("users/u1/summary/total", database.increment(1));
+        Receipts.put(updates, database, "session_s1_0");
+        outbox.enqueue("session/s1/0", updates, "session|s1|1");
+
+        database.loseNextAck = true;
+        Outbox.DrainResult timedOut = outbox.drain(mutation -> fail("not acknowledged yet"));
+        assertTrue(timedOut.error instanceof TimeoutException);
+        assertEquals(1, store.rows.get("session/s1/0").attempts);
+
+        // The receipt shows it landed: acknowledged without sending it again
+        List<String> acks = new ArrayList<>();
+        Outbox.DrainResult retried = outbox.drain(mutation -> acks.add(mutation.ack));
+        assertNull(retried.error);
+        assertEquals(Collections.singletonList("session|s1|1"), acks);
+        assertEquals(1, database.roundTrips);
+        assertEquals(1L, database.get("users/u1/summary/total"));
+        assertTrue(store.rows.isEmpty());
+    }
+
+    @Test
+    public void mutationTheServerKeepsRejectingIsDroppedInTheEnd() throws Exception {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        MemoryStore store = new MemoryStore();
+        Outbox outbox = new Outbox(store, database, 5000, 256 * 1024, 1000);
+        // Based on a version the server never had
+        outbox.enqueue("profile/u1", update("users/u1/version", 5L), "user|u1|1");
+        outbox.enqueue("attendance/s1/u1", update("attendance/s1/u1/status", "present"), "mark|s1|u1|1");
+
+        List<String> synced = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        Outbox.AckHandler handler = new Outbox.AckHandler() {
+            @Override
+            public void onSynced(OutboxMutation mutation) {
+                synced.add(mutation.ack);
+            }
+
+            @Override
+            public void onRejected(OutboxMutation mutation) {
+                rejected.add(mutation.ack);
+            }
+        };
+        for (int i = 0; i < Outbox.MAX_ATTEMPTS && !store.rows.isEmpty(); i++) {
+            outbox.drain(handler);
+        }
+
+        assertEquals(Collections.singletonList("user|u1|1"), rejected);
+        assertEquals(Collections.singletonList("mark|s1|u1|1"), synced);
+        assertNull(database.get("users/u1/version"));
+        assertEquals("present", database.get("attendance/s1/u1/status"));
+        // Once it had failed it was sent alone, so the mark went up in its own batch
+        assertEquals(Collections.singletonMap("attendance/s1/u1/status", "present"), database.lastUpdate);
+    }
+
+    @Test
+    public void batchesRespectPathLimit() {
+        List<OutboxMutation> pending = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("attendance/s1/u" + i, "present");
+            updates.put("timelines/u" + i + "/s1", "present");
+            pending.add(new OutboxMutation("m" + i, updates, null, 0));
+        }
+        List<List<OutboxMutation>> plan = Outbox.plan(pending, 10, Integer.MAX_VALUE);
+        assertEquals(5, plan.size());
+        for (List<OutboxMutation> batch : plan) {
+            assertEquals(10, Outbox.merge(batch).size());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.attendo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PhotoPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FilePhotoStorage storage;
+    private InMemoryRemoteDatabase database;
+    private PhotoRepository repository;
+
+    /** Runs submitted work only when asked, so tests control interleaving. */
+    private static class ManualExecutor extends AbstractExecutorService {
+        final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return queue;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+
+    /** Decodes to a fake "bitmap" of width x height ARGB pixels. */
+    private static class FakeDecoder implements PhotoLoader.Decoder<int[]> {
+        final AtomicInteger decodes = new AtomicInteger();
+
+        @Override
+        public int[] decode(byte[] data, int width, int height) {
+            decodes.incrementAndGet();
+            return new int[width * height];
+        }
+    }
+
+    private static class RecordingTarget implements PhotoLoader.Target<int[]> {
+        int loaded;
+
+        @Override
+        public void onLoaded(int[] photo) {
+            loaded++;
+        }
+
+        @Override
+        public void onFailed(Exception error) {
+            fail(error.getMessage());
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        storage = new FilePhotoStorage(folder.newFolder("bucket"));
+        database = new InMemoryRemoteDatabase();
+        repository = new PhotoRepository(storage, database,
+                new DiskCache(folder.newFolder("cache"), 1024 * 1024));
+    }
+
+    private String upload(String uid) {
+        Exception[] result = {new Exception("not called")};
+        repository.upload(uid, 0, new byte[4000], new byte[400], error -> result[0] = error);
+        assertNull(result[0]);
+        return PhotoRepository.path(uid, (Long) database.get("users/" + uid + "/photo"), PhotoRepository.THUMB);
+    }
+
+    @Test
+    public void uploadStoresBothVariantsAndPointsProfileAtThem() throws Exception {
+        String thumb = upload("u1");
+        long version = (Long) database.get("users/u1/photo");
+
+        assertEquals(2, storage.uploads);
+        assertTrue(storage.exists(thumb));
+        assertTrue(storage.exists(PhotoRepository.path("u1", version, PhotoRepository.FULL)));
+        // Uploaded bytes are already cached, so showing our own photo costs no download
+        assertEquals(400, repository.fetch(thumb).length);
+        assertEquals(0, storage.downloads);
+    }
+
+    @Test
+    public void secondFetchIsServedFromDisk() throws Exception {
+        String thumb = upload("u1");
+        DiskCache fresh = new DiskCache(folder.newFolder("other-device"), 1024 * 1024);
+        PhotoRepository otherDevice = new PhotoRepository(storage, database, fresh);
+
+        otherDevice.fetch(thumb);
+        otherDevice.fetch(thumb);
+        assertEquals(1, storage.downloads);
+    }
+
+    @Test
+    public void diskCacheEvictsLeastRecentlyUsed() throws Exception {
+        File dir = folder.newFolder("lru");
+        DiskCache cache = new DiskCache(dir, 3000);
+        cache.put("a", new byte[1000]);
+        cache.put("b", new byte[1000]);
+        cache.put("c", new byte[1000]);
+        assertNotNull(cache.get("a"));
+        cache.put("d", new byte[1000]);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(3000, cache.size());
+        // Reopening sees the same entries
+        assertEquals(3000, new DiskCache(dir, 3000).size());
+    }
+
+    @Test
+    public void sameRequestIsDecodedOnceAndRecycledRowsCancel() {
+        String first = upload("u1");
+        String second = upload("u2");
+        ManualExecutor workers = new ManualExecutor();
+        FakeDecoder decoder = new FakeDecoder();
+        PhotoLoader<int[]> loader = new PhotoLoader<>(repository, decoder,
+                new ByteLruCache<>(1024 * 1024, pixels -> pixels.length * 4L), workers, Runnable::run);
+
+        RecordingTarget a = new RecordingTarget();
+        RecordingTarget b = new RecordingTarget();
+        loader.load(first, 64, 64, a);
+        loader.load(first, 64, 64, b);
+        assertEquals(1, loader.inFlightCount());
+
+        // Row b is recycled for another student before the first load ran
+        loader.load(second, 64, 64, b);
+        workers.runAll();
+
+        assertEquals(2, decoder.decodes.get());
+        assertEquals(1, a.loaded);
+        assertEquals(1, b.loaded);
+
+        // Already in memory: no new work
+        RecordingTarget c = new RecordingTarget();
+        loader.load(first, 64, 64, c);
+        assertEquals(1, c.loaded);
+        assertTrue(workers.queue.isEmpty());
+    }
+
+    @Test
+    public void twoHundredAvatarsStayWithinMemoryBudget() {
+        ManualExecutor workers = new ManualExecutor();
+        long budget = 2 * 1024 * 1024;
+        ByteLruCache<int[]> memory = new ByteLruCache<>(budget, pixels -> pixels.length * 4L);
+        PhotoLoader<int[]> loader = new PhotoLoader<>(repository, new FakeDecoder(), memory,
+                workers, Runnable::run);
+
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            paths.add(upload("s" + i));
+        }
+        // Scroll the whole roster through eight recycled rows
+        RecordingTarget[] rows = new RecordingTarget[8];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new RecordingTarget();
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            loader.load(paths.get(i), 120, 120, rows[i % rows.length]);
+            workers.runAll();
+        }
+
+        assertTrue(memory.size() <= budget);
+        assertEquals(0, loader.inFlightCount());
+        int delivered = 0;
+        for (RecordingTarget row : rows) {
+            delivered += row.loaded;
+        }
+        assertEquals(200, delivered);
+    }
+
+    @Test
+    public void sampleSizeNeverDecodesBelowTheView() {
+        assertEquals(1, PhotoLoader.sampleSize(100, 100, 120, 120));
+        assertEquals(16, PhotoLoader.sampleSize(4000, 3000, 120, 120));
+        assertEquals(2, PhotoLoader.sampleSize(1024, 768, 400, 300));
+        assertArrayEquals(new int[]{1024, 768}, PhotoLoader.boundedSize(4000, 3000, 1024));
+        assertArrayEquals(new int[]{300, 200}, PhotoLoader.boundedSize(300, 200, 1024));
+    }
+}
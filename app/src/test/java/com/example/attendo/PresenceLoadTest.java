@@ -0,0 +1,143 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PresenceLoadTest {
+
+    private static final String SESSION = "s1";
+    private static final int BURST = 150;
+
+    private static final class Run {
+        final ContendedRemoteDatabase database = new ContendedRemoteDatabase();
+        final PresenceAggregator aggregator = new PresenceAggregator(present -> { });
+        int counted;
+        int failed;
+
+        Run(int shards) {
+            PresenceCounter counter = new PresenceCounter(database, shards);
+            for (int i = 0; i < BURST; i++) {
+                counter.arrive(SESSION, "student" + i, this::onComplete);
+            }
+            database.settle();
+            // Listened to the way PresenceLiveData does once the burst is over
+            database.listenChildren(PresenceCounter.shardsPath(SESSION), new RemoteDatabase.ChildListener() {
+                @Override
+                public void onChild(String key, Object value) {
+                    aggregator.onShard(key, value);
+                }
+
+                @Override
+                public void onChildRemoved(String key) {
+                    aggregator.onShardRemoved(key);
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    fail(error.getMessage());
+                }
+            });
+        }
+
+        void onComplete(Exception error, boolean changed) {
+            if (error != null) {
+                failed++;
+            } else if (changed) {
+                counted++;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("counted=%d failed=%d retries=%d maxRetries=%d rounds=%d",
+                    counted, failed, database.retries, database.maxRetries, database.rounds);
+        }
+    }
+
+    @Test
+    public void shardingRemovesContentionFromABurst() {
+        Run single = new Run(1);
+        Run sharded = new Run(PresenceCounter.DEFAULT_SHARDS);
+        // Both runs' figures go into every failure message instead of the test output
+        String runs = "1 shard: " + single + "; " + PresenceCounter.DEFAULT_SHARDS + " shards: " + sharded;
+
+        // One node: every arrival conflicts with every other, and the tail gives up
+        assertEquals(runs, ContendedRemoteDatabase.MAX_RETRIES + 1, single.counted);
+        assertEquals(runs, BURST - single.counted, single.failed);
+        assertEquals(runs, single.counted, single.aggregator.total());
+
+        // Sharded: nobody gives up, and the total is right
+        assertEquals(runs, BURST, sharded.counted);
+        assertEquals(runs, 0, sharded.failed);
+        assertEquals(runs, BURST, sharded.aggregator.total());
+        assertTrue(runs, sharded.database.retries * 4 < single.database.retries);
+        // Retries paid per arrival that got counted
+        double singleCost = single.database.retries / (double) single.counted;
+        double shardedCost = sharded.database.retries / (double) sharded.counted;
+        assertTrue(runs, shardedCost * 10 < singleCost);
+    }
+
+    @Test
+    public void arrivingTwiceAndLeavingAreIdempotent() {
+        ContendedRemoteDatabase database = new ContendedRemoteDatabase();
+        PresenceCounter counter = new PresenceCounter(database, 4);
+        boolean[] changed = new boolean[4];
+        counter.arrive(SESSION, "a", (error, c) -> changed[0] = c);
+        database.settle();
+        counter.arrive(SESSION, "a", (error, c) -> changed[1] = c);
+        database.settle();
+        counter.leave(SESSION, "a", (error, c) -> changed[2] = c);
+        database.settle();
+        counter.leave(SESSION, "a", (error, c) -> changed[3] = c);
+        database.settle();
+
+        assertArrayEquals(new boolean[]{true, false, true, false}, changed);
+        // The shard holding "a" is gone (the stand-in keeps the empty parent, Firebase doesn't)
+        assertTrue(((Map<?, ?>) database.get(PresenceCounter.shardsPath(SESSION))).isEmpty());
+    }
+
+    @Test
+    public void aggregatorAppliesOnlyTheChangedShard() {
+        int[] last = {-1};
+        int[] notifications = {0};
+        PresenceAggregator aggregator = new PresenceAggregator(present -> {
+            last[0] = present;
+            notifications[0]++;
+        });
+        aggregator.onShard("0", map("a", "b"));
+        aggregator.onShard("3", map("c"));
+        assertEquals(3, last[0]);
+        aggregator.onShard("0", map("a", "b", "d"));
+        assertEquals(4, last[0]);
+        // Same count again: nothing to tell
+        aggregator.onShard("3", map("e"));
+        assertEquals(3, notifications[0]);
+        aggregator.onShardRemoved("0");
+        assertEquals(1, last[0]);
+        aggregator.onShardRemoved("7");
+        assertEquals(1, aggregator.total());
+    }
+
+    @Test
+    public void shardsAreEvenlyUsed() {
+        int[] load = new int[PresenceCounter.DEFAULT_SHARDS];
+        for (int i = 0; i < 16_000; i++) {
+            load[PresenceCounter.shardOf("uid" + i, load.length)]++;
+        }
+        for (int count : load) {
+            assertEquals(1000, count, 150);
+        }
+    }
+
+    private static Map<String, Object> map(String... uids) {
+        Map<String, Object> members = new HashMap<>();
+        for (String uid : uids) {
+            members.put(uid, true);
+        }
+        return members;
+    }
+}
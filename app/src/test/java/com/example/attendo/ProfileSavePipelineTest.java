@@ -0,0 +1,240 @@
+package com.example.attendo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ProfileSavePipelineTest {
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private InMemoryRemoteDatabase database;
+    private ProfileSavePipeline pipeline;
+
+    /** Records what the pipeline reported. */
+    private static class Result implements ProfileSavePipeline.Listener {
+        int saved = -1;
+        boolean conflict;
+        Exception error;
+
+        @Override
+        public void onSaved(int fieldsWritten) {
+            saved = fieldsWritten;
+        }
+
+        @Override
+        public void onConflict() {
+            conflict = true;
+        }
+
+        @Override
+        public void onError(Exception error) {
+            this.error = error;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        database = new InMemoryRemoteDatabase();
+        database.put("users/u1/username", "Asha");
+        database.put("users/u1/email", "asha@example.com");
+        database.put("users/u1/skill", "Java");
+        database.put("users/u1/version", 3L);
+        pipeline = new ProfileSavePipeline(database, "u1", (task, delayMs) -> scheduled.add(task), 500);
+    }
+
+    private void runScheduled() {
+        while (!scheduled.isEmpty()) {
+            scheduled.remove(0).run();
+        }
+    }
+
+    private User server() {
+        User user = UserMapper.fromValue(database.get("users/u1"));
+        assertNotNull(user);
+        return user;
+    }
+
+    @Test
+    public void writesOnlyChangedFieldsWithServerTimestamp() {
+        Result result = new Result();
+        pipeline.save(server(), new User("Asha", "asha@example.com", "Kotlin", null), result);
+        runScheduled();
+
+        assertEquals(1, result.saved);
+        assertEquals(1, database.roundTrips);
+        assertEquals(3, database.lastUpdate.size());
+        assertTrue(database.lastUpdate.containsKey("users/u1/skill"));
+        assertTrue(database.lastUpdate.containsKey("users/u1/updated_at"));
+        assertEquals(4L, database.lastUpdate.get("users/u1/version"));
+        assertEquals("Kotlin", database.get("users/u1/skill"));
+        assertEquals(database.clock, database.get("users/u1/updated_at"));
+        assertEquals(4L, database.get("users/u1/version"));
+    }
+
+    @Test
+    public void unchangedProfileSendsNothing() {
+        Result result = new Result();
+        pipeline.save(server(), new User("Asha", "asha@example.com", "Java", null), result);
+        runScheduled();
+
+        assertEquals(0, result.saved);
+        assertEquals(0, database.roundTrips);
+    }
+
+    @Test
+    public void rapidSavesAreCoalesced() {
+        Result first = new Result();
+        Result second = new Result();
+        Result third = new Result();
+        User base = server();
+        pipeline.save(base, new User("Asha R", "asha@example.com", "Java", null), first);
+        pipeline.save(base, new User("Asha R", "asha@example.com", "Java", null), second);
+        pipeline.save(base, new User("Asha R", "asha@example.com", "Kotlin", null), third);
+        assertEquals(1, scheduled.size());
+        runScheduled();
+
+        // One update, version check included, for all three presses
+        assertEquals(1, database.roundTrips);
+        assertEquals(2, first.saved);
+        assertEquals(2, third.saved);
+        assertEquals("Asha R", database.get("users/u1/username"));
+        assertEquals("Kotlin", database.get("users/u1/skill"));
+        assertEquals(4L, database.get("users/u1/version"));
+    }
+
+    @Test
+    public void editFromAnotherDeviceIsNotOverwritten() {
+        User base = server();
+        // Another device saves after we loaded the profile
+        database.put("users/u1/skill", "Python");
+        database.put("users/u1/version", 4L);
+
+        Result result = new Result();
+        pipeline.save(base, new User("Asha", "asha@example.com", "Kotlin", null), result);
+        runScheduled();
+
+        assertTrue(result.conflict);
+        assertEquals("Python", database.get("users/u1/skill"));
+        assertEquals(4L, database.get("users/u1/version"));
+    }
+
+    @Test
+    public void failedWriteIsRetriedWithNextSave() {
+        database.failNextWith = new Exception("offline");
+        Result failed = new Result();
+        pipeline.save(server(), new User("Asha", "asha@example.com", "Kotlin", null), failed);
+        runScheduled();
+        assertNotNull(failed.error);
+
+        Result retried = new Result();
+        pipeline.save(server(), new User("Asha", "asha@example.com", "Kotlin", null), retried);
+        runScheduled();
+        assertEquals(1, retried.saved);
+        assertEquals("Kotlin", database.get("users/u1/skill"));
+    }
+
+    @Test
+    public void failedWriteLeavesTheVersionSoTheRetryDoesNotConflict() {
+        User base = server();
+        database.failNextWith = new Exception("offline");
+        Result failed = new Result();
+        pipeline.save(base, new User("Asha", "asha@example.com", "Kotlin", null), failed);
+        runScheduled();
+
+        assertNotNull(failed.error);
+        assertFalse(failed.conflict);
+        // Nothing of the save landed, the version included
+        assertEquals(3L, database.get("users/u1/version"));
+        assertEquals("Java", database.get("users/u1/skill"));
+
+        // Retried from the same base: the edit is kept, not dropped as a conflict
+        Result retried = new Result();
+        pipeline.save(base, new User("Asha", "asha@example.com", "Kotlin", null), retried);
+        runScheduled();
+        assertFalse(retried.conflict);
+        assertNull(retried.error);
+        assertEquals(1, retried.saved);
+        assertEquals("Kotlin", database.get("users/u1/skill"));
+        assertEquals(4L, database.get("users/u1/version"));
+    }
+
+    @Test
+    public void writeWhoseAcknowledgementWasLostCountsAsSaved() {
+        InMemoryRemoteDatabase lossy = new InMemoryRemoteDatabase() {
+            @Override
+            public synchronized void updateChildren(Map<String, Object> updates,
+                                                    CompletionListener listener) {
+                super.updateChildren(updates, error -> listener.onComplete(new Exception("timed out")));
+            }
+        };
+        lossy.put("users/u1/skill", "Java");
+        lossy.put("users/u1/version", 3L);
+        ProfileSavePipeline lossyPipeline = new ProfileSavePipeline(lossy, "u1",
+                (task, delayMs) -> scheduled.add(task), 500);
+
+        Result result = new Result();
+        lossyPipeline.save(UserMapper.fromValue(lossy.get("users/u1")),
+                new User(null, null, "Kotlin", null), result);
+        runScheduled();
+
+        assertFalse(result.conflict);
+        assertNull(result.error);
+        assertEquals(1, result.saved);
+        assertEquals(4L, lossy.get("users/u1/version"));
+    }
+
+    @Test
+    public void editAcceptedAfterTheBaseWasReadIsAConflictOnTheServer() {
+        // A second device loads version 3 too
+        User stale = server();
+        Result first = new Result();
+        pipeline.save(server(), new User("Asha", "asha@example.com", "Kotlin", null), first);
+        runScheduled();
+
+        ProfileSavePipeline other = new ProfileSavePipeline(database, "u1", (task, delayMs) -> scheduled.add(task), 500);
+        Result second = new Result();
+        other.save(stale, new User("Asha K", "asha@example.com", "Rust", null), second);
+        runScheduled();
+
+        // Both changed the skill: the first save stands
+        assertTrue(second.conflict);
+        assertEquals("Asha", database.get("users/u1/username"));
+        assertEquals("Kotlin", database.get("users/u1/skill"));
+        assertEquals(4L, database.get("users/u1/version"));
+    }
+
+    @Test
+    public void editOfOtherFieldsIsRebasedOntoTheNewerProfile() {
+        // Edited offline on version 3; meanwhile another device changed the skill
+        User stale = server();
+        Result first = new Result();
+        pipeline.save(server(), new User("Asha", "asha@example.com", "Kotlin", null), first);
+        runScheduled();
+
+        ProfileSavePipeline other = new ProfileSavePipeline(database, "u1", (task, delayMs) -> scheduled.add(task), 500);
+        Result second = new Result();
+        other.save(stale, new User("Asha K", "asha@example.com", "Java", null), second);
+        runScheduled();
+
+        assertFalse(second.conflict);
+        assertEquals(1, second.saved);
+        assertEquals("Asha K", database.get("users/u1/username"));
+        assertEquals("Kotlin", database.get("users/u1/skill"));
+        assertEquals(5L, database.get("users/u1/version"));
+    }
+
+    @Test
+    public void fullProfileLeavesOutFieldsThatAreNotSet() {
+        // A null in a multi-path update would delete the field on the server
+        Map<String, Object> fields = ProfileSavePipeline.fields(new User("Asha", "asha@example.com", null, null));
+        assertEquals(2, fields.size());
+        assertEquals("Asha", fields.get("username"));
+        assertFalse(fields.containsKey("skill"));
+        assertFalse(fields.containsKey("last_edited"));
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.attendo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.*;
+
+public class ReportExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Sessions, marks and students made up on the fly, so the source itself holds nothing.
+     */
+    private static class SyntheticSource implements ReportSource {
+        final int sessions;
+        final int studentsPerSession;
+        int largestPage;
+
+        SyntheticSource(int sessions, int studentsPerSession) {
+            this.sessions = sessions;
+            this.studentsPerSession = studentsPerSession;
+        }
+
+        @Override
+        public long countSessions() {
+            return sessions;
+        }
+
+        @Override
+        public List<Session> sessions(String after, int limit) {
+            int from = after == null ? 0 : index(after) + 1;
+            List<Session> page = new ArrayList<>();
+            for (int i = from; i < sessions && page.size() < limit; i++) {
+                page.add(new Session(key("s", i), "CS-" + (i % 4), "Subject, \"" + (i % 7) + "\"",
+                        1_700_000_000_000L + i * 3_600_000L));
+            }
+            largestPage = Math.max(largestPage, page.size());
+            return page;
+        }
+
+        @Override
+        public List<AttendanceRecord> marks(String sessionId, String afterUid, int limit) {
+            int from = afterUid == null ? 0 : index(afterUid) + 1;
+            List<AttendanceRecord> page = new ArrayList<>();
+            for (int i = from; i < studentsPerSession && page.size() < limit; i++) {
+                page.add(new AttendanceRecord(sessionId, key("u", i), i % 5 == 0 ? "absent" : "present",
+                        1_700_000_000_000L + i));
+            }
+            largestPage = Math.max(largestPage, page.size());
+            return page;
+        }
+
+        @Override
+        public List<StudentRow> students(String after, int limit) {
+            int from = after == null ? 0 : index(after) + 1;
+            List<StudentRow> page = new ArrayList<>();
+            for (int i = from; i < studentsPerSession && page.size() < limit; i++) {
+                page.add(new StudentRow(key("u", i), i == 1 ? "=HYPERLINK(1)" : "Student " + i,
+                        "s" + i + "@example.com", null));
+            }
+            largestPage = Math.max(largestPage, page.size());
+            return page;
+        }
+
+        private static String key(String prefix, int i) {
+            return prefix + String.format("%07d", i);
+        }
+
+        private static int index(String key) {
+            return Integer.parseInt(key.substring(1));
+        }
+    }
+
+    @Test
+    public void csvExportOfAMillionRowsStreams() throws Exception {
+        SyntheticSource source = new SyntheticSource(1000, 1000);
+        File file = folder.newFile("report.csv");
+        long[] lastProgress = new long[4];
+
+        long rows;
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+             ReportWriter writer = new CsvReportWriter(channel, 64 * 1024)) {
+            rows = new ReportExporter(source, 50, 200).export(writer, (r, done, total, bytes) -> {
+                lastProgress[0] = r;
+                lastProgress[1] = done;
+                lastProgress[2] = total;
+                lastProgress[3] = bytes;
+            });
+        }
+
+        assertEquals(1_000_000, rows);
+        assertEquals(1_000_000, lastProgress[0]);
+        assertEquals(1000, lastProgress[1]);
+        assertEquals(1000, lastProgress[2]);
+        assertEquals(file.length(), lastProgress[3]);
+        assertTrue(source.largestPage <= 1000);
+        // The heap limit of the test JVM is far below the size of the report
+        assertTrue(file.length() > Runtime.getRuntime().maxMemory() / 2);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            assertEquals("\uFEFFdate,class,subject,session,student_uid,student,email,status,marked_at",
+                    reader.readLine());
+            String first = reader.readLine();
+            assertTrue(first, first.contains(",\"Subject, \"\"0\"\"\",s0000000,u0000000,Student 0,"));
+            assertTrue(first, first.endsWith(",absent," + expectedTime(1_700_000_000_000L)));
+            String second = reader.readLine();
+            // Formula-looking names are neutralised
+            assertTrue(second, second.contains(",\"'=HYPERLINK(1)\","));
+            long lines = 3;
+            while (reader.readLine() != null) {
+                lines++;
+            }
+            assertEquals(1_000_001, lines);
+        }
+    }
+
+    @Test
+    public void xlsxExportOfAMillionRowsStreams() throws Exception {
+        SyntheticSource source = new SyntheticSource(1000, 1000);
+        File file = folder.newFile("report.xlsx");
+
+        long rows;
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+             ReportWriter writer = new XlsxReportWriter(channel, 64 * 1024)) {
+            rows = new ReportExporter(source, 50, 200).export(writer, (r, done, total, bytes) -> { });
+        }
+
+        assertEquals(1_000_000, rows);
+        try (ZipFile zip = new ZipFile(file)) {
+            assertNotNull(zip.getEntry("[Content_Types].xml"));
+            assertNotNull(zip.getEntry("xl/workbook.xml"));
+            ZipEntry sheet = zip.getEntry("xl/worksheets/sheet1.xml");
+            assertNotNull(sheet);
+            assertNull(zip.getEntry("xl/worksheets/sheet2.xml"));
+            long rowTags = 0;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    zip.getInputStream(sheet), StandardCharsets.UTF_8))) {
+                char[] buffer = new char[8192];
+                int read;
+                String carry = "";
+                while ((read = reader.read(buffer)) > 0) {
+                    String chunk = carry + new String(buffer, 0, read);
+                    int at = 0;
+                    while ((at = chunk.indexOf("<row", at)) >= 0) {
+                        rowTags++;
+                        at += 4;
+                    }
+                    carry = chunk.substring(Math.max(0, chunk.length() - 3));
+                }
+            }
+            // Header plus one row per mark
+            assertEquals(1_000_001, rowTags);
+        }
+    }
+
+    @Test
+    public void charactersOutsideTheBmpSurviveEscaping() throws Exception {
+        String name = "Asha \uD83D\uDE00 \"<A&B>\", Esq.";
+        SyntheticSource source = new SyntheticSource(1, 3) {
+            @Override
+            public List<StudentRow> students(String after, int limit) {
+                List<StudentRow> page = new ArrayList<>();
+                if (after == null) {
+                    page.add(new StudentRow("u0000000", name, "asha@example.com", null));
+                }
+                return page;
+            }
+        };
+
+        File csv = folder.newFile("names.csv");
+        try (FileChannel channel = new RandomAccessFile(csv, "rw").getChannel();
+             ReportWriter writer = new CsvReportWriter(channel, 64)) {
+            new ReportExporter(source, 50, 200).export(writer, (r, done, total, bytes) -> { });
+        }
+        String csvText = new String(Files.readAllBytes(csv.toPath()), StandardCharsets.UTF_8);
+        assertTrue(csvText, csvText.contains(",\"Asha \uD83D\uDE00 \"\"<A&B>\"\", Esq.\","));
+
+        File xlsx = folder.newFile("names.xlsx");
+        try (FileChannel channel = new RandomAccessFile(xlsx, "rw").getChannel();
+             ReportWriter writer = new XlsxReportWriter(channel, 64)) {
+            new ReportExporter(source, 50, 200).export(writer, (r, done, total, bytes) -> { });
+        }
+        try (ZipFile zip = new ZipFile(xlsx);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     zip.getInputStream(zip.getEntry("xl/worksheets/sheet1.xml")), StandardCharsets.UTF_8))) {
+            StringBuilder sheet = new StringBuilder();
+            for (String line; (line = reader.readLine()) != null; ) {
+                sheet.append(line);
+            }
+            assertTrue(sheet.toString(), sheet.indexOf("Asha \uD83D\uDE00 &quot;&lt;A&amp;B&gt;&quot;, Esq.") >= 0);
+        }
+    }
+
+    @Test
+    public void sessionsAreDatedInTheZoneTheyWereHeldIn() throws Exception {
+        // 2023-11-30 23:30 UTC: already December in Auckland, still November in Los Angeles
+        long at = 1_701_387_000_000L;
+        SyntheticSource source = new SyntheticSource(2, 1) {
+            @Override
+            public List<Session> sessions(String after, int limit) {
+                List<Session> page = new ArrayList<>();
+                if (after == null) {
+                    page.add(new Session("s0000000", "CS-1", "Maths", at, "Pacific/Auckland"));
+                    page.add(new Session("s0000001", "CS-1", "Maths", at, "America/Los_Angeles"));
+                }
+                return page;
+            }
+
+            @Override
+            public List<AttendanceRecord> marks(String sessionId, String afterUid, int limit) {
+                List<AttendanceRecord> page = new ArrayList<>();
+                if (afterUid == null) {
+                    page.add(new AttendanceRecord(sessionId, "u0000000", "present", at));
+                }
+                return page;
+            }
+        };
+
+        File csv = folder.newFile("zones.csv");
+        try (FileChannel channel = new RandomAccessFile(csv, "rw").getChannel();
+             ReportWriter writer = new CsvReportWriter(channel, 4096)) {
+            new ReportExporter(source, 50, 200).export(writer, (r, done, total, bytes) -> { });
+        }
+        List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.get(1), lines.get(1).startsWith("2023-12-01,"));
+        assertTrue(lines.get(1), lines.get(1).endsWith(",present,2023-12-01 12:30:00"));
+        assertTrue(lines.get(2), lines.get(2).startsWith("2023-11-30,"));
+        assertTrue(lines.get(2), lines.get(2).endsWith(",present,2023-11-30 15:30:00"));
+    }
+
+    @Test
+    public void longsAreWrittenWholeAtBothEnds() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ChannelSink sink = new ChannelSink(Channels.newChannel(bytes), 16)) {
+            sink.write(Long.MIN_VALUE).write(' ').write(Long.MAX_VALUE).write(' ').write(-7L).write(' ').write(0L);
+        }
+        assertEquals(Long.MIN_VALUE + " " + Long.MAX_VALUE + " -7 0", bytes.toString("UTF-8"));
+    }
+
+    @Test
+    public void cancelStopsAtThePageBoundary() throws Exception {
+        SyntheticSource source = new SyntheticSource(100, 100);
+        ReportExporter exporter = new ReportExporter(source, 10, 10);
+        long[] rowsSeen = new long[1];
+        try (FileChannel channel = new RandomAccessFile(folder.newFile("cancel.csv"), "rw").getChannel();
+             ReportWriter writer = new CsvReportWriter(channel, 4096)) {
+            exporter.export(writer, (rows, done, total, bytes) -> {
+                rowsSeen[0] = rows;
+                if (rows >= 250) {
+                    exporter.cancel();
+                }
+            });
+            fail("Expected the export to be cancelled");
+        } catch (CancellationException expected) {
+            assertEquals(250, rowsSeen[0]);
+        }
+    }
+
+    private static String expectedTime(long millis) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date(millis));
+    }
+}
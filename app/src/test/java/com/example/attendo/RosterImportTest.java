@@ -0,0 +1,294 @@
+package com.example.attendo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+public class RosterImportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final EventLoop loop = new EventLoop();
+    private final InMemoryRemoteAuth accounts = new InMemoryRemoteAuth();
+    private final LoopAuth auth = new LoopAuth();
+    private final FlakyDatabase database = new FlakyDatabase();
+
+    /**
+     * Answers on the event loop after 100 ms, records when requests were made and how
+     * many overlapped, and can refuse every n-th request as rate limited.
+     */
+    private class LoopAuth implements RemoteAuth {
+        final List<Long> requests = new ArrayList<>();
+        int inFlight;
+        int maxInFlight;
+        int rateLimitEvery;
+
+        @Override
+        public String currentUid() {
+            return accounts.currentUid();
+        }
+
+        @Override
+        public void signIn(String email, String password, Listener listener) {
+            later(listener, done -> accounts.signIn(email, password, done));
+        }
+
+        @Override
+        public void register(String email, String password, Listener listener) {
+            later(listener, done -> accounts.register(email, password, done));
+        }
+
+        @Override
+        public void updatePassword(String newPassword, Listener listener) {
+            later(listener, done -> accounts.updatePassword(newPassword, done));
+        }
+
+        @Override
+        public void sendPasswordReset(String email, Listener listener) {
+            later(listener, done -> accounts.sendPasswordReset(email, done));
+        }
+
+        @Override
+        public void signOut() {
+            accounts.signOut();
+        }
+
+        private void later(Listener listener, java.util.function.Consumer<Listener> call) {
+            requests.add(loop.now());
+            maxInFlight = Math.max(maxInFlight, ++inFlight);
+            boolean limited = rateLimitEvery > 0 && requests.size() % rateLimitEvery == 0;
+            loop.schedule(() -> {
+                inFlight--;
+                if (limited) {
+                    listener.onComplete(new AuthException(AuthException.Reason.RATE_LIMITED,
+                            "Too many requests", null), null);
+                } else {
+                    call.accept(listener);
+                }
+            }, 100);
+        }
+    }
+
+    /**
+     * In-memory database that fails every write while down and counts writes.
+     */
+    private static class FlakyDatabase extends InMemoryRemoteDatabase {
+        boolean down;
+        int downAfterWrites = Integer.MAX_VALUE;
+        int writes;
+
+        @Override
+        public synchronized void updateChildren(Map<String, Object> updates, CompletionListener listener) {
+            if (down || writes >= downAfterWrites) {
+                listener.onComplete(new IllegalStateException("Database unavailable"));
+                return;
+            }
+            writes++;
+            super.updateChildren(updates, listener);
+        }
+    }
+
+    /** What the import reported. */
+    private static class Outcome implements RosterImport.Listener {
+        RosterImport.Progress progress;
+        Exception error;
+        boolean finished;
+
+        @Override
+        public void onProgress(RosterImport.Progress progress) {
+            this.progress = progress;
+        }
+
+        @Override
+        public void onFinished(RosterImport.Progress progress, Exception error) {
+            this.progress = progress;
+            this.error = error;
+            finished = true;
+        }
+    }
+
+    private static RosterImport.Config config() {
+        RosterImport.Config config = new RosterImport.Config();
+        config.concurrency = 8;
+        config.ratePerSecond = 50;
+        config.burst = 20;
+        config.batchSize = 100;
+        config.backoffMs = 500;
+        return config;
+    }
+
+    /**
+     * Every 100th student has a bad email; every 250th that doesn't repeats the previous
+     * student's email in other capitalisation.
+     */
+    private static String intake(int students) {
+        StringBuilder csv = new StringBuilder("name,email,skill\r\n");
+        for (int i = 0; i < students; i++) {
+            String email = i % 100 == 99 ? "student" + i + "@nowhere"
+                    : i % 250 == 249 ? "Student" + (i - 1) + "@Example.com"
+                    : "student" + i + "@example.com";
+            csv.append("\"Student, ").append(i).append("\",").append(email).append(",Java\r\n");
+        }
+        return csv.toString();
+    }
+
+    private Outcome run(String csv, ImportJournal journal, RosterImport.Config config) {
+        Outcome outcome = new Outcome();
+        new RosterImport(new CsvReader(new StringReader(csv)), auth, database, journal,
+                loop, config, outcome).start();
+        loop.run();
+        assertTrue(outcome.finished);
+        return outcome;
+    }
+
+    @Test
+    public void importsAnIntakeWithinTheConcurrencyAndRateLimits() throws Exception {
+        ImportJournal journal = ImportJournal.open(folder.newFile("import.journal"));
+        RosterImport.Config config = config();
+        Outcome outcome = run(intake(3000), journal, config);
+
+        assertNull(outcome.error);
+        // 30 bad emails and 6 duplicates
+        int valid = 3000 - 30 - 6;
+        assertEquals(3000, outcome.progress.rows);
+        assertEquals(valid, outcome.progress.created);
+        assertEquals(valid, outcome.progress.written);
+        assertEquals(36, outcome.progress.failed);
+        assertEquals(valid, accounts.accounts());
+        assertEquals(valid, accounts.resetsSent);
+
+        assertTrue(auth.maxInFlight <= config.concurrency);
+        // Registration plus reset email per student, paced by the bucket
+        long expectedMs = (long) ((2L * valid - config.burst) / config.ratePerSecond * 1000);
+        assertTrue(loop.now() >= expectedMs);
+        assertTrue(loop.now() < expectedMs * 1.2);
+        assertTrue(database.writes <= valid / config.batchSize + 2);
+
+        User user = UserMapper.fromValue(database.get("users/" + accounts.uidOf("student7@example.com")));
+        assertNotNull(user);
+        assertEquals("Student, 7", user.username);
+        assertEquals("Java", user.skill);
+        assertEquals(1L, user.version);
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        try (CsvReportWriter writer = new CsvReportWriter(Channels.newChannel(report), 1024)) {
+            RosterImport.writeErrorReport(journal, writer);
+        }
+        String[] lines = new String(report.toByteArray(), StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(37, lines.length);
+        assertEquals("\uFEFFrow,email,reason", lines[0]);
+        assertEquals("101,student99@nowhere,Invalid email", lines[1]);
+        assertEquals("251,student248@example.com,Duplicate of row 250", lines[3]);
+    }
+
+    @Test
+    public void rateLimitedRequestsAreRetried() throws Exception {
+        auth.rateLimitEvery = 7;
+        Outcome outcome = run(intake(300), ImportJournal.open(folder.newFile("import.journal")), config());
+
+        assertNull(outcome.error);
+        assertTrue(outcome.progress.retries > 0);
+        assertEquals(300 - 3 - 1, accounts.accounts());
+        assertEquals(300 - 3 - 1, outcome.progress.written);
+    }
+
+    @Test
+    public void resumesAfterAnOutageWithoutCreatingAccountsTwice() throws Exception {
+        File file = folder.newFile("import.journal");
+        database.downAfterWrites = 3;
+        Outcome first;
+        try (ImportJournal journal = ImportJournal.open(file)) {
+            first = run(intake(1000), journal, config());
+        }
+        assertNotNull(first.error);
+        int createdBefore = accounts.accounts();
+        assertTrue(createdBefore > 300);
+        assertTrue(createdBefore < 1000 - 10 - 2);
+
+        database.downAfterWrites = Integer.MAX_VALUE;
+        Outcome second;
+        try (ImportJournal journal = ImportJournal.open(file)) {
+            second = run(intake(1000), journal, config());
+        }
+        assertNull(second.error);
+        assertTrue(second.progress.skipped >= 300);
+        int valid = 1000 - 10 - 2;
+        assertEquals(valid, accounts.accounts());
+        for (int i = 0; i < 1000; i++) {
+            String uid = accounts.uidOf("student" + i + "@example.com");
+            if (uid != null) {
+                assertNotNull(database.get("users/" + uid + "/username"));
+            }
+        }
+
+        try (ImportJournal journal = ImportJournal.open(file)) {
+            // Only the rejected rows, each reported once across both runs
+            assertEquals(12, journal.failures().size());
+            assertEquals(1002, journal.finishedBefore());
+        }
+    }
+
+    @Test
+    public void cancelFinishesRequestsInFlightAndCanBeResumed() throws Exception {
+        File file = folder.newFile("import.journal");
+        Outcome first = new Outcome();
+        try (ImportJournal journal = ImportJournal.open(file)) {
+            RosterImport running = new RosterImport(new CsvReader(new StringReader(intake(500))),
+                    auth, database, journal, loop, config(), first);
+            running.start();
+            loop.schedule(running::cancel, 2000);
+            loop.run();
+        }
+        assertTrue(first.error instanceof CancellationException);
+        assertEquals(first.progress.created, first.progress.written);
+        assertTrue(first.progress.created < 490);
+
+        Outcome second;
+        try (ImportJournal journal = ImportJournal.open(file)) {
+            second = run(intake(500), journal, config());
+        }
+        assertNull(second.error);
+        assertEquals(500 - 5 - 1, accounts.accounts());
+    }
+
+    @Test
+    public void csvReaderHandlesQuotesLineBreaksAndByteOrderMark() throws Exception {
+        CsvReader reader = new CsvReader(new StringReader(
+                "\uFEFFname,email\r\n\"Doe, Jane\",\"say \"\"hi\"\"\"\n\n\"two\nlines\",x\r\nlast,"));
+        assertArrayEquals(new String[]{"name", "email"}, reader.next());
+        assertArrayEquals(new String[]{"Doe, Jane", "say \"hi\""}, reader.next());
+        assertArrayEquals(new String[]{"two\nlines", "x"}, reader.next());
+        assertEquals(3, reader.record());
+        assertArrayEquals(new String[]{"last", ""}, reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void tokenBucketAllowsABurstThenThePacedRate() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        assertEquals(0, bucket.tryTake(0));
+        assertEquals(0, bucket.tryTake(0));
+        assertEquals(0, bucket.tryTake(0));
+        assertEquals(100, bucket.tryTake(0));
+        assertEquals(50, bucket.tryTake(50));
+        assertEquals(0, bucket.tryTake(100));
+        // Idle time refills no more than the burst
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryTake(10_000));
+        }
+        assertTrue(bucket.tryTake(10_000) > 0);
+    }
+}
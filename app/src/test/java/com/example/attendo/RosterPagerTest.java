@@ -0,0 +1,187 @@
+package com.example.attendo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RosterPagerTest {
+
+    /**
+     * Answers synchronously from a sorted list and counts the rows it ships.
+     */
+    private static class ListSource implements RosterPagingSource {
+        final List<StudentRow> all = new ArrayList<>();
+        int loads;
+        int rowsShipped;
+
+        ListSource(int size) {
+            for (int i = 0; i < size; i++) {
+                all.add(new StudentRow(String.format("uid%05d", i), "Student", "s" + i + "@college.edu", ""));
+            }
+        }
+
+        @Override
+        public void loadAfter(Cursor cursor, int size, Callback callback) {
+            int from = cursor == null ? 0 : indexOf(cursor) + 1;
+            ship(all.subList(from, Math.min(all.size(), from + size)), callback);
+        }
+
+        @Override
+        public void loadBefore(Cursor cursor, int size, Callback callback) {
+            int to = indexOf(cursor);
+            ship(all.subList(Math.max(0, to - size), to), callback);
+        }
+
+        @Override
+        public Cursor cursorOf(StudentRow row) {
+            return new Cursor(row.username, row.uid);
+        }
+
+        private int indexOf(Cursor cursor) {
+            for (int i = 0; i < all.size(); i++) {
+                if (all.get(i).uid.equals(cursor.key)) {
+                    return i;
+                }
+            }
+            throw new AssertionError("unknown cursor " + cursor.key);
+        }
+
+        private void ship(List<StudentRow> page, Callback callback) {
+            loads++;
+            rowsShipped += page.size();
+            callback.onLoaded(new ArrayList<>(page));
+        }
+    }
+
+    private ListSource source;
+    private RosterPager pager;
+
+    @Before
+    public void setUp() {
+        source = new ListSource(10_000);
+        pager = new RosterPager(source, 20, 10, 100);
+    }
+
+    /**
+     * Bind every row from first to last, like a user scrolling.
+     */
+    private void scroll(int first, int last) {
+        int step = first <= last ? 1 : -1;
+        for (int uidIndex = first; uidIndex != last + step; uidIndex += step) {
+            String uid = String.format("uid%05d", uidIndex);
+            List<StudentRow> rows = pager.getRows();
+            int position = -1;
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).uid.equals(uid)) {
+                    position = i;
+                    break;
+                }
+            }
+            assertTrue("row " + uid + " should be loaded before it is reached", position >= 0);
+            pager.onRowBound(position);
+        }
+    }
+
+    @Test
+    public void firstPageOnlyOnStart() {
+        pager.start();
+        assertEquals(20, pager.getRows().size());
+        assertEquals(1, source.loads);
+    }
+
+    @Test
+    public void prefetchesAheadAndKeepsMemoryBounded() {
+        pager.start();
+        scroll(0, 999);
+
+        assertTrue(pager.getRows().size() <= 100);
+        // Nothing was downloaded far beyond what was scrolled past
+        assertTrue(source.rowsShipped <= 1000 + 40);
+        int lastLoaded = Integer.parseInt(pager.getRows().get(pager.getRows().size() - 1).uid.substring(3));
+        assertTrue(lastLoaded >= 999 && lastLoaded < 999 + 10 + 20);
+    }
+
+    @Test
+    public void scrollingBackReloadsDroppedPages() {
+        pager.start();
+        scroll(0, 499);
+        assertNotEquals("uid00000", pager.getRows().get(0).uid);
+
+        scroll(499, 0);
+        assertEquals("uid00000", pager.getRows().get(0).uid);
+        assertTrue(pager.getRows().size() <= 100);
+    }
+
+    @Test
+    public void stopsAtTheEnd() {
+        source = new ListSource(45);
+        pager = new RosterPager(source, 20, 10, 100);
+        pager.start();
+        scroll(0, 44);
+
+        assertEquals(45, pager.getRows().size());
+        assertTrue(pager.hasReachedEnd());
+        int loads = source.loads;
+        pager.onRowBound(44);
+        assertEquals(loads, source.loads);
+    }
+
+    @Test
+    public void listenerSeesEveryChange() {
+        int[] size = {0};
+        pager.setListener(new RosterPager.Listener() {
+            @Override
+            public void onInserted(int position, int count) {
+                size[0] += count;
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                size[0] -= count;
+            }
+
+            @Override
+            public void onError(Exception error) {
+                fail(error.getMessage());
+            }
+        });
+        pager.start();
+        scroll(0, 300);
+        assertEquals(pager.getRows().size(), size[0]);
+    }
+
+    @Test
+    public void remoteSourcePagesByNameWithoutSkippingEqualNames() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        for (int i = 0; i < 45; i++) {
+            // Three students share each name
+            database.put(String.format("members/college/uid%02d/username", i), "Student " + (char) ('A' + i / 3));
+        }
+        pager = new RosterPager(new RemoteRosterPagingSource(database, "members/college"), 10, 5, 30);
+        pager.start();
+        for (int position = 0; !pager.hasReachedEnd(); position++) {
+            pager.onRowBound(Math.min(position, pager.getRows().size() - 1));
+        }
+
+        List<StudentRow> rows = pager.getRows();
+        assertEquals("Student O", rows.get(rows.size() - 1).username);
+        assertEquals("uid44", rows.get(rows.size() - 1).uid);
+        for (int i = 1; i < rows.size(); i++) {
+            StudentRow previous = rows.get(i - 1);
+            StudentRow row = rows.get(i);
+            assertTrue(previous.username.compareTo(row.username) < 0
+                    || previous.username.equals(row.username) && previous.uid.compareTo(row.uid) < 0);
+        }
+
+        // Scrolling back to the top reloads the dropped rows before the cursor
+        assertNotEquals("uid00", rows.get(0).uid);
+        for (int i = 0; i < 10; i++) {
+            pager.onRowBound(0);
+        }
+        assertEquals("uid00", pager.getRows().get(0).uid);
+    }
+}
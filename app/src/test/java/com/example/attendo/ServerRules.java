@@ -0,0 +1,52 @@
+package com.example.attendo;
+
+import java.util.Map;
+
+/**
+ * The .validate rules from database.rules.json that the engines depend on, checked the
+ * way the server does before it applies a multi-path update: all of it or none of it.
+ */
+final class ServerRules {
+
+    private ServerRules() {}
+
+    /**
+     * @return why the server would reject the update, or null if it would apply it
+     */
+    static Exception check(MapTree tree, Map<String, Object> updates) {
+        for (String path : updates.keySet()) {
+            // Receipts are write-once
+            if (path.startsWith(Receipts.ROOT + "/") && tree.get(path) != null) {
+                return denied(path);
+            }
+            // users/<uid>/version only ever moves up by one
+            String[] parts = path.split("/");
+            if (parts.length == 3 && parts[0].equals("users") && parts[2].equals("version")) {
+                if (!nextVersion(tree.get(path), updates.get(path))) {
+                    return denied(path);
+                }
+            } else if (parts.length == 2 && parts[0].equals("users") && updates.get(path) instanceof Map) {
+                Map<?, ?> user = (Map<?, ?>) updates.get(path);
+                if (user.containsKey("version") && !nextVersion(tree.get(path + "/version"), user.get("version"))) {
+                    return denied(path + "/version");
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean nextVersion(Object stored, Object written) {
+        if (written == null) {
+            return true;
+        }
+        long current = stored instanceof Number ? ((Number) stored).longValue() : 0;
+        if (written instanceof MapTree.Increment) {
+            return ((MapTree.Increment) written).delta == 1;
+        }
+        return written instanceof Number && ((Number) written).longValue() == current + 1;
+    }
+
+    private static Exception denied(String path) {
+        return new IllegalStateException("Permission denied: " + path);
+    }
+}
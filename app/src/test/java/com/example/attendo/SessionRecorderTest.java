@@ -0,0 +1,107 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SessionRecorderTest {
+
+    private static final long STARTED_AT = 1_700_000_000_000L;
+
+    private static final class Result implements SessionRecorder.Listener {
+        AttendanceSession recorded;
+        Exception error;
+
+        @Override
+        public void onRecorded(AttendanceSession session) {
+            recorded = session;
+        }
+
+        @Override
+        public void onError(Exception error) {
+            this.error = error;
+        }
+    }
+
+    private final InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+    private final AttendanceWriter writer = new AttendanceWriter(database);
+    private final List<AttendanceSession> written = new ArrayList<>();
+    private final SessionRecorder recorder = new SessionRecorder(database, writer.getAggregator(),
+            session -> {
+                written.add(session);
+                writer.write(session, error -> assertNull(error));
+            });
+
+    private void enroll(String... uids) {
+        for (String uid : uids) {
+            database.put(Enrollments.classStudentsPath("inst1", "cse-a") + "/" + uid + "/username", uid);
+        }
+    }
+
+    private void checkIn(String sessionId, String uid) {
+        database.put("checkins/" + sessionId + "/" + uid + "/at", STARTED_AT);
+    }
+
+    private AttendanceSession occurrence(String sessionId, int ordinal) {
+        return new AttendanceSession(sessionId, "cse-a", "Maths", STARTED_AT).withOrdinal(ordinal);
+    }
+
+    @Test
+    public void checkedInStudentsArePresentAndTheRestOfTheRosterAbsent() {
+        enroll("u1", "u2", "u3");
+        checkIn("s1", "u1");
+        checkIn("s1", "u3");
+
+        Result result = new Result();
+        recorder.record("inst1", occurrence("s1", 0), result);
+
+        assertNull(result.error);
+        assertEquals(AttendanceSession.PRESENT, result.recorded.marks.get("u1"));
+        assertEquals(AttendanceSession.ABSENT, result.recorded.marks.get("u2"));
+        assertEquals(AttendanceSession.PRESENT, result.recorded.marks.get("u3"));
+        assertEquals("absent", database.get("attendance/s1/u2/status"));
+        assertEquals(3, database.get("sessions/s1/total"));
+        assertEquals(0, database.get("sessions/s1/ordinal"));
+        // Bits indexed by the sorted roster: u1 and u3 attended
+        SessionBits bits = SessionBits.fromValue(database.get("sessions/s1/bits"));
+        assertEquals(AttendanceSession.ABSENT, bits.statusOf(1));
+        assertEquals(2, bits.attended.cardinality());
+    }
+
+    @Test
+    public void streaksContinueTheStoredSummary() {
+        enroll("u1");
+        // Ten earlier sessions, all attended, recorded by another device
+        AttendanceAggregator other = new AttendanceAggregator(database);
+        other.seed("u1", null);
+        for (int i = 0; i < 10; i++) {
+            AttendanceAggregator.Update update = other.apply(new AttendanceAggregator.MarkChange(
+                    "u1", "Maths", i, null, AttendanceSession.PRESENT));
+            database.updateChildren(update.updates, error -> {});
+            other.commit(update);
+        }
+        checkIn("s10", "u1");
+
+        recorder.record("inst1", occurrence("s10", 10), new Result());
+
+        assertEquals(11, database.get("users/u1/summary/subjects/Maths/streak"));
+        assertEquals(11, writer.getAggregator().get("u1").subjects.get("Maths").streak);
+    }
+
+    @Test
+    public void recordedSessionIsNotRecordedAgain() {
+        enroll("u1");
+        checkIn("s1", "u1");
+        recorder.record("inst1", occurrence("s1", 0), new Result());
+
+        Result again = new Result();
+        recorder.record("inst1", occurrence("s1", 0), again);
+
+        assertNotNull(again.error);
+        assertEquals(1, written.size());
+        assertEquals(1L, database.get("users/u1/summary/total"));
+    }
+}
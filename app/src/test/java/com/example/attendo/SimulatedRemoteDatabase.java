@@ -0,0 +1,267 @@
+package com.example.attendo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * {@link RemoteDatabase} backed by one shared server tree on an {@link EventLoop}, for
+ * many simulated devices at once.
+ *
+ * Every request travels to the server and its answer back with a seeded, jittered
+ * latency, and may be rejected at the given failure rate. Transactions are optimistic
+ * like Firebase's: the client computes its value from what it last saw (nothing, at
+ * first), the server only commits if that is still current and otherwise sends the real
+ * value back for another attempt, up to {@link #MAX_RETRIES}. Updates the
+ * {@link ServerRules} forbid are rejected whole. Each write pushes the new
+ * value to every listener whose path it touches; those deliveries are counted and sized
+ * as the fan-out cost.
+ */
+class SimulatedRemoteDatabase implements RemoteDatabase {
+
+    static final int MAX_RETRIES = 25;
+
+    private static final class Listening implements Registration {
+        final String path;
+        final ValueListener listener;
+        boolean removed;
+
+        Listening(String path, ValueListener listener) {
+            this.path = path;
+            this.listener = listener;
+        }
+
+        @Override
+        public void remove() {
+            removed = true;
+        }
+    }
+
+    private final EventLoop loop;
+    private final Random random;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double failureRate;
+    private final MapTree tree = new MapTree();
+    private final List<Listening> listeners = new ArrayList<>();
+
+    final Histogram latency = new Histogram();
+    long requests;
+    long writes;
+    long retries;
+    long failures;
+    // Updates the rules turned down
+    long rejections;
+    long deliveries;
+    long deliveredBytes;
+    private int pushed;
+
+    SimulatedRemoteDatabase(EventLoop loop, long seed, long latencyMs, long jitterMs, double failureRate) {
+        this.loop = loop;
+        this.random = new Random(seed);
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public void updateChildren(Map<String, Object> updates, CompletionListener listener) {
+        Map<String, Object> sent = new HashMap<>(updates);
+        long started = loop.now();
+        requests++;
+        loop.schedule(() -> {
+            if (rejected()) {
+                reply(() -> listener.onComplete(failure()), started);
+                return;
+            }
+            Exception denied = ServerRules.check(tree, sent);
+            if (denied != null) {
+                rejections++;
+                reply(() -> listener.onComplete(denied), started);
+                return;
+            }
+            for (Map.Entry<String, Object> entry : sent.entrySet()) {
+                tree.set(entry.getKey(), entry.getValue(), loop.now());
+            }
+            written(sent.keySet());
+            reply(() -> listener.onComplete(null), started);
+        }, oneWay());
+    }
+
+    @Override
+    public Object increment(long delta) {
+        return new MapTree.Increment(delta);
+    }
+
+    @Override
+    public Object serverTimestamp() {
+        return MapTree.SERVER_TIMESTAMP;
+    }
+
+    @Override
+    public void runTransaction(String path, TransactionHandler handler, TransactionListener listener) {
+        requests++;
+        attempt(path, handler, listener, null, 0, loop.now());
+    }
+
+    private void attempt(String path, TransactionHandler handler, TransactionListener listener,
+                         Object seen, int attempt, long started) {
+        Object proposed = handler.apply(MapTree.copy(seen));
+        if (proposed == TransactionHandler.ABORT) {
+            Object value = seen;
+            loop.schedule(() -> listener.onComplete(null, false, value), 0);
+            return;
+        }
+        loop.schedule(() -> {
+            if (rejected()) {
+                reply(() -> listener.onComplete(failure(), false, null), started);
+                return;
+            }
+            Object current = MapTree.copy(tree.get(path));
+            if (!Objects.equals(current, seen)) {
+                if (attempt + 1 >= MAX_RETRIES) {
+                    failures++;
+                    reply(() -> listener.onComplete(
+                            new IllegalStateException("Transaction retried too often"), false, current), started);
+                    return;
+                }
+                retries++;
+                loop.schedule(() -> attempt(path, handler, listener, current, attempt + 1, started), oneWay());
+                return;
+            }
+            tree.set(path, proposed, loop.now());
+            written(Collections.singleton(path));
+            Object committed = MapTree.copy(tree.get(path));
+            reply(() -> listener.onComplete(null, true, committed), started);
+        }, oneWay());
+    }
+
+    @Override
+    public Registration listen(String path, ValueListener listener) {
+        Listening listening = new Listening(path, listener);
+        listeners.add(listening);
+        requests++;
+        long started = loop.now();
+        loop.schedule(() -> {
+            if (rejected()) {
+                Exception error = failure();
+                listeners.remove(listening);
+                reply(() -> listener.onError(error), started);
+                return;
+            }
+            deliver(listening, started);
+        }, oneWay());
+        return listening;
+    }
+
+    @Override
+    public Registration listenChildren(String path, ChildListener listener) {
+        return listen(path, MapTree.children(listener));
+    }
+
+    @Override
+    public void page(String path, PageQuery query, PageListener listener) {
+        requests++;
+        long started = loop.now();
+        loop.schedule(() -> {
+            if (rejected()) {
+                Exception error = failure();
+                reply(() -> listener.onError(error), started);
+                return;
+            }
+            Map<String, Object> children = MapTree.page(tree.get(path), query);
+            reply(() -> listener.onPage(children), started);
+        }, oneWay());
+    }
+
+    @Override
+    public String pushKey(String path) {
+        return String.format("-push%06d", ++pushed);
+    }
+
+    @Override
+    public void keepSynced(String path, boolean keep) {
+        // There is no client cache to keep
+    }
+
+    /**
+     * Server value at a path, for checking the outcome of a run.
+     */
+    Object get(String path) {
+        return tree.get(path);
+    }
+
+    /**
+     * Seed the server tree directly, without latency or listeners.
+     */
+    void put(String path, Object value) {
+        tree.set(path, value, loop.now());
+    }
+
+    /**
+     * Mean listener deliveries caused by one write.
+     */
+    double fanOut() {
+        return writes == 0 ? 0 : (double) deliveries / writes;
+    }
+
+    private void written(Iterable<String> paths) {
+        writes++;
+        List<Listening> removed = new ArrayList<>();
+        for (Listening listening : listeners) {
+            if (listening.removed) {
+                removed.add(listening);
+                continue;
+            }
+            for (String path : paths) {
+                if (MapTree.overlaps(listening.path, path)) {
+                    deliver(listening, -1);
+                    break;
+                }
+            }
+        }
+        listeners.removeAll(removed);
+    }
+
+    /**
+     * Send the listener the current value; started is the request time for the first
+     * delivery of a listen, -1 for pushes.
+     */
+    private void deliver(Listening listening, long started) {
+        Object value = MapTree.copy(tree.get(listening.path));
+        deliveries++;
+        deliveredBytes += AttendanceWriter.estimateBytes(value);
+        loop.schedule(() -> {
+            if (started >= 0) {
+                latency.record(loop.now() - started);
+            }
+            if (!listening.removed) {
+                listening.listener.onValue(value);
+            }
+        }, oneWay());
+    }
+
+    private void reply(Runnable callback, long started) {
+        loop.schedule(() -> {
+            latency.record(loop.now() - started);
+            callback.run();
+        }, oneWay());
+    }
+
+    private boolean rejected() {
+        return failureRate > 0 && random.nextDouble() < failureRate;
+    }
+
+    private Exception failure() {
+        failures++;
+        return new IllegalStateException("Simulated network failure");
+    }
+
+    private long oneWay() {
+        return latencyMs + (jitterMs > 0 ? (long) (random.nextDouble() * jitterMs) : 0);
+    }
+}
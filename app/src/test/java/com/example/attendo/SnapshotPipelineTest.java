@@ -0,0 +1,185 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SnapshotPipelineTest {
+
+    /** Runs tasks only when asked, so tests decide the interleaving. */
+    private static class ManualExecutor implements java.util.concurrent.Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /** Records what reached the main thread. */
+    private static class Results implements SnapshotPipeline.Sink<String> {
+        final List<String> results = new ArrayList<>();
+        final List<Exception> errors = new ArrayList<>();
+
+        @Override
+        public void onResult(String result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            errors.add(error);
+        }
+    }
+
+    private final ManualExecutor background = new ManualExecutor();
+    private final ManualExecutor main = new ManualExecutor();
+    private final Results sink = new Results();
+    private final List<Integer> transformed = new ArrayList<>();
+
+    private SnapshotPipeline<Integer, String> pipeline() {
+        return new SnapshotPipeline<>(background, main, input -> {
+            transformed.add(input);
+            return "v" + input;
+        }, sink);
+    }
+
+    @Test
+    public void snapshotsQueuedBehindAPendingRunAreConflated() {
+        SnapshotPipeline<Integer, String> pipeline = pipeline();
+        pipeline.submit(1);
+        pipeline.submit(2);
+        pipeline.submit(3);
+        assertEquals(1, background.tasks.size());
+
+        background.runAll();
+        main.runAll();
+        assertEquals(List.of(3), transformed);
+        assertEquals(List.of("v3"), sink.results);
+    }
+
+    @Test
+    public void resultOvertakenWhileTransformingIsNotDelivered() {
+        List<Integer> seen = new ArrayList<>();
+        AtomicReference<SnapshotPipeline<Integer, String>> holder = new AtomicReference<>();
+        holder.set(new SnapshotPipeline<>(background, main, input -> {
+            seen.add(input);
+            if (input == 1) {
+                // A newer snapshot arrives while this one is being parsed
+                holder.get().submit(2);
+            }
+            return "v" + input;
+        }, sink));
+
+        holder.get().submit(1);
+        background.runAll();
+        main.runAll();
+        assertEquals(List.of(1, 2), seen);
+        assertEquals(List.of("v2"), sink.results);
+    }
+
+    @Test
+    public void cancelDropsPendingWorkAndResultsInFlight() {
+        SnapshotPipeline<Integer, String> pipeline = pipeline();
+        pipeline.submit(1);
+        background.runAll();
+        // Result posted, screen goes away before the main thread gets to it
+        pipeline.cancel();
+        main.runAll();
+        assertTrue(sink.results.isEmpty());
+
+        pipeline.submit(2);
+        pipeline.cancel();
+        background.runAll();
+        main.runAll();
+        assertEquals(List.of(1), transformed);
+        assertTrue(sink.results.isEmpty());
+
+        // Usable again once observed again
+        pipeline.submit(3);
+        background.runAll();
+        main.runAll();
+        assertEquals(List.of("v3"), sink.results);
+    }
+
+    @Test
+    public void transformErrorsAreDeliveredAndThePipelineKeepsGoing() {
+        SnapshotPipeline<Integer, String> pipeline = new SnapshotPipeline<>(background, main, input -> {
+            if (input < 0) {
+                throw new IllegalArgumentException("bad snapshot");
+            }
+            return "v" + input;
+        }, sink);
+
+        pipeline.submit(-1);
+        background.runAll();
+        main.runAll();
+        assertEquals(1, sink.errors.size());
+
+        pipeline.submit(4);
+        background.runAll();
+        main.runAll();
+        assertEquals(List.of("v4"), sink.results);
+    }
+
+    @Test
+    public void transformsRunOffTheDeliveryThreadAndNeverOverlap() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        ExecutorService delivery = Executors.newSingleThreadExecutor();
+        Thread[] deliveryThread = new Thread[1];
+        delivery.submit(() -> deliveryThread[0] = Thread.currentThread()).get();
+
+        int[] running = new int[1];
+        boolean[] overlapped = new boolean[1];
+        boolean[] onDelivery = new boolean[1];
+        CountDownLatch last = new CountDownLatch(1);
+        SnapshotPipeline<Integer, Integer> pipeline = new SnapshotPipeline<>(pool, delivery, input -> {
+            synchronized (running) {
+                overlapped[0] |= ++running[0] > 1;
+            }
+            onDelivery[0] |= Thread.currentThread() == deliveryThread[0];
+            Thread.sleep(1);
+            synchronized (running) {
+                running[0]--;
+            }
+            return input;
+        }, new SnapshotPipeline.Sink<Integer>() {
+            @Override
+            public void onResult(Integer result) {
+                if (result == 199) {
+                    last.countDown();
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+            }
+        });
+
+        for (int i = 0; i < 200; i++) {
+            pipeline.submit(i);
+        }
+        assertTrue(last.await(5, TimeUnit.SECONDS));
+        assertFalse(overlapped[0]);
+        assertFalse(onDelivery[0]);
+        pool.shutdown();
+        delivery.shutdown();
+    }
+}
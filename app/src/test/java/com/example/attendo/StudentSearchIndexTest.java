@@ -0,0 +1,140 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StudentSearchIndexTest {
+
+    private static List<String> uids(StudentSearchIndex index, String query) {
+        List<StudentSearchIndex.Entry> hits = new ArrayList<>();
+        index.search(query, 50, hits);
+        List<String> uids = new ArrayList<>();
+        for (StudentSearchIndex.Entry hit : hits) {
+            uids.add(hit.uid);
+        }
+        uids.sort(null);
+        return uids;
+    }
+
+    @Test
+    public void matchesPrefixesOfNameEmailAndSkill() {
+        StudentSearchIndex index = new StudentSearchIndex();
+        index.put("a", "Aarav Sharma", "aarav@college.edu", "Android");
+        index.put("b", "Zo\u00eb Fernandes", "zoe.f@college.edu", "Design");
+        index.put("c", "Arjun Mehta", "arjun@gmail.com", "Java");
+
+        assertEquals(List.of("a", "c"), uids(index, "a"));
+        assertEquals(List.of("a"), uids(index, "aar"));
+        assertEquals(List.of("b"), uids(index, "zoe"));
+        assertEquals(List.of("b"), uids(index, "ZO\u00cb"));
+        assertEquals(List.of("c"), uids(index, "gmail"));
+        assertEquals(List.of("b"), uids(index, "des"));
+        assertEquals(List.of("a", "b"), uids(index, "college"));
+        assertEquals(List.of(), uids(index, "x"));
+        assertEquals(List.of(), uids(index, "  "));
+    }
+
+    @Test
+    public void everyWordMustMatch() {
+        StudentSearchIndex index = new StudentSearchIndex();
+        index.put("a", "Aarav Sharma", "aarav@college.edu", "Android");
+        index.put("c", "Arjun Sharma", "arjun@gmail.com", "Java");
+
+        assertEquals(List.of("a", "c"), uids(index, "sharma"));
+        assertEquals(List.of("c"), uids(index, "sha jav"));
+        assertEquals(List.of(), uids(index, "sharma design"));
+    }
+
+    @Test
+    public void updatesAndRemovalsAreIncremental() {
+        StudentSearchIndex index = new StudentSearchIndex();
+        index.put("a", "Aarav", "aarav@college.edu", "");
+        index.put("a", "Kabir", "kabir@college.edu", "");
+        assertEquals(List.of(), uids(index, "aarav"));
+        assertEquals(List.of("a"), uids(index, "kab"));
+
+        index.remove("a");
+        assertEquals(0, index.size());
+        assertEquals(List.of(), uids(index, "kab"));
+
+        index.put("b", "Kavya", "kavya@college.edu", "");
+        assertEquals(List.of("b"), uids(index, "ka"));
+    }
+
+    @Test
+    public void removalCutsBranchesNobodyUses() {
+        StudentSearchIndex index = new StudentSearchIndex();
+        index.put("a", "Aarav", "aarav@college.edu", "");
+        int oneStudent = index.nodeCount();
+        index.put("b", "Zoya Qureshi", "zoya@school.org", "Kotlin");
+        assertTrue(index.nodeCount() > oneStudent);
+
+        index.remove("b");
+        assertEquals(oneStudent, index.nodeCount());
+        // Shared prefixes stay for the student still using them
+        assertEquals(List.of("a"), uids(index, "coll"));
+        index.remove("a");
+        assertEquals(1, index.nodeCount());
+    }
+
+    @Test
+    public void queryIsFoldedInPlaceFromTheTextField() {
+        StudentSearchIndex index = new StudentSearchIndex();
+        index.put("b", "Zo\u00eb Fernandes", "zoe.f@college.edu", "Design");
+
+        // A decomposed accent and an editable buffer, as the text field hands them over
+        StringBuilder typed = new StringBuilder("ZOE\u0308 fern");
+        List<StudentSearchIndex.Entry> hits = new ArrayList<>();
+        assertEquals(1, index.search(typed, 50, hits));
+        typed.append('x');
+        assertEquals(0, index.search(typed, 50, hits));
+    }
+
+    @Test
+    public void limitStopsEarly() {
+        StudentSearchIndex index = new StudentSearchIndex();
+        for (int i = 0; i < 100; i++) {
+            index.put("u" + i, "Student " + i, "s" + i + "@college.edu", "");
+        }
+        List<StudentSearchIndex.Entry> hits = new ArrayList<>();
+        assertEquals(10, index.search("stu", 10, hits));
+        assertEquals(10, hits.size());
+    }
+
+    @Test
+    public void twentyThousandStudentsAnswerWellInsideAFrame() {
+        String[] first = {"Aarav", "Vivaan", "Aditya", "Ananya", "Diya", "Ishaan", "Kavya", "Riya", "Arjun", "Saanvi"};
+        String[] last = {"Sharma", "Verma", "Iyer", "Nair", "Reddy", "Gupta", "Khan", "Das", "Patel", "Singh"};
+        String[] skills = {"Java", "Android", "Kotlin", "Design", "Math", ""};
+        Random random = new Random(3);
+        StudentSearchIndex index = new StudentSearchIndex();
+        for (int i = 0; i < 20_000; i++) {
+            String name = first[random.nextInt(first.length)] + " " + last[random.nextInt(last.length)];
+            index.put("uid" + i, name, "student" + i + "@college.edu", skills[random.nextInt(skills.length)]);
+        }
+
+        String[] queries = {"a", "aa", "ar", "arj", "arjun", "arjun s", "arjun sh", "kavya iyer", "stud", "student1999", "jav"};
+        List<StudentSearchIndex.Entry> hits = new ArrayList<>();
+        // Warm up, then time every keystroke
+        for (int i = 0; i < 200; i++) {
+            for (String query : queries) {
+                hits.clear();
+                index.search(query, 50, hits);
+            }
+        }
+        long worst = 0;
+        for (String query : queries) {
+            hits.clear();
+            long start = System.nanoTime();
+            index.search(query, 50, hits);
+            worst = Math.max(worst, System.nanoTime() - start);
+            assertFalse(query, hits.isEmpty());
+        }
+        assertTrue("slowest query took " + worst / 1_000 + " us", worst < 16_000_000);
+    }
+}
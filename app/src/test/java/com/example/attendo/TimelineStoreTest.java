@@ -0,0 +1,206 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class TimelineStoreTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    /**
+     * Records what is listened to and how much each answer weighs.
+     */
+    private static final class CountingDatabase extends InMemoryRemoteDatabase {
+        final List<String> listened = new ArrayList<>();
+        int active;
+        int bytes;
+
+        @Override
+        public synchronized Registration listen(String path, ValueListener listener) {
+            listened.add(path);
+            active++;
+            Registration registration = super.listen(path, new ValueListener() {
+                @Override
+                public void onValue(Object value) {
+                    bytes += AttendanceWriter.estimateBytes(value);
+                    listener.onValue(value);
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    listener.onError(error);
+                }
+            });
+            return () -> {
+                active--;
+                registration.remove();
+            };
+        }
+    }
+
+    private static long at(int year, int month, int day, int hour) {
+        Calendar calendar = new GregorianCalendar(UTC);
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private static void mark(RemoteDatabase database, String uid, String sessionId, long at,
+                             String oldStatus, String newStatus) {
+        database.updateChildren(TimelineBuckets.updates(database, UTC, uid, sessionId, "cse-a", at,
+                oldStatus, newStatus), error -> assertNull(error));
+    }
+
+    /**
+     * Two sessions on every weekday of the given number of months, ending in March 2024.
+     */
+    private static CountingDatabase history(int months) {
+        CountingDatabase database = new CountingDatabase();
+        Calendar day = new GregorianCalendar(UTC);
+        day.clear();
+        day.set(2024, Calendar.MARCH, 31);
+        for (int i = 0; i < months * 31; i++) {
+            if (day.get(Calendar.DAY_OF_WEEK) != Calendar.SATURDAY && day.get(Calendar.DAY_OF_WEEK) != Calendar.SUNDAY) {
+                for (int slot = 0; slot < 2; slot++) {
+                    long start = day.getTimeInMillis() + (9 + slot) * 3_600_000L;
+                    String status = (i + slot) % 7 == 0 ? AttendanceSession.ABSENT : AttendanceSession.PRESENT;
+                    mark(database, "stu", "s" + i + "_" + slot, start, null, status);
+                }
+            }
+            day.add(Calendar.DAY_OF_MONTH, -1);
+        }
+        return database;
+    }
+
+    @Test
+    public void monthArithmetic() {
+        assertEquals("2024-03", TimelineBuckets.month(at(2024, Calendar.MARCH, 31, 23), UTC));
+        assertEquals("2024-04", TimelineBuckets.month(at(2024, Calendar.MARCH, 31, 23),
+                TimeZone.getTimeZone("Europe/Berlin")));
+        assertEquals("2023-12", TimelineBuckets.shift("2024-01", -1));
+        assertEquals("2025-02", TimelineBuckets.shift("2024-01", 13));
+        assertEquals(-13, TimelineBuckets.between("2025-02", "2024-01"));
+        assertEquals(29, TimelineBuckets.daysIn("2024-02"));
+        assertEquals(Calendar.FRIDAY, TimelineBuckets.firstWeekday("2024-03"));
+        assertEquals(Arrays.asList("2024-03", "2024-02", "2024-01"),
+                TimelineBuckets.recent(at(2024, Calendar.MARCH, 5, 12), UTC, 3));
+        assertEquals("d07", TimelineBuckets.dayKey(7));
+    }
+
+    @Test
+    public void marksMoveTheMonthAndDayCounters() {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        long monday = at(2024, Calendar.MARCH, 4, 9);
+        mark(database, "stu", "a", monday, null, AttendanceSession.PRESENT);
+        mark(database, "stu", "b", monday + 3_600_000L, null, AttendanceSession.ABSENT);
+        mark(database, "stu", "c", at(2024, Calendar.MARCH, 5, 9), null, AttendanceSession.LATE);
+        mark(database, "stu", "b", monday + 3_600_000L, AttendanceSession.ABSENT, AttendanceSession.PRESENT);
+        mark(database, "stu", "c", at(2024, Calendar.MARCH, 5, 9), AttendanceSession.LATE, null);
+
+        TimelineMonth march = TimelineMonth.empty("2024-03")
+                .withSummary(database.get(TimelineBuckets.summaryPath("stu", "2024-03")))
+                .withEntries(database.get(TimelineBuckets.entriesPath("stu", "2024-03")));
+        assertTrue(march.hasSummary());
+        assertEquals(2, march.total);
+        assertEquals(2, march.attended);
+        assertEquals(0, march.late);
+        assertEquals(2, march.totalOn(4));
+        assertEquals(2, march.attendedOn(4));
+        assertEquals(0, march.totalOn(5));
+        assertEquals(2, march.entries().size());
+        assertEquals("a", march.entries().get(0).sessionId);
+        assertEquals(AttendanceSession.PRESENT, march.entries().get(1).status);
+    }
+
+    @Test
+    public void loadingCostsTheVisibleMonthsNotTheHistory() {
+        int[] bytes = new int[2];
+        int i = 0;
+        for (int months : new int[]{6, 36}) {
+            CountingDatabase database = history(months);
+            TimelineStore store = new TimelineStore(database, "stu", month -> {});
+            store.show("2024-01", "2024-02");
+
+            assertEquals(sorted(Arrays.asList(
+                    TimelineBuckets.summaryPath("stu", "2023-12"),
+                    TimelineBuckets.summaryPath("stu", "2024-01"),
+                    TimelineBuckets.summaryPath("stu", "2024-02"),
+                    TimelineBuckets.summaryPath("stu", "2024-03"),
+                    TimelineBuckets.entriesPath("stu", "2024-01"),
+                    TimelineBuckets.entriesPath("stu", "2024-02"))), sorted(database.listened));
+            bytes[i++] = database.bytes;
+        }
+        assertEquals(bytes[0], bytes[1]);
+    }
+
+    @Test
+    public void neighboursHaveSummariesBeforeEntries() {
+        CountingDatabase database = history(6);
+        List<String> updates = new ArrayList<>();
+        TimelineStore store = new TimelineStore(database, "stu",
+                month -> updates.add(month.month + (month.entries() == null ? " summary" : " entries")));
+        store.show("2024-02", "2024-02");
+
+        // Every summary lands before the first entries
+        assertEquals(Arrays.asList("2024-01 summary", "2024-02 summary", "2024-03 summary"),
+                sorted(updates.subList(0, 3)));
+        assertEquals("2024-02 entries", updates.get(3));
+        TimelineMonth neighbour = store.month("2024-01");
+        assertTrue(neighbour.hasSummary());
+        assertTrue(neighbour.total > 0);
+        assertNull(neighbour.entries());
+        assertEquals(store.month("2024-02").total, store.month("2024-02").entries().size());
+        assertNull(store.month("2023-06"));
+    }
+
+    @Test
+    public void scrollingMovesListenersAndKeepsACache() {
+        CountingDatabase database = history(36);
+        TimelineStore store = new TimelineStore(database, "stu", month -> {});
+        String visible = "2024-03";
+        for (int step = 0; step < 30; step++) {
+            store.show(visible, visible);
+            assertEquals(4, database.active);
+            visible = TimelineBuckets.shift(visible, -1);
+        }
+        assertNotNull(store.month(TimelineBuckets.shift(visible, 5)));
+        assertNull("old months are evicted", store.month("2024-03"));
+
+        store.stop();
+        assertEquals(0, database.active);
+        store.resume();
+        assertEquals(4, database.active);
+    }
+
+    @Test
+    public void newMarksReachTheVisibleMonth() {
+        CountingDatabase database = history(2);
+        Map<String, TimelineMonth> seen = new HashMap<>();
+        TimelineStore store = new TimelineStore(database, "stu", month -> seen.put(month.month, month));
+        store.show("2024-03", "2024-03");
+        int before = seen.get("2024-03").total;
+
+        mark(database, "stu", "extra", at(2024, Calendar.MARCH, 30, 9), null, AttendanceSession.LATE);
+
+        TimelineMonth march = seen.get("2024-03");
+        assertEquals(before + 1, march.total);
+        assertEquals(1, march.attendedOn(30));
+        assertEquals(before + 1, march.entries().size());
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> copy = new ArrayList<>(values);
+        copy.sort(null);
+        return copy;
+    }
+}
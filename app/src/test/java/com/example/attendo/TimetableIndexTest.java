@@ -0,0 +1,187 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class TimetableIndexTest {
+
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Europe/Berlin");
+
+    // Monday 2024-03-25 ... Sunday 2024-03-31; DST starts on the Sunday
+    private static long at(int day, int hour, int minute) {
+        Calendar calendar = new GregorianCalendar(ZONE);
+        calendar.clear();
+        calendar.set(2024, Calendar.MARCH, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    private static Timetable.Slot slot(String id, int weekday, int start, int end) {
+        return new Timetable.Slot(id, "CS-1", "Subject " + id, weekday, start, end, 0, 0);
+    }
+
+    private static Timetable timetable(List<Timetable.Slot> slots, List<Timetable.Change> changes,
+                                       List<Timetable.Holiday> holidays) {
+        return new Timetable(slots, changes, holidays);
+    }
+
+    private static final List<Timetable.Slot> WEEK = Arrays.asList(
+            slot("math", Calendar.MONDAY, 9 * 60, 10 * 60),
+            slot("physics", Calendar.MONDAY, 10 * 60 + 15, 11 * 60 + 45),
+            slot("lab", Calendar.MONDAY, 11 * 60, 13 * 60),
+            slot("chem", Calendar.WEDNESDAY, 14 * 60, 15 * 60),
+            slot("sunday", Calendar.SUNDAY, 9 * 60, 10 * 60));
+
+    @Test
+    public void answersActiveAndNextFromTheWeek() {
+        TimetableIndex index = TimetableIndex.build(timetable(WEEK, Collections.<Timetable.Change>emptyList(),
+                Collections.<Timetable.Holiday>emptyList()), at(25, 8, 0), ZONE);
+
+        assertNull(index.active(at(25, 8, 0)));
+        assertEquals("math", index.next(at(25, 8, 0)).slotId);
+        assertEquals("math", index.active(at(25, 9, 0)).slotId);
+        // End is exclusive
+        assertNull(index.active(at(25, 10, 0)));
+        assertEquals("physics", index.next(at(25, 10, 0)).slotId);
+        // Overlap: the one that started last wins, the earlier one is still found alone
+        assertEquals("lab", index.active(at(25, 11, 30)).slotId);
+        assertEquals("lab", index.active(at(25, 12, 0)).slotId);
+        assertEquals("physics", index.active(at(25, 10, 30)).slotId);
+        // Next crosses days
+        assertEquals("chem", index.next(at(25, 13, 0)).slotId);
+        assertEquals("20240327", String.valueOf(index.next(at(25, 13, 0)).date));
+        assertEquals("math_20240325", index.active(at(25, 9, 30)).sessionId());
+        assertEquals(5, index.occurrences().size());
+        assertFalse(index.covers(at(25, 8, 0) + 7 * 24 * 3_600_000L));
+    }
+
+    @Test
+    public void placesSessionsByWallClockAcrossDst() {
+        TimetableIndex index = TimetableIndex.build(timetable(WEEK, Collections.<Timetable.Change>emptyList(),
+                Collections.<Timetable.Holiday>emptyList()), at(25, 8, 0), ZONE);
+        TimetableIndex.Occurrence sunday = index.next(at(31, 0, 0));
+        assertEquals("sunday", sunday.slotId);
+        assertEquals(at(31, 9, 0), sunday.start);
+        assertEquals(3_600_000L, sunday.end - sunday.start);
+    }
+
+    @Test
+    public void appliesExceptionsHolidaysAndValidity() {
+        List<Timetable.Slot> slots = new ArrayList<>(WEEK);
+        slots.add(new Timetable.Slot("old", "CS-1", "Old", Calendar.MONDAY, 15 * 60, 16 * 60, 0, 20240324));
+        TimetableIndex index = TimetableIndex.build(timetable(slots,
+                Arrays.asList(new Timetable.Change("math", 20240325, true, 0, 0),
+                        new Timetable.Change("physics", 20240325, false, 16 * 60, 17 * 60)),
+                Collections.singletonList(new Timetable.Holiday(20240327, 20240327, "Day off"))),
+                at(25, 8, 0), ZONE);
+
+        assertNull(index.active(at(25, 9, 30)));
+        assertEquals("lab", index.next(at(25, 8, 0)).slotId);
+        assertEquals("physics", index.active(at(25, 16, 30)).slotId);
+        // Holiday on Wednesday, and "old" ended before this week
+        assertEquals("sunday", index.next(at(25, 17, 0)).slotId);
+    }
+
+    @Test
+    public void updateOnlyReexpandsTouchedDays() {
+        Timetable before = timetable(WEEK, Collections.<Timetable.Change>emptyList(),
+                Collections.<Timetable.Holiday>emptyList());
+        TimetableIndex index = TimetableIndex.build(before, at(25, 8, 0), ZONE);
+
+        List<Timetable.Slot> edited = new ArrayList<>(WEEK);
+        edited.set(3, slot("chem", Calendar.THURSDAY, 14 * 60, 15 * 60));
+        TimetableIndex updated = index.update(timetable(edited,
+                Collections.singletonList(new Timetable.Change("sunday", 20240331, true, 0, 0)),
+                Collections.<Timetable.Holiday>emptyList()));
+
+        // Monday and the untouched Tuesday/Friday/Saturday are shared
+        assertSame(index.day(0), updated.day(0));
+        assertSame(index.day(1), updated.day(1));
+        assertSame(index.day(4), updated.day(4));
+        // Wednesday lost chem, Thursday gained it, Sunday's session was cancelled
+        assertNotSame(index.day(2), updated.day(2));
+        assertEquals(0, updated.day(2).length);
+        assertEquals("chem", updated.day(3)[0].slotId);
+        assertEquals(0, updated.day(6).length);
+        assertEquals(1, index.day(6).length);
+
+        // Same answers as building from scratch
+        TimetableIndex rebuilt = TimetableIndex.build(updated.timetable(), at(25, 8, 0), ZONE);
+        assertEquals(rebuilt.occurrences().size(), updated.occurrences().size());
+        for (long t = at(25, 0, 0); updated.covers(t); t += 15 * 60_000L) {
+            assertEquals(rebuilt.active(t) == null, updated.active(t) == null);
+            TimetableIndex.Occurrence a = rebuilt.next(t);
+            TimetableIndex.Occurrence b = updated.next(t);
+            assertEquals(a == null ? null : a.sessionId(), b == null ? null : b.sessionId());
+        }
+    }
+
+    @Test
+    public void parsesTheFirebaseShape() {
+        Map<String, Object> slot = new HashMap<>();
+        slot.put("class_id", "CS-2");
+        slot.put("subject", "Algebra");
+        slot.put("day", (long) Calendar.TUESDAY);
+        slot.put("start", 600L);
+        slot.put("end", 660L);
+        Map<String, Object> slots = new HashMap<>();
+        slots.put("alg", slot);
+        Map<String, Object> root = new HashMap<>();
+        root.put("slots", slots);
+
+        Timetable timetable = Timetable.fromValue(root);
+        assertEquals(1, timetable.slots.size());
+        TimetableIndex index = TimetableIndex.build(timetable, at(25, 8, 0), ZONE);
+        TimetableIndex.Occurrence next = index.next(at(25, 8, 0));
+        assertEquals("Algebra", next.subject);
+        assertEquals(at(26, 10, 0), next.start);
+        assertSame(Timetable.EMPTY, Timetable.fromValue(null));
+    }
+
+    @Test
+    public void ordinalCountsHeldSessionsOfTheSubjectSinceTheStart() {
+        // Maths twice a week from Monday 2024-03-04, one Wednesday cancelled, one week off
+        List<Timetable.Slot> slots = Arrays.asList(
+                new Timetable.Slot("m1", "CS-1", "Maths", Calendar.MONDAY, 9 * 60, 10 * 60, 20240304, 0),
+                new Timetable.Slot("m2", "CS-1", "Maths", Calendar.WEDNESDAY, 9 * 60, 10 * 60, 20240304, 0),
+                new Timetable.Slot("p1", "CS-1", "Physics", Calendar.MONDAY, 11 * 60, 12 * 60, 20240304, 0));
+        TimetableIndex index = TimetableIndex.build(timetable(slots,
+                Collections.singletonList(new Timetable.Change("m2", 20240306, true, 0, 0)),
+                Collections.singletonList(new Timetable.Holiday(20240318, 20240322, "Break"))),
+                at(25, 8, 0), ZONE);
+
+        // Held before 2024-03-25: 4th, 11th, 13th (the 6th cancelled, 18th-22nd off)
+        assertEquals(3, index.ordinal(index.active(at(25, 9, 30))));
+        assertEquals(4, index.ordinal(index.next(at(25, 13, 0))));
+        // Physics counts on its own: the 4th and the 11th
+        assertEquals(2, index.ordinal(index.active(at(25, 11, 30))));
+
+        // A slot without a start date makes positions unknowable
+        TimetableIndex open = TimetableIndex.build(timetable(WEEK, Collections.<Timetable.Change>emptyList(),
+                Collections.<Timetable.Holiday>emptyList()), at(25, 8, 0), ZONE);
+        assertEquals(-1, open.ordinal(open.active(at(25, 9, 30))));
+    }
+
+    @Test
+    public void slotWithoutASubjectIsNotCountedForOthers() {
+        List<Timetable.Slot> slots = Arrays.asList(
+                new Timetable.Slot("x1", "CS-1", null, Calendar.MONDAY, 8 * 60, 9 * 60, 20240304, 0),
+                new Timetable.Slot("m1", "CS-1", "Maths", Calendar.MONDAY, 9 * 60, 10 * 60, 20240304, 0));
+        TimetableIndex index = TimetableIndex.build(timetable(slots, Collections.<Timetable.Change>emptyList(),
+                Collections.<Timetable.Holiday>emptyList()), at(25, 7, 0), ZONE);
+
+        // Mondays 4th, 11th and 18th
+        assertEquals(3, index.ordinal(index.active(at(25, 9, 30))));
+        assertEquals(3, index.ordinal(index.active(at(25, 8, 30))));
+    }
+}
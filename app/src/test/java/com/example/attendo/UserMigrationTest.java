@@ -0,0 +1,217 @@
+package com.example.attendo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class UserMigrationTest {
+
+    /**
+     * Reads users/ straight from the in-memory tree, a page at a time in uid order.
+     */
+    private static final class TreeSource implements UserMigration.Source {
+        private final InMemoryRemoteDatabase database;
+        final List<String> requested = new ArrayList<>();
+
+        TreeSource(InMemoryRemoteDatabase database) {
+            this.database = database;
+        }
+
+        @Override
+        public void loadAfter(String uid, int size, Callback callback) {
+            requested.add(String.valueOf(uid));
+            Map<String, Object> page = new LinkedHashMap<>();
+            Object users = database.get("users");
+            if (users instanceof Map) {
+                for (Map.Entry<?, ?> user : new TreeMap<>((Map<?, ?>) users).entrySet()) {
+                    String key = String.valueOf(user.getKey());
+                    if ((uid == null || key.compareTo(uid) > 0) && page.size() < size) {
+                        page.put(key, user.getValue());
+                    }
+                }
+            }
+            callback.onLoaded(page);
+        }
+    }
+
+    private static final class Result implements UserMigration.Listener {
+        UserMigration.Progress done;
+        Exception error;
+        int chunks;
+        Runnable onChunk;
+
+        @Override
+        public void onProgress(UserMigration.Progress progress) {
+            chunks++;
+            if (onChunk != null) {
+                onChunk.run();
+            }
+        }
+
+        @Override
+        public void onDone(UserMigration.Progress progress) {
+            done = progress;
+        }
+
+        @Override
+        public void onError(Exception error) {
+            this.error = error;
+        }
+    }
+
+    private static InMemoryRemoteDatabase accounts(int count) {
+        InMemoryRemoteDatabase database = new InMemoryRemoteDatabase();
+        for (int i = 0; i < count; i++) {
+            String uid = String.format("u%04d", i);
+            database.put("users/" + uid + "/username", "Student " + i);
+            database.put("users/" + uid + "/email", "s" + i + "@example.com");
+            database.put("users/" + uid + "/skill", "Java");
+        }
+        return database;
+    }
+
+    @Test
+    public void movesEveryAccountAndResumesAfterAFailedChunk() {
+        InMemoryRemoteDatabase database = accounts(1000);
+        TreeSource source = new TreeSource(database);
+        UserMigration migration = new UserMigration(database, source,
+                UserMigration.into("inst1"), "test", 64);
+
+        Result first = new Result();
+        first.onChunk = () -> {
+            if (first.chunks == 4) {
+                database.failNextWith = new IllegalStateException("offline");
+            }
+        };
+        migration.run(first);
+        assertNotNull(first.error);
+        assertNull(first.done);
+        assertEquals(4 * 64, Values.asLong(database.get("migrations/test/migrated")));
+        assertNull(database.get("members/inst1/u0300"));
+
+        // The next run starts after the last recorded chunk, not from the beginning
+        source.requested.clear();
+        Result second = new Result();
+        migration.run(second);
+        assertNull(second.error);
+        assertEquals("u0255", source.requested.get(0));
+        assertEquals(1000, second.done.migrated);
+        assertEquals(Boolean.TRUE, database.get("migrations/test/done"));
+        for (int i = 0; i < 1000; i++) {
+            String uid = String.format("u%04d", i);
+            assertEquals("inst1", database.get("users/" + uid + "/institution"));
+            assertEquals("Student " + i, database.get("members/inst1/" + uid + "/username"));
+        }
+
+        // Finished: nothing more is read
+        source.requested.clear();
+        Result third = new Result();
+        migration.run(third);
+        assertNotNull(third.done);
+        assertTrue(source.requested.isEmpty());
+    }
+
+    @Test
+    public void accountsAlreadyInAnInstitutionKeepIt() {
+        InMemoryRemoteDatabase database = accounts(5);
+        // Joined another institution through its roster import
+        User joined = UserMapper.fromValue(database.get("users/u0002"));
+        database.updateChildren(Enrollments.join("inst2", "u0002", joined), error -> {});
+        database.updateChildren(Enrollments.enroll("inst2", "maths", "u0002", joined), error -> {});
+
+        Result result = new Result();
+        new UserMigration(database, new TreeSource(database), UserMigration.into("inst1"), "inst1", 64).run(result);
+
+        assertEquals(4, result.done.migrated);
+        assertEquals(1, result.done.skipped);
+        assertNull(database.get("members/inst1/u0002"));
+        User user = UserMapper.fromValue(database.get("users/u0002"));
+        assertEquals("inst2", user.institution);
+        assertEquals(Collections.singletonList("maths"), user.classes);
+        assertEquals("inst1", database.get("users/u0003/institution"));
+    }
+
+    @Test
+    public void placementFillsBothDirectionsOfTheClassIndex() {
+        InMemoryRemoteDatabase database = accounts(30);
+        database.put("users/u0007/email", null);
+        UserMigration.Placement byUid = (uid, user) -> user.email == null ? null
+                : new UserMigration.Target("inst1", Collections.singletonList("c" + Integer.parseInt(uid.substring(1)) % 3));
+        Result result = new Result();
+        new UserMigration(database, new TreeSource(database), byUid, "classes", 8).run(result);
+
+        assertEquals(29, result.done.migrated);
+        assertEquals(1, result.done.skipped);
+        assertNull(database.get("members/inst1/u0007"));
+        for (int k = 0; k < 3; k++) {
+            Map<?, ?> students = (Map<?, ?>) database.get(Enrollments.classStudentsPath("inst1", "c" + k));
+            for (Object uid : students.keySet()) {
+                assertEquals(k, Integer.parseInt(uid.toString().substring(1)) % 3);
+                User user = UserMapper.fromValue(database.get("users/" + uid));
+                assertEquals(Collections.singletonList("c" + k), user.classes);
+            }
+        }
+        assertEquals(10, ((Map<?, ?>) database.get(Enrollments.classStudentsPath("inst1", "c0"))).size());
+        assertEquals(9, ((Map<?, ?>) database.get(Enrollments.classStudentsPath("inst1", "c1"))).size());
+    }
+
+    @Test
+    public void profileEditsRewriteTheCardsInTheSameWrite() {
+        InMemoryRemoteDatabase database = accounts(3);
+        database.put("users/u0001/version", 1L);
+        database.updateChildren(Enrollments.join("inst1", "u0001",
+                UserMapper.fromValue(database.get("users/u0001"))), error -> {});
+        for (String classId : Arrays.asList("maths", "physics")) {
+            database.updateChildren(Enrollments.enroll("inst1", classId, "u0001",
+                    UserMapper.fromValue(database.get("users/u0001"))), error -> {});
+        }
+
+        List<Runnable> scheduled = new ArrayList<>();
+        ProfileSavePipeline pipeline = new ProfileSavePipeline(database, "u0001",
+                (task, delayMs) -> scheduled.add(task), 0);
+        User server = UserMapper.fromValue(database.get("users/u0001"));
+        User edited = new User("Renamed", server.email, server.skill, null);
+        int[] saved = {-1};
+        pipeline.save(server, edited, new ProfileSavePipeline.Listener() {
+            @Override
+            public void onSaved(int fieldsWritten) {
+                saved[0] = fieldsWritten;
+            }
+
+            @Override
+            public void onConflict() {
+                fail();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                fail(error.getMessage());
+            }
+        });
+        int before = database.roundTrips;
+        while (!scheduled.isEmpty()) {
+            scheduled.remove(0).run();
+        }
+
+        assertEquals(1, saved[0]);
+        // One update, version check included
+        assertEquals(before + 1, database.roundTrips);
+        assertEquals("Renamed", database.get("members/inst1/u0001/username"));
+        assertEquals("Renamed", database.get("class_students/inst1/maths/u0001/username"));
+        assertEquals("Renamed", database.get("class_students/inst1/physics/u0001/username"));
+        assertEquals("s1@example.com", database.get("class_students/inst1/physics/u0001/email"));
+
+        database.updateChildren(Enrollments.withdraw("inst1", "physics", "u0001"), error -> {});
+        assertNull(database.get("class_students/inst1/physics/u0001"));
+        assertEquals(Collections.singletonList("maths"),
+                UserMapper.fromValue(database.get("users/u0001")).classes);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.attendo.baselineprofile
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Collects the startup profile that ships with :app.
+ *
+ * Run with: ./gradlew :app:generateBaselineProfile
+ * The result is written to app/src/release/generated/baselineProfiles.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+
+    @get:Rule
+    val rule = BaselineProfileRule()
+
+    @Test
+    fun generate() = rule.collect(
+        packageName = "com.example.attendo",
+        includeInStartupProfile = true
+    ) {
+        pressHome()
+        startActivityAndWait()
+    }
+}
@@ -0,0 +1,38 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The models and mappers are plain Java, so they are compiled straight from the app
+// sources; anything touching Android or Firebase stays out of this list.
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/attendo/User.java",
+                "com/example/attendo/UserMapper.java",
+                "com/example/attendo/AttendanceRecord.java",
+                "com/example/attendo/AttendanceRecordMapper.java",
+                "com/example/attendo/Values.java",
+                "com/example/attendo/StudentSummary.java",
+                "com/example/attendo/SubjectSummary.java",
+                "com/example/attendo/AttendanceSession.java",
+                "com/example/attendo/AttendanceBitset.java",
+                "com/example/attendo/AttendanceBitsetCodec.java"
+            )
+        }
+    }
+}
+
+// Run with: ./gradlew :jmh:jmh
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+}
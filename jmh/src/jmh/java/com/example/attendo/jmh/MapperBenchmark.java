@@ -0,0 +1,120 @@
+package com.example.attendo.jmh;
+
+import com.example.attendo.AttendanceRecord;
+import com.example.attendo.AttendanceRecordMapper;
+import com.example.attendo.User;
+import com.example.attendo.UserMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a whole roster sync into models (and back), generated mappers
+ * versus reflection. Each invocation processes the full roster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapperBenchmark {
+
+    private static final String[] SKILLS = {"", "Java", "Android", "Kotlin", "Design", "Math"};
+    private static final String[] STATUSES = {"present", "absent", "late"};
+
+    @Param({"1000", "10000", "50000"})
+    public int rosterSize;
+
+    private List<Map<String, Object>> userMaps;
+    private List<User> users;
+    private List<Map<String, Object>> recordMaps;
+    private List<AttendanceRecord> records;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        userMaps = new ArrayList<>(rosterSize);
+        users = new ArrayList<>(rosterSize);
+        recordMaps = new ArrayList<>(rosterSize);
+        records = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) {
+            User user = new User("Student " + i, "student" + i + "@college.edu",
+                    SKILLS[random.nextInt(SKILLS.length)], "2024-09-0" + (1 + random.nextInt(9)) + " 10:00:00");
+            users.add(user);
+            userMaps.add(UserMapper.toMap(user));
+
+            AttendanceRecord record = new AttendanceRecord("s-42", "uid-" + i,
+                    STATUSES[random.nextInt(STATUSES.length)], 1_725_000_000_000L + i);
+            records.add(record);
+            recordMaps.add(AttendanceRecordMapper.toMap(record));
+        }
+    }
+
+    @Benchmark
+    public void usersFromMapGenerated(Blackhole bh) {
+        for (Map<String, Object> map : userMaps) {
+            bh.consume(UserMapper.fromMap(map));
+        }
+    }
+
+    @Benchmark
+    public void usersFromMapReflection(Blackhole bh) {
+        for (Map<String, Object> map : userMaps) {
+            bh.consume(ReflectiveMapper.fromMap(map, User.class));
+        }
+    }
+
+    @Benchmark
+    public void usersToMapGenerated(Blackhole bh) {
+        for (User user : users) {
+            bh.consume(UserMapper.toMap(user));
+        }
+    }
+
+    @Benchmark
+    public void usersToMapReflection(Blackhole bh) {
+        for (User user : users) {
+            bh.consume(ReflectiveMapper.toMap(user));
+        }
+    }
+
+    @Benchmark
+    public void recordsFromMapGenerated(Blackhole bh) {
+        for (Map<String, Object> map : recordMaps) {
+            bh.consume(AttendanceRecordMapper.fromValue("s-42", "uid", map));
+        }
+    }
+
+    @Benchmark
+    public void recordsFromMapReflection(Blackhole bh) {
+        for (Map<String, Object> map : recordMaps) {
+            bh.consume(ReflectiveMapper.fromMap(map, AttendanceRecord.class));
+        }
+    }
+
+    @Benchmark
+    public void recordsToMapGenerated(Blackhole bh) {
+        for (AttendanceRecord record : records) {
+            bh.consume(AttendanceRecordMapper.toMap(record));
+        }
+    }
+
+    @Benchmark
+    public void recordsToMapReflection(Blackhole bh) {
+        for (AttendanceRecord record : records) {
+            bh.consume(ReflectiveMapper.toMap(record));
+        }
+    }
+}
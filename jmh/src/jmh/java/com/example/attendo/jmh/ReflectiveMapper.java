@@ -0,0 +1,67 @@
+package com.example.attendo.jmh;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for Firebase's CustomClassMapper, which is only shipped inside the Android
+ * library. Like the real one it caches the per-class field list, then goes through
+ * reflection for every object and every property.
+ */
+final class ReflectiveMapper {
+
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private ReflectiveMapper() {}
+
+    static <T> T fromMap(Map<String, Object> map, Class<T> type) {
+        try {
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            T instance = constructor.newInstance();
+            for (Field field : fields(type)) {
+                Object value = map.get(field.getName());
+                if (value == null) {
+                    continue;
+                }
+                if (field.getType() == long.class) {
+                    field.setLong(instance, ((Number) value).longValue());
+                } else {
+                    field.set(instance, field.getType().cast(value));
+                }
+            }
+            return instance;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Map<String, Object> toMap(Object instance) {
+        try {
+            Map<String, Object> map = new HashMap<>();
+            for (Field field : fields(instance.getClass())) {
+                map.put(field.getName(), field.get(instance));
+            }
+            return map;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Field> fields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Field field : t.getFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    fields.add(field);
+                }
+            }
+            return fields;
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.attendo.macrobenchmark
+
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.TraceSectionMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Direction
+import androidx.test.uiautomator.Until
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Cost of the Compose dashboard: time to first frame and to build the content, and frame
+ * durations while scrolling the subject list. Needs a signed-in account on the device,
+ * since the launcher only routes signed-in users to the dashboard.
+ *
+ * For the comparison with the XML dashboard, run the same benchmark on the commit before
+ * the migration; StartupTimingMetric and FrameTimingMetric mean the same thing on both.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class DashboardBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @OptIn(ExperimentalMetricApi::class)
+    @Test
+    fun coldStart() = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(StartupTimingMetric(), TraceSectionMetric("Dashboard.setContent")),
+        compilationMode = CompilationMode.DEFAULT,
+        startupMode = StartupMode.COLD,
+        iterations = 10,
+        setupBlock = { pressHome() }
+    ) {
+        startActivityAndWait()
+        device.wait(Until.hasObject(By.res("dashboard_list")), 5_000)
+    }
+
+    @Test
+    fun scroll() = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(FrameTimingMetric()),
+        compilationMode = CompilationMode.DEFAULT,
+        startupMode = StartupMode.WARM,
+        iterations = 5,
+        setupBlock = {
+            pressHome()
+            startActivityAndWait()
+            device.wait(Until.hasObject(By.res("dashboard_list")), 5_000)
+        }
+    ) {
+        val list = device.findObject(By.res("dashboard_list"))
+        list.setGestureMargin(device.displayWidth / 5)
+        list.fling(Direction.DOWN)
+        device.waitForIdle()
+        list.fling(Direction.UP)
+        device.waitForIdle()
+    }
+}
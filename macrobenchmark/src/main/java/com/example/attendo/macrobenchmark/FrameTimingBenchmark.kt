@@ -0,0 +1,44 @@
+package com.example.attendo.macrobenchmark
+
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Until
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Frame durations while moving between the login and register screens, the
+ * first interaction a signed-out user has with the app.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class FrameTimingBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun loginToRegister() = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(FrameTimingMetric()),
+        compilationMode = CompilationMode.DEFAULT,
+        startupMode = StartupMode.COLD,
+        iterations = 5,
+        setupBlock = {
+            pressHome()
+            startActivityAndWait()
+        }
+    ) {
+        device.findObject(By.res(packageName, "login_create"))?.click()
+        device.wait(Until.hasObject(By.res(packageName, "register_btn")), 5_000)
+        device.waitForIdle()
+    }
+}
+
+const val TARGET_PACKAGE = "com.example.attendo"
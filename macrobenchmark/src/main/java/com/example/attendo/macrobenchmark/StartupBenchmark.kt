@@ -0,0 +1,52 @@
+package com.example.attendo.macrobenchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Time to initial display for cold and warm starts, with and without the
+ * Baseline Profile, measured through the launcher entry point.
+ *
+ * Run with: ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class StartupBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun coldStartupNoCompilation() = startup(StartupMode.COLD, CompilationMode.None())
+
+    @Test
+    fun coldStartupBaselineProfile() =
+        startup(StartupMode.COLD, CompilationMode.Partial(BaselineProfileMode.Require))
+
+    @Test
+    fun warmStartupNoCompilation() = startup(StartupMode.WARM, CompilationMode.None())
+
+    @Test
+    fun warmStartupBaselineProfile() =
+        startup(StartupMode.WARM, CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun startup(startupMode: StartupMode, compilationMode: CompilationMode) =
+        benchmarkRule.measureRepeated(
+            packageName = TARGET_PACKAGE,
+            metrics = listOf(StartupTimingMetric()),
+            compilationMode = compilationMode,
+            startupMode = startupMode,
+            iterations = 10,
+            setupBlock = { pressHome() }
+        ) {
+            startActivityAndWait()
+        }
+}
@@ -21,3 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "Attendo"
 include(":app")
+include(":macrobenchmark")
+include(":baselineprofile")
+include(":jmh")